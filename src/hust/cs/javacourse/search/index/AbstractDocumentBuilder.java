@@ -1,5 +1,6 @@
 package hust.cs.javacourse.search.index;
 
+import hust.cs.javacourse.search.parse.AbstractAnalyzer;
 import hust.cs.javacourse.search.parse.AbstractTermTupleStream;
 
 import java.io.File;
@@ -44,4 +45,25 @@ public abstract class AbstractDocumentBuilder {
      * </pre>
      */
     public abstract AbstractDocument build(int docId, String docPath, File file);
+
+    /**
+     * <pre>
+     * 由给定的File构造AbstractTermTupleStream子类对象，即build(int docId, String docPath, File file)内部使用的三元组流.
+     * 索引可以直接从这个流中逐个读取三元组，而不必先把整个文档的三元组保存到Document对象里.
+     * @param file      : 文档对应File对象
+     * @return          : 文档对应的三元组流，使用完后需要调用close关闭
+     * </pre>
+     */
+    public abstract AbstractTermTupleStream termTupleStream(File file);
+
+    /**
+     * <pre>
+     * 返回termTupleStream使用的分析器，构建索引时记录到索引中，检索时用它规范化检索词.
+     * 默认返回null，表示分析方式未知.
+     * @return          : 分析器，未知时返回null
+     * </pre>
+     */
+    public AbstractAnalyzer getAnalyzer() {
+        return null;
+    }
 }
@@ -1,5 +1,9 @@
 package hust.cs.javacourse.search.index;
 
+import hust.cs.javacourse.search.parse.AbstractAnalyzer;
+import hust.cs.javacourse.search.parse.AbstractTermTupleStream;
+
+import java.util.List;
 import java.util.Map;
 import java.io.File;
 import java.util.Set;
@@ -47,6 +51,17 @@ public abstract class AbstractIndex implements FileSerializable{
      */
     public abstract void addDocument(AbstractDocument document);
 
+    /**
+     * <pre>
+     * 以流的方式添加文档到索引: 直接从三元组流中逐个读取三元组写入索引，不构造包含全部三元组的Document对象.
+     * 方法返回前会关闭三元组流.
+     * @param docId           ：文档id
+     * @param docPath         ：文档绝对路径
+     * @param termTupleStream ：文档对应的三元组流
+     * </pre>
+     */
+    public abstract void addDocument(int docId, String docPath, AbstractTermTupleStream termTupleStream);
+
     /**
      * <pre>
      * 从索引文件里加载已经构建好的索引.内部调用FileSerializable接口方法readObject即可
@@ -76,6 +91,23 @@ public abstract class AbstractIndex implements FileSerializable{
      */
     public abstract Set<AbstractTerm> getDictionary();
 
+    /**
+     * 返回字典中以指定前缀开头的所有单词，按字典序排列
+     * @param prefix ：前缀
+     * @return ：以prefix开头的单词列表;没有时返回空列表
+     */
+    public abstract List<AbstractTerm> getTermsWithPrefix(String prefix);
+
+    /**
+     * <pre>
+     * 返回字典中位于[from, to)区间的所有单词，按字典序排列
+     * @param from ：区间下界(含)，为null时表示没有下界
+     * @param to   ：区间上界(不含)，为null时表示没有上界
+     * @return ：区间内的单词列表;没有时返回空列表
+     * </pre>
+     */
+    public abstract List<AbstractTerm> getTermsInRange(String from, String to);
+
     /**
      * <pre>
      * 对索引进行优化，包括：
@@ -92,4 +124,59 @@ public abstract class AbstractIndex implements FileSerializable{
      * @return : 对应文档的完全路径名
      */
     public abstract String getDocName(int docId);
+
+    /**
+     * <pre>
+     * 返回文档长度，即建立索引时该文档中经过过滤后保留下来的单词个数(同一单词出现多次计多次).
+     * 文档长度在构建索引时统计并随索引一起保存，计算BM25等得分时不需要重新统计.
+     * @param docId ：文档id
+     * @return ：文档长度;索引中没有该文档时返回0
+     * </pre>
+     */
+    public abstract int getDocLength(int docId);
+
+    /**
+     * 返回索引中所有文档的平均长度
+     * @return ：平均文档长度;索引为空时返回0
+     */
+    public abstract double getAverageDocLength();
+
+    /**
+     * 返回包含指定单词的文档个数(文档频率df)
+     * @param term ：指定的单词
+     * @return ：文档频率;如果索引字典没有该单词，则返回0
+     */
+    public abstract int getDocFreq(AbstractTerm term);
+
+    /**
+     * <pre>
+     * 返回索引的版本号. 每次添加文档、合并其他索引或重新加载后版本号增大，不可变的索引始终返回同一个值.
+     * 缓存检索结果时用它判断索引是否已经改变.直接修改公有的映射字段或PostingList不会改变版本号.
+     * @return ：版本号
+     * </pre>
+     */
+    public abstract long getVersion();
+
+    /**
+     * <pre>
+     * 返回建立索引时使用的分析器. 检索时必须用同一个分析器规范化检索词，例如索引提取了词干时检索词也要提取词干.
+     * 默认返回null，表示索引没有记录分析器，检索时使用Config中的当前设置.
+     * @return ：分析器，未知时返回null
+     * </pre>
+     */
+    public AbstractAnalyzer getAnalyzer() {
+        return null;
+    }
+
+    /**
+     * <pre>
+     * 返回索引当前时刻的只读视图，之后索引的修改对视图不可见.
+     * 检索器在每次检索开始时取一次视图，整个检索过程看到的是同一时刻的索引.
+     * 默认返回索引本身，适用于不会被修改或者检索期间不修改的索引.
+     * @return ：索引的只读视图
+     * </pre>
+     */
+    public AbstractIndex snapshot() {
+        return this;
+    }
 }
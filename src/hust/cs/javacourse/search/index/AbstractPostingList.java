@@ -57,6 +57,54 @@ public abstract class AbstractPostingList implements FileSerializable{
      */
     public abstract int indexOf(int docId);
 
+    /**
+     * 返回指定下标位置的Posting的文档id
+     * @param index ：下标
+     * @return ：文档id
+     */
+    public abstract int docIdAt(int index);
+
+    /**
+     * <pre>
+     * 从下标from开始向后查找第一个docId不小于指定docId的Posting，用于多个PostingList求交时跳过不可能匹配的Posting.
+     * 要求PostingList已经按docId从小到大排序(即执行过sort).
+     * @param from  ：开始查找的下标
+     * @param docId ：目标文档id
+     * @return ：不小于from、且docId不小于目标docId的最小下标;如果不存在返回size()
+     * </pre>
+     */
+    public abstract int advance(int from, int docId);
+
+    /**
+     * 返回指定下标位置的Posting的出现次数
+     * @param index ：下标
+     * @return ：出现次数
+     */
+    public abstract int freqAt(int index);
+
+    /**
+     * 返回所有Posting中最大的出现次数，用于估计该单词对文档得分贡献的上界
+     * @return ：最大出现次数，列表为空时返回0
+     */
+    public abstract int maxFreq();
+
+    /**
+     * <pre>
+     * 返回下标index所在块的结束下标(不含).
+     * 块是连续的若干个Posting，按块记录最大出现次数，检索时可以整块跳过得分不够高的文档.
+     * @param index ：下标
+     * @return ：所在块的结束下标
+     * </pre>
+     */
+    public abstract int blockEnd(int index);
+
+    /**
+     * 返回下标index所在块中最大的出现次数
+     * @param index ：下标
+     * @return ：块内最大出现次数
+     */
+    public abstract int blockMaxFreq(int index);
+
     /**
      * 是否包含指定Posting对象
      * @param posting： 指定的Posting对象
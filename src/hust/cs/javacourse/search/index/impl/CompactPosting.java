@@ -0,0 +1,268 @@
+package hust.cs.javacourse.search.index.impl;
+
+import hust.cs.javacourse.search.index.AbstractPosting;
+
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * CompactPosting类是CompactPostingList中某个Posting的视图。
+ * 它本身不保存文档ID、频率和位置，所有读写都直接作用在CompactPostingList的基本类型数组上，
+ * getPositions返回的位置列表也是数组片段的视图，只有在逐个读取时才装箱。
+ * 序列化时写出内容相同的Posting，反序列化得到的也是Posting，不会把整个所属列表一起写出。
+ *
+ * @author 晋晨曦
+ */
+public class CompactPosting extends AbstractPosting {
+    private static final long serialVersionUID = 1L;
+
+    private final CompactPostingList owner;
+    private final int index;
+
+    /**
+     * 创建指定倒排列表中指定下标Posting的视图
+     *
+     * @param owner 所属的倒排列表
+     * @param index Posting在倒排列表中的下标
+     */
+    CompactPosting(CompactPostingList owner, int index) {
+        this.owner = owner;
+        this.index = index;
+        this.positions = new PositionList();
+    }
+
+    /**
+     * 判断两个Posting对象是否相等。
+     * 如果文档ID、频率和位置集合都相同，则它们相等。
+     *
+     * @param obj 要比较的对象
+     * @return 如果两个Posting对象相等，则返回true，否则返回false
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof AbstractPosting)) {
+            return false;
+        }
+        AbstractPosting posting = (AbstractPosting) obj;
+        return getDocId() == posting.getDocId() && getFreq() == posting.getFreq()
+                && positions.size() == posting.getPositions().size()
+                && positions.containsAll(posting.getPositions());
+    }
+
+    /**
+     * 返回哈希值，只由文档ID和频率计算，相等的Posting位置顺序可以不同
+     *
+     * @return 哈希值
+     */
+    @Override
+    public int hashCode() {
+        return 31 * getDocId() + getFreq();
+    }
+
+    /**
+     * 返回Posting对象的字符串表示形式，与Posting保持一致。
+     *
+     * @return Posting对象的字符串表示形式
+     */
+    @Override
+    public String toString() {
+        return "Posting{" +
+                "docId=" + getDocId() +
+                ", freq=" + getFreq() +
+                ", positions=" + positions +
+                '}';
+    }
+
+    /**
+     * 获取Posting对象的文档ID。
+     *
+     * @return 文档ID
+     */
+    @Override
+    public int getDocId() {
+        return owner.docIdAt(index);
+    }
+
+    /**
+     * 设置Posting对象的文档ID，直接写入所属的倒排列表。
+     *
+     * @param docId 新的文档ID
+     */
+    @Override
+    public void setDocId(int docId) {
+        owner.setDocIdAt(index, docId);
+    }
+
+    /**
+     * 获取Posting对象的频率。
+     *
+     * @return 频率
+     */
+    @Override
+    public int getFreq() {
+        return owner.freqAt(index);
+    }
+
+    /**
+     * 设置Posting对象的频率，直接写入所属的倒排列表。
+     *
+     * @param freq 新的频率
+     */
+    @Override
+    public void setFreq(int freq) {
+        owner.setFreqAt(index, freq);
+    }
+
+    /**
+     * 获取位置列表视图。
+     *
+     * @return 位置列表视图
+     */
+    @Override
+    public List<Integer> getPositions() {
+        return positions;
+    }
+
+    /**
+     * 用指定的位置列表替换当前位置，直接写入所属的倒排列表。
+     *
+     * @param positions 新的位置列表
+     */
+    @Override
+    public void setPositions(List<Integer> positions) {
+        owner.replacePositions(index, positions);
+    }
+
+    /**
+     * 根据文档ID比较两个Posting对象的大小。
+     *
+     * @param o 要比较的Posting对象
+     * @return 两个Posting对象的docId的差值
+     */
+    @Override
+    public int compareTo(AbstractPosting o) {
+        return getDocId() - o.getDocId();
+    }
+
+    /**
+     * 对位置从小到大排序
+     */
+    @Override
+    public void sort() {
+        owner.sortPositions(index);
+    }
+
+    /**
+     * 以int数组形式复制出位置列表
+     *
+     * @return 位置数组
+     */
+    public int[] positionsArray() {
+        int start = owner.positionStart(index);
+        int[] result = new int[owner.positionEnd(index) - start];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = owner.positionAt(start + i);
+        }
+        return result;
+    }
+
+    /**
+     * 复制出内容相同的Posting
+     *
+     * @return 不依赖所属列表的Posting
+     */
+    public Posting toPosting() {
+        return new Posting(getDocId(), getFreq(), new ArrayList<>(positions));
+    }
+
+    /**
+     * 按Posting的格式写入文档ID、频率和位置列表
+     *
+     * @param out 要写入的ObjectOutputStream
+     */
+    @Override
+    public void writeObject(ObjectOutputStream out) {
+        toPosting().writeObject(out);
+    }
+
+    /**
+     * 按Posting的格式读入文档ID、频率和位置列表，直接写入所属的倒排列表
+     *
+     * @param in 要读取的ObjectInputStream
+     */
+    @Override
+    public void readObject(ObjectInputStream in) {
+        Posting posting = new Posting();
+        posting.readObject(in);
+        setDocId(posting.getDocId());
+        setFreq(posting.getFreq());
+        setPositions(posting.getPositions());
+    }
+
+    /**
+     * Java序列化时以内容相同的Posting代替视图对象
+     *
+     * @return 不依赖所属列表的Posting
+     */
+    private Object writeReplace() {
+        return toPosting();
+    }
+
+    /**
+     * 位置数组片段的List视图，支持读取、修改和插入
+     */
+    private class PositionList extends AbstractList<Integer> implements RandomAccess, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Integer get(int i) {
+            if (i < 0 || i >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+            }
+            return owner.positionAt(owner.positionStart(index) + i);
+        }
+
+        @Override
+        public Integer set(int i, Integer position) {
+            Integer old = get(i);
+            owner.setPositionAt(index, i, position);
+            return old;
+        }
+
+        @Override
+        public void add(int i, Integer position) {
+            if (i < 0 || i > size()) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+            }
+            if (i == size()) {
+                owner.insertPosition(index, position);
+                return;
+            }
+            List<Integer> copy = new ArrayList<>(this);
+            copy.add(i, position);
+            owner.replacePositions(index, copy);
+        }
+
+        @Override
+        public int size() {
+            return owner.positionEnd(index) - owner.positionStart(index);
+        }
+
+        /**
+         * Java序列化时写出位置的副本
+         *
+         * @return 位置列表的副本
+         */
+        private Object writeReplace() {
+            return new ArrayList<>(this);
+        }
+    }
+}
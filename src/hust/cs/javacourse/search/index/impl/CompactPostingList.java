@@ -0,0 +1,852 @@
+package hust.cs.javacourse.search.index.impl;
+
+import hust.cs.javacourse.search.index.AbstractPosting;
+import hust.cs.javacourse.search.index.AbstractPostingList;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * CompactPostingList类是AbstractPostingList的紧凑实现，用基本类型数组保存一个单词的倒排列表。
+ * <p>
+ * 与PostingList为每个Posting、每个位置各分配一个堆对象不同，CompactPostingList只使用四个int数组：
+ * docIds保存文档ID，freqs保存出现次数，positionStarts保存每个Posting的位置在positions中的起始下标，
+ * positions把所有Posting的位置首尾相接地打包在一起。
+ * <p>
+ * get方法返回的是CompactPosting视图对象，调用方仍然按AbstractPosting使用，因此Index、IndexSearcher
+ * 和IndexPhraseSearcher无需修改。
+ * <p>
+ * 有序的列表在trimToSize或解码时建立跳表：skipDocIds记录每SKIP_INTERVAL个Posting中最后一个docId。
+ * advance先在跳表上指数查找目标所在的块，再在块内二分查找，求交时短列表驱动长列表，长列表的大部分Posting不会被访问。
+ * 建立跳表的同时记录每块的最大出现次数blockMaxFreqs，按得分取前K个结果时和整个列表的最大出现次数一起用作得分上界。
+ *
+ * @author 晋晨曦
+ */
+public class CompactPostingList extends AbstractPostingList {
+    private static final long serialVersionUID = 1L;
+
+    private static final int[] EMPTY = new int[0];
+    /**
+     * 跳表中每一项覆盖的Posting个数
+     */
+    static final int SKIP_INTERVAL = 64;
+
+    /**
+     * 包含的Posting个数
+     */
+    private int size;
+    /**
+     * 每个Posting的文档ID
+     */
+    private int[] docIds = EMPTY;
+    /**
+     * 每个Posting的出现次数
+     */
+    private int[] freqs = EMPTY;
+    /**
+     * 第i个Posting的位置保存在positions[positionStarts[i], positionStarts[i + 1])中
+     */
+    private int[] positionStarts = new int[1];
+    /**
+     * 所有Posting的位置，按Posting顺序首尾相接
+     */
+    private int[] positions = EMPTY;
+    /**
+     * 为true时保证docId非递减，advance、indexOf和跳表依赖它；相同的docId只能由调用方重复追加产生，sort也不会去掉
+     */
+    private boolean sorted = true;
+    /**
+     * 为true时保证每个Posting内部的位置非递减。修改位置时只检查被修改的Posting，不影响sorted和跳表，
+     * sort时只对位置无序的Posting重新排序
+     */
+    private boolean positionsSorted = true;
+    /**
+     * 跳表，skipDocIds[b]为第b块(下标[b * SKIP_INTERVAL, (b + 1) * SKIP_INTERVAL))的最后一个docId；
+     * 列表较短、无序或被修改后为null，此时advance直接在docIds上指数查找
+     */
+    private int[] skipDocIds;
+    /**
+     * blockMaxFreqs[b]为第b块中最大的出现次数，与skipDocIds同时建立和失效
+     */
+    private int[] blockMaxFreqs;
+    /**
+     * 整个列表中最大的出现次数，-1表示需要重新计算
+     */
+    private int maxFreq = -1;
+
+    /**
+     * 无参构造函数，构建空的倒排列表
+     */
+    public CompactPostingList() {
+        super();
+        // 父类的list字段在这里不使用，避免每个单词多分配一个ArrayList
+        this.list = Collections.emptyList();
+    }
+
+    /**
+     * 直接由已经填好的数组构造倒排列表，供索引文件解码使用
+     *
+     * @param size           Posting个数
+     * @param docIds         文档ID数组
+     * @param freqs          出现次数数组
+     * @param positionStarts 位置起始下标数组，长度至少为size + 1
+     * @param positions      打包的位置数组
+     */
+    CompactPostingList(int size, int[] docIds, int[] freqs, int[] positionStarts, int[] positions) {
+        this();
+        this.size = size;
+        this.docIds = docIds;
+        this.freqs = freqs;
+        this.positionStarts = positionStarts;
+        this.positions = positions;
+        // 只用于解码SegmentWriter写出的数据，写入时已经校验过顺序
+        this.sorted = true;
+        this.positionsSorted = true;
+        buildSkips();
+    }
+
+    /**
+     * 由任意AbstractPostingList构造紧凑的倒排列表，Posting的顺序保持不变
+     *
+     * @param postingList 源倒排列表
+     * @return 紧凑的倒排列表
+     */
+    public static CompactPostingList of(AbstractPostingList postingList) {
+        if (postingList instanceof CompactPostingList) {
+            return (CompactPostingList) postingList;
+        }
+        CompactPostingList compact = new CompactPostingList();
+        int totalPositions = 0;
+        for (int i = 0; i < postingList.size(); i++) {
+            totalPositions += postingList.get(i).getPositions().size();
+        }
+        compact.ensurePostingCapacity(postingList.size());
+        compact.ensurePositionCapacity(totalPositions);
+        for (int i = 0; i < postingList.size(); i++) {
+            AbstractPosting posting = postingList.get(i);
+            compact.append(posting.getDocId(), posting.getFreq(), posting.getPositions());
+        }
+        return compact;
+    }
+
+    /**
+     * 添加一个posting到列表末尾
+     * <p>
+     * 如果列表中已经包含内容相同的posting，则不添加
+     *
+     * @param posting 要添加的posting
+     */
+    @Override
+    public void add(AbstractPosting posting) {
+        if (contains(posting)) {
+            return;
+        }
+        append(posting.getDocId(), posting.getFreq(), posting.getPositions());
+    }
+
+    /**
+     * 添加多个postings到列表中
+     *
+     * @param postings 要添加的postings
+     */
+    @Override
+    public void add(List<AbstractPosting> postings) {
+        for (AbstractPosting posting : postings) {
+            this.add(posting);
+        }
+    }
+
+    /**
+     * 把另一个倒排列表的全部Posting追加到末尾，不做重复检查。
+     * 调用方需要保证两个列表的docId互不相同，例如合并按文档划分的部分索引时。
+     *
+     * @param other 要追加的倒排列表
+     */
+    void appendAll(AbstractPostingList other) {
+        CompactPostingList compact = of(other);
+        appendRange(compact, 0, compact.size);
+    }
+
+    /**
+     * 把另一个倒排列表中下标在[from, to)内的Posting追加到末尾，不做重复检查。
+     * 合并多个段时用它整段复制两个已删除文档之间的Posting。
+     *
+     * @param other 源倒排列表
+     * @param from  起始下标(含)
+     * @param to    结束下标(不含)
+     */
+    void appendRange(CompactPostingList other, int from, int to) {
+        int count = to - from;
+        int total = positionStarts[size];
+        int otherStart = other.positionStarts[from];
+        int otherTotal = other.positionStarts[to] - otherStart;
+        ensurePostingCapacity(size + count);
+        ensurePositionCapacity(total + otherTotal);
+        sorted &= other.sorted && (size == 0 || count == 0 || other.docIds[from] >= docIds[size - 1]);
+        positionsSorted &= other.positionsSorted;
+        invalidateSkips();
+        System.arraycopy(other.docIds, from, docIds, size, count);
+        System.arraycopy(other.freqs, from, freqs, size, count);
+        System.arraycopy(other.positions, otherStart, positions, total, otherTotal);
+        for (int i = 1; i <= count; i++) {
+            positionStarts[size + i] = total + other.positionStarts[from + i] - otherStart;
+        }
+        size += count;
+    }
+
+    /**
+     * 在列表末尾直接追加一个Posting，不做重复检查
+     *
+     * @param docId     文档ID
+     * @param freq      出现次数
+     * @param positions 出现位置列表
+     */
+    private void append(int docId, int freq, List<Integer> positions) {
+        ensurePostingCapacity(size + 1);
+        int start = positionStarts[size];
+        ensurePositionCapacity(start + positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            this.positions[start + i] = positions.get(i);
+        }
+        finishAppend(docId, freq, start, positions.size());
+    }
+
+    /**
+     * 在列表末尾直接追加一个Posting，不做重复检查。
+     * 按docId递增的顺序追加时列表保持有序，之后的sort不需要重新排序。
+     *
+     * @param docId     文档ID
+     * @param freq      出现次数
+     * @param positions 出现位置数组，只使用前count个元素
+     * @param count     位置个数
+     */
+    void append(int docId, int freq, int[] positions, int count) {
+        ensurePostingCapacity(size + 1);
+        int start = positionStarts[size];
+        ensurePositionCapacity(start + count);
+        System.arraycopy(positions, 0, this.positions, start, count);
+        finishAppend(docId, freq, start, count);
+    }
+
+    private void finishAppend(int docId, int freq, int start, int count) {
+        if (size > 0 && docId < docIds[size - 1]) {
+            sorted = false;
+        }
+        checkPositions(start, start + count);
+        docIds[size] = docId;
+        freqs[size] = freq;
+        positionStarts[size + 1] = start + count;
+        size++;
+        invalidateSkips();
+    }
+
+    /**
+     * 返回列表的字符串表示
+     *
+     * @return 列表的字符串表示
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("PostingList{list=[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(get(i));
+        }
+        return builder.append("]}").toString();
+    }
+
+    /**
+     * 获取指定下标的posting视图
+     *
+     * @param index posting的下标
+     * @return 指定下标的posting视图
+     */
+    @Override
+    public AbstractPosting get(int index) {
+        checkIndex(index);
+        return new CompactPosting(this, index);
+    }
+
+    /**
+     * 获取内容与指定posting相同的posting的下标
+     *
+     * @param posting 要查找的posting
+     * @return 对应下标，如果不存在则返回-1
+     */
+    @Override
+    public int indexOf(AbstractPosting posting) {
+        int index = indexOf(posting.getDocId());
+        if (index >= 0 && get(index).equals(posting)) {
+            return index;
+        }
+        return -1;
+    }
+
+    /**
+     * 获取指定docId的posting的下标，有序时用advance查找，否则逐个比较
+     *
+     * @param docId posting的docId
+     * @return 对应下标，如果不存在则返回-1
+     */
+    @Override
+    public int indexOf(int docId) {
+        if (sorted) {
+            int index = advance(0, docId);
+            return index < size && docIds[index] == docId ? index : -1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (docIds[i] == docId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 判断列表中是否包含内容相同的posting
+     *
+     * @param posting 要查找的posting
+     * @return 如果包含该posting则返回true，否则返回false
+     */
+    @Override
+    public boolean contains(AbstractPosting posting) {
+        return indexOf(posting) >= 0;
+    }
+
+    /**
+     * 移除指定下标的posting
+     *
+     * @param index 要移除的posting的下标
+     */
+    @Override
+    public void remove(int index) {
+        checkIndex(index);
+        int start = positionStarts[index];
+        int end = positionStarts[index + 1];
+        int removed = end - start;
+        System.arraycopy(positions, end, positions, start, positionStarts[size] - end);
+        System.arraycopy(docIds, index + 1, docIds, index, size - index - 1);
+        System.arraycopy(freqs, index + 1, freqs, index, size - index - 1);
+        for (int i = index + 1; i <= size; i++) {
+            positionStarts[i - 1] = positionStarts[i] - removed;
+        }
+        size--;
+        invalidateSkips();
+    }
+
+    /**
+     * 移除内容与指定posting相同的posting
+     *
+     * @param posting 要移除的posting
+     */
+    @Override
+    public void remove(AbstractPosting posting) {
+        int index = indexOf(posting);
+        if (index >= 0) {
+            remove(index);
+        }
+    }
+
+    /**
+     * 获取列表的大小
+     *
+     * @return 列表的大小
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 清空列表
+     */
+    @Override
+    public void clear() {
+        size = 0;
+        docIds = EMPTY;
+        freqs = EMPTY;
+        positionStarts = new int[1];
+        positions = EMPTY;
+        sorted = true;
+        positionsSorted = true;
+        invalidateSkips();
+    }
+
+    /**
+     * 判断列表是否为空
+     *
+     * @return 如果为空则返回true，否则返回false
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 按docId从小到大对列表排序，同时对每个Posting内部的位置从小到大排序。
+     * 如果Posting一直是按docId递增的顺序追加的、位置也没有被改乱，则直接返回；只有位置无序的Posting会重新排序位置。
+     */
+    @Override
+    public void sort() {
+        if (!positionsSorted) {
+            for (int i = 0; i < size; i++) {
+                positionsSorted = true;
+                checkPositions(positionStarts[i], positionStarts[i + 1]);
+                if (!positionsSorted) {
+                    Arrays.sort(positions, positionStarts[i], positionStarts[i + 1]);
+                }
+            }
+            positionsSorted = true;
+        }
+        if (sorted) {
+            return;
+        }
+        sorted = true;
+        for (int i = 1; i < size && sorted; i++) {
+            sorted = docIds[i - 1] <= docIds[i];
+        }
+        if (sorted) {
+            return;
+        }
+        // 对下标排序后按新顺序重新排列四个数组
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(docIds[a], docIds[b]));
+        int[] newDocIds = new int[size];
+        int[] newFreqs = new int[size];
+        int[] newStarts = new int[size + 1];
+        int[] newPositions = new int[positionStarts[size]];
+        for (int i = 0; i < size; i++) {
+            int from = order[i];
+            int length = positionStarts[from + 1] - positionStarts[from];
+            newDocIds[i] = docIds[from];
+            newFreqs[i] = freqs[from];
+            System.arraycopy(positions, positionStarts[from], newPositions, newStarts[i], length);
+            newStarts[i + 1] = newStarts[i] + length;
+        }
+        docIds = newDocIds;
+        freqs = newFreqs;
+        positionStarts = newStarts;
+        positions = newPositions;
+        sorted = true;
+        invalidateSkips();
+    }
+
+    /**
+     * 释放数组末尾多余的容量并建立跳表，在索引构建完成后调用
+     */
+    public void trimToSize() {
+        docIds = Arrays.copyOf(docIds, size);
+        freqs = Arrays.copyOf(freqs, size);
+        positionStarts = Arrays.copyOf(positionStarts, size + 1);
+        positions = Arrays.copyOf(positions, positionStarts[size]);
+        buildSkips();
+    }
+
+    /**
+     * 返回按docId排好序、每个Posting内部位置也排好序的列表：本身有序时返回自身，否则排序一个副本，不修改本列表
+     *
+     * @return 有序的列表
+     */
+    CompactPostingList sortedCopy() {
+        if (sorted && positionsSorted) {
+            return this;
+        }
+        CompactPostingList copy = new CompactPostingList();
+        copy.appendRange(this, 0, size);
+        copy.sort();
+        return copy;
+    }
+
+    /**
+     * 列表有序且超过一块时建立跳表
+     */
+    private void buildSkips() {
+        if (!sorted || size <= SKIP_INTERVAL) {
+            invalidateSkips();
+            return;
+        }
+        int[] skips = new int[(size + SKIP_INTERVAL - 1) / SKIP_INTERVAL];
+        int[] maxFreqs = new int[skips.length];
+        for (int block = 0; block < skips.length; block++) {
+            int end = Math.min((block + 1) * SKIP_INTERVAL, size);
+            skips[block] = docIds[end - 1];
+            for (int i = block * SKIP_INTERVAL; i < end; i++) {
+                maxFreqs[block] = Math.max(maxFreqs[block], freqs[i]);
+            }
+        }
+        skipDocIds = skips;
+        blockMaxFreqs = maxFreqs;
+    }
+
+    /**
+     * 列表被修改后跳表和最大出现次数失效
+     */
+    private void invalidateSkips() {
+        skipDocIds = null;
+        blockMaxFreqs = null;
+        maxFreq = -1;
+    }
+
+    /**
+     * 返回指定下标Posting的文档ID
+     *
+     * @param index 下标
+     * @return 文档ID
+     */
+    @Override
+    public int docIdAt(int index) {
+        return docIds[index];
+    }
+
+    /**
+     * 从from开始查找第一个docId不小于指定docId的Posting。
+     * 有跳表时先在跳表上指数查找目标所在的块，再在块内二分查找；否则直接在docIds上指数查找。
+     * 列表无序时退化为顺序查找。
+     *
+     * @param from  开始查找的下标
+     * @param docId 目标文档ID
+     * @return 第一个docId不小于目标的下标，如果不存在则返回size()
+     */
+    @Override
+    public int advance(int from, int docId) {
+        if (from >= size || docIds[from] >= docId) {
+            return Math.min(from, size);
+        }
+        if (!sorted) {
+            while (from < size && docIds[from] < docId) {
+                from++;
+            }
+            return from;
+        }
+        int[] skips = skipDocIds;
+        if (skips == null) {
+            return gallop(docIds, from + 1, size, docId);
+        }
+        int block = from / SKIP_INTERVAL;
+        if (skips[block] < docId) {
+            block = gallop(skips, block + 1, skips.length, docId);
+            if (block == skips.length) {
+                return size;
+            }
+            from = block * SKIP_INTERVAL;
+        }
+        // 块的最后一个docId不小于目标，结果一定在块内
+        return gallop(docIds, from, Math.min((block + 1) * SKIP_INTERVAL, size), docId);
+    }
+
+    /**
+     * 在有序数组values[from, to)中查找第一个不小于key的下标，不存在时返回to。
+     * 先以1、2、4、8……的步长向后试探，越过key后在最后一段里二分查找。
+     */
+    private static int gallop(int[] values, int from, int to, int key) {
+        int low = from;
+        int high = from;
+        int step = 1;
+        while (high < to && values[high] < key) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, to);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 返回指定下标Posting的出现次数
+     *
+     * @param index 下标
+     * @return 出现次数
+     */
+    @Override
+    public int freqAt(int index) {
+        return freqs[index];
+    }
+
+    /**
+     * 返回所有Posting中最大的出现次数，计算一次后缓存到列表被修改为止
+     *
+     * @return 最大出现次数，列表为空时返回0
+     */
+    @Override
+    public int maxFreq() {
+        if (maxFreq < 0) {
+            int max = 0;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, freqs[i]);
+            }
+            maxFreq = max;
+        }
+        return maxFreq;
+    }
+
+    /**
+     * 估计列表占用的堆内存：对象本身和各个数组，供PostingListCache按字节数限制容量
+     *
+     * @return 字节数
+     */
+    long sizeInBytes() {
+        long size = 64 + 16L * 6 + 4L * (docIds.length + freqs.length + positionStarts.length + positions.length);
+        if (skipDocIds != null) {
+            size += 4L * (skipDocIds.length + blockMaxFreqs.length);
+        }
+        return size;
+    }
+
+    /**
+     * 返回下标index所在块的结束下标，没有跳表时整个列表为一块
+     *
+     * @param index 下标
+     * @return 所在块的结束下标(不含)
+     */
+    @Override
+    public int blockEnd(int index) {
+        if (blockMaxFreqs == null) {
+            return size;
+        }
+        return Math.min((index / SKIP_INTERVAL + 1) * SKIP_INTERVAL, size);
+    }
+
+    /**
+     * 返回下标index所在块中最大的出现次数，没有跳表时返回整个列表的最大出现次数
+     *
+     * @param index 下标
+     * @return 块内最大出现次数
+     */
+    @Override
+    public int blockMaxFreq(int index) {
+        int[] maxFreqs = blockMaxFreqs;
+        if (maxFreqs == null) {
+            return maxFreq();
+        }
+        return maxFreqs[index / SKIP_INTERVAL];
+    }
+
+    /**
+     * 返回指定下标Posting的位置在打包数组中的起始下标
+     *
+     * @param index 下标
+     * @return 起始下标（包含）
+     */
+    int positionStart(int index) {
+        return positionStarts[index];
+    }
+
+    /**
+     * 返回指定下标Posting的位置在打包数组中的结束下标
+     *
+     * @param index 下标
+     * @return 结束下标（不包含）
+     */
+    int positionEnd(int index) {
+        return positionStarts[index + 1];
+    }
+
+    /**
+     * 返回打包数组中指定下标的位置
+     *
+     * @param packedIndex 打包数组下标
+     * @return 位置
+     */
+    int positionAt(int packedIndex) {
+        return positions[packedIndex];
+    }
+
+    void setDocIdAt(int index, int docId) {
+        docIds[index] = docId;
+        sorted = false;
+        invalidateSkips();
+    }
+
+    void setFreqAt(int index, int freq) {
+        freqs[index] = freq;
+        invalidateSkips();
+    }
+
+    /**
+     * 修改指定Posting的第offset个位置，只检查它和相邻位置的顺序
+     *
+     * @param index    Posting下标
+     * @param offset   位置在该Posting中的下标
+     * @param position 新的位置
+     */
+    void setPositionAt(int index, int offset, int position) {
+        int start = positionStarts[index];
+        int packedIndex = start + offset;
+        positions[packedIndex] = position;
+        checkPositions(Math.max(start, packedIndex - 1), Math.min(positionStarts[index + 1], packedIndex + 2));
+    }
+
+    /**
+     * 对指定Posting的位置从小到大排序，不影响其他Posting
+     *
+     * @param index Posting下标
+     */
+    void sortPositions(int index) {
+        Arrays.sort(positions, positionStarts[index], positionStarts[index + 1]);
+    }
+
+    /**
+     * 在指定Posting的位置列表末尾插入一个位置，其后所有Posting的位置整体后移
+     *
+     * @param index    Posting下标
+     * @param position 要插入的位置
+     */
+    void insertPosition(int index, int position) {
+        int end = positionStarts[index + 1];
+        int total = positionStarts[size];
+        ensurePositionCapacity(total + 1);
+        System.arraycopy(positions, end, positions, end + 1, total - end);
+        positions[end] = position;
+        for (int i = index + 1; i <= size; i++) {
+            positionStarts[i]++;
+        }
+        checkPositions(Math.max(positionStarts[index], end - 1), end + 1);
+    }
+
+    /**
+     * 把同一个文档的另一批出现合并到指定Posting：出现次数相加，位置接在原有位置之后，其后所有Posting的位置整体后移
+     *
+     * @param index     Posting下标
+     * @param freq      增加的出现次数
+     * @param positions 增加的位置数组，只使用前count个元素
+     * @param count     位置个数
+     */
+    void merge(int index, int freq, int[] positions, int count) {
+        int end = positionStarts[index + 1];
+        int total = positionStarts[size];
+        ensurePositionCapacity(total + count);
+        System.arraycopy(this.positions, end, this.positions, end + count, total - end);
+        System.arraycopy(positions, 0, this.positions, end, count);
+        for (int i = index + 1; i <= size; i++) {
+            positionStarts[i] += count;
+        }
+        freqs[index] += freq;
+        checkPositions(Math.max(positionStarts[index], end - 1), end + count);
+        invalidateSkips();
+    }
+
+    /**
+     * 用指定的位置列表替换指定Posting的位置
+     *
+     * @param index        Posting下标
+     * @param newPositions 新的位置列表
+     */
+    void replacePositions(int index, List<Integer> newPositions) {
+        int start = positionStarts[index];
+        int end = positionStarts[index + 1];
+        int total = positionStarts[size];
+        int delta = newPositions.size() - (end - start);
+        ensurePositionCapacity(total + delta);
+        System.arraycopy(positions, end, positions, end + delta, total - end);
+        for (int i = 0; i < newPositions.size(); i++) {
+            positions[start + i] = newPositions.get(i);
+        }
+        for (int i = index + 1; i <= size; i++) {
+            positionStarts[i] += delta;
+        }
+        checkPositions(start, start + newPositions.size());
+    }
+
+    /**
+     * 检查打包数组[from, to)中的位置是否非递减，无序时清除positionsSorted
+     *
+     * @param from 起始下标(含)
+     * @param to   结束下标(不含)
+     */
+    private void checkPositions(int from, int to) {
+        for (int i = from + 1; i < to && positionsSorted; i++) {
+            positionsSorted = positions[i - 1] <= positions[i];
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private void ensurePostingCapacity(int capacity) {
+        if (capacity > docIds.length) {
+            int newCapacity = Math.max(capacity, Math.max(4, docIds.length + (docIds.length >> 1)));
+            docIds = Arrays.copyOf(docIds, newCapacity);
+            freqs = Arrays.copyOf(freqs, newCapacity);
+            positionStarts = Arrays.copyOf(positionStarts, newCapacity + 1);
+        }
+    }
+
+    private void ensurePositionCapacity(int capacity) {
+        if (capacity > positions.length) {
+            int newCapacity = Math.max(capacity, Math.max(4, positions.length + (positions.length >> 1)));
+            positions = Arrays.copyOf(positions, newCapacity);
+        }
+    }
+
+    /**
+     * 将列表写入ObjectOutputStream
+     *
+     * @param out ObjectOutputStream对象
+     */
+    @Override
+    public void writeObject(ObjectOutputStream out) {
+        try {
+            // 写出有效部分的副本，不修改列表本身，保存时其他线程可以继续读取
+            out.writeObject(size);
+            out.writeObject(Arrays.copyOf(docIds, size));
+            out.writeObject(Arrays.copyOf(freqs, size));
+            out.writeObject(Arrays.copyOf(positionStarts, size + 1));
+            out.writeObject(Arrays.copyOf(positions, positionStarts[size]));
+            out.writeObject(sorted && positionsSorted);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 从ObjectInputStream读取列表
+     *
+     * @param in ObjectInputStream对象，用于读取对象
+     */
+    @Override
+    public void readObject(ObjectInputStream in) {
+        try {
+            size = (Integer) in.readObject();
+            docIds = (int[]) in.readObject();
+            freqs = (int[]) in.readObject();
+            positionStarts = (int[]) in.readObject();
+            positions = (int[]) in.readObject();
+            sorted = (Boolean) in.readObject();
+            positionsSorted = sorted;
+            if (!sorted) {
+                // 写出时只记录了两个条件是否同时成立，重新检查各自是否成立
+                sorted = true;
+                for (int i = 1; i < size && sorted; i++) {
+                    sorted = docIds[i - 1] <= docIds[i];
+                }
+                positionsSorted = true;
+                for (int i = 0; i < size; i++) {
+                    checkPositions(positionStarts[i], positionStarts[i + 1]);
+                }
+            }
+            buildSkips();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -3,11 +3,9 @@ package hust.cs.javacourse.search.index.impl;
 import hust.cs.javacourse.search.index.AbstractDocument;
 import hust.cs.javacourse.search.index.AbstractDocumentBuilder;
 import hust.cs.javacourse.search.index.AbstractTermTuple;
+import hust.cs.javacourse.search.parse.AbstractAnalyzer;
 import hust.cs.javacourse.search.parse.AbstractTermTupleStream;
-import hust.cs.javacourse.search.parse.impl.LengthTermTupleFilter;
-import hust.cs.javacourse.search.parse.impl.PatternTermTupleFilter;
-import hust.cs.javacourse.search.parse.impl.StopWordTermTupleFilter;
-import hust.cs.javacourse.search.parse.impl.TermTupleScanner;
+import hust.cs.javacourse.search.parse.impl.StandardAnalyzer;
 
 import java.io.*;
 import java.util.ArrayList;
@@ -16,11 +14,33 @@ import java.util.List;
 /**
  * DocumentBuilder类是AbstractDocumentBuilder的具体实现，用于构建文档。
  * 它可以从给定的文件或TermTupleStream构建文档。
- * 在构建文档时，它会使用一系列的过滤器来过滤TermTupleStream，包括长度过滤器、模式过滤器和停用词过滤器。
+ * 在构建文档时，它会使用一系列的过滤器来过滤TermTupleStream，包括长度过滤器、模式过滤器和停用词过滤器，三者由FusedTermTupleFilter一次完成。
+ * 切分和过滤由分析器完成，没有指定分析器时使用构造时按Config当前设置创建的StandardAnalyzer，之后修改Config不影响已经创建的DocumentBuilder。
  *
  * @author 晋晨曦
  */
 public class DocumentBuilder extends AbstractDocumentBuilder {
+    /**
+     * 使用的分析器
+     */
+    private final AbstractAnalyzer analyzer;
+
+    /**
+     * 构造函数，按Config的当前设置创建分析器切分和过滤文档。
+     */
+    public DocumentBuilder() {
+        this(null);
+    }
+
+    /**
+     * 构造函数，使用指定的分析器切分和过滤文档。
+     *
+     * @param analyzer 分析器，为null时按Config的当前设置创建StandardAnalyzer。
+     */
+    public DocumentBuilder(AbstractAnalyzer analyzer) {
+        this.analyzer = analyzer != null ? analyzer : new StandardAnalyzer();
+    }
+
     /**
      * 从给定的TermTupleStream构建文档。
      *
@@ -54,12 +74,29 @@ public class DocumentBuilder extends AbstractDocumentBuilder {
      */
     @Override
     public AbstractDocument build(int docId, String docPath, File file) {
-        try {
-            // 装饰者模式实例化termTupleStream
-            AbstractTermTupleStream termTupleStream = new StopWordTermTupleFilter(new PatternTermTupleFilter(new LengthTermTupleFilter(new TermTupleScanner(new BufferedReader(new FileReader(file))))));
-            return build(docId, docPath, termTupleStream);
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(e);
-        }
+        return build(docId, docPath, termTupleStream(file));
+    }
+
+    /**
+     * 为给定的文件构造经过停用词、模式和长度过滤的TermTupleStream。
+     * 文件由FastTermTupleScanner切分，再由FusedTermTupleFilter一次完成三项过滤，结果与TermTupleScanner加上三个过滤器的管道相同；
+     * 分析器开启词干提取时再提取词干。
+     *
+     * @param file 包含文档内容的文件。
+     * @return 文档对应的TermTupleStream。
+     */
+    @Override
+    public AbstractTermTupleStream termTupleStream(File file) {
+        return getAnalyzer().termTupleStream(file);
+    }
+
+    /**
+     * 返回使用的分析器，没有指定时返回构造时创建的StandardAnalyzer。
+     *
+     * @return 分析器。
+     */
+    @Override
+    public AbstractAnalyzer getAnalyzer() {
+        return analyzer;
     }
 }
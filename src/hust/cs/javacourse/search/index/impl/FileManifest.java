@@ -0,0 +1,202 @@
+package hust.cs.javacourse.search.index.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <pre>
+ * FileManifest类记录已经加入索引的每个文件的大小、修改时间和内容的SHA-256摘要，与索引保存在一起.
+ *      重新扫描目录时，大小和修改时间都没有变的文件认为没有修改，不需要读取;
+ *      大小或修改时间变了才读取文件计算摘要，摘要相同(例如只是touch过)的文件也不需要重新分词.
+ *      文件格式: 魔数"HSFM"、版本号、文件个数，以及每个文件的路径、大小、修改时间(毫秒)和32字节的摘要.
+ *      保存时先写临时文件再原子地替换.
+ * </pre>
+ *
+ * @author 晋晨曦
+ */
+public class FileManifest {
+    private static final int MAGIC = 0x4853464D;
+    private static final int VERSION = 1;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * 从文件读取清单，文件不存在时返回空清单
+     *
+     * @param file 清单文件
+     * @return 读出的清单
+     * @throws IOException 读取失败或文件格式错误
+     */
+    public static FileManifest load(File file) throws IOException {
+        FileManifest manifest = new FileManifest();
+        if (!file.isFile()) {
+            return manifest;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("不是文件清单或版本不支持: " + file);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                byte[] digest = new byte[32];
+                in.readFully(digest);
+                manifest.entries.put(path, new Entry(size, lastModified, digest));
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * 把清单写入文件：先写临时文件，再原子地替换原来的文件
+     *
+     * @param file 清单文件
+     * @throws IOException 写入失败
+     */
+    public void save(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().size);
+                out.writeLong(entry.getValue().lastModified);
+                out.write(entry.getValue().digest);
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 返回指定文件的记录
+     *
+     * @param path 文件的绝对路径
+     * @return 文件的记录，没有时返回null
+     */
+    public Entry get(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * 记录或替换指定文件的记录
+     *
+     * @param path  文件的绝对路径
+     * @param entry 文件的记录
+     */
+    public void put(String path, Entry entry) {
+        entries.put(path, entry);
+    }
+
+    /**
+     * 删除指定文件的记录
+     *
+     * @param path 文件的绝对路径
+     */
+    public void remove(String path) {
+        entries.remove(path);
+    }
+
+    /**
+     * 返回清单中所有文件的路径
+     *
+     * @return 路径集合的只读视图
+     */
+    public Set<String> paths() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * 返回清单中的文件个数
+     *
+     * @return 文件个数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 读取整个文件计算SHA-256摘要
+     *
+     * @param file 文件
+     * @return 32字节的摘要
+     * @throws IOException 读取失败
+     */
+    public static byte[] digest(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // 每个Java平台都必须支持SHA-256
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * 一个文件的大小、修改时间和内容摘要
+     */
+    public static class Entry {
+        private final long size;
+        private final long lastModified;
+        private final byte[] digest;
+
+        /**
+         * 构造函数
+         *
+         * @param size         文件大小(字节)
+         * @param lastModified 修改时间(毫秒)，为-1时下次扫描总是重新计算摘要
+         * @param digest       内容的SHA-256摘要
+         */
+        public Entry(long size, long lastModified, byte[] digest) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+
+        /**
+         * 判断文件的大小和修改时间是否与记录相同
+         *
+         * @param size         文件大小
+         * @param lastModified 修改时间
+         * @return 都相同时返回true
+         */
+        public boolean sameStat(long size, long lastModified) {
+            return this.size == size && this.lastModified == lastModified && lastModified >= 0;
+        }
+
+        /**
+         * 判断文件内容的摘要是否与记录相同
+         *
+         * @param digest 内容的SHA-256摘要
+         * @return 相同时返回true
+         */
+        public boolean sameDigest(byte[] digest) {
+            return Arrays.equals(this.digest, digest);
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package hust.cs.javacourse.search.index.impl;
+
+import hust.cs.javacourse.search.util.VByte;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <pre>
+ * FrontCodedDictionary是一个不可变的、按前缀压缩(front coding)的有序单词表.
+ *      单词按UTF-8字节的无符号字典序(等价于Unicode码点顺序)排列，序号ord从0开始.
+ *      每BLOCK_SIZE个单词为一块: 块内第一个单词完整保存，其余单词只保存与前一个单词的公共前缀长度和剩余的后缀字节.
+ *      所有块紧密排列在一个byte数组里，另外用一个int数组记录每块的起始偏移.
+ *      单词对应的倒排数据(偏移、文档频率等)由调用者按ord保存在数组里，因此字典本身就是单词到倒排偏移的映射.
+ * 支持的操作:
+ *      精确查找: 先在块首单词上二分查找，再在块内顺序解码，最多解码BLOCK_SIZE个单词;
+ *      前缀和区间枚举: 找到起止ord后顺序解码，每个单词只解码一次.
+ * 相比String数组或TreeMap，连续单词的公共前缀只存一次，也没有每个单词一个对象的开销.
+ * </pre>
+ *
+ * @author 晋晨曦
+ */
+public final class FrontCodedDictionary implements Iterable<String> {
+    /**
+     * 每块的单词个数
+     */
+    public static final int BLOCK_SIZE = 16;
+
+    /**
+     * 字典使用的单词顺序，即Unicode码点顺序，与UTF-8字节的无符号字典序一致.
+     * 它和String.compareTo只在含有补充字符(代理对)时不同.
+     */
+    public static final Comparator<String> ORDER = (a, b) -> {
+        int n = Math.min(a.length(), b.length());
+        for (int i = 0; i < n; i++) {
+            char x = a.charAt(i);
+            char y = b.charAt(i);
+            if (x != y) {
+                return codePointOrder(x) - codePointOrder(y);
+            }
+        }
+        return a.length() - b.length();
+    };
+
+    private final int size;
+    private final byte[] data;
+    private final int[] blockOffsets;
+
+    private FrontCodedDictionary(int size, byte[] data, int[] blockOffsets) {
+        this.size = size;
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+    }
+
+    /**
+     * 由已经按码点顺序严格递增排列的单词构造字典
+     *
+     * @param sortedTerms 有序且不重复的单词
+     * @return 字典
+     * @throws IllegalArgumentException 单词没有严格递增
+     */
+    public static FrontCodedDictionary build(Iterable<String> sortedTerms) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        int[] blockOffsets = new int[16];
+        int size = 0;
+        byte[] previous = null;
+        try {
+            for (String term : sortedTerms) {
+                byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+                if (previous != null && compare(previous, bytes, 0, bytes.length) >= 0) {
+                    throw new IllegalArgumentException("单词没有按顺序排列: " + term);
+                }
+                if (size % BLOCK_SIZE == 0) {
+                    int block = size / BLOCK_SIZE;
+                    if (block == blockOffsets.length) {
+                        blockOffsets = Arrays.copyOf(blockOffsets, block * 2);
+                    }
+                    blockOffsets[block] = buffer.size();
+                    VByte.writeInt(out, bytes.length);
+                    out.write(bytes);
+                } else {
+                    int prefix = commonPrefix(previous, bytes);
+                    VByte.writeInt(out, prefix);
+                    VByte.writeInt(out, bytes.length - prefix);
+                    out.write(bytes, prefix, bytes.length - prefix);
+                }
+                previous = bytes;
+                size++;
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream不会抛出IOException
+            throw new IllegalStateException(e);
+        }
+        int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        return new FrontCodedDictionary(size, buffer.toByteArray(), Arrays.copyOf(blockOffsets, blocks));
+    }
+
+    /**
+     * 按"单词个数、数据字节数、数据"的格式写出字典，块偏移在读入时重新计算
+     *
+     * @param out 输出对象
+     * @throws IOException 写入失败
+     */
+    public void write(DataOutput out) throws IOException {
+        VByte.writeInt(out, size);
+        VByte.writeInt(out, data.length);
+        out.write(data);
+    }
+
+    /**
+     * 读取write写出的字典
+     *
+     * @param in 输入缓冲区
+     * @return 字典
+     */
+    public static FrontCodedDictionary read(ByteBuffer in) {
+        int size = VByte.readInt(in);
+        byte[] data = new byte[VByte.readInt(in)];
+        in.get(data);
+        int[] blockOffsets = new int[(size + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        ByteBuffer scan = ByteBuffer.wrap(data);
+        for (int ord = 0; ord < size; ord++) {
+            if (ord % BLOCK_SIZE == 0) {
+                blockOffsets[ord / BLOCK_SIZE] = scan.position();
+            } else {
+                VByte.readInt(scan);
+            }
+            int length = VByte.readInt(scan);
+            scan.position(scan.position() + length);
+        }
+        return new FrontCodedDictionary(size, data, blockOffsets);
+    }
+
+    /**
+     * 返回单词个数
+     *
+     * @return 单词个数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 返回编码后的数据字节数，可用于估计字典占用的内存
+     *
+     * @return 字节数
+     */
+    public int sizeInBytes() {
+        return data.length + blockOffsets.length * Integer.BYTES;
+    }
+
+    /**
+     * 返回序号为ord的单词
+     *
+     * @param ord 单词序号
+     * @return 单词内容
+     */
+    public String term(int ord) {
+        if (ord < 0 || ord >= size) {
+            throw new IndexOutOfBoundsException("ord: " + ord + ", size: " + size);
+        }
+        return new Cursor(ord).next();
+    }
+
+    /**
+     * 精确查找单词
+     *
+     * @param term 单词内容
+     * @return 单词序号；不存在时返回(-(插入位置) - 1)，与Arrays.binarySearch的约定相同
+     */
+    public int find(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int block = findBlock(key);
+        if (block < 0) {
+            return -1;
+        }
+        Cursor cursor = new Cursor(block * BLOCK_SIZE);
+        int end = Math.min(size, cursor.ord + BLOCK_SIZE);
+        while (cursor.ord < end) {
+            int ord = cursor.ord;
+            cursor.advance();
+            int cmp = compare(key, cursor.bytes, 0, cursor.length);
+            if (cmp == 0) {
+                return ord;
+            }
+            if (cmp < 0) {
+                return -ord - 1;
+            }
+        }
+        return -end - 1;
+    }
+
+    /**
+     * 返回第一个不小于指定单词的序号
+     *
+     * @param term 单词内容
+     * @return 序号，所有单词都小于term时返回size()
+     */
+    public int ceiling(String term) {
+        int ord = find(term);
+        return ord >= 0 ? ord : -ord - 1;
+    }
+
+    /**
+     * 返回以指定前缀开头的单词的序号区间
+     *
+     * @param prefix 前缀
+     * @return 长度为2的数组{起始序号, 结束序号(不含)}
+     */
+    public int[] prefixRange(String prefix) {
+        int from = ceiling(prefix);
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        Cursor cursor = new Cursor(from);
+        while (cursor.ord < size) {
+            cursor.advance();
+            if (!startsWith(cursor.bytes, cursor.length, key)) {
+                return new int[]{from, cursor.ord - 1};
+            }
+        }
+        return new int[]{from, size};
+    }
+
+    /**
+     * 返回序号在[from, to)之间的单词的迭代器，依次解码，每个单词只解码一次
+     *
+     * @param from 起始序号(含)
+     * @param to   结束序号(不含)
+     * @return 单词迭代器
+     */
+    public Iterator<String> iterator(int from, int to) {
+        int end = Math.min(to, size);
+        Cursor cursor = new Cursor(Math.max(from, 0));
+        return new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.ord < end;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return cursor.next();
+            }
+        };
+    }
+
+    /**
+     * 按顺序返回全部单词的迭代器
+     *
+     * @return 单词迭代器
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return iterator(0, size);
+    }
+
+    /**
+     * 在块首单词上二分查找，返回最后一个块首单词不大于key的块
+     */
+    private int findBlock(byte[] key) {
+        int low = 0;
+        int high = blockOffsets.length - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = blockOffsets[mid];
+            int length = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                length |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            if (compare(key, data, offset, length) >= 0) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按无符号字节比较key与data[offset, offset + length)
+     */
+    private static int compare(byte[] key, byte[] data, int offset, int length) {
+        int n = Math.min(key.length, length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (key[i] & 0xFF) - (data[offset + i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return key.length - length;
+    }
+
+    /**
+     * 把代理对的码元移到U+E000-U+FFFF之后，使按码元比较的结果与按码点比较一致
+     */
+    private static int codePointOrder(char c) {
+        if (c >= 0xD800) {
+            return c >= 0xE000 ? c - 0x800 : c + 0x2000;
+        }
+        return c;
+    }
+
+    private static int commonPrefix(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        int i = 0;
+        while (i < n && a[i] == b[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean startsWith(byte[] bytes, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 从某个序号开始顺序解码单词，当前单词的字节保存在可复用的bytes数组里
+     */
+    private final class Cursor {
+        private int ord;
+        private int position;
+        private byte[] bytes = new byte[32];
+        private int length;
+
+        Cursor(int ord) {
+            int blockStart = ord - ord % BLOCK_SIZE;
+            this.ord = blockStart;
+            if (blockStart < size) {
+                position = blockOffsets[blockStart / BLOCK_SIZE];
+            }
+            while (this.ord < ord) {
+                advance();
+            }
+        }
+
+        /**
+         * 解码当前序号的单词并前进到下一个序号
+         */
+        void advance() {
+            int prefix = 0;
+            if (ord % BLOCK_SIZE != 0) {
+                prefix = readVInt();
+            }
+            int suffix = readVInt();
+            length = prefix + suffix;
+            if (length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length, bytes.length * 2));
+            }
+            System.arraycopy(data, position, bytes, prefix, suffix);
+            position += suffix;
+            ord++;
+        }
+
+        String next() {
+            advance();
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private int readVInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
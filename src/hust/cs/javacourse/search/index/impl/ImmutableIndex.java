@@ -0,0 +1,282 @@
+package hust.cs.javacourse.search.index.impl;
+
+import hust.cs.javacourse.search.index.AbstractDocument;
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.parse.AbstractAnalyzer;
+import hust.cs.javacourse.search.parse.AbstractTermTupleStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * ImmutableIndex类是AbstractIndex的不可变快照，用于多个检索线程共享同一个已经加载的索引。
+ * <p>
+ * 构造时复制源索引的文档表、文档长度和单词到PostingList的映射，之后不再有任何修改操作，
+ * addDocument、load等方法会抛出UnsupportedOperationException。所有状态都保存在final字段里，
+ * 构造函数返回后，不论快照通过什么方式交给其他线程(包括没有同步的普通字段)，这些线程都能看到完整的内容。
+ * 父类的docIdToDocPathMapping和termToPostingListMapping换成了只读视图，供原有代码读取；
+ * 它们不是final字段，其他线程应通过getDocName、search等方法访问，或者通过volatile字段等方式取得快照后再读取。
+ * <p>
+ * PostingList对象与源索引共享而不复制，构造时预先计算好最大出现次数等惰性缓存，检索时只读不写；
+ * 因此源索引在创建快照后不能再被修改，search返回的PostingList也只能读取。
+ *
+ * @author 晋晨曦
+ */
+public class ImmutableIndex extends AbstractIndex {
+    private static final long serialVersionUID = 1L;
+
+    private final Map<Integer, String> docPaths;
+    private final NavigableMap<AbstractTerm, AbstractPostingList> sortedTerms;
+    /**
+     * 按单词查找PostingList用的哈希表，比在有序映射上查找快
+     */
+    private final Map<AbstractTerm, AbstractPostingList> postingLists;
+    private final int[] docLengths;
+    private final double averageDocLength;
+    private final AbstractAnalyzer analyzer;
+
+    /**
+     * 构造函数，为已经构建并优化好的索引创建快照。
+     *
+     * @param index 源索引，创建快照后不能再被修改
+     */
+    public ImmutableIndex(AbstractIndex index) {
+        super();
+        TreeMap<Integer, String> paths = new TreeMap<>(index.docIdToDocPathMapping);
+        TreeMap<AbstractTerm, AbstractPostingList> terms = new TreeMap<>(index.termToPostingListMapping);
+        for (AbstractPostingList postingList : terms.values()) {
+            postingList.maxFreq();
+        }
+        int[] lengths = new int[paths.isEmpty() ? 0 : paths.lastKey() + 1];
+        long total = 0;
+        for (int docId : paths.keySet()) {
+            lengths[docId] = index.getDocLength(docId);
+            total += lengths[docId];
+        }
+        this.docPaths = Collections.unmodifiableMap(paths);
+        this.sortedTerms = Collections.unmodifiableNavigableMap(terms);
+        this.postingLists = new HashMap<>(terms);
+        this.docLengths = lengths;
+        this.averageDocLength = paths.isEmpty() ? 0 : (double) total / paths.size();
+        this.analyzer = index.getAnalyzer();
+        docIdToDocPathMapping = docPaths;
+        termToPostingListMapping = sortedTerms;
+    }
+
+    /**
+     * 返回索引的字符串表示，只包含概要信息。
+     *
+     * @return 索引的字符串表示
+     */
+    @Override
+    public String toString() {
+        return "ImmutableIndex{docs=" + docPaths.size() + ", terms=" + sortedTerms.size() + "}";
+    }
+
+    /**
+     * 不可变索引不支持添加文档。
+     *
+     * @param document 文档
+     */
+    @Override
+    public void addDocument(AbstractDocument document) {
+        throw new UnsupportedOperationException("ImmutableIndex是不可变索引");
+    }
+
+    /**
+     * 不可变索引不支持添加文档。
+     *
+     * @param docId           文档id
+     * @param docPath         文档路径
+     * @param termTupleStream 三元组流
+     */
+    @Override
+    public void addDocument(int docId, String docPath, AbstractTermTupleStream termTupleStream) {
+        throw new UnsupportedOperationException("ImmutableIndex是不可变索引");
+    }
+
+    /**
+     * 不可变索引不支持重新加载，请加载到Index后再创建快照。
+     *
+     * @param file 索引文件
+     */
+    @Override
+    public void load(File file) {
+        throw new UnsupportedOperationException("ImmutableIndex是不可变索引");
+    }
+
+    /**
+     * 把快照写成段格式的索引文件，只读取快照的内容。
+     *
+     * @param file 写入的目标索引文件
+     */
+    @Override
+    public void save(File file) {
+        try {
+            SegmentWriter.write(this, file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 返回指定单词的PostingList。
+     *
+     * @param term 指定的单词
+     * @return 指定单词的PostingList，只能读取;如果索引字典没有该单词，则返回null
+     */
+    @Override
+    public AbstractPostingList search(AbstractTerm term) {
+        return postingLists.get(term);
+    }
+
+    /**
+     * 返回索引的字典，是只读视图。
+     *
+     * @return 索引中Term集合
+     */
+    @Override
+    public Set<AbstractTerm> getDictionary() {
+        return sortedTerms.keySet();
+    }
+
+    /**
+     * 返回字典中以指定前缀开头的所有单词。
+     *
+     * @param prefix 前缀
+     * @return 以prefix开头的单词列表
+     */
+    @Override
+    public List<AbstractTerm> getTermsWithPrefix(String prefix) {
+        List<AbstractTerm> terms = new ArrayList<>();
+        for (AbstractTerm term : sortedTerms.tailMap(new Term(prefix), true).keySet()) {
+            if (!term.getContent().startsWith(prefix)) {
+                break;
+            }
+            terms.add(term);
+        }
+        return terms;
+    }
+
+    /**
+     * 返回字典中位于[from, to)区间的所有单词。
+     *
+     * @param from 区间下界(含)，为null时表示没有下界
+     * @param to   区间上界(不含)，为null时表示没有上界
+     * @return 区间内的单词列表
+     */
+    @Override
+    public List<AbstractTerm> getTermsInRange(String from, String to) {
+        NavigableMap<AbstractTerm, AbstractPostingList> terms = sortedTerms;
+        if (from != null) {
+            terms = terms.tailMap(new Term(from), true);
+        }
+        if (to != null) {
+            terms = terms.headMap(new Term(to), false);
+        }
+        return new ArrayList<>(terms.keySet());
+    }
+
+    /**
+     * 快照由已经优化过的索引创建，无需优化。
+     */
+    @Override
+    public void optimize() {
+    }
+
+    /**
+     * 根据docId获得对应文档的完全路径名。
+     *
+     * @param docId 文档id
+     * @return 对应文档的完全路径名
+     */
+    @Override
+    public String getDocName(int docId) {
+        return docPaths.get(docId);
+    }
+
+    /**
+     * 返回文档长度。
+     *
+     * @param docId 文档id
+     * @return 文档长度;索引中没有该文档时返回0
+     */
+    @Override
+    public int getDocLength(int docId) {
+        return docId >= 0 && docId < docLengths.length ? docLengths[docId] : 0;
+    }
+
+    /**
+     * 返回所有文档的平均长度，在构造时计算。
+     *
+     * @return 平均文档长度;索引为空时返回0
+     */
+    @Override
+    public double getAverageDocLength() {
+        return averageDocLength;
+    }
+
+    /**
+     * 返回包含指定单词的文档个数，即该单词PostingList的长度。
+     *
+     * @param term 指定的单词
+     * @return 文档频率;如果索引字典没有该单词，则返回0
+     */
+    @Override
+    public int getDocFreq(AbstractTerm term) {
+        AbstractPostingList postingList = postingLists.get(term);
+        return postingList == null ? 0 : postingList.size();
+    }
+
+    /**
+     * 不可变索引的内容不会改变，版本号始终为0。
+     *
+     * @return 版本号
+     */
+    @Override
+    public long getVersion() {
+        return 0;
+    }
+
+    /**
+     * 返回源索引的分析器。
+     *
+     * @return 分析器;未知时返回null
+     */
+    @Override
+    public AbstractAnalyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    /**
+     * 不可变索引不支持ObjectOutputStream序列化，请使用save写成段格式。
+     *
+     * @param out 输出流
+     */
+    @Override
+    public void writeObject(ObjectOutputStream out) {
+        throw new UnsupportedOperationException("ImmutableIndex是不可变索引");
+    }
+
+    /**
+     * 不可变索引不支持反序列化。
+     *
+     * @param in 输入流
+     */
+    @Override
+    public void readObject(ObjectInputStream in) {
+        throw new UnsupportedOperationException("ImmutableIndex是不可变索引");
+    }
+}
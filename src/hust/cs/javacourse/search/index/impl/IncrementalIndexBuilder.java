@@ -0,0 +1,204 @@
+package hust.cs.javacourse.search.index.impl;
+
+import hust.cs.javacourse.search.index.AbstractDocumentBuilder;
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractIndexBuilder;
+import hust.cs.javacourse.search.util.FileDiscovery;
+import hust.cs.javacourse.search.util.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * IncrementalIndexBuilder类是AbstractIndexBuilder的增量实现，只对上次构建之后新增、修改和删除的文件更新索引。
+ * <p>
+ * 索引保存在SegmentedIndex目录中，目录里的文件清单(FileManifest)记录每个已经加入索引的文件的大小、修改时间和内容摘要。
+ * 每次构建时递归扫描根目录中匹配过滤条件的文件：目录由后台线程遍历，与文件的处理同时进行。大小和修改时间都与清单相同的文件直接跳过，不读取内容；
+ * 其余文件计算摘要，内容确实改变的文件和新文件重新分词后替换到索引中；清单中有而目录中没有的文件从索引中删除。
+ * 因此除了列出目录和读取文件属性以外，构建的耗时只与改变的文件个数成正比。列出之后、读取之前被删除的文件按删除处理。
+ * <p>
+ * 先提交索引再保存清单，两次写入之间程序退出时，下次构建会把这些文件再处理一遍，结果仍然正确。
+ * 修改时间与扫描时间相差不到两秒的文件可能在同一个时间刻度内再次被修改，清单中不记录它的修改时间，下次构建时总是重新计算摘要。
+ *
+ * @author 晋晨曦
+ */
+public class IncrementalIndexBuilder extends AbstractIndexBuilder {
+    /**
+     * 文件清单在索引目录中的文件名
+     */
+    public static final String MANIFEST = "files";
+    /**
+     * 修改时间距扫描开始不到这么多毫秒的文件下次总是重新计算摘要
+     */
+    private static final long RACY_MILLIS = 2000;
+
+    private final File indexDirectory;
+    private final PathMatcher filter;
+    private int addedCount;
+    private int changedCount;
+    private int removedCount;
+    private int unchangedCount;
+
+    /**
+     * 构造函数
+     *
+     * @param docBuilder     用于构建文档的文档构建器
+     * @param indexDirectory SegmentedIndex的索引目录，不存在时创建
+     */
+    public IncrementalIndexBuilder(AbstractDocumentBuilder docBuilder, File indexDirectory) {
+        this(docBuilder, indexDirectory, FileUtil.ALL_FILES);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param docBuilder     用于构建文档的文档构建器
+     * @param indexDirectory SegmentedIndex的索引目录，不存在时创建
+     * @param filter         文件过滤条件，匹配文件相对于根目录的路径，见FileUtil.suffixFilter和FileUtil.globFilter
+     */
+    public IncrementalIndexBuilder(AbstractDocumentBuilder docBuilder, File indexDirectory, PathMatcher filter) {
+        super(docBuilder);
+        this.indexDirectory = indexDirectory;
+        this.filter = filter;
+    }
+
+    /**
+     * 按根目录中文件的变化更新索引目录中的索引并提交，同时更新文件清单。
+     *
+     * @param rootDirectory 包含要索引的文件的根目录
+     * @return 更新后的索引，使用完后应当调用close
+     * @throws UncheckedIOException 读取文件或保存清单失败，此时索引已经关闭
+     */
+    @Override
+    public AbstractIndex buildIndex(String rootDirectory) {
+        SegmentedIndex index = new SegmentedIndex(indexDirectory, docBuilder.getAnalyzer());
+        File manifestFile = new File(indexDirectory, MANIFEST);
+        addedCount = 0;
+        changedCount = 0;
+        removedCount = 0;
+        unchangedCount = 0;
+        try (FileDiscovery filePaths = FileUtil.discover(rootDirectory, filter)) {
+            FileManifest manifest = FileManifest.load(manifestFile);
+            long scanStart = System.currentTimeMillis();
+            Set<String> seen = new HashSet<>();
+            while (filePaths.hasNext()) {
+                String filePath = filePaths.next();
+                File file = new File(filePath);
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    // 列出之后被删除，不加入seen，下面会从索引中删除
+                    continue;
+                }
+                seen.add(filePath);
+                long size = attributes.size();
+                long lastModified = attributes.lastModifiedTime().toMillis();
+                FileManifest.Entry entry = manifest.get(filePath);
+                boolean indexed = entry != null && index.containsDocument(filePath);
+                if (indexed && entry.sameStat(size, lastModified)) {
+                    unchangedCount++;
+                    continue;
+                }
+                byte[] digest;
+                try {
+                    digest = FileManifest.digest(file);
+                } catch (NoSuchFileException e) {
+                    seen.remove(filePath);
+                    continue;
+                }
+                if (!indexed || !entry.sameDigest(digest)) {
+                    index.updateDocument(filePath, docBuilder.termTupleStream(file));
+                    if (indexed) {
+                        changedCount++;
+                    } else {
+                        addedCount++;
+                    }
+                } else {
+                    unchangedCount++;
+                }
+                boolean racy = lastModified > scanStart - RACY_MILLIS;
+                manifest.put(filePath, new FileManifest.Entry(size, racy ? -1 : lastModified, digest));
+            }
+            List<String> removed = new ArrayList<>();
+            for (String filePath : manifest.paths()) {
+                if (!seen.contains(filePath)) {
+                    removed.add(filePath);
+                }
+            }
+            for (String filePath : removed) {
+                index.deleteDocument(filePath);
+                manifest.remove(filePath);
+                removedCount++;
+            }
+            index.commit();
+            manifest.save(manifestFile);
+        } catch (IOException e) {
+            throw closeOnFailure(index, new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            throw closeOnFailure(index, e);
+        }
+        return index;
+    }
+
+    /**
+     * 构建失败时关闭索引，停止后台合并线程。已经处理的文件在清单中没有更新，下次构建时会再处理一遍。
+     *
+     * @param index   正在构建的索引
+     * @param failure 构建失败的原因
+     * @return 构建失败的原因，关闭索引时的异常作为它的suppressed异常
+     */
+    private static RuntimeException closeOnFailure(SegmentedIndex index, RuntimeException failure) {
+        try {
+            index.close();
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+        return failure;
+    }
+
+    /**
+     * 返回上一次构建新加入索引的文件个数
+     *
+     * @return 新文件个数
+     */
+    public int getAddedCount() {
+        return addedCount;
+    }
+
+    /**
+     * 返回上一次构建中内容改变、重新加入索引的文件个数
+     *
+     * @return 改变的文件个数
+     */
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    /**
+     * 返回上一次构建从索引中删除的文件个数
+     *
+     * @return 删除的文件个数
+     */
+    public int getRemovedCount() {
+        return removedCount;
+    }
+
+    /**
+     * 返回上一次构建中没有改变、没有重新分词的文件个数
+     *
+     * @return 没有改变的文件个数
+     */
+    public int getUnchangedCount() {
+        return unchangedCount;
+    }
+}
@@ -1,6 +1,10 @@
 package hust.cs.javacourse.search.index.impl;
 
 import hust.cs.javacourse.search.index.*;
+import hust.cs.javacourse.search.parse.AbstractAnalyzer;
+import hust.cs.javacourse.search.parse.AbstractTermTupleStream;
+import hust.cs.javacourse.search.parse.impl.StandardAnalyzer;
+import hust.cs.javacourse.search.util.Config;
 import javafx.geometry.Pos;
 
 import java.io.*;
@@ -21,10 +25,44 @@ import java.util.*;
  * 5. 返回索引的字典，字典为索引里所有单词的并集。
  * 6. 对索引进行优化，包括对索引里每个单词的PostingList按docId从小到大排序，同时对每个Posting里的positions从小到大排序。
  * 7. 根据docId获得对应文档的完全路径名。
+ * 8. 返回构建时统计的文档长度、平均文档长度和单词的文档频率，供BM25等排序策略使用。
+ * <p>
+ * 单词通过TermDictionary内部化为整数termId，构建和查询都先把单词换成termId，
+ * 再按下标取PostingList；父类的termToPostingListMapping与字典保持同步，只在出现新单词时才需要更新。
  *
  * @author 晋晨曦
  */
 public class Index extends AbstractIndex {
+    /**
+     * 单词到termId、termId到PostingList的字典，加载索引后由termToPostingListMapping重建
+     */
+    private transient TermDictionary dictionary = new TermDictionary();
+
+    /**
+     * 按单词聚合当前文档的三元组，在多个文档之间复用
+     */
+    private transient TermAccumulator accumulator = new TermAccumulator();
+
+    /**
+     * docLengths[docId]为文档长度，即文档中加入索引的单词个数
+     */
+    private int[] docLengths = new int[16];
+
+    /**
+     * 所有文档长度之和
+     */
+    private long totalDocLength;
+
+    /**
+     * 版本号，每次修改索引内容后加1
+     */
+    private volatile long version;
+
+    /**
+     * 建立索引时使用的分析器，随索引一起保存；为null表示未知
+     */
+    private transient AbstractAnalyzer analyzer;
+
     /**
      * Index类的默认构造函数，构建空的索引。
      */
@@ -58,56 +96,200 @@ public class Index extends AbstractIndex {
 
     /**
      * 添加文档到索引，更新索引内部的HashMap。
+     * 先用TermAccumulator按单词聚合文档的全部三元组（单词 → 出现次数、位置），
+     * 再为每个单词向倒排列表末尾追加恰好一个Posting，不需要在倒排列表里查找当前文档。
+     * 文档按docId递增的顺序加入时，倒排列表始终有序，optimize不需要重新排序。
+     * 再次加入已有的docId时，新的出现合并到这个文档已有的Posting中，文档路径以最后一次为准。
      *
      * @param document ：文档的AbstractDocument子类型表示。
      */
     @Override
     public void addDocument(AbstractDocument document) {
+        // 按单词聚合文档的三元组
+        accumulator.clear();
+        for (AbstractTermTuple termTuple : document.getTuples()) {
+            accumulator.add(intern(termTuple.term), termTuple.freq, termTuple.curPos);
+        }
         // 将文档添加到docIdToDocPathMapping
-        docIdToDocPathMapping.put(document.getDocId(), document.getDocPath());
+        boolean merge = docIdToDocPathMapping.put(document.getDocId(), document.getDocPath()) != null;
+        addPostings(document.getDocId(), merge);
+    }
 
-        // 将文档的三元组添加到termToPostingListMapping
-        for (AbstractTermTuple termTuple : document.getTuples()) {
-            AbstractTerm term = termTuple.term;
-            AbstractPostingList postingList = termToPostingListMapping.get(term);
-            // 如果termToPostingListMapping中包含term，则根据当前三元组修改postingList
-            if (postingList != null) {
-                boolean ifHasDoc = false;
-                for (int i = 0; i < postingList.size(); i++) {
-                    AbstractPosting nowPosting = postingList.get(i);
-                    // 如果在这个PostingList中有当前文档的Posting，那么直接修改其Posting即可
-                    if (nowPosting.getDocId() == document.getDocId()) {
-                        nowPosting.setFreq(nowPosting.getFreq() + termTuple.freq);
-                        nowPosting.getPositions().add(termTuple.curPos);
-                        ifHasDoc = true;
-                        break;
-                    }
-                }
-                // 如果没有当前文档的Posting，那么创建一个新的
-                if (!ifHasDoc) {
-                    List<Integer> newPositions = new ArrayList<>();
-                    newPositions.add(termTuple.curPos);
-                    AbstractPosting newPosting = new Posting(document.getDocId(), termTuple.freq, newPositions);
-                    postingList.add(newPosting);
-                }
+    /**
+     * 以流的方式添加文档到索引。
+     * 三元组从过滤器链中读出后立即计入TermAccumulator，随后就可以被回收，
+     * 因此占用的内存只与文档中不同单词的个数（以及int类型的位置）有关，与文档长度生成的三元组对象个数无关。
+     * 读取三元组流时抛出异常则不添加这个文档：文档路径在流读完之后才登记，为这个文档新建的空PostingList会被删除。
+     *
+     * @param docId           ：文档id。
+     * @param docPath         ：文档绝对路径。
+     * @param termTupleStream ：文档对应的三元组流，方法返回前会被关闭。
+     */
+    @Override
+    public void addDocument(int docId, String docPath, AbstractTermTupleStream termTupleStream) {
+        accumulator.clear();
+        try {
+            AbstractTermTuple termTuple;
+            while ((termTuple = termTupleStream.next()) != null) {
+                accumulator.add(intern(termTuple.term), termTuple.freq, termTuple.curPos);
+            }
+        } catch (RuntimeException | Error e) {
+            discardEmptyPostingLists();
+            throw e;
+        } finally {
+            termTupleStream.close();
+        }
+        boolean merge = docIdToDocPathMapping.put(docId, docPath) != null;
+        addPostings(docId, merge);
+    }
+
+    /**
+     * 删除accumulator中仍然为空的PostingList，即读取失败的文档里才出现的新单词，并重建字典。
+     */
+    private void discardEmptyPostingLists() {
+        boolean removed = false;
+        for (int slot = 0; slot < accumulator.size(); slot++) {
+            int termId = accumulator.termId(slot);
+            if (dictionary.getPostingList(termId).size() == 0) {
+                termToPostingListMapping.remove(dictionary.getTerm(termId));
+                removed = true;
+            }
+        }
+        accumulator.clear();
+        if (removed) {
+            rebuildDictionary();
+        }
+    }
+
+    /**
+     * 把accumulator中聚合好的一个文档的单词写入倒排列表，每个单词追加一个Posting。
+     * 文档已经在索引中时，已有这个文档的Posting的单词合并到该Posting，其余单词仍然追加。
+     *
+     * @param docId ：文档id。
+     * @param merge ：文档是否已经在索引中。
+     */
+    private void addPostings(int docId, boolean merge) {
+        int length = 0;
+        for (int slot = 0; slot < accumulator.size(); slot++) {
+            CompactPostingList postingList = compactPostingList(accumulator.termId(slot));
+            int index = merge ? postingList.indexOf(docId) : -1;
+            if (index >= 0) {
+                postingList.merge(index, accumulator.freq(slot), accumulator.positions(slot), accumulator.positionCount(slot));
             } else {
-                AbstractPostingList newPostingList = new PostingList();
-                List<Integer> newPositions = new ArrayList<>();
-                newPositions.add(termTuple.curPos);
-                AbstractPosting newPosting = new Posting(document.getDocId(), termTuple.freq, newPositions);
-                newPostingList.add(newPosting);
-                termToPostingListMapping.put(term, newPostingList);
+                postingList.append(docId, accumulator.freq(slot), accumulator.positions(slot), accumulator.positionCount(slot));
             }
+            length += accumulator.freq(slot);
+        }
+        setDocLength(docId, merge ? getDocLength(docId) + length : length);
+        version++;
+    }
+
+    /**
+     * 记录文档长度，同时更新文档长度之和。
+     *
+     * @param docId  ：文档id。
+     * @param length ：文档长度。
+     */
+    private void setDocLength(int docId, int length) {
+        if (docId >= docLengths.length) {
+            docLengths = Arrays.copyOf(docLengths, Math.max(docId + 1, docLengths.length * 2));
         }
+        totalDocLength += length - docLengths[docId];
+        docLengths[docId] = length;
+    }
+
+    /**
+     * 由倒排列表重新统计每个文档的长度，用于读取没有保存文档长度的旧索引文件。
+     */
+    private void computeDocLengths() {
+        docLengths = new int[16];
+        totalDocLength = 0;
+        for (AbstractPostingList postingList : termToPostingListMapping.values()) {
+            for (int i = 0; i < postingList.size(); i++) {
+                int docId = postingList.docIdAt(i);
+                setDocLength(docId, getDocLength(docId) + postingList.freqAt(i));
+            }
+        }
+    }
+
+    /**
+     * 返回单词的termId。新单词会加入字典，同时在termToPostingListMapping里登记一个空的PostingList。
+     *
+     * @param term ：单词。
+     * @return ：termId。
+     */
+    private int intern(AbstractTerm term) {
+        int termId = dictionary.intern(term);
+        if (dictionary.getPostingList(termId) == null) {
+            CompactPostingList postingList = new CompactPostingList();
+            dictionary.setPostingList(termId, postingList);
+            termToPostingListMapping.put(dictionary.getTerm(termId), postingList);
+        }
+        return termId;
+    }
+
+    /**
+     * 返回termId对应的CompactPostingList，如果原来的PostingList是其他实现则先转换并替换。
+     *
+     * @param termId ：单词编号。
+     * @return ：可以追加Posting的CompactPostingList。
+     */
+    private CompactPostingList compactPostingList(int termId) {
+        AbstractPostingList postingList = dictionary.getPostingList(termId);
+        if (postingList instanceof CompactPostingList) {
+            return (CompactPostingList) postingList;
+        }
+        CompactPostingList compact = CompactPostingList.of(postingList);
+        dictionary.setPostingList(termId, compact);
+        termToPostingListMapping.put(dictionary.getTerm(termId), compact);
+        return compact;
+    }
+
+    /**
+     * 由termToPostingListMapping重建字典，在整体替换了termToPostingListMapping之后调用。
+     */
+    private void rebuildDictionary() {
+        dictionary.clear();
+        for (Map.Entry<AbstractTerm, AbstractPostingList> entry : termToPostingListMapping.entrySet()) {
+            dictionary.setPostingList(dictionary.intern(entry.getKey()), entry.getValue());
+        }
+    }
+
+    /**
+     * 把另一个索引合并到当前索引。
+     * 两个索引的文档必须互不相同（docId不重复），例如并行构建时各线程按文档划分得到的部分索引。
+     * 合并后的PostingList不保证按docId排序，和addDocument一样需要在构建完成后调用optimize。
+     *
+     * @param other ：要合并进来的索引。
+     */
+    public void merge(AbstractIndex other) {
+        docIdToDocPathMapping.putAll(other.docIdToDocPathMapping);
+        for (int docId : other.docIdToDocPathMapping.keySet()) {
+            setDocLength(docId, other.getDocLength(docId));
+        }
+        for (Map.Entry<AbstractTerm, AbstractPostingList> entry : other.termToPostingListMapping.entrySet()) {
+            compactPostingList(intern(entry.getKey())).appendAll(entry.getValue());
+        }
+        version++;
     }
 
     /**
      * 从索引文件里加载已经构建好的索引。
+     * 如果文件是压缩的段格式则通过SegmentReader解码，否则按ObjectInputStream反序列化。
      *
      * @param file ：索引文件。
      */
     @Override
     public void load(File file) {
+        if (SegmentFormat.isSegment(file)) {
+            try {
+                readSegment(new SegmentReader(file));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            rebuildDictionary();
+            return;
+        }
         try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(file.toPath()))) {
             this.readObject(in);
         } catch (IOException e) {
@@ -117,11 +299,21 @@ public class Index extends AbstractIndex {
 
     /**
      * 将在内存里构建好的索引写入到文件。
+     * Config.INDEX_COMPRESSED为true时写成压缩的段格式，否则使用ObjectOutputStream序列化。
+     * 保存不修改内存中的索引，merge或乱序addDocument之后还没有optimize的倒排列表由SegmentWriter排序副本后写入。
      *
      * @param file ：写入的目标索引文件。
      */
     @Override
     public void save(File file) {
+        if (Config.INDEX_COMPRESSED) {
+            try {
+                SegmentWriter.write(this, file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
         try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(file.toPath()))) {
             this.writeObject(out);
         } catch (IOException e) {
@@ -129,6 +321,27 @@ public class Index extends AbstractIndex {
         }
     }
 
+    /**
+     * 把段文件中的文档表和全部倒排列表解码到内存。
+     *
+     * @param reader ：已打开的段文件。
+     */
+    private void readSegment(SegmentReader reader) {
+        version++;
+        docIdToDocPathMapping = new TreeMap<>(reader.getDocIdToDocPath());
+        termToPostingListMapping = new TreeMap<>();
+        int ord = 0;
+        for (String word : reader.getTermDictionary()) {
+            termToPostingListMapping.put(new Term(word), reader.decode(ord++));
+        }
+        docLengths = new int[16];
+        totalDocLength = 0;
+        for (int docId : docIdToDocPathMapping.keySet()) {
+            setDocLength(docId, reader.docLength(docId));
+        }
+        analyzer = StandardAnalyzer.fromSpec(reader.getAnalyzerSpec());
+    }
+
     /**
      * 返回指定单词的PostingList。
      *
@@ -137,10 +350,28 @@ public class Index extends AbstractIndex {
      */
     @Override
     public AbstractPostingList search(AbstractTerm term) {
-        if (termToPostingListMapping.containsKey(term)) {
-            return termToPostingListMapping.get(term);
-        }
-        return null;
+        int termId = dictionary.getTermId(term);
+        return termId < 0 ? null : dictionary.getPostingList(termId);
+    }
+
+    /**
+     * 返回单词的termId。
+     *
+     * @param term : 指定的单词。
+     * @return ：termId;如果索引字典没有该单词，则返回-1。
+     */
+    public int getTermId(AbstractTerm term) {
+        return dictionary.getTermId(term);
+    }
+
+    /**
+     * 返回termId对应的PostingList。
+     *
+     * @param termId : 由getTermId得到的单词编号。
+     * @return ：对应的PostingList。
+     */
+    public AbstractPostingList search(int termId) {
+        return dictionary.getPostingList(termId);
     }
 
     /**
@@ -153,16 +384,73 @@ public class Index extends AbstractIndex {
         return termToPostingListMapping.keySet();
     }
 
+    /**
+     * 返回字典中以指定前缀开头的所有单词，在有序的termToPostingListMapping上从前缀处开始遍历。
+     *
+     * @param prefix ：前缀。
+     * @return ：以prefix开头的单词列表。
+     */
+    @Override
+    public List<AbstractTerm> getTermsWithPrefix(String prefix) {
+        List<AbstractTerm> terms = new ArrayList<>();
+        for (AbstractTerm term : sortedTerms().tailMap(new Term(prefix), true).keySet()) {
+            if (!term.getContent().startsWith(prefix)) {
+                break;
+            }
+            terms.add(term);
+        }
+        return terms;
+    }
+
+    /**
+     * 返回字典中位于[from, to)区间的所有单词。
+     *
+     * @param from ：区间下界(含)，为null时表示没有下界。
+     * @param to   ：区间上界(不含)，为null时表示没有上界。
+     * @return ：区间内的单词列表。
+     */
+    @Override
+    public List<AbstractTerm> getTermsInRange(String from, String to) {
+        NavigableMap<AbstractTerm, AbstractPostingList> terms = sortedTerms();
+        if (from != null) {
+            terms = terms.tailMap(new Term(from), true);
+        }
+        if (to != null) {
+            terms = terms.headMap(new Term(to), false);
+        }
+        return new ArrayList<>(terms.keySet());
+    }
+
+    /**
+     * 返回按单词排序的termToPostingListMapping，如果它不是有序的Map则复制一份。
+     */
+    private NavigableMap<AbstractTerm, AbstractPostingList> sortedTerms() {
+        if (termToPostingListMapping instanceof NavigableMap) {
+            return (NavigableMap<AbstractTerm, AbstractPostingList>) termToPostingListMapping;
+        }
+        return new TreeMap<>(termToPostingListMapping);
+    }
+
     /**
      * 对索引进行优化，包括对索引里每个单词的PostingList按docId从小到大排序，同时对每个Posting里的positions从小到大排序。
+     * 排序完成后把每个PostingList转换为基于基本类型数组的CompactPostingList，去掉装箱对象的内存开销。
      */
     @Override
     public void optimize() {
-        for (AbstractPostingList postingList : termToPostingListMapping.values()) {
+        for (int termId = 0; termId < dictionary.size(); termId++) {
+            AbstractPostingList postingList = dictionary.getPostingList(termId);
             postingList.sort();
-            for (int i = 0; i < postingList.size(); i++) {
-                AbstractPosting posting = postingList.get(i);
-                Collections.sort(posting.getPositions());
+            if (!(postingList instanceof CompactPostingList)) {
+                for (int i = 0; i < postingList.size(); i++) {
+                    AbstractPosting posting = postingList.get(i);
+                    Collections.sort(posting.getPositions());
+                }
+            }
+            CompactPostingList compact = CompactPostingList.of(postingList);
+            compact.trimToSize();
+            if (compact != postingList) {
+                dictionary.setPostingList(termId, compact);
+                termToPostingListMapping.put(dictionary.getTerm(termId), compact);
             }
         }
     }
@@ -178,6 +466,68 @@ public class Index extends AbstractIndex {
         return docIdToDocPathMapping.get(docId);
     }
 
+    /**
+     * 返回文档长度。
+     *
+     * @param docId ：文档id。
+     * @return ：文档长度;索引中没有该文档时返回0。
+     */
+    @Override
+    public int getDocLength(int docId) {
+        return docId >= 0 && docId < docLengths.length ? docLengths[docId] : 0;
+    }
+
+    /**
+     * 返回所有文档的平均长度。
+     *
+     * @return ：平均文档长度;索引为空时返回0。
+     */
+    @Override
+    public double getAverageDocLength() {
+        return docIdToDocPathMapping.isEmpty() ? 0 : (double) totalDocLength / docIdToDocPathMapping.size();
+    }
+
+    /**
+     * 返回包含指定单词的文档个数，即该单词PostingList的长度。
+     *
+     * @param term ：指定的单词。
+     * @return ：文档频率;如果索引字典没有该单词，则返回0。
+     */
+    @Override
+    public int getDocFreq(AbstractTerm term) {
+        AbstractPostingList postingList = search(term);
+        return postingList == null ? 0 : postingList.size();
+    }
+
+    /**
+     * 返回索引的版本号，每次添加文档、合并或加载后加1。
+     *
+     * @return ：版本号。
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 返回建立索引时使用的分析器。
+     *
+     * @return ：分析器;旧版本的索引文件或未设置时返回null。
+     */
+    @Override
+    public AbstractAnalyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    /**
+     * 设置建立索引时使用的分析器，由IndexBuilder在构建前调用，保存索引时一起写出。
+     *
+     * @param analyzer ：分析器，可以为null。
+     */
+    public void setAnalyzer(AbstractAnalyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
     /**
      * 将Index对象写入到ObjectOutputStream。
      *
@@ -188,6 +538,8 @@ public class Index extends AbstractIndex {
         try {
             out.writeObject(docIdToDocPathMapping);
             out.writeObject(termToPostingListMapping);
+            out.writeObject(docLengths);
+            out.writeObject(analyzer == null ? "" : analyzer.getSpec());
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -200,11 +552,32 @@ public class Index extends AbstractIndex {
      */
     @Override
     public void readObject(ObjectInputStream in) {
+        version++;
         try {
             docIdToDocPathMapping = (Map<Integer, String>) in.readObject();
             termToPostingListMapping = (Map<AbstractTerm, AbstractPostingList>) in.readObject();
         } catch (IOException | ClassNotFoundException e) {
             e.printStackTrace();
         }
+        rebuildDictionary();
+        analyzer = null;
+        try {
+            docLengths = (int[]) in.readObject();
+        } catch (EOFException | OptionalDataException e) {
+            // 原来的index.dat只有文档表和倒排表，没有文档长度和分析器，文档长度由倒排列表统计
+            computeDocLengths();
+            return;
+        } catch (IOException | ClassNotFoundException e) {
+            e.printStackTrace();
+        }
+        totalDocLength = 0;
+        for (int docId : docIdToDocPathMapping.keySet()) {
+            totalDocLength += getDocLength(docId);
+        }
+        try {
+            analyzer = StandardAnalyzer.fromSpec((String) in.readObject());
+        } catch (IOException | ClassNotFoundException e) {
+            e.printStackTrace();
+        }
     }
 }
@@ -1,14 +1,14 @@
 package hust.cs.javacourse.search.index.impl;
 
-import hust.cs.javacourse.search.index.AbstractDocument;
 import hust.cs.javacourse.search.index.AbstractDocumentBuilder;
 import hust.cs.javacourse.search.index.AbstractIndex;
 import hust.cs.javacourse.search.index.AbstractIndexBuilder;
-import hust.cs.javacourse.search.util.Config;
+import hust.cs.javacourse.search.util.FileDiscovery;
 import hust.cs.javacourse.search.util.FileUtil;
 
 import java.io.File;
-import java.util.List;
+import java.nio.file.PathMatcher;
+import java.util.Iterator;
 
 /**
  * IndexBuilder类是AbstractIndexBuilder的具体实现，用于构建索引。
@@ -29,18 +29,40 @@ public class IndexBuilder extends AbstractIndexBuilder {
 
     /**
      * 从指定的根目录中的所有文件构建索引。
+     * 每个文件的三元组流直接交给索引消费，不构造保存全部三元组的Document对象。
      *
      * @param rootDirectory 包含要索引的文件的根目录。
      * @return 构建的索引。
      */
     @Override
     public AbstractIndex buildIndex(String rootDirectory) {
-        List<String> filePaths = FileUtil.list(rootDirectory);
-        AbstractIndex index = new Index();
-        for (String filePath : filePaths) {
+        return buildIndex(FileUtil.list(rootDirectory).iterator());
+    }
+
+    /**
+     * 递归构建指定根目录及其子目录中匹配过滤条件的文件的索引。
+     * 目录由后台线程遍历，文件路径经有界队列交给当前线程，遍历与分词同时进行；docId按遍历顺序分配。
+     *
+     * @param rootDirectory 包含要索引的文件的根目录。
+     * @param filter        文件过滤条件，匹配文件相对于根目录的路径，见FileUtil.suffixFilter和FileUtil.globFilter。
+     * @return 构建的索引。
+     */
+    public AbstractIndex buildIndex(String rootDirectory, PathMatcher filter) {
+        try (FileDiscovery filePaths = FileUtil.discover(rootDirectory, filter)) {
+            return buildIndex(filePaths);
+        }
+    }
+
+    /**
+     * 按顺序为给出的每个文件分配docId并加入新的索引
+     */
+    private AbstractIndex buildIndex(Iterator<String> filePaths) {
+        Index index = new Index();
+        index.setAnalyzer(docBuilder.getAnalyzer());
+        while (filePaths.hasNext()) {
+            String filePath = filePaths.next();
             File file = new File(filePath);
-            AbstractDocument document = docBuilder.build(docId++, filePath, file);
-            index.addDocument(document);
+            index.addDocument(docId++, filePath, docBuilder.termTupleStream(file));
         }
         return index;
     }
@@ -0,0 +1,356 @@
+package hust.cs.javacourse.search.index.impl;
+
+import hust.cs.javacourse.search.index.AbstractDocument;
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.parse.AbstractAnalyzer;
+import hust.cs.javacourse.search.parse.AbstractTermTupleStream;
+import hust.cs.javacourse.search.parse.impl.StandardAnalyzer;
+import hust.cs.javacourse.search.util.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * MappedIndex类是AbstractIndex的只读实现，直接在内存映射的段文件上检索。
+ * <p>
+ * 打开索引时只读取字典文件并映射倒排文件，不解码任何倒排列表，因此启动几乎不需要时间；
+ * 调用search时才解码对应单词的倒排列表。倒排数据位于操作系统的页缓存中，
+ * 同一台机器上的多个JVM打开同一个索引时共享这部分内存，而不是各自在堆里保存一份。
+ * <p>
+ * 解码后的倒排列表放入按字节数限制容量的PostingListCache(容量由Config.POSTING_CACHE_MAX_BYTES指定)，
+ * 热点单词只在第一次检索时解码。search返回的倒排列表可能被多个调用者共享，不能修改。
+ * <p>
+ * 因为是只读索引，addDocument、save等修改操作会抛出UnsupportedOperationException。
+ * 父类的termToPostingListMapping不使用，始终为空。
+ *
+ * @author 晋晨曦
+ */
+public class MappedIndex extends AbstractIndex {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 映射的段，每次打开段文件时替换；读取时先取到局部变量，单词序号和解码都使用同一个段
+     */
+    private transient volatile SegmentReader reader;
+    /**
+     * 解码后的倒排列表缓存，每次打开段文件时重新创建，在reader之前赋值
+     */
+    private transient volatile PostingListCache postingListCache;
+    /**
+     * 平均文档长度，第一次使用时计算；多个线程同时计算得到相同的结果，volatile保证读到完整的值
+     */
+    private transient volatile double averageDocLength = -1;
+    /**
+     * 版本号，每次打开段文件后加1
+     */
+    private transient volatile long version;
+    /**
+     * 字典文件中记录的分析器，每次打开段文件时重新读取
+     */
+    private transient volatile AbstractAnalyzer analyzer;
+
+    /**
+     * 默认构造函数，构建一个尚未打开的只读索引，需要调用load打开段文件。
+     */
+    public MappedIndex() {
+        super();
+    }
+
+    /**
+     * 构造函数，打开指定的段文件。
+     *
+     * @param file 段格式的倒排文件
+     */
+    public MappedIndex(File file) {
+        super();
+        load(file);
+    }
+
+    /**
+     * 返回索引的字符串表示，只包含概要信息，不解码倒排列表。
+     *
+     * @return 索引的字符串表示
+     */
+    @Override
+    public String toString() {
+        return "MappedIndex{docs=" + docIdToDocPathMapping.size() +
+                ", terms=" + (reader == null ? 0 : reader.termCount()) + "}";
+    }
+
+    /**
+     * 只读索引不支持添加文档。
+     *
+     * @param document 文档
+     */
+    @Override
+    public void addDocument(AbstractDocument document) {
+        throw new UnsupportedOperationException("MappedIndex是只读索引");
+    }
+
+    /**
+     * 只读索引不支持添加文档。
+     *
+     * @param docId           文档id
+     * @param docPath         文档路径
+     * @param termTupleStream 三元组流
+     */
+    @Override
+    public void addDocument(int docId, String docPath, AbstractTermTupleStream termTupleStream) {
+        throw new UnsupportedOperationException("MappedIndex是只读索引");
+    }
+
+    /**
+     * 打开段格式的索引文件：读取字典文件并以只读方式映射倒排文件。
+     *
+     * @param file 段格式的倒排文件
+     */
+    @Override
+    public void load(File file) {
+        SegmentReader segment;
+        try {
+            segment = new SegmentReader(file, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        docIdToDocPathMapping = Collections.unmodifiableMap(segment.getDocIdToDocPath());
+        postingListCache = new PostingListCache(segment, Config.POSTING_CACHE_MAX_BYTES);
+        analyzer = StandardAnalyzer.fromSpec(segment.getAnalyzerSpec());
+        averageDocLength = -1;
+        reader = segment;
+        version++;
+    }
+
+    /**
+     * 只读索引不支持保存，段文件本身就是它的持久化形式。
+     *
+     * @param file 目标文件
+     */
+    @Override
+    public void save(File file) {
+        throw new UnsupportedOperationException("MappedIndex是只读索引");
+    }
+
+    /**
+     * 返回指定单词的PostingList，不在缓存中时从映射的倒排文件中解码。
+     *
+     * @param term 指定的单词
+     * @return 指定单词的PostingList，不能修改;如果索引字典没有该单词，则返回null
+     */
+    @Override
+    public AbstractPostingList search(AbstractTerm term) {
+        PostingListCache cache = postingListCache;
+        int ord = cache.getReader().find(term.getContent());
+        return ord < 0 ? null : cache.get(ord);
+    }
+
+    /**
+     * 解码指定单词的倒排列表，不经过也不放入缓存，供合并段时一次性读取全部单词
+     *
+     * @param term 指定的单词
+     * @return 指定单词的PostingList;如果索引字典没有该单词，则返回null
+     */
+    AbstractPostingList decode(AbstractTerm term) {
+        SegmentReader segment = reader;
+        int ord = segment.find(term.getContent());
+        return ord < 0 ? null : segment.decode(ord);
+    }
+
+    /**
+     * 返回解码后的倒排列表缓存，用于查看命中统计
+     *
+     * @return 倒排列表缓存;尚未打开段文件时返回null
+     */
+    public PostingListCache getPostingListCache() {
+        return postingListCache;
+    }
+
+    /**
+     * 返回索引的字典。返回的是字典文件的只读视图，遍历时才创建Term对象。
+     *
+     * @return 索引中Term集合
+     */
+    @Override
+    public Set<AbstractTerm> getDictionary() {
+        return new AbstractSet<AbstractTerm>() {
+            @Override
+            public Iterator<AbstractTerm> iterator() {
+                FrontCodedDictionary dictionary = reader.getTermDictionary();
+                return termIterator(dictionary, 0, dictionary.size());
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof AbstractTerm && reader.find(((AbstractTerm) o).getContent()) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return reader.termCount();
+            }
+        };
+    }
+
+    /**
+     * 返回字典中以指定前缀开头的所有单词，在前缀压缩的单词表上定位区间后顺序解码。
+     *
+     * @param prefix 前缀
+     * @return 以prefix开头的单词列表
+     */
+    @Override
+    public List<AbstractTerm> getTermsWithPrefix(String prefix) {
+        FrontCodedDictionary dictionary = reader.getTermDictionary();
+        int[] range = dictionary.prefixRange(prefix);
+        return toList(termIterator(dictionary, range[0], range[1]));
+    }
+
+    /**
+     * 返回字典中位于[from, to)区间的所有单词。
+     *
+     * @param from 区间下界(含)，为null时表示没有下界
+     * @param to   区间上界(不含)，为null时表示没有上界
+     * @return 区间内的单词列表
+     */
+    @Override
+    public List<AbstractTerm> getTermsInRange(String from, String to) {
+        FrontCodedDictionary dictionary = reader.getTermDictionary();
+        int start = from == null ? 0 : dictionary.ceiling(from);
+        int end = to == null ? dictionary.size() : dictionary.ceiling(to);
+        return toList(termIterator(dictionary, start, end));
+    }
+
+    /**
+     * 返回字典中序号在[from, to)之间的单词的迭代器，遍历时才创建Term对象
+     */
+    private static Iterator<AbstractTerm> termIterator(FrontCodedDictionary dictionary, int from, int to) {
+        Iterator<String> words = dictionary.iterator(from, to);
+        return new Iterator<AbstractTerm>() {
+            @Override
+            public boolean hasNext() {
+                return words.hasNext();
+            }
+
+            @Override
+            public AbstractTerm next() {
+                return new Term(words.next());
+            }
+        };
+    }
+
+    private static List<AbstractTerm> toList(Iterator<AbstractTerm> terms) {
+        List<AbstractTerm> list = new ArrayList<>();
+        while (terms.hasNext()) {
+            list.add(terms.next());
+        }
+        return list;
+    }
+
+    /**
+     * 段文件写入时已经排好序，无需优化。
+     */
+    @Override
+    public void optimize() {
+    }
+
+    /**
+     * 根据docId获得对应文档的完全路径名。
+     *
+     * @param docId 文档id
+     * @return 对应文档的完全路径名
+     */
+    @Override
+    public String getDocName(int docId) {
+        return docIdToDocPathMapping.get(docId);
+    }
+
+    /**
+     * 返回文档长度，直接取自字典文件的文档表。
+     *
+     * @param docId 文档id
+     * @return 文档长度;索引中没有该文档时返回0
+     */
+    @Override
+    public int getDocLength(int docId) {
+        return reader.docLength(docId);
+    }
+
+    /**
+     * 返回所有文档的平均长度，第一次调用时计算。
+     *
+     * @return 平均文档长度;索引为空时返回0
+     */
+    @Override
+    public double getAverageDocLength() {
+        if (averageDocLength < 0) {
+            long total = 0;
+            for (int docId : docIdToDocPathMapping.keySet()) {
+                total += reader.docLength(docId);
+            }
+            averageDocLength = docIdToDocPathMapping.isEmpty() ? 0 : (double) total / docIdToDocPathMapping.size();
+        }
+        return averageDocLength;
+    }
+
+    /**
+     * 返回包含指定单词的文档个数，直接取自字典文件，不解码倒排列表。
+     *
+     * @param term 指定的单词
+     * @return 文档频率;如果索引字典没有该单词，则返回0
+     */
+    @Override
+    public int getDocFreq(AbstractTerm term) {
+        SegmentReader segment = reader;
+        int ord = segment.find(term.getContent());
+        return ord < 0 ? 0 : segment.docFreq(ord);
+    }
+
+    /**
+     * 返回索引的版本号，只在重新打开段文件后改变。
+     *
+     * @return 版本号
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 返回字典文件中记录的建立索引时使用的分析器。
+     *
+     * @return 分析器;旧版本的段文件返回null
+     */
+    @Override
+    public AbstractAnalyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    /**
+     * 只读索引不支持序列化。
+     *
+     * @param out 输出流
+     */
+    @Override
+    public void writeObject(ObjectOutputStream out) {
+        throw new UnsupportedOperationException("MappedIndex是只读索引");
+    }
+
+    /**
+     * 只读索引不支持反序列化，请使用load打开段文件。
+     *
+     * @param in 输入流
+     */
+    @Override
+    public void readObject(ObjectInputStream in) {
+        throw new UnsupportedOperationException("MappedIndex是只读索引");
+    }
+}
@@ -0,0 +1,603 @@
+package hust.cs.javacourse.search.index.impl;
+
+import hust.cs.javacourse.search.index.AbstractDocument;
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.parse.AbstractAnalyzer;
+import hust.cs.javacourse.search.parse.AbstractTermTupleStream;
+import hust.cs.javacourse.search.util.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * MultiSegmentIndex类是由多个段组成的索引在某一时刻的只读视图，由SegmentedIndex在每次提交或合并后创建。
+ * <p>
+ * 每个段是一个内存映射的段文件(MappedIndex)加上一个已删除文档的位图。段之间的docId区间互不重叠，
+ * 并且按docId从小到大排列，因此一个单词的倒排列表就是各段倒排列表去掉已删除文档后依次首尾相接，不需要重新排序。
+ * 只有一个段包含该单词且段中没有删除时直接返回段的倒排列表。
+ * 需要拼接的倒排列表在视图中按最近最少使用的顺序缓存，容量为Config.POSTING_CACHE_MAX_BYTES，
+ * 视图不可变，所以缓存的列表一直有效；高频词不必每次查询都重新拼接。
+ * <p>
+ * 段文件和位图创建后都不再修改，视图的所有状态都保存在final字段里，可以被多个检索线程共享；
+ * 之后的提交和合并只会创建新的视图，不影响已经取得这个视图的检索。
+ *
+ * @author 晋晨曦
+ */
+class MultiSegmentIndex extends AbstractIndex {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Segment> segments;
+    /**
+     * firstDocIds[i]为第i个段的最小docId，按docId查找所在的段时二分查找
+     */
+    private final int[] firstDocIds;
+    private final int liveDocs;
+    private final double averageDocLength;
+    private final long version;
+    private final AbstractAnalyzer analyzer;
+    /**
+     * 为false时解码倒排列表不经过各段的缓存，用于合并
+     */
+    private final boolean cached;
+    /**
+     * 所有段的字典的并集，第一次使用时创建
+     */
+    private volatile Set<AbstractTerm> dictionary;
+    /**
+     * 拼接得到的倒排列表，只在cached为true时使用；没有未删除文档的单词缓存为空列表
+     */
+    private final LinkedHashMap<String, CompactPostingList> mergedLists = new LinkedHashMap<>(16, 0.75f, true);
+    private long mergedBytes;
+
+    /**
+     * 构造函数
+     *
+     * @param segments 按docId从小到大排列、docId区间互不重叠的段
+     * @param analyzer 建立索引时使用的分析器，可以为null
+     * @param version  视图的版本号
+     * @param cached   解码倒排列表时是否使用各段的缓存
+     */
+    MultiSegmentIndex(List<Segment> segments, AbstractAnalyzer analyzer, long version, boolean cached) {
+        super();
+        this.segments = Collections.unmodifiableList(new ArrayList<>(segments));
+        this.firstDocIds = new int[segments.size()];
+        int docs = 0;
+        long total = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            firstDocIds[i] = segments.get(i).firstDocId;
+            docs += segments.get(i).liveDocs;
+            total += segments.get(i).liveLength;
+        }
+        this.liveDocs = docs;
+        this.averageDocLength = docs == 0 ? 0 : (double) total / docs;
+        this.version = version;
+        this.analyzer = analyzer;
+        this.cached = cached;
+        docIdToDocPathMapping = new LiveDocs();
+        termToPostingListMapping = Collections.emptyNavigableMap();
+    }
+
+    /**
+     * 返回视图包含的段，按docId从小到大排列
+     *
+     * @return 段的只读列表
+     */
+    List<Segment> segments() {
+        return segments;
+    }
+
+    /**
+     * 返回索引的字符串表示，只包含概要信息。
+     *
+     * @return 索引的字符串表示
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("MultiSegmentIndex{docs=").append(liveDocs).append(", segments=[");
+        for (int i = 0; i < segments.size(); i++) {
+            builder.append(i == 0 ? "" : ", ").append(segments.get(i));
+        }
+        return builder.append("]}").toString();
+    }
+
+    /**
+     * 只读视图不支持添加文档，请通过SegmentedIndex添加。
+     *
+     * @param document 文档
+     */
+    @Override
+    public void addDocument(AbstractDocument document) {
+        throw new UnsupportedOperationException("MultiSegmentIndex是只读视图");
+    }
+
+    /**
+     * 只读视图不支持添加文档，请通过SegmentedIndex添加。
+     *
+     * @param docId           文档id
+     * @param docPath         文档路径
+     * @param termTupleStream 三元组流
+     */
+    @Override
+    public void addDocument(int docId, String docPath, AbstractTermTupleStream termTupleStream) {
+        throw new UnsupportedOperationException("MultiSegmentIndex是只读视图");
+    }
+
+    /**
+     * 只读视图不支持加载，请打开SegmentedIndex。
+     *
+     * @param file 索引文件
+     */
+    @Override
+    public void load(File file) {
+        throw new UnsupportedOperationException("MultiSegmentIndex是只读视图");
+    }
+
+    /**
+     * 把视图中未删除的文档合并写成一个段格式的索引文件，逐个单词合并，不把全部倒排列表同时放在内存中。
+     *
+     * @param file 写入的目标索引文件
+     */
+    @Override
+    public void save(File file) {
+        try {
+            writeSegment(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 把视图中未删除的文档合并写成一个段
+     *
+     * @param file 段的倒排文件
+     * @throws IOException 写入失败
+     */
+    void writeSegment(File file) throws IOException {
+        TreeSet<String> words = new TreeSet<>(FrontCodedDictionary.ORDER);
+        for (Segment segment : segments) {
+            for (AbstractTerm term : segment.index.getDictionary()) {
+                words.add(term.getContent());
+            }
+        }
+        List<String> sortedWords = new ArrayList<>(words);
+        SegmentWriter.write(analyzer == null ? "" : analyzer.getSpec(), docIdToDocPathMapping, this::getDocLength, sortedWords,
+                ord -> search(new Term(sortedWords.get(ord))), file);
+    }
+
+    /**
+     * 返回指定单词在所有段中未删除文档的PostingList。
+     *
+     * @param term 指定的单词
+     * @return 指定单词的PostingList，只能读取;如果没有未删除的文档包含该单词，则返回null
+     */
+    @Override
+    public AbstractPostingList search(AbstractTerm term) {
+        String word = term.getContent();
+        if (cached) {
+            CompactPostingList memo;
+            synchronized (mergedLists) {
+                memo = mergedLists.get(word);
+            }
+            if (memo != null) {
+                return memo.size() == 0 ? null : memo;
+            }
+        }
+        AbstractPostingList single = null;
+        CompactPostingList merged = null;
+        for (Segment segment : segments) {
+            AbstractPostingList postingList = cached ? segment.index.search(term) : segment.index.decode(term);
+            if (postingList == null || postingList.size() == 0) {
+                continue;
+            }
+            if (merged == null && single == null && segment.deleted.isEmpty()) {
+                single = postingList;
+                continue;
+            }
+            if (merged == null) {
+                merged = new CompactPostingList();
+                if (single != null) {
+                    merged.appendAll(single);
+                    single = null;
+                }
+            }
+            segment.appendLive(merged, CompactPostingList.of(postingList));
+        }
+        if (merged == null) {
+            // 直接取自一个段的列表已经由段的缓存保存
+            return single;
+        }
+        merged.trimToSize();
+        merged.maxFreq();
+        if (cached) {
+            merged = memoize(word, merged);
+        }
+        return merged.size() == 0 ? null : merged;
+    }
+
+    /**
+     * 把拼接得到的列表放入缓存；其他线程已经放入同一个单词的列表时返回已有的列表
+     */
+    private CompactPostingList memoize(String word, CompactPostingList merged) {
+        long size = merged.sizeInBytes();
+        if (size > Config.POSTING_CACHE_MAX_BYTES) {
+            return merged;
+        }
+        synchronized (mergedLists) {
+            CompactPostingList previous = mergedLists.putIfAbsent(word, merged);
+            if (previous != null) {
+                return previous;
+            }
+            mergedBytes += size;
+            Iterator<CompactPostingList> it = mergedLists.values().iterator();
+            while (mergedBytes > Config.POSTING_CACHE_MAX_BYTES && it.hasNext()) {
+                mergedBytes -= it.next().sizeInBytes();
+                it.remove();
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 返回所有段的字典的并集，第一次调用时创建。其中可能包含只出现在已删除文档中的单词。
+     *
+     * @return 索引中Term集合的只读视图
+     */
+    @Override
+    public Set<AbstractTerm> getDictionary() {
+        Set<AbstractTerm> terms = dictionary;
+        if (terms == null) {
+            TreeSet<AbstractTerm> union = new TreeSet<>();
+            for (Segment segment : segments) {
+                union.addAll(segment.index.getDictionary());
+            }
+            terms = Collections.unmodifiableSet(union);
+            dictionary = terms;
+        }
+        return terms;
+    }
+
+    /**
+     * 返回各段字典中以指定前缀开头的单词的并集。
+     *
+     * @param prefix 前缀
+     * @return 以prefix开头的单词列表，按字典序排列
+     */
+    @Override
+    public List<AbstractTerm> getTermsWithPrefix(String prefix) {
+        TreeSet<AbstractTerm> terms = new TreeSet<>();
+        for (Segment segment : segments) {
+            terms.addAll(segment.index.getTermsWithPrefix(prefix));
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * 返回各段字典中位于[from, to)区间的单词的并集。
+     *
+     * @param from 区间下界(含)，为null时表示没有下界
+     * @param to   区间上界(不含)，为null时表示没有上界
+     * @return 区间内的单词列表，按字典序排列
+     */
+    @Override
+    public List<AbstractTerm> getTermsInRange(String from, String to) {
+        TreeSet<AbstractTerm> terms = new TreeSet<>();
+        for (Segment segment : segments) {
+            terms.addAll(segment.index.getTermsInRange(from, to));
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * 段文件写入时已经排好序，无需优化。
+     */
+    @Override
+    public void optimize() {
+    }
+
+    /**
+     * 根据docId获得对应文档的完全路径名。
+     *
+     * @param docId 文档id
+     * @return 对应文档的完全路径名;文档不存在或已删除时返回null
+     */
+    @Override
+    public String getDocName(int docId) {
+        Segment segment = segmentOf(docId);
+        return segment == null || segment.isDeleted(docId) ? null : segment.index.getDocName(docId);
+    }
+
+    /**
+     * 返回文档长度。
+     *
+     * @param docId 文档id
+     * @return 文档长度;文档不存在或已删除时返回0
+     */
+    @Override
+    public int getDocLength(int docId) {
+        Segment segment = segmentOf(docId);
+        return segment == null || segment.isDeleted(docId) ? 0 : segment.index.getDocLength(docId);
+    }
+
+    /**
+     * 返回未删除文档的平均长度。
+     *
+     * @return 平均文档长度;索引为空时返回0
+     */
+    @Override
+    public double getAverageDocLength() {
+        return averageDocLength;
+    }
+
+    /**
+     * 返回包含指定单词的未删除文档个数。没有删除的段直接取字典文件中的文档频率，否则需要解码倒排列表。
+     *
+     * @param term 指定的单词
+     * @return 文档频率;如果索引字典没有该单词，则返回0
+     */
+    @Override
+    public int getDocFreq(AbstractTerm term) {
+        int docFreq = 0;
+        for (Segment segment : segments) {
+            if (segment.deleted.isEmpty()) {
+                docFreq += segment.index.getDocFreq(term);
+                continue;
+            }
+            AbstractPostingList postingList = segment.index.search(term);
+            for (int i = 0; postingList != null && i < postingList.size(); i++) {
+                if (!segment.isDeleted(postingList.docIdAt(i))) {
+                    docFreq++;
+                }
+            }
+        }
+        return docFreq;
+    }
+
+    /**
+     * 返回创建视图时SegmentedIndex的版本号。
+     *
+     * @return 版本号
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 返回建立索引时使用的分析器
+     *
+     * @return 分析器;未知时返回null
+     */
+    @Override
+    public AbstractAnalyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    /**
+     * 只读视图不支持序列化，请使用save写成段文件。
+     *
+     * @param out 输出流
+     */
+    @Override
+    public void writeObject(ObjectOutputStream out) {
+        throw new UnsupportedOperationException("MultiSegmentIndex是只读视图");
+    }
+
+    /**
+     * 只读视图不支持反序列化。
+     *
+     * @param in 输入流
+     */
+    @Override
+    public void readObject(ObjectInputStream in) {
+        throw new UnsupportedOperationException("MultiSegmentIndex是只读视图");
+    }
+
+    /**
+     * 返回docId所在的段，没有时返回null
+     */
+    private Segment segmentOf(int docId) {
+        int low = 0;
+        int high = firstDocIds.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (firstDocIds[mid] <= docId) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (high < 0) {
+            return null;
+        }
+        Segment segment = segments.get(high);
+        return docId <= segment.lastDocId ? segment : null;
+    }
+
+    /**
+     * 按docId从小到大遍历所有段中未删除文档的只读映射，作为父类的docIdToDocPathMapping
+     */
+    private class LiveDocs extends AbstractMap<Integer, String> {
+        @Override
+        public int size() {
+            return liveDocs;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public String get(Object key) {
+            return key instanceof Integer ? getDocName((Integer) key) : null;
+        }
+
+        @Override
+        public Set<Entry<Integer, String>> entrySet() {
+            return new AbstractSet<Entry<Integer, String>>() {
+                @Override
+                public Iterator<Entry<Integer, String>> iterator() {
+                    return new Iterator<Entry<Integer, String>>() {
+                        private int segment = -1;
+                        private Iterator<Entry<Integer, String>> docs = Collections.emptyIterator();
+                        private Entry<Integer, String> next = advance();
+
+                        private Entry<Integer, String> advance() {
+                            while (true) {
+                                while (docs.hasNext()) {
+                                    Entry<Integer, String> doc = docs.next();
+                                    if (!segments.get(segment).isDeleted(doc.getKey())) {
+                                        return doc;
+                                    }
+                                }
+                                if (++segment == segments.size()) {
+                                    return null;
+                                }
+                                docs = segments.get(segment).index.docIdToDocPathMapping.entrySet().iterator();
+                            }
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next != null;
+                        }
+
+                        @Override
+                        public Entry<Integer, String> next() {
+                            if (next == null) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<Integer, String> doc = next;
+                            next = advance();
+                            return doc;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return liveDocs;
+                }
+            };
+        }
+    }
+
+    /**
+     * 一个段：段文件、已删除文档的位图及其代数。创建后不再修改，删除文档时创建新的Segment对象。
+     */
+    static final class Segment {
+        final String name;
+        final MappedIndex index;
+        /**
+         * 第i位表示docId为firstDocId + i的文档已删除
+         */
+        final BitSet deleted;
+        /**
+         * 删除文件的代数，0表示没有删除文件
+         */
+        final int deleteGeneration;
+        final int firstDocId;
+        final int lastDocId;
+        final int docs;
+        final int liveDocs;
+        final long liveLength;
+
+        /**
+         * 构造函数
+         *
+         * @param name             段名
+         * @param index            打开的段文件
+         * @param deleted          已删除文档的位图，之后不能再修改
+         * @param deleteGeneration 删除文件的代数
+         */
+        Segment(String name, MappedIndex index, BitSet deleted, int deleteGeneration) {
+            this.name = name;
+            this.index = index;
+            this.deleted = deleted;
+            this.deleteGeneration = deleteGeneration;
+            int first = Integer.MAX_VALUE;
+            int last = -1;
+            for (int docId : index.docIdToDocPathMapping.keySet()) {
+                first = Math.min(first, docId);
+                last = Math.max(last, docId);
+            }
+            this.firstDocId = last < 0 ? 0 : first;
+            this.lastDocId = last;
+            this.docs = index.docIdToDocPathMapping.size();
+            int live = 0;
+            long length = 0;
+            for (int docId : index.docIdToDocPathMapping.keySet()) {
+                if (!isDeleted(docId)) {
+                    live++;
+                    length += index.getDocLength(docId);
+                }
+            }
+            this.liveDocs = live;
+            this.liveLength = length;
+        }
+
+        /**
+         * 返回删除了更多文档后的段，段文件共享
+         *
+         * @param deleted          新的已删除文档位图
+         * @param deleteGeneration 新的删除文件代数
+         * @return 新的段对象
+         */
+        Segment withDeletions(BitSet deleted, int deleteGeneration) {
+            return new Segment(name, index, deleted, deleteGeneration);
+        }
+
+        /**
+         * 判断段中的文档是否已删除
+         *
+         * @param docId 文档id
+         * @return 已删除时返回true
+         */
+        boolean isDeleted(int docId) {
+            return deleted.get(docId - firstDocId);
+        }
+
+        /**
+         * 把段的倒排列表中未删除文档的Posting追加到merged末尾，两个已删除文档之间的Posting整段复制
+         *
+         * @param merged      目标列表
+         * @param postingList 段中一个单词的倒排列表
+         */
+        void appendLive(CompactPostingList merged, CompactPostingList postingList) {
+            int start = 0;
+            for (int i = 0; i < postingList.size(); i++) {
+                if (isDeleted(postingList.docIdAt(i))) {
+                    merged.appendRange(postingList, start, i);
+                    start = i + 1;
+                }
+            }
+            merged.appendRange(postingList, start, postingList.size());
+        }
+
+        /**
+         * 返回段的字符串表示
+         *
+         * @return 段名、文档个数和已删除的文档个数
+         */
+        @Override
+        public String toString() {
+            return name + "(" + docs + " docs, " + (docs - liveDocs) + " deleted)";
+        }
+    }
+}
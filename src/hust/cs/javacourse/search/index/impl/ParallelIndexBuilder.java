@@ -0,0 +1,138 @@
+package hust.cs.javacourse.search.index.impl;
+
+import hust.cs.javacourse.search.index.AbstractDocumentBuilder;
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractIndexBuilder;
+import hust.cs.javacourse.search.util.FileDiscovery;
+import hust.cs.javacourse.search.util.FileUtil;
+
+import java.io.File;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * ParallelIndexBuilder类是AbstractIndexBuilder的多线程实现。
+ * <p>
+ * 工作线程每次从文件列表(或递归遍历目录的FileDiscovery)中领取固定个数的文件，用自己的DocumentBuilder解析其中的文档，
+ * 写入线程私有的部分索引；所有文件处理完后再把各个部分索引合并成一个Index。
+ * 每个文件的docId等于它在FileUtil.list结果(或遍历顺序)中的下标（加上构建前的docId计数器），
+ * 与线程数和调度顺序无关，因此和IndexBuilder顺序构建得到的docId完全一致。
+ *
+ * @author 晋晨曦
+ */
+public class ParallelIndexBuilder extends AbstractIndexBuilder {
+    /**
+     * 每次领取的文件个数
+     */
+    private static final int CHUNK_SIZE = 16;
+
+    private final Supplier<AbstractDocumentBuilder> docBuilderFactory;
+    private final int threads;
+
+    /**
+     * 使用指定的文档构建器工厂和线程数创建一个新的ParallelIndexBuilder。
+     *
+     * @param docBuilderFactory 为每个工作线程创建独立文档构建器的工厂
+     * @param threads           工作线程数
+     */
+    public ParallelIndexBuilder(Supplier<AbstractDocumentBuilder> docBuilderFactory, int threads) {
+        super(docBuilderFactory.get());
+        if (threads < 1) {
+            throw new IllegalArgumentException("线程数必须大于0: " + threads);
+        }
+        this.docBuilderFactory = docBuilderFactory;
+        this.threads = threads;
+    }
+
+    /**
+     * 使用与CPU核数相同的线程数创建一个新的ParallelIndexBuilder。
+     *
+     * @param docBuilderFactory 为每个工作线程创建独立文档构建器的工厂
+     */
+    public ParallelIndexBuilder(Supplier<AbstractDocumentBuilder> docBuilderFactory) {
+        this(docBuilderFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 多线程构建指定根目录中所有文件的索引。
+     *
+     * @param rootDirectory 包含要索引的文件的根目录。
+     * @return 构建的索引，和IndexBuilder一样需要调用optimize后再使用。
+     */
+    @Override
+    public AbstractIndex buildIndex(String rootDirectory) {
+        return buildIndex(FileUtil.list(rootDirectory).iterator());
+    }
+
+    /**
+     * 多线程递归构建指定根目录及其子目录中匹配过滤条件的文件的索引。
+     * 目录由后台线程遍历，工作线程从有界队列中领取文件，遍历与分词同时进行。
+     *
+     * @param rootDirectory 包含要索引的文件的根目录。
+     * @param filter        文件过滤条件，匹配文件相对于根目录的路径，见FileUtil.suffixFilter和FileUtil.globFilter。
+     * @return 构建的索引，需要调用optimize后再使用。
+     */
+    public AbstractIndex buildIndex(String rootDirectory, PathMatcher filter) {
+        try (FileDiscovery filePaths = FileUtil.discover(rootDirectory, filter)) {
+            return buildIndex(filePaths);
+        }
+    }
+
+    /**
+     * 工作线程在filePaths上同步，每次领取至多CHUNK_SIZE个文件，docId由领取的顺序决定
+     */
+    private AbstractIndex buildIndex(Iterator<String> filePaths) {
+        int baseDocId = docId;
+        AtomicInteger taken = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Index>> partials = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                partials.add(pool.submit(() -> {
+                    AbstractDocumentBuilder builder = docBuilderFactory.get();
+                    Index partial = new Index();
+                    List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+                    while (true) {
+                        int start;
+                        chunk.clear();
+                        synchronized (filePaths) {
+                            while (chunk.size() < CHUNK_SIZE && filePaths.hasNext()) {
+                                chunk.add(filePaths.next());
+                            }
+                            start = taken.getAndAdd(chunk.size());
+                        }
+                        if (chunk.isEmpty()) {
+                            return partial;
+                        }
+                        for (int i = 0; i < chunk.size(); i++) {
+                            String filePath = chunk.get(i);
+                            partial.addDocument(baseDocId + start + i, filePath, builder.termTupleStream(new File(filePath)));
+                        }
+                    }
+                }));
+            }
+            Index index = new Index();
+            index.setAnalyzer(docBuilder.getAnalyzer());
+            for (Future<Index> partial : partials) {
+                index.merge(partial.get());
+            }
+            docId = baseDocId + taken.get();
+            return index;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
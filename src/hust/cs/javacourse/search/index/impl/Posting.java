@@ -52,9 +52,13 @@ public class Posting extends AbstractPosting {
             return false;
         }
         Posting posting = (Posting) obj;
+        // 先比较docId和freq，不相等时不必为位置列表构建HashSet
+        if (docId != posting.docId || freq != posting.freq) {
+            return false;
+        }
         Set<Integer> positions1 = new HashSet<>(positions);
         Set<Integer> positions2 = new HashSet<>(posting.positions);
-        return docId == posting.docId && freq == posting.freq && positions1.equals(positions2);
+        return positions1.equals(positions2);
     }
 
     /**
@@ -22,6 +22,15 @@ import java.util.List;
  * @author 晋晨曦
  */
 public class PostingList extends AbstractPostingList {
+    /**
+     * 整个列表中最大的出现次数，maxFreqValid为false时需要重新计算
+     */
+    private transient int maxFreq;
+    /**
+     * maxFreq是否有效，增删posting或重新读入列表后置为false；反序列化得到的对象默认为false
+     */
+    private transient boolean maxFreqValid;
+
     /**
      * 无参构造函数
      */
@@ -42,6 +51,7 @@ public class PostingList extends AbstractPostingList {
             return;
         }
         this.list.add(posting);
+        maxFreqValid = false;
     }
 
     /**
@@ -106,6 +116,101 @@ public class PostingList extends AbstractPostingList {
         return -1;
     }
 
+    /**
+     * 获取指定index的posting的docId
+     *
+     * @param index posting在list中的index
+     * @return 对应posting的docId
+     */
+    @Override
+    public int docIdAt(int index) {
+        return list.get(index).getDocId();
+    }
+
+    /**
+     * 从from开始查找第一个docId不小于指定docId的posting。
+     * 先以1、2、4、8……的步长向后试探，越过目标后再在最后一段里二分查找，
+     * 跳过的posting越多，相对逐个比较节省得越多。
+     *
+     * @param from  开始查找的index
+     * @param docId 目标docId
+     * @return 第一个docId不小于目标的index，如果不存在则返回list的大小
+     */
+    @Override
+    public int advance(int from, int docId) {
+        int size = list.size();
+        int low = from;
+        int high = from;
+        int step = 1;
+        while (high < size && list.get(high).getDocId() < docId) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, size);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (list.get(mid).getDocId() < docId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 返回指定下标posting的出现次数
+     *
+     * @param index 下标
+     * @return 出现次数
+     */
+    @Override
+    public int freqAt(int index) {
+        return list.get(index).getFreq();
+    }
+
+    /**
+     * 返回所有posting中最大的出现次数。第一次调用时扫描整个列表并缓存结果，增删posting后重新计算；
+     * 加入列表之后再直接修改posting的出现次数不会使缓存失效
+     *
+     * @return 最大出现次数，列表为空时返回0
+     */
+    @Override
+    public int maxFreq() {
+        if (!maxFreqValid) {
+            int max = 0;
+            for (AbstractPosting posting : list) {
+                max = Math.max(max, posting.getFreq());
+            }
+            maxFreq = max;
+            maxFreqValid = true;
+        }
+        return maxFreq;
+    }
+
+    /**
+     * 整个列表作为一块，结束下标为列表大小
+     *
+     * @param index 下标
+     * @return 列表的大小
+     */
+    @Override
+    public int blockEnd(int index) {
+        return list.size();
+    }
+
+    /**
+     * 整个列表作为一块，块内最大出现次数即maxFreq
+     *
+     * @param index 下标
+     * @return 最大出现次数
+     */
+    @Override
+    public int blockMaxFreq(int index) {
+        return maxFreq();
+    }
+
     /**
      * 判断list中是否包含指定的posting
      *
@@ -125,6 +230,7 @@ public class PostingList extends AbstractPostingList {
     @Override
     public void remove(int index) {
         list.remove(index);
+        maxFreqValid = false;
     }
 
     /**
@@ -135,6 +241,7 @@ public class PostingList extends AbstractPostingList {
     @Override
     public void remove(AbstractPosting posting) {
         list.remove(posting);
+        maxFreqValid = false;
     }
 
     /**
@@ -153,6 +260,7 @@ public class PostingList extends AbstractPostingList {
     @Override
     public void clear() {
         list.clear();
+        maxFreqValid = false;
     }
 
     /**
@@ -199,6 +307,7 @@ public class PostingList extends AbstractPostingList {
             Object obj = in.readObject();
             if (obj instanceof List<?>) {
                 list = (List<AbstractPosting>) obj;
+                maxFreqValid = false;
             } else {
                 throw new ClassCastException("读取的对象不是 List<AbstractPosting> 类型");
             }
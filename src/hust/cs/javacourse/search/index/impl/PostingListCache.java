@@ -0,0 +1,181 @@
+package hust.cs.javacourse.search.index.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ * 解码后的倒排列表缓存.
+ *      以单词序号为键缓存SegmentReader.decode解码出的CompactPostingList，按最近最少使用(LRU)的顺序淘汰.
+ *      容量按倒排列表数组占用的字节数限制，而不是按单词个数，高频词的长列表和低频词的短列表按实际大小计算;
+ *      单个列表超过容量时直接返回解码结果，不放入缓存.
+ *      解码在锁外进行，多个检索线程同时未命中时各自解码，不互相阻塞.
+ *      缓存的列表由所有调用者共享，只能读取，不能修改.
+ *      除总的命中、未命中、淘汰次数外，每个缓存中的单词还记录自己被命中的次数，用来观察哪些单词是热点.
+ * </pre>
+ *
+ * @author 晋晨曦
+ */
+public class PostingListCache {
+    private final SegmentReader reader;
+    private final long maxBytes;
+    private final LinkedHashMap<Integer, Entry> lists = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * 构造函数
+     * @param reader ：解码倒排列表的段
+     * @param maxBytes ：缓存的倒排列表占用的最大字节数，为0时不缓存
+     */
+    public PostingListCache(SegmentReader reader, long maxBytes) {
+        this.reader = reader;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 返回缓存所属的段
+     * @return ：解码倒排列表的段
+     */
+    SegmentReader getReader() {
+        return reader;
+    }
+
+    /**
+     * 返回第ord个单词的倒排列表，不在缓存中时解码并放入缓存
+     * @param ord ：单词序号
+     * @return ：倒排列表，调用者不能修改
+     */
+    public CompactPostingList get(int ord) {
+        synchronized (this) {
+            Entry entry = lists.get(ord);
+            if (entry != null) {
+                entry.hits++;
+                hitCount++;
+                return entry.postingList;
+            }
+            missCount++;
+        }
+        CompactPostingList postingList = reader.decode(ord);
+        long size = postingList.sizeInBytes();
+        if (size <= maxBytes) {
+            // 先算好最大出现次数，共享的列表之后只会被读取
+            postingList.maxFreq();
+            synchronized (this) {
+                Entry previous = lists.putIfAbsent(ord, new Entry(postingList, size));
+                if (previous != null) {
+                    return previous.postingList;
+                }
+                bytes += size;
+                evict();
+            }
+        }
+        return postingList;
+    }
+
+    /**
+     * 清空缓存，统计数据保留
+     */
+    public synchronized void clear() {
+        lists.clear();
+        bytes = 0;
+    }
+
+    /**
+     * 返回缓存的倒排列表个数
+     * @return ：倒排列表个数
+     */
+    public synchronized int size() {
+        return lists.size();
+    }
+
+    /**
+     * 返回缓存的倒排列表占用的字节数
+     * @return ：字节数
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * 返回创建以来缓存命中的次数
+     * @return ：命中次数
+     */
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * 返回创建以来缓存未命中、解码倒排列表的次数
+     * @return ：未命中次数
+     */
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    /**
+     * 返回创建以来因超出容量而淘汰的倒排列表个数
+     * @return ：淘汰次数
+     */
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * 返回缓存中被命中次数最多的若干个单词及其命中次数，单词被淘汰后次数从0重新计算
+     * @param limit ：最多返回的单词个数
+     * @return ：按命中次数从多到少排列的单词和命中次数
+     */
+    public synchronized Map<String, Long> termHitCounts(int limit) {
+        List<Map.Entry<Integer, Entry>> entries = new ArrayList<>(lists.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().hits, a.getValue().hits));
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Entry> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            counts.put(reader.term(entry.getKey()), entry.getValue().hits);
+        }
+        return counts;
+    }
+
+    /**
+     * 返回缓存的概要信息
+     * @return ：缓存的字符串表示
+     */
+    @Override
+    public synchronized String toString() {
+        long requests = hitCount + missCount;
+        return "PostingListCache{lists=" + lists.size() + ", bytes=" + bytes + ", hits=" + hitCount +
+                ", misses=" + missCount + ", hitRate=" + (requests == 0 ? 0 : (double) hitCount / requests) +
+                ", evictions=" + evictionCount + "}";
+    }
+
+    /**
+     * 从最久未使用的倒排列表开始淘汰，直到占用的字节数不超过容量
+     */
+    private void evict() {
+        Iterator<Entry> it = lists.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= it.next().bytes;
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * 缓存的一个倒排列表、它占用的字节数和被命中的次数
+     */
+    private static class Entry {
+        final CompactPostingList postingList;
+        final long bytes;
+        long hits;
+
+        Entry(CompactPostingList postingList, long bytes) {
+            this.postingList = postingList;
+            this.bytes = bytes;
+        }
+    }
+}
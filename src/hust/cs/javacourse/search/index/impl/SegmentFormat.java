@@ -0,0 +1,120 @@
+package hust.cs.javacourse.search.index.impl;
+
+import hust.cs.javacourse.search.util.VByte;
+
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * <pre>
+ * SegmentFormat定义了压缩的段(segment)索引文件格式中的常量和公共读写方法.
+ * 一个段由两个文件组成:
+ *      倒排文件(例如index.dat): 文件头(魔数、版本号)之后，按单词字典序依次存放每个单词的倒排数据.
+ *          每个Posting依次写入: docId与前一个docId的差值、freq、位置个数、每个位置与前一个位置的差值,
+ *          全部使用VByte编码.
+ *      字典文件(倒排文件名加上.dict后缀): 文件头之后依次存放
+ *          分析器: 建立索引时使用的分析器的描述字符串(AbstractAnalyzer.getSpec)，未知时为空字符串;
+ *          文档表: 文档个数，以及每个文档的docId、路径和文档长度(加入索引的单词个数);
+ *          单词表: 按前缀压缩的FrontCodedDictionary，随后按单词顺序存放每个单词的文档频率df和倒排数据的字节数.
+ *              倒排数据在倒排文件中首尾相接，偏移由字节数累加得到，不单独保存.
+ *      倒排数据按FrontCodedDictionary.ORDER(Unicode码点顺序)排列.
+ * </pre>
+ *
+ * @author 晋晨曦
+ */
+public final class SegmentFormat {
+    /**
+     * 倒排文件的魔数，即ASCII的"HSPG"
+     */
+    public static final int POSTINGS_MAGIC = 0x48535047;
+    /**
+     * 字典文件的魔数，即ASCII的"HSDC"
+     */
+    public static final int DICTIONARY_MAGIC = 0x48534443;
+    /**
+     * 格式版本号
+     */
+    public static final int VERSION = 1;
+    /**
+     * 字典文件相对倒排文件增加的后缀
+     */
+    public static final String DICTIONARY_SUFFIX = ".dict";
+
+    private SegmentFormat() {
+    }
+
+    /**
+     * 返回与倒排文件配套的字典文件
+     *
+     * @param postingsFile 倒排文件
+     * @return 字典文件
+     */
+    public static File dictionaryFile(File postingsFile) {
+        return new File(postingsFile.getPath() + DICTIONARY_SUFFIX);
+    }
+
+    /**
+     * 判断指定文件是否为段格式的倒排文件
+     *
+     * @param file 要判断的文件
+     * @return 如果文件以段格式的魔数开头则返回true，否则返回false
+     */
+    public static boolean isSegment(File file) {
+        if (!file.isFile() || file.length() < 8) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()))) {
+            return in.readInt() == POSTINGS_MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 以"VByte长度 + UTF-8字节"的形式写入字符串
+     *
+     * @param out   输出对象
+     * @param value 要写入的字符串
+     * @throws IOException 写入失败
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        VByte.writeInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * 读取writeString写入的字符串
+     *
+     * @param in 输入缓冲区
+     * @return 读到的字符串
+     */
+    static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[VByte.readInt(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 读取并校验文件头
+     *
+     * @param in    输入缓冲区
+     * @param magic 期望的魔数
+     * @param file  文件，用于错误信息
+     * @throws IOException 魔数不匹配或版本号不受支持
+     */
+    static void checkHeader(ByteBuffer in, int magic, File file) throws IOException {
+        if (in.remaining() < 8 || in.getInt() != magic) {
+            throw new IOException("不是段格式的索引文件: " + file);
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IOException("不支持的索引文件版本" + version + ": " + file);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package hust.cs.javacourse.search.index.impl;
+
+import hust.cs.javacourse.search.util.VByte;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * SegmentReader类读取SegmentFormat定义的压缩段文件。
+ * 打开时只读取字典文件，每个单词的倒排数据在需要时才通过decode方法解码成CompactPostingList。
+ * 单词表保存为按前缀压缩的FrontCodedDictionary，不为每个单词创建String对象。
+ * 文档长度按docId保存在int数组中。
+ * 倒排文件既可以整体读入堆内存，也可以通过FileChannel.map映射为只读内存，
+ * 映射方式下多个进程打开同一个索引时共享操作系统的页缓存。
+ * ByteBuffer最多只能容纳2GB，倒排文件按CHUNK_SIZE分成多块读入或映射，偏移使用long，
+ * 少数跨越两块的倒排数据在解码时复制到一个临时缓冲区。
+ *
+ * @author 晋晨曦
+ */
+public class SegmentReader {
+    /**
+     * 倒排文件每块的字节数，必须是2的幂
+     */
+    static final int CHUNK_SIZE = 1 << 30;
+
+    private final Map<Integer, String> docIdToDocPath = new TreeMap<>();
+    private final FrontCodedDictionary terms;
+    private final int[] docFreqs;
+    private final long[] offsets;
+    private final int[] lengths;
+    /**
+     * 倒排文件的各块，第i块从文件偏移i * CHUNK_SIZE开始
+     */
+    private final ByteBuffer[] postings;
+    private final int[] docLengths;
+    private final String analyzerSpec;
+
+    /**
+     * 打开指定的段文件，倒排文件整体读入堆内存
+     *
+     * @param file 倒排文件
+     * @throws IOException 读取失败或文件格式错误
+     */
+    public SegmentReader(File file) throws IOException {
+        this(file, false);
+    }
+
+    /**
+     * 打开指定的段文件
+     *
+     * @param file   倒排文件
+     * @param mapped 为true时以只读方式内存映射倒排文件，否则整体读入堆内存
+     * @throws IOException 读取失败或文件格式错误
+     */
+    public SegmentReader(File file, boolean mapped) throws IOException {
+        ByteBuffer dictionary = ByteBuffer.wrap(Files.readAllBytes(SegmentFormat.dictionaryFile(file).toPath()));
+        SegmentFormat.checkHeader(dictionary, SegmentFormat.DICTIONARY_MAGIC, file);
+        analyzerSpec = SegmentFormat.readString(dictionary);
+        int docCount = VByte.readInt(dictionary);
+        int[] docLengthsById = new int[16];
+        for (int i = 0; i < docCount; i++) {
+            int docId = VByte.readInt(dictionary);
+            docIdToDocPath.put(docId, SegmentFormat.readString(dictionary));
+            if (docId >= docLengthsById.length) {
+                docLengthsById = Arrays.copyOf(docLengthsById, Math.max(docId + 1, docLengthsById.length * 2));
+            }
+            docLengthsById[docId] = VByte.readInt(dictionary);
+        }
+        docLengths = docLengthsById;
+        terms = FrontCodedDictionary.read(dictionary);
+        int termCount = terms.size();
+        docFreqs = new int[termCount];
+        offsets = new long[termCount];
+        lengths = new int[termCount];
+        long offset = 8;
+        for (int i = 0; i < termCount; i++) {
+            docFreqs[i] = VByte.readInt(dictionary);
+            lengths[i] = VByte.readInt(dictionary);
+            offsets[i] = offset;
+            offset += lengths[i];
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            postings = new ByteBuffer[(int) Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+            for (int i = 0; i < postings.length; i++) {
+                long start = (long) i * CHUNK_SIZE;
+                int length = (int) Math.min(CHUNK_SIZE, size - start);
+                if (mapped) {
+                    // 映射建立后即使关闭channel也仍然有效
+                    postings[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                } else {
+                    postings[i] = ByteBuffer.allocate(length);
+                    while (postings[i].hasRemaining()) {
+                        if (channel.read(postings[i], start + postings[i].position()) < 0) {
+                            throw new IOException("倒排文件读取不完整: " + file);
+                        }
+                    }
+                    postings[i].flip();
+                }
+            }
+        }
+        SegmentFormat.checkHeader(postings[0].duplicate(), SegmentFormat.POSTINGS_MAGIC, file);
+    }
+
+    /**
+     * 返回段中docId到文档路径的映射
+     *
+     * @return docId到文档路径的映射
+     */
+    public Map<Integer, String> getDocIdToDocPath() {
+        return docIdToDocPath;
+    }
+
+    /**
+     * 返回建立索引时使用的分析器的描述
+     *
+     * @return 分析器的描述；未知时为空字符串
+     */
+    public String getAnalyzerSpec() {
+        return analyzerSpec;
+    }
+
+    /**
+     * 返回文档长度
+     *
+     * @param docId 文档id
+     * @return 文档长度；段中没有该文档时返回0
+     */
+    public int docLength(int docId) {
+        return docId >= 0 && docId < docLengths.length ? docLengths[docId] : 0;
+    }
+
+    /**
+     * 返回段中的单词个数
+     *
+     * @return 单词个数
+     */
+    public int termCount() {
+        return terms.size();
+    }
+
+    /**
+     * 返回段的单词表，单词序号与term、docFreq、decode使用的ord一致
+     *
+     * @return 单词表
+     */
+    public FrontCodedDictionary getTermDictionary() {
+        return terms;
+    }
+
+    /**
+     * 返回字典序第ord个单词
+     *
+     * @param ord 单词序号
+     * @return 单词内容
+     */
+    public String term(int ord) {
+        return terms.term(ord);
+    }
+
+    /**
+     * 返回第ord个单词的文档频率
+     *
+     * @param ord 单词序号
+     * @return 包含该单词的文档个数
+     */
+    public int docFreq(int ord) {
+        return docFreqs[ord];
+    }
+
+    /**
+     * 在字典中查找单词
+     *
+     * @param content 单词内容
+     * @return 单词序号；如果不存在返回负数
+     */
+    public int find(String content) {
+        return terms.find(content);
+    }
+
+    /**
+     * 解码第ord个单词的倒排列表
+     *
+     * @param ord 单词序号
+     * @return 解码得到的倒排列表
+     */
+    public CompactPostingList decode(int ord) {
+        ByteBuffer in = slice(offsets[ord], lengths[ord]);
+        int size = docFreqs[ord];
+        int[] docIds = new int[size];
+        int[] freqs = new int[size];
+        int[] positionStarts = new int[size + 1];
+        int[] positions = new int[Math.max(size, 4)];
+        int docId = 0;
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            docId += VByte.readInt(in);
+            docIds[i] = docId;
+            freqs[i] = VByte.readInt(in);
+            int count = VByte.readInt(in);
+            if (total + count > positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(total + count, positions.length * 2));
+            }
+            int position = 0;
+            for (int p = 0; p < count; p++) {
+                position += VByte.readInt(in);
+                positions[total++] = position;
+            }
+            positionStarts[i + 1] = total;
+        }
+        return new CompactPostingList(size, docIds, freqs, positionStarts, Arrays.copyOf(positions, total));
+    }
+
+    /**
+     * 返回倒排文件[offset, offset + length)范围内的字节，读位置独立，解码过程不会影响其他单词的解码
+     *
+     * @param offset 文件偏移
+     * @param length 字节数
+     * @return 只包含该范围的缓冲区
+     */
+    private ByteBuffer slice(long offset, int length) {
+        ByteBuffer chunk = postings[(int) (offset / CHUNK_SIZE)];
+        int start = (int) (offset % CHUNK_SIZE);
+        if ((long) start + length <= chunk.limit()) {
+            ByteBuffer in = chunk.duplicate();
+            in.position(start);
+            in.limit(start + length);
+            return in;
+        }
+        // 跨越块边界的倒排数据复制到一个临时缓冲区
+        ByteBuffer copy = ByteBuffer.allocate(length);
+        while (copy.hasRemaining()) {
+            long position = offset + copy.position();
+            ByteBuffer in = postings[(int) (position / CHUNK_SIZE)].duplicate();
+            in.position((int) (position % CHUNK_SIZE));
+            in.limit((int) Math.min(in.limit(), in.position() + (long) copy.remaining()));
+            copy.put(in);
+        }
+        copy.flip();
+        return copy;
+    }
+}
@@ -0,0 +1,131 @@
+package hust.cs.javacourse.search.index.impl;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.util.VByte;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * SegmentWriter类把内存中的索引写成SegmentFormat定义的压缩段文件。
+ * 段格式要求每个PostingList按docId从小到大排列，每个Posting的位置从小到大排列。
+ * 还没有optimize的倒排列表在写入时排序一个副本，不修改内存中的索引，写入期间其他线程可以继续检索。
+ *
+ * @author 晋晨曦
+ */
+public class SegmentWriter {
+    private SegmentWriter() {
+    }
+
+    /**
+     * 把索引写入指定的倒排文件及其配套的字典文件。
+     *
+     * @param index 要写入的索引
+     * @param file  倒排文件
+     * @throws IOException 写入失败
+     */
+    public static void write(AbstractIndex index, File file) throws IOException {
+        List<Map.Entry<AbstractTerm, AbstractPostingList>> terms = new ArrayList<>(index.termToPostingListMapping.entrySet());
+        terms.sort(Comparator.comparing(entry -> entry.getKey().getContent(), FrontCodedDictionary.ORDER));
+        List<String> words = new ArrayList<>(terms.size());
+        for (Map.Entry<AbstractTerm, AbstractPostingList> entry : terms) {
+            words.add(entry.getKey().getContent());
+        }
+        write(index.getAnalyzer() == null ? "" : index.getAnalyzer().getSpec(),
+                index.docIdToDocPathMapping, index::getDocLength, words, ord -> terms.get(ord).getValue(), file);
+    }
+
+    /**
+     * 把文档表和逐个取得的倒排列表写入指定的倒排文件及其配套的字典文件。
+     * 倒排列表在写入时才通过postingLists取得，写完即可回收，合并多个段时不需要把全部倒排列表同时放在内存中；
+     * 取得null或空列表的单词不写入。
+     *
+     * @param analyzerSpec 建立索引时使用的分析器的描述，未知时为空字符串
+     * @param docs         docId到文档路径的映射，按docId从小到大遍历
+     * @param docLengths   docId到文档长度的函数
+     * @param words        单词表，按FrontCodedDictionary.ORDER排列
+     * @param postingLists 单词序号到倒排列表的函数，无序的列表在写入时排序副本
+     * @param file         倒排文件
+     * @throws IOException 写入失败
+     */
+    static void write(String analyzerSpec, Map<Integer, String> docs, IntUnaryOperator docLengths, List<String> words,
+                      IntFunction<AbstractPostingList> postingLists, File file) throws IOException {
+        List<String> written = new ArrayList<>(words.size());
+        int[] docFreqs = new int[words.size()];
+        int[] lengths = new int[words.size()];
+        try (DataOutputStream postings = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+            postings.writeInt(SegmentFormat.POSTINGS_MAGIC);
+            postings.writeInt(SegmentFormat.VERSION);
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream termOut = new DataOutputStream(buffer);
+            for (int ord = 0; ord < words.size(); ord++) {
+                AbstractPostingList postingList = postingLists.apply(ord);
+                if (postingList == null || postingList.size() == 0) {
+                    continue;
+                }
+                buffer.reset();
+                writePostingList(termOut, words.get(ord), postingList);
+                buffer.writeTo(postings);
+                docFreqs[written.size()] = postingList.size();
+                lengths[written.size()] = buffer.size();
+                written.add(words.get(ord));
+            }
+        }
+
+        try (DataOutputStream dictionary = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(SegmentFormat.dictionaryFile(file).toPath())))) {
+            dictionary.writeInt(SegmentFormat.DICTIONARY_MAGIC);
+            dictionary.writeInt(SegmentFormat.VERSION);
+            SegmentFormat.writeString(dictionary, analyzerSpec);
+            VByte.writeInt(dictionary, docs.size());
+            for (Map.Entry<Integer, String> doc : docs.entrySet()) {
+                VByte.writeInt(dictionary, doc.getKey());
+                SegmentFormat.writeString(dictionary, doc.getValue());
+                VByte.writeInt(dictionary, docLengths.applyAsInt(doc.getKey()));
+            }
+            FrontCodedDictionary.build(written).write(dictionary);
+            for (int ord = 0; ord < written.size(); ord++) {
+                VByte.writeInt(dictionary, docFreqs[ord]);
+                VByte.writeInt(dictionary, lengths[ord]);
+            }
+        }
+    }
+
+    /**
+     * 以差分+VByte编码写入一个单词的倒排列表
+     */
+    private static void writePostingList(DataOutputStream out, String term, AbstractPostingList postingList) throws IOException {
+        CompactPostingList compact = CompactPostingList.of(postingList).sortedCopy();
+        int lastDocId = 0;
+        for (int i = 0; i < compact.size(); i++) {
+            int docId = compact.docIdAt(i);
+            if (i > 0 && docId == lastDocId) {
+                throw new IllegalStateException("单词" + term + "的PostingList包含重复的docId" + docId);
+            }
+            VByte.writeInt(out, docId - lastDocId);
+            VByte.writeInt(out, compact.freqAt(i));
+            int start = compact.positionStart(i);
+            int end = compact.positionEnd(i);
+            VByte.writeInt(out, end - start);
+            int lastPosition = 0;
+            for (int p = start; p < end; p++) {
+                int position = compact.positionAt(p);
+                VByte.writeInt(out, position - lastPosition);
+                lastPosition = position;
+            }
+            lastDocId = docId;
+        }
+    }
+}
@@ -0,0 +1,826 @@
+package hust.cs.javacourse.search.index.impl;
+
+import hust.cs.javacourse.search.index.AbstractDocument;
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.MultiSegmentIndex.Segment;
+import hust.cs.javacourse.search.parse.AbstractAnalyzer;
+import hust.cs.javacourse.search.parse.AbstractTermTupleStream;
+import hust.cs.javacourse.search.parse.impl.StandardAnalyzer;
+import hust.cs.javacourse.search.util.Config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <pre>
+ * SegmentedIndex类是可以增量修改的索引，保存在一个目录中，由若干个只读的段组成.
+ *      新加入的文档先放在内存中的Index里，commit时写成一个新的小段(SegmentFormat格式的段文件);
+ *      删除文档只在所在段的已删除位图中做标记，更新文档就是删除旧文档再加入新文档.
+ *      段文件写入后不再修改，删除标记保存在单独的删除文件中，每次提交删除时写一个新代数的删除文件.
+ *      目录中的段清单文件segments记录当前有哪些段及其删除文件的代数，每次提交先写临时文件再原子地替换，
+ *      因此程序在任何时刻退出，重新打开时看到的都是最后一次完成的提交.
+ *
+ *      文档按docId递增的顺序加入，每个新段的docId都大于已有的段，段之间的docId区间互不重叠，
+ *      检索时各段的倒排列表依次首尾相接就是有序的倒排列表(见MultiSegmentIndex).
+ *
+ *      提交后由后台线程按合并策略合并段: 按未删除文档个数把段分成若干级(以Config.SEGMENT_MERGE_FACTOR为底的对数)，
+ *      相邻的同级段攒够Config.SEGMENT_MERGE_FACTOR个时合并成一个上一级的段;已删除文档超过一半的段单独重写.
+ *      合并只合并相邻的段，docId保持不变，合并时丢弃已删除的文档. 合并期间新删除的文档在合并完成时转移到新段上.
+ *      optimize把所有段合并成一个段.
+ *
+ *      每次提交或合并后创建一个新的只读视图(MultiSegmentIndex)，search等读方法都在当前视图上执行.
+ *      检索器通过snapshot取得视图，一次检索看到的是同一时刻的全部段，不受检索期间提交和合并的影响.
+ *      未提交的修改对检索不可见. 写方法之间互斥，读方法不加锁.
+ *      每个段各有一个容量为Config.POSTING_CACHE_MAX_BYTES的倒排列表缓存.
+ *      建立索引时使用的分析器记录在段清单和每个段文件中，之后打开时必须使用同一个分析器.
+ * </pre>
+ *
+ * @author 晋晨曦
+ */
+public class SegmentedIndex extends AbstractIndex implements Closeable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 段清单文件名
+     */
+    public static final String MANIFEST = "segments";
+    /**
+     * 段清单文件的魔数，即ASCII的"HSSG"
+     */
+    private static final int MANIFEST_MAGIC = 0x48535347;
+    private static final int MANIFEST_VERSION = 1;
+    private static final String SEGMENT_SUFFIX = ".dat";
+    private static final String DELETES_SUFFIX = ".del";
+
+    private File directory;
+    /**
+     * 建立索引时使用的分析器，为null表示未知
+     */
+    private AbstractAnalyzer analyzer;
+    /**
+     * 最近一次提交或合并后的只读视图
+     */
+    private volatile MultiSegmentIndex current;
+    /**
+     * 提交的代数，每次写段清单时加1，作为视图的版本号
+     */
+    private long generation;
+    private int nextSegment;
+    private int nextDocId;
+    /**
+     * 不小于该值的docId属于还没有提交的文档
+     */
+    private int bufferFirstDocId;
+    private Index buffer = new Index();
+    /**
+     * 提交前就被删除的新文档
+     */
+    private final Set<Integer> bufferDeleted = new HashSet<>();
+    /**
+     * 文档路径到docId的映射，包含未提交的文档，删除文档和更新文档时按路径查找
+     */
+    private final Map<String, Integer> pathToDocId = new HashMap<>();
+    /**
+     * 段名到还没有提交的已删除位图，位图是段中位图的副本加上新的删除
+     */
+    private final Map<String, BitSet> pendingDeletes = new HashMap<>();
+    /**
+     * 同一时刻只执行一次合并；加锁顺序总是先mergeLock再this
+     */
+    private final Object mergeLock = new Object();
+    private ExecutorService merger;
+    private Future<?> mergeTask;
+
+    /**
+     * 构造函数，打开指定目录中的索引，目录不存在时创建空索引。
+     *
+     * @param directory 索引目录
+     */
+    public SegmentedIndex(File directory) {
+        super();
+        load(directory);
+    }
+
+    /**
+     * 构造函数，打开指定目录中的索引，目录不存在时创建使用指定分析器的空索引。
+     *
+     * @param directory 索引目录
+     * @param analyzer  建立索引时使用的分析器，为null时使用目录中记录的分析器
+     * @throws IllegalArgumentException 目录中的索引是用其他分析器建立的
+     */
+    public SegmentedIndex(File directory, AbstractAnalyzer analyzer) {
+        super();
+        this.analyzer = analyzer;
+        load(directory);
+        if (analyzer != null && !analyzer.equals(this.analyzer)) {
+            throw new IllegalArgumentException("索引目录" + directory + "是用其他分析器建立的: " + this.analyzer);
+        }
+    }
+
+    /**
+     * 返回索引的字符串表示，只包含概要信息。
+     *
+     * @return 索引的字符串表示
+     */
+    @Override
+    public String toString() {
+        return "SegmentedIndex{" + directory + ", " + current + "}";
+    }
+
+    /**
+     * 添加文档，docId必须大于索引中已有的所有docId；路径相同的旧文档会被删除。提交后才能检索到。
+     *
+     * @param document 文档
+     */
+    @Override
+    public synchronized void addDocument(AbstractDocument document) {
+        checkDocId(document.getDocId());
+        deleteDocument(document.getDocPath());
+        buffer.addDocument(document);
+        added(document.getDocId(), document.getDocPath());
+    }
+
+    /**
+     * 以流的方式添加文档，docId必须大于索引中已有的所有docId；路径相同的旧文档会被删除。提交后才能检索到。
+     * 未提交的文档达到Config.SEGMENT_MAX_BUFFERED_DOCS个时自动提交。
+     *
+     * @param docId           文档id
+     * @param docPath         文档路径
+     * @param termTupleStream 三元组流，方法返回前会被关闭
+     */
+    @Override
+    public synchronized void addDocument(int docId, String docPath, AbstractTermTupleStream termTupleStream) {
+        if (docId < nextDocId) {
+            termTupleStream.close();
+            checkDocId(docId);
+        }
+        deleteDocument(docPath);
+        buffer.addDocument(docId, docPath, termTupleStream);
+        added(docId, docPath);
+    }
+
+    /**
+     * 加入或替换指定路径的文档，自动分配docId。提交后才能检索到。
+     *
+     * @param docPath         文档路径
+     * @param termTupleStream 三元组流，方法返回前会被关闭
+     * @return 分配的docId
+     */
+    public synchronized int updateDocument(String docPath, AbstractTermTupleStream termTupleStream) {
+        int docId = nextDocId;
+        addDocument(docId, docPath, termTupleStream);
+        return docId;
+    }
+
+    /**
+     * 删除指定路径的文档。提交后删除才对检索可见。
+     *
+     * @param docPath 文档路径
+     * @return 索引中有该文档时返回true
+     */
+    public synchronized boolean deleteDocument(String docPath) {
+        Integer docId = pathToDocId.remove(docPath);
+        if (docId == null) {
+            return false;
+        }
+        if (docId >= bufferFirstDocId) {
+            bufferDeleted.add(docId);
+            return true;
+        }
+        for (Segment segment : current.segments()) {
+            if (docId >= segment.firstDocId && docId <= segment.lastDocId) {
+                BitSet deleted = pendingDeletes.computeIfAbsent(segment.name, name -> (BitSet) segment.deleted.clone());
+                deleted.set(docId - segment.firstDocId);
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 判断索引中(包括未提交的修改)是否有指定路径的文档
+     *
+     * @param docPath 文档路径
+     * @return 有该文档时返回true
+     */
+    public synchronized boolean containsDocument(String docPath) {
+        return pathToDocId.containsKey(docPath);
+    }
+
+    /**
+     * 提交所有修改：新文档写成一个新段，新的删除写成新代数的删除文件，再原子地替换段清单。
+     * 提交完成后修改对检索可见，并在需要时启动后台合并。
+     */
+    public synchronized void commit() {
+        if (buffer.docIdToDocPathMapping.isEmpty() && pendingDeletes.isEmpty()) {
+            return;
+        }
+        List<Segment> segments = new ArrayList<>(current.segments());
+        List<File> obsolete = new ArrayList<>();
+        try {
+            if (buffer.docIdToDocPathMapping.size() > bufferDeleted.size()) {
+                buffer.optimize();
+                String name = "_" + nextSegment++;
+                SegmentWriter.write(buffer, segmentFile(name));
+                Segment segment = new Segment(name, new MappedIndex(segmentFile(name)), new BitSet(), 0);
+                if (!bufferDeleted.isEmpty()) {
+                    BitSet deleted = new BitSet();
+                    for (int docId : bufferDeleted) {
+                        deleted.set(docId - segment.firstDocId);
+                    }
+                    pendingDeletes.put(name, deleted);
+                }
+                segments.add(segment);
+            }
+            for (int i = 0; i < segments.size(); i++) {
+                Segment segment = segments.get(i);
+                BitSet deleted = pendingDeletes.get(segment.name);
+                if (deleted != null) {
+                    writeDeletes(segment.name, segment.deleteGeneration + 1, deleted);
+                    if (segment.deleteGeneration > 0) {
+                        obsolete.add(deletesFile(segment.name, segment.deleteGeneration));
+                    }
+                    segments.set(i, segment.withDeletions(deleted, segment.deleteGeneration + 1));
+                }
+            }
+            writeManifest(segments);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        publish(segments);
+        buffer = newBuffer();
+        bufferDeleted.clear();
+        pendingDeletes.clear();
+        bufferFirstDocId = nextDocId;
+        for (File file : obsolete) {
+            file.delete();
+        }
+        scheduleMerge();
+    }
+
+    /**
+     * 等待正在进行和已经排队的后台合并完成
+     */
+    public void waitForMerges() {
+        while (true) {
+            Future<?> task;
+            synchronized (this) {
+                task = mergeTask;
+            }
+            if (task == null) {
+                return;
+            }
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 提交所有修改，等待后台合并完成后停止合并线程。
+     */
+    @Override
+    public void close() {
+        commit();
+        waitForMerges();
+        synchronized (this) {
+            if (merger != null) {
+                merger.shutdown();
+                merger = null;
+            }
+        }
+    }
+
+    /**
+     * 打开指定目录中的索引，丢弃未提交的修改。目录中不属于最后一次提交的段文件和删除文件会被删除。
+     * 段清单中记录了分析器时改用记录的分析器。
+     *
+     * @param file 索引目录，不存在时创建
+     */
+    @Override
+    public synchronized void load(File file) {
+        directory = file;
+        directory.mkdirs();
+        generation = 0;
+        nextSegment = 0;
+        nextDocId = 0;
+        List<Segment> segments = new ArrayList<>();
+        File manifest = new File(directory, MANIFEST);
+        if (manifest.isFile()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifest.toPath())))) {
+                if (in.readInt() != MANIFEST_MAGIC || in.readInt() != MANIFEST_VERSION) {
+                    throw new IOException("不是段清单文件或版本不支持: " + manifest);
+                }
+                String analyzerSpec = in.readUTF();
+                if (!analyzerSpec.isEmpty()) {
+                    analyzer = StandardAnalyzer.fromSpec(analyzerSpec);
+                }
+                generation = in.readLong();
+                nextDocId = in.readInt();
+                nextSegment = in.readInt();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String name = in.readUTF();
+                    int deleteGeneration = in.readInt();
+                    segments.add(new Segment(name, new MappedIndex(segmentFile(name)),
+                            readDeletes(name, deleteGeneration), deleteGeneration));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        buffer = newBuffer();
+        bufferDeleted.clear();
+        pendingDeletes.clear();
+        bufferFirstDocId = nextDocId;
+        publish(segments);
+        pathToDocId.clear();
+        for (Map.Entry<Integer, String> doc : current.docIdToDocPathMapping.entrySet()) {
+            pathToDocId.put(doc.getValue(), doc.getKey());
+        }
+        deleteUnreferencedFiles(segments);
+    }
+
+    /**
+     * 把最后一次提交的内容合并写成一个段格式的索引文件，可以用IndexSearcher.open或MappedIndex打开。
+     *
+     * @param file 写入的目标索引文件
+     */
+    @Override
+    public void save(File file) {
+        try {
+            new MultiSegmentIndex(current.segments(), analyzer, 0, false).writeSegment(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 返回指定单词在最后一次提交中的PostingList。
+     *
+     * @param term 指定的单词
+     * @return 指定单词的PostingList，只能读取;如果没有未删除的文档包含该单词，则返回null
+     */
+    @Override
+    public AbstractPostingList search(AbstractTerm term) {
+        return current.search(term);
+    }
+
+    /**
+     * 返回最后一次提交的字典。
+     *
+     * @return 索引中Term集合的只读视图
+     */
+    @Override
+    public Set<AbstractTerm> getDictionary() {
+        return current.getDictionary();
+    }
+
+    /**
+     * 返回最后一次提交的字典中以指定前缀开头的所有单词。
+     *
+     * @param prefix 前缀
+     * @return 以prefix开头的单词列表
+     */
+    @Override
+    public List<AbstractTerm> getTermsWithPrefix(String prefix) {
+        return current.getTermsWithPrefix(prefix);
+    }
+
+    /**
+     * 返回最后一次提交的字典中位于[from, to)区间的所有单词。
+     *
+     * @param from 区间下界(含)，为null时表示没有下界
+     * @param to   区间上界(不含)，为null时表示没有上界
+     * @return 区间内的单词列表
+     */
+    @Override
+    public List<AbstractTerm> getTermsInRange(String from, String to) {
+        return current.getTermsInRange(from, to);
+    }
+
+    /**
+     * 提交所有修改，并把所有段合并成一个段，同时丢弃全部已删除的文档。
+     */
+    @Override
+    public void optimize() {
+        commit();
+        synchronized (mergeLock) {
+            List<Segment> sources;
+            String name;
+            synchronized (this) {
+                sources = current.segments();
+                if (sources.isEmpty() || (sources.size() == 1 && sources.get(0).liveDocs == sources.get(0).docs)) {
+                    return;
+                }
+                name = "_" + nextSegment++;
+            }
+            merge(sources, name);
+        }
+    }
+
+    /**
+     * 根据docId获得对应文档的完全路径名。
+     *
+     * @param docId 文档id
+     * @return 对应文档的完全路径名;文档不存在、已删除或尚未提交时返回null
+     */
+    @Override
+    public String getDocName(int docId) {
+        return current.getDocName(docId);
+    }
+
+    /**
+     * 返回文档长度。
+     *
+     * @param docId 文档id
+     * @return 文档长度;文档不存在、已删除或尚未提交时返回0
+     */
+    @Override
+    public int getDocLength(int docId) {
+        return current.getDocLength(docId);
+    }
+
+    /**
+     * 返回最后一次提交中未删除文档的平均长度。
+     *
+     * @return 平均文档长度;索引为空时返回0
+     */
+    @Override
+    public double getAverageDocLength() {
+        return current.getAverageDocLength();
+    }
+
+    /**
+     * 返回最后一次提交中包含指定单词的未删除文档个数。
+     *
+     * @param term 指定的单词
+     * @return 文档频率;如果索引字典没有该单词，则返回0
+     */
+    @Override
+    public int getDocFreq(AbstractTerm term) {
+        return current.getDocFreq(term);
+    }
+
+    /**
+     * 返回索引的版本号，每次提交和合并后改变。
+     *
+     * @return 版本号
+     */
+    @Override
+    public long getVersion() {
+        return current.getVersion();
+    }
+
+    /**
+     * 返回建立索引时使用的分析器。
+     *
+     * @return 分析器;未知时返回null
+     */
+    @Override
+    public synchronized AbstractAnalyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    /**
+     * 返回最后一次提交或合并后的只读视图，之后的提交和合并对它不可见。
+     *
+     * @return 索引的只读视图
+     */
+    @Override
+    public AbstractIndex snapshot() {
+        return current;
+    }
+
+    /**
+     * 不支持序列化，索引目录本身就是持久化形式，也可以用save写成一个段文件。
+     *
+     * @param out 输出流
+     */
+    @Override
+    public void writeObject(ObjectOutputStream out) {
+        throw new UnsupportedOperationException("SegmentedIndex保存在索引目录中");
+    }
+
+    /**
+     * 不支持反序列化，请使用load打开索引目录。
+     *
+     * @param in 输入流
+     */
+    @Override
+    public void readObject(ObjectInputStream in) {
+        throw new UnsupportedOperationException("SegmentedIndex保存在索引目录中");
+    }
+
+    private void checkDocId(int docId) {
+        if (docId < nextDocId) {
+            throw new IllegalArgumentException("docId必须大于索引中已有的docId: " + docId + " < " + nextDocId);
+        }
+    }
+
+    /**
+     * 登记加入缓冲区的文档，缓冲的文档足够多时自动提交
+     */
+    private void added(int docId, String docPath) {
+        pathToDocId.put(docPath, docId);
+        nextDocId = docId + 1;
+        if (buffer.docIdToDocPathMapping.size() >= Config.SEGMENT_MAX_BUFFERED_DOCS) {
+            commit();
+        }
+    }
+
+    /**
+     * 发布新的只读视图
+     */
+    private void publish(List<Segment> segments) {
+        MultiSegmentIndex view = new MultiSegmentIndex(segments, analyzer, generation, true);
+        docIdToDocPathMapping = view.docIdToDocPathMapping;
+        current = view;
+    }
+
+    /**
+     * 没有合并任务时，如果当前的段需要合并则启动后台合并
+     */
+    private void scheduleMerge() {
+        if (mergeTask == null && findMerge(current.segments()) != null) {
+            if (merger == null) {
+                merger = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "segment-merger");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            mergeTask = merger.submit(this::runMerges);
+        }
+    }
+
+    /**
+     * 后台合并线程：反复按合并策略选出要合并的段并合并，直到没有需要合并的段
+     */
+    private void runMerges() {
+        try {
+            while (true) {
+                synchronized (mergeLock) {
+                    List<Segment> sources;
+                    String name;
+                    synchronized (this) {
+                        sources = findMerge(current.segments());
+                        if (sources == null) {
+                            mergeTask = null;
+                            return;
+                        }
+                        name = "_" + nextSegment++;
+                    }
+                    merge(sources, name);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            e.printStackTrace();
+            synchronized (this) {
+                mergeTask = null;
+            }
+        }
+    }
+
+    /**
+     * <pre>
+     * 合并策略：返回需要合并的相邻段，不需要合并时返回null.
+     *      已删除文档超过一半的段单独重写;
+     *      否则按未删除文档个数分级，找到连续Config.SEGMENT_MERGE_FACTOR个同级的相邻段.
+     * </pre>
+     */
+    private static List<Segment> findMerge(List<Segment> segments) {
+        for (Segment segment : segments) {
+            if (segment.liveDocs * 2 < segment.docs) {
+                return new ArrayList<>(Collections.singletonList(segment));
+            }
+        }
+        int factor = Math.max(2, Config.SEGMENT_MERGE_FACTOR);
+        int i = 0;
+        while (i < segments.size()) {
+            int level = level(segments.get(i), factor);
+            int j = i + 1;
+            while (j < segments.size() && level(segments.get(j), factor) == level) {
+                j++;
+            }
+            if (j - i >= factor) {
+                return new ArrayList<>(segments.subList(i, i + factor));
+            }
+            i = j;
+        }
+        return null;
+    }
+
+    /**
+     * 返回段的级别，即未删除文档个数以factor为底的对数取整。用整数除法，避免浮点误差把1000个文档算成第2级
+     */
+    private static int level(Segment segment, int factor) {
+        int level = 0;
+        for (int docs = segment.liveDocs; docs >= factor; docs /= factor) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * 把相邻的若干个段合并成一个新段。合并在锁外写文件，完成后在锁内把合并期间新增的删除转移到新段，
+     * 替换段清单并发布新视图。调用方需要持有mergeLock。
+     *
+     * @param sources 要合并的相邻段，取自开始合并时的视图
+     * @param name    新段的段名
+     */
+    private void merge(List<Segment> sources, String name) {
+        File file = segmentFile(name);
+        try {
+            new MultiSegmentIndex(sources, analyzer, 0, false).writeSegment(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        MappedIndex index = new MappedIndex(file);
+        synchronized (this) {
+            Segment merged = new Segment(name, index, new BitSet(), 0);
+            BitSet committed = new BitSet();
+            BitSet pending = null;
+            List<Segment> segments = new ArrayList<>(current.segments());
+            int at = -1;
+            List<File> obsolete = new ArrayList<>();
+            for (Segment source : sources) {
+                int i = indexOf(segments, source.name);
+                Segment now = segments.get(i);
+                at = at < 0 ? i : at;
+                carryDeletes(source, now.deleted, merged, committed);
+                BitSet deleted = pendingDeletes.remove(source.name);
+                if (deleted != null) {
+                    pending = pending == null ? new BitSet() : pending;
+                    carryDeletes(source, deleted, merged, pending);
+                }
+                obsolete.add(segmentFile(source.name));
+                obsolete.add(SegmentFormat.dictionaryFile(segmentFile(source.name)));
+                if (now.deleteGeneration > 0) {
+                    obsolete.add(deletesFile(source.name, now.deleteGeneration));
+                }
+            }
+            segments.subList(at, at + sources.size()).clear();
+            try {
+                if (merged.docs > 0) {
+                    int deleteGeneration = committed.isEmpty() ? 0 : 1;
+                    if (deleteGeneration > 0) {
+                        writeDeletes(name, deleteGeneration, committed);
+                    }
+                    segments.add(at, merged.withDeletions(committed, deleteGeneration));
+                    if (pending != null) {
+                        pending.or(committed);
+                        pendingDeletes.put(name, pending);
+                    }
+                } else {
+                    obsolete.add(file);
+                    obsolete.add(SegmentFormat.dictionaryFile(file));
+                }
+                writeManifest(segments);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            publish(segments);
+            // 已经取得旧视图的检索仍然映射着这些文件，在允许删除已打开文件的系统上不受影响；删除失败的文件下次打开时清理
+            for (File obsoleteFile : obsolete) {
+                obsoleteFile.delete();
+            }
+        }
+    }
+
+    /**
+     * 把源段中在开始合并之后才删除的文档(deleted中有而源段位图中没有的)标记到target上，位下标换算到合并后的段
+     */
+    private static void carryDeletes(Segment source, BitSet deleted, Segment merged, BitSet target) {
+        for (int bit = deleted.nextSetBit(0); bit >= 0; bit = deleted.nextSetBit(bit + 1)) {
+            if (!source.deleted.get(bit)) {
+                target.set(source.firstDocId + bit - merged.firstDocId);
+            }
+        }
+    }
+
+    private static int indexOf(List<Segment> segments, String name) {
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i).name.equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("段" + name + "已经不在索引中");
+    }
+
+    /**
+     * 创建存放未提交文档的内存索引，写成段时一起写出分析器
+     */
+    private Index newBuffer() {
+        Index index = new Index();
+        index.setAnalyzer(analyzer);
+        return index;
+    }
+
+    private File segmentFile(String name) {
+        return new File(directory, name + SEGMENT_SUFFIX);
+    }
+
+    private File deletesFile(String name, int deleteGeneration) {
+        return new File(directory, name + "_" + deleteGeneration + DELETES_SUFFIX);
+    }
+
+    /**
+     * 写段清单：先写临时文件，再原子地替换原来的段清单。写入前代数加1。
+     */
+    private void writeManifest(List<Segment> segments) throws IOException {
+        generation++;
+        File temp = new File(directory, MANIFEST + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeInt(MANIFEST_VERSION);
+            out.writeUTF(analyzer == null ? "" : analyzer.getSpec());
+            out.writeLong(generation);
+            out.writeInt(nextDocId);
+            out.writeInt(nextSegment);
+            out.writeInt(segments.size());
+            for (Segment segment : segments) {
+                out.writeUTF(segment.name);
+                out.writeInt(segment.deleteGeneration);
+            }
+        }
+        Files.move(temp.toPath(), new File(directory, MANIFEST).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeDeletes(String name, int deleteGeneration, BitSet deleted) throws IOException {
+        long[] words = deleted.toLongArray();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(deletesFile(name, deleteGeneration).toPath())))) {
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    private BitSet readDeletes(String name, int deleteGeneration) throws IOException {
+        if (deleteGeneration == 0) {
+            return new BitSet();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(deletesFile(name, deleteGeneration).toPath())))) {
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            return BitSet.valueOf(words);
+        }
+    }
+
+    /**
+     * 删除目录中不属于当前段清单的段文件和删除文件，它们来自中途退出的提交或合并
+     */
+    private void deleteUnreferencedFiles(List<Segment> segments) {
+        Set<String> referenced = new HashSet<>();
+        for (Segment segment : segments) {
+            referenced.add(segmentFile(segment.name).getName());
+            referenced.add(SegmentFormat.dictionaryFile(segmentFile(segment.name)).getName());
+            if (segment.deleteGeneration > 0) {
+                referenced.add(deletesFile(segment.name, segment.deleteGeneration).getName());
+            }
+        }
+        File[] files = directory.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            String fileName = file.getName();
+            if ((fileName.startsWith("_") && !referenced.contains(fileName)) || fileName.equals(MANIFEST + ".tmp")) {
+                file.delete();
+            }
+        }
+    }
+}
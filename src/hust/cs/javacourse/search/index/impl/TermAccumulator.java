@@ -0,0 +1,104 @@
+package hust.cs.javacourse.search.index.impl;
+
+import java.util.Arrays;
+
+/**
+ * TermAccumulator类在把一个文档加入索引之前，按单词聚合该文档的三元组。
+ * 每个单词只保存一个槽位：累计的出现次数和按出现顺序排列的位置数组。
+ * 文档处理完后，每个单词只需向倒排列表追加一个Posting。
+ * 单词用TermDictionary分配的termId表示，termId到槽位的映射是一个按termId下标访问的数组，
+ * 不需要哈希表和装箱的Integer。
+ * 一个对象可以通过clear反复用于多个文档，槽位数组会被复用。
+ *
+ * @author 晋晨曦
+ */
+class TermAccumulator {
+    /**
+     * termId到槽位的映射，-1表示该单词还没有在当前文档中出现
+     */
+    private int[] slotOfTerm = new int[0];
+    private int[] termIds = new int[16];
+    private int[] freqs = new int[16];
+    private int[][] positions = new int[16][];
+    private int[] counts = new int[16];
+    private int size;
+
+    /**
+     * 记录单词在当前文档中的一次出现
+     *
+     * @param termId   单词编号
+     * @param freq     出现次数，三元组中始终为1
+     * @param position 出现位置
+     */
+    void add(int termId, int freq, int position) {
+        if (termId >= slotOfTerm.length) {
+            int oldLength = slotOfTerm.length;
+            slotOfTerm = Arrays.copyOf(slotOfTerm, Math.max(termId + 1, oldLength * 2));
+            Arrays.fill(slotOfTerm, oldLength, slotOfTerm.length, -1);
+        }
+        int slot = slotOfTerm[termId];
+        if (slot < 0) {
+            slot = newSlot(termId);
+        }
+        freqs[slot] += freq;
+        int[] termPositions = positions[slot];
+        if (counts[slot] == termPositions.length) {
+            termPositions = Arrays.copyOf(termPositions, termPositions.length * 2);
+            positions[slot] = termPositions;
+        }
+        termPositions[counts[slot]++] = position;
+    }
+
+    private int newSlot(int termId) {
+        if (size == termIds.length) {
+            int capacity = size * 2;
+            termIds = Arrays.copyOf(termIds, capacity);
+            freqs = Arrays.copyOf(freqs, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        termIds[size] = termId;
+        freqs[size] = 0;
+        counts[size] = 0;
+        if (positions[size] == null) {
+            positions[size] = new int[4];
+        }
+        slotOfTerm[termId] = size;
+        return size++;
+    }
+
+    /**
+     * 返回当前文档中不同单词的个数
+     *
+     * @return 单词个数
+     */
+    int size() {
+        return size;
+    }
+
+    int termId(int slot) {
+        return termIds[slot];
+    }
+
+    int freq(int slot) {
+        return freqs[slot];
+    }
+
+    int[] positions(int slot) {
+        return positions[slot];
+    }
+
+    int positionCount(int slot) {
+        return counts[slot];
+    }
+
+    /**
+     * 清空已聚合的内容，保留槽位数组以便下一个文档复用
+     */
+    void clear() {
+        for (int slot = 0; slot < size; slot++) {
+            slotOfTerm[termIds[slot]] = -1;
+        }
+        size = 0;
+    }
+}
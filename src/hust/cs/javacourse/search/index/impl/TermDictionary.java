@@ -0,0 +1,158 @@
+package hust.cs.javacourse.search.index.impl;
+
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.AbstractTerm;
+
+import java.util.Arrays;
+
+/**
+ * TermDictionary类把单词内部化为从0开始连续编号的整数termId。
+ * <p>
+ * 单词内容到termId的查找使用开放寻址的哈希表（线性探测），只比较String的hashCode和内容，
+ * 不需要像TreeMap那样做O(log V)次compareTo；termId到单词对象和PostingList的映射都是数组下标访问。
+ * 同一个单词在字典里只保存一个AbstractTerm对象，构建索引时扫描器产生的Term对象查完字典即可回收。
+ * <p>
+ * 字典只增不删，termId一经分配在字典的生命周期内保持不变。
+ *
+ * @author 晋晨曦
+ */
+public class TermDictionary {
+    /**
+     * 哈希表，元素为termId + 1，0表示空槽
+     */
+    private int[] table = new int[64];
+    private int[] hashes = new int[16];
+    private AbstractTerm[] terms = new AbstractTerm[16];
+    private AbstractPostingList[] postingLists = new AbstractPostingList[16];
+    private int size;
+
+    /**
+     * 返回字典中单词的个数，合法的termId为0到size() - 1
+     *
+     * @return 单词个数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 查找单词对应的termId
+     *
+     * @param word 单词内容
+     * @return termId；字典中没有该单词时返回-1
+     */
+    public int getTermId(String word) {
+        int hash = word.hashCode();
+        int mask = table.length - 1;
+        for (int i = spread(hash) & mask; table[i] != 0; i = (i + 1) & mask) {
+            int termId = table[i] - 1;
+            if (hashes[termId] == hash && terms[termId].getContent().equals(word)) {
+                return termId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找单词对应的termId
+     *
+     * @param term 单词
+     * @return termId；字典中没有该单词时返回-1
+     */
+    public int getTermId(AbstractTerm term) {
+        return getTermId(term.getContent());
+    }
+
+    /**
+     * 把单词加入字典，如果已经存在则直接返回原来的termId
+     *
+     * @param term 单词，字典中没有该单词时这个对象会被保存下来
+     * @return termId
+     */
+    public int intern(AbstractTerm term) {
+        String word = term.getContent();
+        int hash = word.hashCode();
+        int mask = table.length - 1;
+        int i = spread(hash) & mask;
+        for (; table[i] != 0; i = (i + 1) & mask) {
+            int termId = table[i] - 1;
+            if (hashes[termId] == hash && terms[termId].getContent().equals(word)) {
+                return termId;
+            }
+        }
+        if (size == terms.length) {
+            int capacity = size * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            terms = Arrays.copyOf(terms, capacity);
+            postingLists = Arrays.copyOf(postingLists, capacity);
+        }
+        int termId = size++;
+        hashes[termId] = hash;
+        terms[termId] = term;
+        table[i] = termId + 1;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return termId;
+    }
+
+    /**
+     * 返回termId对应的单词
+     *
+     * @param termId 单词编号
+     * @return 单词
+     */
+    public AbstractTerm getTerm(int termId) {
+        return terms[termId];
+    }
+
+    /**
+     * 返回termId对应的PostingList
+     *
+     * @param termId 单词编号
+     * @return PostingList；还没有设置时返回null
+     */
+    public AbstractPostingList getPostingList(int termId) {
+        return postingLists[termId];
+    }
+
+    /**
+     * 设置termId对应的PostingList
+     *
+     * @param termId      单词编号
+     * @param postingList PostingList
+     */
+    public void setPostingList(int termId, AbstractPostingList postingList) {
+        postingLists[termId] = postingList;
+    }
+
+    /**
+     * 清空字典，之后分配的termId重新从0开始
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        Arrays.fill(terms, 0, size, null);
+        Arrays.fill(postingLists, 0, size, null);
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] newTable = new int[capacity];
+        int mask = capacity - 1;
+        for (int termId = 0; termId < size; termId++) {
+            int i = spread(hashes[termId]) & mask;
+            while (newTable[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            newTable[i] = termId + 1;
+        }
+        table = newTable;
+    }
+
+    /**
+     * 把hashCode的高位混入低位，避免只用低位做下标时冲突过多
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,69 @@
+package hust.cs.javacourse.search.parse;
+
+import java.io.File;
+
+/**
+ * <pre>
+ * AbstractAnalyzer是分析器的抽象父类.
+ *      分析器决定文本如何变成索引中的单词: 建立索引时用termTupleStream把文件切分、过滤、规范化成三元组流;
+ *      检索时用normalize把检索词变成与索引中相同的形式(例如转为小写、提取词干)，两者必须使用同一套规则.
+ *      分析器的全部设置由getSpec返回的描述字符串表示，描述随索引一起保存，加载索引后可以还原出同样的分析器.
+ *      分析器对象应当是不可变的，可以被多个线程共享.
+ * </pre>
+ */
+public abstract class AbstractAnalyzer {
+    /**
+     * <pre>
+     * 为给定的文件构造建立索引用的三元组流.
+     * @param file ：文本文件
+     * @return ：文件对应的三元组流，使用完后需要调用close关闭
+     * </pre>
+     */
+    public abstract AbstractTermTupleStream termTupleStream(File file);
+
+    /**
+     * <pre>
+     * 把一个检索词规范化成索引中单词的形式，与建立索引时对每个单词的处理相同:
+     * 大小写转换、提取词干这类变换之外，建立索引时会被过滤掉的词(例如停用词)返回null，由调用者忽略.
+     * @param word ：检索词
+     * @return ：规范化后的单词，会被过滤掉时返回null
+     * </pre>
+     */
+    public abstract String normalize(String word);
+
+    /**
+     * <pre>
+     * 返回描述分析器全部设置的字符串，随索引一起保存.
+     * @return ：分析器的描述
+     * </pre>
+     */
+    public abstract String getSpec();
+
+    /**
+     * 两个分析器的描述相同时认为相等
+     * @param obj ：要比较的对象
+     * @return ：描述相同时返回true
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof AbstractAnalyzer && getSpec().equals(((AbstractAnalyzer) obj).getSpec());
+    }
+
+    /**
+     * 返回描述的哈希值
+     * @return ：哈希值
+     */
+    @Override
+    public int hashCode() {
+        return getSpec().hashCode();
+    }
+
+    /**
+     * 返回分析器的描述
+     * @return ：分析器的描述
+     */
+    @Override
+    public String toString() {
+        return getSpec();
+    }
+}
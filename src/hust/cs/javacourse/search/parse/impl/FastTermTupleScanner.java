@@ -0,0 +1,376 @@
+package hust.cs.javacourse.search.parse.impl;
+
+import hust.cs.javacourse.search.index.AbstractTermTuple;
+import hust.cs.javacourse.search.index.impl.Term;
+import hust.cs.javacourse.search.index.impl.TermTuple;
+import hust.cs.javacourse.search.parse.AbstractTermTupleScanner;
+import hust.cs.javacourse.search.util.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * FastTermTupleScanner类是AbstractTermTupleScanner的高吞吐实现，切分结果(单词和位置)与TermTupleScanner完全相同。
+ * <p>
+ * 文件通过FileChannel读入可重复使用的ByteBuffer(大文件直接内存映射)，用平台默认字符集解码到可重复使用的字符数组中，
+ * 再用按字符查表的状态机切分单词：不按行读取，不用正则表达式，也不为被跳过的分隔符和行创建字符串。
+ * 分隔字符表由Config.STRING_SPLITTER_REGEX生成(对每个字符测试一次是否匹配)，因此要求该正则表达式是"字符类+"的形式，默认值就是这样；
+ * 换行符总是分隔符，与按行读取一致。TermTupleScanner会跳过trim后为空的行，这样的行中只由控制字符组成的单词同样被跳过。
+ * <p>
+ * 除了next以外，还可以用nextToken逐个取得单词在字符数组中的位置，由调用者决定是否为它创建字符串，
+ * 这样被过滤掉的单词完全不需要分配对象。
+ *
+ * @author 晋晨曦
+ */
+public class FastTermTupleScanner extends AbstractTermTupleScanner {
+    /**
+     * 不小于这个字节数的文件使用内存映射读取
+     */
+    private static final long MAP_THRESHOLD = 1 << 20;
+    private static final int BYTE_BUFFER_SIZE = 1 << 16;
+    private static final int CHAR_BUFFER_SIZE = 1 << 13;
+    /**
+     * 最近一次生成的分隔字符表及对应的正则表达式，Config.STRING_SPLITTER_REGEX改变时重新生成
+     */
+    private static volatile Object[] separatorCache;
+
+    private final boolean[] separators;
+    private final boolean ignoreCase;
+    /**
+     * 默认语言环境下String.toLowerCase对ASCII字母的转换是否就是加0x20，土耳其语等语言中大写I另有规则
+     */
+    private final boolean asciiLowerCase = !Arrays.asList("tr", "az", "lt").contains(Locale.getDefault().getLanguage());
+    private final CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private FileChannel channel;
+    private final ByteBuffer bytes;
+    private boolean inputDone;
+    private boolean eof;
+
+    private char[] chars;
+    private int limit;
+    /**
+     * 下一次读入时需要保留的第一个字符的下标
+     */
+    private int mark;
+    private int pos;
+    private int ahead;
+    /**
+     * 当前行到目前为止是否出现过大于空格的字符
+     */
+    private boolean lineVisible;
+
+    private int tokenStart;
+    private char[] tokenChars;
+    private int tokenOffset;
+    private int tokenLength;
+    private String tokenString;
+    private char[] nonAsciiChars = new char[16];
+    private int tokenPosition = -1;
+
+    /**
+     * 构造函数，打开指定的文本文件，按Config.STRING_SPLITTER_REGEX和Config.IGNORE_CASE切分
+     *
+     * @param file 文本文件
+     * @throws FileNotFoundException 文件不存在或不能读取
+     */
+    public FastTermTupleScanner(File file) throws FileNotFoundException {
+        this(file, Config.STRING_SPLITTER_REGEX, Config.IGNORE_CASE);
+    }
+
+    /**
+     * 构造函数，打开指定的文本文件，使用指定的切分规则
+     *
+     * @param file          文本文件
+     * @param splitterRegex 切分单词的正则表达式，必须是"字符类+"的形式
+     * @param ignoreCase    是否把单词转为小写
+     * @throws FileNotFoundException 文件不存在或不能读取
+     */
+    public FastTermTupleScanner(File file, String splitterRegex, boolean ignoreCase) throws FileNotFoundException {
+        this.separators = separators(splitterRegex);
+        this.ignoreCase = ignoreCase;
+        channel = new FileInputStream(file).getChannel();
+        try {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD && size <= Integer.MAX_VALUE) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                channel.close();
+                channel = null;
+                inputDone = true;
+            } else {
+                // 小文件只分配与文件大小相当的缓冲区
+                bytes = ByteBuffer.allocate((int) Math.max(16, Math.min(BYTE_BUFFER_SIZE, size)));
+                bytes.flip();
+            }
+            chars = new char[(int) Math.max(16, Math.min(CHAR_BUFFER_SIZE, size))];
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 返回指定正则表达式对应的分隔字符表，第c个元素表示字符c是否匹配该正则表达式
+     */
+    private static boolean[] separators(String regex) {
+        Object[] cache = separatorCache;
+        if (cache != null && cache[0].equals(regex)) {
+            return (boolean[]) cache[1];
+        }
+        Pattern pattern = Pattern.compile(regex);
+        boolean[] table = new boolean[Character.MAX_VALUE + 1];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            table[c] = pattern.matcher(String.valueOf((char) c)).matches();
+        }
+        table['\n'] = true;
+        table['\r'] = true;
+        separatorCache = new Object[]{regex, table};
+        return table;
+    }
+
+    /**
+     * 读取下一个三元组，如果文件已经读取完毕，那么返回null
+     *
+     * @return 下一个三元组，如果文件已经读取完毕，那么返回null
+     */
+    @Override
+    public AbstractTermTuple next() {
+        if (!nextToken()) {
+            return null;
+        }
+        AbstractTermTuple termTuple = new TermTuple();
+        termTuple.term = new Term(tokenString());
+        termTuple.curPos = tokenPosition;
+        return termTuple;
+    }
+
+    /**
+     * 前进到下一个单词。单词的字符由tokenChars、tokenOffset和tokenLength给出，忽略大小写时已经转为小写，
+     * 在下一次调用nextToken之前有效
+     *
+     * @return 有下一个单词时返回true，文件读取完毕时返回false
+     */
+    public boolean nextToken() {
+        try {
+            while (true) {
+                // 跳过分隔符
+                while (true) {
+                    if (pos == limit) {
+                        mark = pos;
+                        if (!fill()) {
+                            return false;
+                        }
+                    }
+                    char c = chars[pos];
+                    if (!separators[c]) {
+                        break;
+                    }
+                    if (c == '\n' || c == '\r') {
+                        lineVisible = false;
+                    } else if (c > ' ') {
+                        lineVisible = true;
+                    }
+                    pos++;
+                }
+                // 读取单词
+                tokenStart = pos;
+                mark = pos;
+                boolean ascii = true;
+                boolean visible = false;
+                while (true) {
+                    if (pos == limit && !fill()) {
+                        break;
+                    }
+                    char c = chars[pos];
+                    if (separators[c]) {
+                        break;
+                    }
+                    ascii &= c < 0x80;
+                    visible |= c > ' ';
+                    pos++;
+                }
+                if (visible) {
+                    lineVisible = true;
+                } else if (!lineVisible && !restOfLineVisible()) {
+                    // 整行都是不大于空格的字符，TermTupleScanner会跳过这一行
+                    continue;
+                }
+                setToken(ascii && asciiLowerCase);
+                tokenPosition++;
+                return true;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 当前单词之后、行结束之前是否还有大于空格的字符，没有时把pos移到行尾；向前查看时保留当前单词
+     */
+    private boolean restOfLineVisible() throws IOException {
+        ahead = pos;
+        while (true) {
+            if (ahead == limit && !fill()) {
+                break;
+            }
+            char c = chars[ahead];
+            if (c == '\n' || c == '\r') {
+                break;
+            }
+            if (c > ' ') {
+                return true;
+            }
+            ahead++;
+        }
+        pos = ahead;
+        return false;
+    }
+
+    /**
+     * 把[tokenStart, pos)设为当前单词，忽略大小写时转为小写：ASCII字符直接在字符数组中转换，
+     * 其他字符用String.toLowerCase转换，与TermTupleScanner的结果一致
+     */
+    private void setToken(boolean ascii) {
+        int length = pos - tokenStart;
+        tokenString = null;
+        if (!ignoreCase || ascii) {
+            if (ignoreCase) {
+                for (int i = tokenStart; i < pos; i++) {
+                    char c = chars[i];
+                    if (c >= 'A' && c <= 'Z') {
+                        chars[i] = (char) (c | 0x20);
+                    }
+                }
+            }
+            tokenChars = chars;
+            tokenOffset = tokenStart;
+            tokenLength = length;
+            return;
+        }
+        tokenString = new String(chars, tokenStart, length).toLowerCase();
+        if (nonAsciiChars.length < tokenString.length()) {
+            nonAsciiChars = new char[Math.max(tokenString.length(), nonAsciiChars.length * 2)];
+        }
+        tokenString.getChars(0, tokenString.length(), nonAsciiChars, 0);
+        tokenChars = nonAsciiChars;
+        tokenOffset = 0;
+        tokenLength = tokenString.length();
+    }
+
+    /**
+     * 保留[mark, limit)的字符并移到数组开头，然后解码更多字符
+     *
+     * @return 读入了新的字符时返回true，文件已经读取完毕时返回false
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (mark == 0 && limit == chars.length) {
+            chars = Arrays.copyOf(chars, chars.length * 2);
+        } else if (mark > 0) {
+            System.arraycopy(chars, mark, chars, 0, limit - mark);
+            limit -= mark;
+            pos -= mark;
+            tokenStart -= mark;
+            ahead -= mark;
+            mark = 0;
+        }
+        CharBuffer out = CharBuffer.wrap(chars, limit, chars.length - limit);
+        while (true) {
+            CoderResult result = decoder.decode(bytes, out, inputDone);
+            if (result.isOverflow()) {
+                break;
+            }
+            if (inputDone) {
+                if (!decoder.flush(out).isOverflow()) {
+                    eof = true;
+                }
+                break;
+            }
+            bytes.compact();
+            inputDone = channel.read(bytes) < 0;
+            bytes.flip();
+        }
+        int added = out.position() - limit;
+        limit = out.position();
+        return added > 0;
+    }
+
+    /**
+     * 返回当前单词的字符数组，单词从tokenOffset开始，长度为tokenLength
+     *
+     * @return 当前单词所在的字符数组，不能修改
+     */
+    public char[] tokenChars() {
+        return tokenChars;
+    }
+
+    /**
+     * 返回当前单词在tokenChars中的起始下标
+     *
+     * @return 起始下标
+     */
+    public int tokenOffset() {
+        return tokenOffset;
+    }
+
+    /**
+     * 返回当前单词的长度
+     *
+     * @return 单词的字符个数
+     */
+    public int tokenLength() {
+        return tokenLength;
+    }
+
+    /**
+     * 返回当前单词在文件中的位置，即它是第几个单词(从0开始)
+     *
+     * @return 单词位置
+     */
+    public int tokenPosition() {
+        return tokenPosition;
+    }
+
+    /**
+     * 返回当前单词的字符串，第一次调用时创建
+     *
+     * @return 当前单词
+     */
+    public String tokenString() {
+        if (tokenString == null) {
+            tokenString = new String(tokenChars, tokenOffset, tokenLength);
+        }
+        return tokenString;
+    }
+
+    /**
+     * 关闭文件
+     */
+    @Override
+    public void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            channel = null;
+        }
+    }
+}
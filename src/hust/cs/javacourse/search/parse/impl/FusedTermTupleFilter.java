@@ -0,0 +1,223 @@
+package hust.cs.javacourse.search.parse.impl;
+
+import hust.cs.javacourse.search.index.AbstractTermTuple;
+import hust.cs.javacourse.search.index.impl.Term;
+import hust.cs.javacourse.search.index.impl.TermTuple;
+import hust.cs.javacourse.search.parse.AbstractTermTupleFilter;
+import hust.cs.javacourse.search.parse.AbstractTermTupleStream;
+import hust.cs.javacourse.search.util.Config;
+import hust.cs.javacourse.search.util.StopWords;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * FusedTermTupleFilter类把LengthTermTupleFilter、PatternTermTupleFilter和StopWordTermTupleFilter合并成一个过滤器，
+ * 保留的词元组与StopWordTermTupleFilter(PatternTermTupleFilter(LengthTermTupleFilter(input)))完全相同。
+ * <p>
+ * 每个单词只扫描一遍：先比较长度，再逐个字符检查是否是ASCII字母并同时计算哈希值，最后在停用词的完美哈希表中查找，
+ * 查找时直接比较字符，不创建字符串。Config.TERM_FILTER_PATTERN不是默认的"[a-zA-Z]+"时改用预先编译的正则表达式检查。
+ * 输入是FastTermTupleScanner时直接读取它的字符数组，被过滤掉的单词不分配任何对象。
+ *
+ * @author 晋晨曦
+ */
+public class FusedTermTupleFilter extends AbstractTermTupleFilter {
+    private static final String ASCII_LETTERS = "[a-zA-Z]+";
+    /**
+     * 最近一次生成的停用词表及生成它的停用词数组的副本，StopWords.STOP_WORDS改变时重新生成
+     */
+    private static volatile StopWordTable stopWordCache;
+    /**
+     * 最近一次编译的单词过滤正则表达式
+     */
+    private static volatile Pattern patternCache;
+
+    private final FastTermTupleScanner scanner;
+    private final int minLength;
+    private final int maxLength;
+    private final Pattern pattern;
+    private final StopWordTable stopWords;
+    private char[] scratch = new char[32];
+
+    /**
+     * 构造函数，接收一个AbstractTermTupleStream对象作为输入流，使用Config和StopWords中的过滤设置
+     *
+     * @param input AbstractTermTupleStream对象，为FastTermTupleScanner时不为被过滤掉的单词创建字符串
+     */
+    public FusedTermTupleFilter(AbstractTermTupleStream input) {
+        this(input, Config.TERM_FILTER_MINLENGTH, Config.TERM_FILTER_MAXLENGTH, Config.TERM_FILTER_PATTERN, StopWords.STOP_WORDS);
+    }
+
+    /**
+     * 构造函数，使用指定的过滤设置
+     *
+     * @param input       AbstractTermTupleStream对象，为FastTermTupleScanner时不为被过滤掉的单词创建字符串
+     * @param minLength   单词的最小长度
+     * @param maxLength   单词的最大长度
+     * @param termPattern 单词必须匹配的正则表达式
+     * @param stopWords   停用词，为空数组时不过滤停用词
+     */
+    public FusedTermTupleFilter(AbstractTermTupleStream input, int minLength, int maxLength, String termPattern, String[] stopWords) {
+        super(input);
+        this.scanner = input instanceof FastTermTupleScanner ? (FastTermTupleScanner) input : null;
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.pattern = ASCII_LETTERS.equals(termPattern) ? null : pattern(termPattern);
+        this.stopWords = stopWordTable(stopWords);
+    }
+
+    /**
+     * 从输入流中读取下一个长度在指定范围内、匹配单词过滤正则表达式并且不是停用词的词元组。
+     * 如果输入流已经读取完毕，那么返回null。
+     *
+     * @return 下一个通过过滤的词元组，如果输入流已经读取完毕，那么返回null
+     */
+    @Override
+    public AbstractTermTuple next() {
+        if (scanner != null) {
+            while (scanner.nextToken()) {
+                if (accept(scanner.tokenChars(), scanner.tokenOffset(), scanner.tokenLength())) {
+                    AbstractTermTuple termTuple = new TermTuple();
+                    termTuple.term = new Term(scanner.tokenString());
+                    termTuple.curPos = scanner.tokenPosition();
+                    return termTuple;
+                }
+            }
+            return null;
+        }
+        while (true) {
+            AbstractTermTuple termTuple = input.next();
+            if (termTuple == null) {
+                return null;
+            }
+            String content = termTuple.term.getContent();
+            if (content.length() >= minLength && content.length() <= maxLength) {
+                if (scratch.length < content.length()) {
+                    scratch = new char[content.length()];
+                }
+                content.getChars(0, content.length(), scratch, 0);
+                if (accept(scratch, 0, content.length())) {
+                    return termTuple;
+                }
+            }
+        }
+    }
+
+    /**
+     * 按与过滤词元组相同的规则检查一个单词，检索时用来判断检索词在建立索引时是否会被过滤掉
+     *
+     * @param word        单词，应当已经按建立索引时的规则转换过大小写
+     * @param minLength   单词的最小长度
+     * @param maxLength   单词的最大长度
+     * @param termPattern 单词必须匹配的正则表达式
+     * @param stopWords   停用词，为空数组时不过滤停用词
+     * @return 单词通过长度、模式和停用词三项检查时返回true
+     */
+    public static boolean accept(String word, int minLength, int maxLength, String termPattern, String[] stopWords) {
+        return accept(word.toCharArray(), 0, word.length(), minLength, maxLength,
+                ASCII_LETTERS.equals(termPattern) ? null : pattern(termPattern), stopWordTable(stopWords));
+    }
+
+    /**
+     * 判断chars[offset, offset + length)是否通过长度、模式和停用词三项检查
+     */
+    private boolean accept(char[] chars, int offset, int length) {
+        return accept(chars, offset, length, minLength, maxLength, pattern, stopWords);
+    }
+
+    private static boolean accept(char[] chars, int offset, int length, int minLength, int maxLength,
+                                  Pattern pattern, StopWordTable stopWords) {
+        if (length < minLength || length > maxLength) {
+            return false;
+        }
+        int hash = 0;
+        if (pattern == null) {
+            for (int i = offset; i < offset + length; i++) {
+                char c = chars[i];
+                // 把第5位置1后落在'a'到'z'之间的只有大小写ASCII字母
+                int lower = c | 0x20;
+                if (lower < 'a' || lower > 'z') {
+                    return false;
+                }
+                hash = 31 * hash + c;
+            }
+        } else {
+            if (!pattern.matcher(CharBuffer.wrap(chars, offset, length)).matches()) {
+                return false;
+            }
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + chars[i];
+            }
+        }
+        return !stopWords.contains(chars, offset, length, hash);
+    }
+
+    private static Pattern pattern(String regex) {
+        Pattern cached = patternCache;
+        if (cached == null || !cached.pattern().equals(regex)) {
+            cached = Pattern.compile(regex);
+            patternCache = cached;
+        }
+        return cached;
+    }
+
+    private static StopWordTable stopWordTable(String[] words) {
+        StopWordTable cached = stopWordCache;
+        if (cached == null || !Arrays.equals(cached.words, words)) {
+            cached = new StopWordTable(words.clone());
+            stopWordCache = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * 停用词的完美哈希表：表长为2的幂，下标为String.hashCode乘以一个奇数后的高位，
+     * 构造时尝试不同的乘数，直到所有停用词的下标互不相同，因此查找时最多比较一个词
+     */
+    private static final class StopWordTable {
+        private final String[] words;
+        private final char[][] table;
+        private final int multiplier;
+        private final int shift;
+
+        StopWordTable(String[] words) {
+            this.words = words;
+            String[] distinct = Arrays.stream(words).distinct().toArray(String[]::new);
+            Random random = new Random(42);
+            for (int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, distinct.length)) + 2; ; bits++) {
+                int[] slots = new int[1 << bits];
+                for (int attempt = 0; attempt < 1000; attempt++) {
+                    int candidate = random.nextInt() | 1;
+                    Arrays.fill(slots, -1);
+                    boolean perfect = true;
+                    for (int i = 0; i < distinct.length && perfect; i++) {
+                        int slot = (distinct[i].hashCode() * candidate) >>> (32 - bits);
+                        perfect = slots[slot] < 0;
+                        slots[slot] = i;
+                    }
+                    if (perfect) {
+                        this.table = new char[1 << bits][];
+                        for (int slot = 0; slot < slots.length; slot++) {
+                            if (slots[slot] >= 0) {
+                                table[slot] = distinct[slots[slot]].toCharArray();
+                            }
+                        }
+                        this.multiplier = candidate;
+                        this.shift = 32 - bits;
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * 判断chars[offset, offset + length)是否是停用词，hash是这些字符按String.hashCode计算的哈希值
+         */
+        boolean contains(char[] chars, int offset, int length, int hash) {
+            char[] word = table[(hash * multiplier) >>> shift];
+            return word != null && Arrays.equals(word, 0, word.length, chars, offset, offset + length);
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package hust.cs.javacourse.search.parse.impl;
+
+/**
+ * PorterStemmer类实现Porter词干提取算法(M.F. Porter, An algorithm for suffix stripping, 1980)，
+ * 规则与Porter发布的参考实现相同，例如 relational → relat，hopping → hop，generalizations → gener。
+ * <p>
+ * 只处理全部由小写ASCII字母组成、长度大于2的单词，其他单词原样返回。
+ * 在可重复使用的字符数组上原地修改，不分配中间字符串；对象保存处理中的状态，不能被多个线程共享。
+ *
+ * @author 晋晨曦
+ */
+public class PorterStemmer {
+    private char[] b = new char[32];
+    /**
+     * 当前单词最后一个字符的下标
+     */
+    private int k;
+    /**
+     * ends匹配成功后，后缀之前最后一个字符的下标
+     */
+    private int j;
+
+    /**
+     * 返回单词的词干
+     *
+     * @param word 单词
+     * @return 词干，单词不需要处理或没有变化时返回原来的字符串
+     */
+    public String stem(String word) {
+        int length = word.length();
+        if (length <= 2) {
+            return word;
+        }
+        if (b.length < length) {
+            b = new char[Math.max(length, b.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            if (c < 'a' || c > 'z') {
+                return word;
+            }
+            b[i] = c;
+        }
+        k = length - 1;
+        step1ab();
+        step1c();
+        step2();
+        step3();
+        step4();
+        step5();
+        if (k + 1 == length) {
+            boolean same = true;
+            for (int i = 0; i < length && same; i++) {
+                same = b[i] == word.charAt(i);
+            }
+            if (same) {
+                return word;
+            }
+        }
+        return new String(b, 0, k + 1);
+    }
+
+    /**
+     * b[i]是否是辅音字母：y前面是辅音(或在开头)时也算辅音
+     */
+    private boolean cons(int i) {
+        switch (b[i]) {
+            case 'a':
+            case 'e':
+            case 'i':
+            case 'o':
+            case 'u':
+                return false;
+            case 'y':
+                return i == 0 || !cons(i - 1);
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * b[0..j]中"元音序列+辅音序列"出现的次数，即算法中的m
+     */
+    private int m() {
+        int n = 0;
+        int i = 0;
+        while (true) {
+            if (i > j) {
+                return n;
+            }
+            if (!cons(i)) {
+                break;
+            }
+            i++;
+        }
+        i++;
+        while (true) {
+            while (true) {
+                if (i > j) {
+                    return n;
+                }
+                if (cons(i)) {
+                    break;
+                }
+                i++;
+            }
+            i++;
+            n++;
+            while (true) {
+                if (i > j) {
+                    return n;
+                }
+                if (!cons(i)) {
+                    break;
+                }
+                i++;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * b[0..j]中是否有元音
+     */
+    private boolean vowelInStem() {
+        for (int i = 0; i <= j; i++) {
+            if (!cons(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * b[i-1..i]是否是两个相同的辅音
+     */
+    private boolean doubleC(int i) {
+        return i >= 1 && b[i] == b[i - 1] && cons(i);
+    }
+
+    /**
+     * b[i-2..i]是否是"辅音-元音-辅音"并且最后的辅音不是w、x、y，例如hop、cav，用来判断是否需要补上e
+     */
+    private boolean cvc(int i) {
+        if (i < 2 || !cons(i) || cons(i - 1) || !cons(i - 2)) {
+            return false;
+        }
+        char c = b[i];
+        return c != 'w' && c != 'x' && c != 'y';
+    }
+
+    /**
+     * b[0..k]是否以s结尾，是则把j设为后缀之前的下标
+     */
+    private boolean ends(String s) {
+        int length = s.length();
+        int offset = k - length + 1;
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (b[offset + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        j = k - length;
+        return true;
+    }
+
+    /**
+     * 把b[j+1..k]替换为s
+     */
+    private void setTo(String s) {
+        int length = s.length();
+        s.getChars(0, length, b, j + 1);
+        k = j + length;
+    }
+
+    /**
+     * m大于0时把后缀替换为s
+     */
+    private void replace(String s) {
+        if (m() > 0) {
+            setTo(s);
+        }
+    }
+
+    /**
+     * 去掉复数和-ed、-ing：caresses → caress，ponies → poni，agreed → agree，hopping → hop，filing → file
+     */
+    private void step1ab() {
+        if (b[k] == 's') {
+            if (ends("sses")) {
+                k -= 2;
+            } else if (ends("ies")) {
+                setTo("i");
+            } else if (b[k - 1] != 's') {
+                k--;
+            }
+        }
+        if (ends("eed")) {
+            if (m() > 0) {
+                k--;
+            }
+        } else if ((ends("ed") || ends("ing")) && vowelInStem()) {
+            k = j;
+            if (ends("at")) {
+                setTo("ate");
+            } else if (ends("bl")) {
+                setTo("ble");
+            } else if (ends("iz")) {
+                setTo("ize");
+            } else if (doubleC(k)) {
+                k--;
+                char c = b[k];
+                if (c == 'l' || c == 's' || c == 'z') {
+                    k++;
+                }
+            } else if (m() == 1 && cvc(k)) {
+                setTo("e");
+            }
+        }
+    }
+
+    /**
+     * 词干中有元音时把结尾的y换成i：happy → happi
+     */
+    private void step1c() {
+        if (ends("y") && vowelInStem()) {
+            b[k] = 'i';
+        }
+    }
+
+    /**
+     * 把双重后缀换成单一后缀：relational → relate，digitizer → digitize
+     */
+    private void step2() {
+        if (k == 0) {
+            return;
+        }
+        switch (b[k - 1]) {
+            case 'a':
+                if (ends("ational")) {
+                    replace("ate");
+                } else if (ends("tional")) {
+                    replace("tion");
+                }
+                break;
+            case 'c':
+                if (ends("enci")) {
+                    replace("ence");
+                } else if (ends("anci")) {
+                    replace("ance");
+                }
+                break;
+            case 'e':
+                if (ends("izer")) {
+                    replace("ize");
+                }
+                break;
+            case 'l':
+                if (ends("bli")) {
+                    replace("ble");
+                } else if (ends("alli")) {
+                    replace("al");
+                } else if (ends("entli")) {
+                    replace("ent");
+                } else if (ends("eli")) {
+                    replace("e");
+                } else if (ends("ousli")) {
+                    replace("ous");
+                }
+                break;
+            case 'o':
+                if (ends("ization")) {
+                    replace("ize");
+                } else if (ends("ation")) {
+                    replace("ate");
+                } else if (ends("ator")) {
+                    replace("ate");
+                }
+                break;
+            case 's':
+                if (ends("alism")) {
+                    replace("al");
+                } else if (ends("iveness")) {
+                    replace("ive");
+                } else if (ends("fulness")) {
+                    replace("ful");
+                } else if (ends("ousness")) {
+                    replace("ous");
+                }
+                break;
+            case 't':
+                if (ends("aliti")) {
+                    replace("al");
+                } else if (ends("iviti")) {
+                    replace("ive");
+                } else if (ends("biliti")) {
+                    replace("ble");
+                }
+                break;
+            case 'g':
+                if (ends("logi")) {
+                    replace("log");
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 处理-ic-、-full、-ness等后缀：triplicate → triplic，hopeful → hope，goodness → good
+     */
+    private void step3() {
+        switch (b[k]) {
+            case 'e':
+                if (ends("icate")) {
+                    replace("ic");
+                } else if (ends("ative")) {
+                    replace("");
+                } else if (ends("alize")) {
+                    replace("al");
+                }
+                break;
+            case 'i':
+                if (ends("iciti")) {
+                    replace("ic");
+                }
+                break;
+            case 'l':
+                if (ends("ical")) {
+                    replace("ic");
+                } else if (ends("ful")) {
+                    replace("");
+                }
+                break;
+            case 's':
+                if (ends("ness")) {
+                    replace("");
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * m大于1时去掉-ant、-ence等后缀：revival → reviv，adjustment → adjust
+     */
+    private void step4() {
+        if (k == 0) {
+            return;
+        }
+        boolean found;
+        switch (b[k - 1]) {
+            case 'a':
+                found = ends("al");
+                break;
+            case 'c':
+                found = ends("ance") || ends("ence");
+                break;
+            case 'e':
+                found = ends("er");
+                break;
+            case 'i':
+                found = ends("ic");
+                break;
+            case 'l':
+                found = ends("able") || ends("ible");
+                break;
+            case 'n':
+                found = ends("ant") || ends("ement") || ends("ment") || ends("ent");
+                break;
+            case 'o':
+                found = (ends("ion") && j >= 0 && (b[j] == 's' || b[j] == 't')) || ends("ou");
+                break;
+            case 's':
+                found = ends("ism");
+                break;
+            case 't':
+                found = ends("ate") || ends("iti");
+                break;
+            case 'u':
+                found = ends("ous");
+                break;
+            case 'v':
+                found = ends("ive");
+                break;
+            case 'z':
+                found = ends("ize");
+                break;
+            default:
+                found = false;
+                break;
+        }
+        if (found && m() > 1) {
+            k = j;
+        }
+    }
+
+    /**
+     * 去掉结尾的e，把结尾的ll变成l：probate → probat，controll → control
+     */
+    private void step5() {
+        j = k;
+        if (b[k] == 'e') {
+            int a = m();
+            if (a > 1 || a == 1 && !cvc(k - 1)) {
+                k--;
+            }
+        }
+        if (b[k] == 'l' && doubleC(k) && m() > 1) {
+            k--;
+        }
+    }
+}
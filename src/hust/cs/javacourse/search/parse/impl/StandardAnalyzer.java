@@ -0,0 +1,228 @@
+package hust.cs.javacourse.search.parse.impl;
+
+import hust.cs.javacourse.search.parse.AbstractAnalyzer;
+import hust.cs.javacourse.search.parse.AbstractTermTupleStream;
+import hust.cs.javacourse.search.util.Config;
+import hust.cs.javacourse.search.util.StopWords;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+/**
+ * StandardAnalyzer类是AbstractAnalyzer的具体实现，由FastTermTupleScanner切分文件、FusedTermTupleFilter过滤长度、模式和停用词，
+ * 开启词干提取时再由StemTermTupleFilter把每个单词替换为Porter词干。
+ * <p>
+ * 无参构造函数取Config中的当前设置，withXxx方法返回修改了一项设置的新分析器，对象本身不可变。
+ * 描述字符串的第一行是"standard"，之后每行一项"名称=值"，fromSpec可以由描述还原出分析器。
+ * 停用词只记录是否使用StopWords.STOP_WORDS，切分和过滤用的正则表达式不能包含换行符。
+ *
+ * @author 晋晨曦
+ */
+public class StandardAnalyzer extends AbstractAnalyzer {
+    private static final String NAME = "standard";
+    private static final String PORTER = "porter";
+    private static final String NONE = "none";
+
+    private final boolean ignoreCase;
+    private final String splitterRegex;
+    private final String termPattern;
+    private final int minLength;
+    private final int maxLength;
+    private final boolean stopWords;
+    private final boolean stemming;
+
+    /**
+     * 构造函数，使用Config中的当前设置和StopWords中的停用词
+     */
+    public StandardAnalyzer() {
+        this(Config.IGNORE_CASE, Config.STRING_SPLITTER_REGEX, Config.TERM_FILTER_PATTERN,
+                Config.TERM_FILTER_MINLENGTH, Config.TERM_FILTER_MAXLENGTH, true, Config.STEMMING);
+    }
+
+    private StandardAnalyzer(boolean ignoreCase, String splitterRegex, String termPattern,
+                             int minLength, int maxLength, boolean stopWords, boolean stemming) {
+        if (splitterRegex.indexOf('\n') >= 0 || termPattern.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("正则表达式不能包含换行符");
+        }
+        this.ignoreCase = ignoreCase;
+        this.splitterRegex = splitterRegex;
+        this.termPattern = termPattern;
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.stopWords = stopWords;
+        this.stemming = stemming;
+    }
+
+    /**
+     * 返回只修改是否忽略大小写的新分析器
+     *
+     * @param ignoreCase 是否把单词转为小写
+     * @return 新的分析器
+     */
+    public StandardAnalyzer withIgnoreCase(boolean ignoreCase) {
+        return new StandardAnalyzer(ignoreCase, splitterRegex, termPattern, minLength, maxLength, stopWords, stemming);
+    }
+
+    /**
+     * 返回只修改单词长度范围的新分析器
+     *
+     * @param minLength 单词的最小长度
+     * @param maxLength 单词的最大长度
+     * @return 新的分析器
+     */
+    public StandardAnalyzer withLength(int minLength, int maxLength) {
+        return new StandardAnalyzer(ignoreCase, splitterRegex, termPattern, minLength, maxLength, stopWords, stemming);
+    }
+
+    /**
+     * 返回只修改单词过滤正则表达式的新分析器
+     *
+     * @param termPattern 单词必须匹配的正则表达式
+     * @return 新的分析器
+     */
+    public StandardAnalyzer withTermPattern(String termPattern) {
+        return new StandardAnalyzer(ignoreCase, splitterRegex, termPattern, minLength, maxLength, stopWords, stemming);
+    }
+
+    /**
+     * 返回只修改是否过滤停用词的新分析器
+     *
+     * @param stopWords 是否过滤StopWords.STOP_WORDS中的停用词
+     * @return 新的分析器
+     */
+    public StandardAnalyzer withStopWords(boolean stopWords) {
+        return new StandardAnalyzer(ignoreCase, splitterRegex, termPattern, minLength, maxLength, stopWords, stemming);
+    }
+
+    /**
+     * 返回只修改是否提取词干的新分析器
+     *
+     * @param stemming 是否用Porter算法提取词干
+     * @return 新的分析器
+     */
+    public StandardAnalyzer withStemming(boolean stemming) {
+        return new StandardAnalyzer(ignoreCase, splitterRegex, termPattern, minLength, maxLength, stopWords, stemming);
+    }
+
+    /**
+     * 是否提取词干
+     *
+     * @return 开启词干提取时返回true
+     */
+    public boolean isStemming() {
+        return stemming;
+    }
+
+    /**
+     * 为给定的文件构造经过切分、过滤和(可选的)词干提取的三元组流
+     *
+     * @param file 文本文件
+     * @return 文件对应的三元组流
+     */
+    @Override
+    public AbstractTermTupleStream termTupleStream(File file) {
+        try {
+            // 装饰者模式实例化termTupleStream
+            AbstractTermTupleStream stream = new FusedTermTupleFilter(new FastTermTupleScanner(file, splitterRegex, ignoreCase),
+                    minLength, maxLength, termPattern, stopWords ? StopWords.STOP_WORDS : new String[0]);
+            return stemming ? new StemTermTupleFilter(stream) : stream;
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 按建立索引时的顺序处理检索词：忽略大小写时转为小写，再做长度、模式和停用词检查，开启词干提取时最后提取词干
+     *
+     * @param word 检索词
+     * @return 规范化后的单词，建立索引时会被过滤掉的单词返回null
+     */
+    @Override
+    public String normalize(String word) {
+        String normalized = ignoreCase ? word.toLowerCase() : word;
+        if (!FusedTermTupleFilter.accept(normalized, minLength, maxLength, termPattern,
+                stopWords ? StopWords.STOP_WORDS : new String[0])) {
+            return null;
+        }
+        return stemming ? new PorterStemmer().stem(normalized) : normalized;
+    }
+
+    /**
+     * 返回描述分析器全部设置的字符串
+     *
+     * @return 分析器的描述
+     */
+    @Override
+    public String getSpec() {
+        return NAME
+                + "\nignoreCase=" + ignoreCase
+                + "\nsplitter=" + splitterRegex
+                + "\npattern=" + termPattern
+                + "\nminLength=" + minLength
+                + "\nmaxLength=" + maxLength
+                + "\nstopWords=" + stopWords
+                + "\nstemmer=" + (stemming ? PORTER : NONE);
+    }
+
+    /**
+     * 由getSpec返回的描述还原出分析器
+     *
+     * @param spec 分析器的描述
+     * @return 分析器，spec为null或空字符串(索引没有保存分析器)时返回null
+     * @throws IllegalArgumentException 不认识的描述
+     */
+    public static StandardAnalyzer fromSpec(String spec) {
+        if (spec == null || spec.isEmpty()) {
+            return null;
+        }
+        String[] lines = spec.split("\n", -1);
+        if (!lines[0].equals(NAME)) {
+            throw new IllegalArgumentException("不认识的分析器: " + lines[0]);
+        }
+        StandardAnalyzer analyzer = new StandardAnalyzer();
+        boolean ignoreCase = analyzer.ignoreCase;
+        String splitterRegex = analyzer.splitterRegex;
+        String termPattern = analyzer.termPattern;
+        int minLength = analyzer.minLength;
+        int maxLength = analyzer.maxLength;
+        boolean stopWords = analyzer.stopWords;
+        boolean stemming = analyzer.stemming;
+        for (int i = 1; i < lines.length; i++) {
+            int eq = lines[i].indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("分析器描述格式错误: " + lines[i]);
+            }
+            String key = lines[i].substring(0, eq);
+            String value = lines[i].substring(eq + 1);
+            switch (key) {
+                case "ignoreCase":
+                    ignoreCase = Boolean.parseBoolean(value);
+                    break;
+                case "splitter":
+                    splitterRegex = value;
+                    break;
+                case "pattern":
+                    termPattern = value;
+                    break;
+                case "minLength":
+                    minLength = Integer.parseInt(value);
+                    break;
+                case "maxLength":
+                    maxLength = Integer.parseInt(value);
+                    break;
+                case "stopWords":
+                    stopWords = Boolean.parseBoolean(value);
+                    break;
+                case "stemmer":
+                    if (!value.equals(PORTER) && !value.equals(NONE)) {
+                        throw new IllegalArgumentException("不认识的词干提取算法: " + value);
+                    }
+                    stemming = value.equals(PORTER);
+                    break;
+                default:
+                    throw new IllegalArgumentException("不认识的分析器设置: " + key);
+            }
+        }
+        return new StandardAnalyzer(ignoreCase, splitterRegex, termPattern, minLength, maxLength, stopWords, stemming);
+    }
+}
@@ -0,0 +1,39 @@
+package hust.cs.javacourse.search.parse.impl;
+
+import hust.cs.javacourse.search.index.AbstractTermTuple;
+import hust.cs.javacourse.search.parse.AbstractTermTupleFilter;
+import hust.cs.javacourse.search.parse.AbstractTermTupleStream;
+
+/**
+ * StemTermTupleFilter类是AbstractTermTupleFilter的具体实现，用PorterStemmer把输入流中每个词元组的单词替换为它的词干。
+ * 它不丢弃任何词元组，位置保持不变。当输入流读取完毕时，next方法将返回null。
+ *
+ * @author 晋晨曦
+ */
+public class StemTermTupleFilter extends AbstractTermTupleFilter {
+    private final PorterStemmer stemmer = new PorterStemmer();
+
+    /**
+     * 构造函数，接收一个AbstractTermTupleStream对象作为输入流
+     *
+     * @param input AbstractTermTupleStream对象，应该关联到一个文本文件
+     */
+    public StemTermTupleFilter(AbstractTermTupleStream input) {
+        super(input);
+    }
+
+    /**
+     * 从输入流中读取下一个词元组，把其中的单词替换为词干后返回。
+     * 如果输入流已经读取完毕，那么返回null。
+     *
+     * @return 下一个词元组，如果输入流已经读取完毕，那么返回null
+     */
+    @Override
+    public AbstractTermTuple next() {
+        AbstractTermTuple termTuple = input.next();
+        if (termTuple != null) {
+            termTuple.term.setContent(stemmer.stem(termTuple.term.getContent()));
+        }
+        return termTuple;
+    }
+}
@@ -22,6 +22,7 @@ public class TermTupleScanner extends AbstractTermTupleScanner {
 
     private StringSplitter splitter;
     private List<String> words;
+    private int next = 0;
     private int pos = 0;
 
     /**
@@ -44,14 +45,14 @@ public class TermTupleScanner extends AbstractTermTupleScanner {
 
     /**
      * 从输入流中读取下一个词元组，如果输入流已经读取完毕，那么返回null。
-     * 在读取词元组时，首先检查words列表是否为空，如果为空，那么读取输入流的下一行并将其分割为词元组。
-     * 然后，从words列表中移除并返回第一个词元组。
+     * 在读取词元组时，首先检查words列表中是否还有没有返回的单词，如果没有，那么读取输入流的下一行并将其分割为单词。
+     * 然后，返回words列表中的下一个单词，不从列表头部移除元素，避免每次移动整个列表。
      *
      * @return 下一个词元组，如果输入流已经读取完毕，那么返回null
      */
     @Override
     public AbstractTermTuple next() {
-        while (words.isEmpty()) {
+        while (next == words.size()) {
             String line = null;
             try {
                 line = input.readLine();
@@ -63,19 +64,17 @@ public class TermTupleScanner extends AbstractTermTupleScanner {
             }
             if (!line.trim().isEmpty()) {
                 words = splitter.splitByRegex(line);
+                next = 0;
+                if (Config.IGNORE_CASE) {
+                    words.replaceAll(String::toLowerCase);
+                }
             }
         }
-        if (Config.IGNORE_CASE) {
-            words.replaceAll(String::toLowerCase);
-        }
-        if (!words.isEmpty()) {
-            String word = words.remove(0);
-            AbstractTermTuple ans = new TermTuple();
-            ans.term = new Term(word);
-            ans.curPos = pos++;
-            return ans;
-        }
-        return null;
+        String word = words.get(next++);
+        AbstractTermTuple ans = new TermTuple();
+        ans.term = new Term(word);
+        ans.curPos = pos++;
+        return ans;
     }
 
 
@@ -0,0 +1,55 @@
+package hust.cs.javacourse.search.query;
+
+import hust.cs.javacourse.search.index.AbstractPosting;
+import hust.cs.javacourse.search.index.AbstractTerm;
+
+import java.util.Map;
+
+/**
+ * <pre>
+ * AbstractDocIterator是文档迭代器的抽象父类，是查询树的执行形式.
+ *      迭代器在有序的PostingList上向前移动，按docId从小到大依次停在每个命中文档上.
+ *      创建后docId()返回-1，第一次调用nextDoc或advance后才停在第一个命中文档上;
+ *      没有更多文档时docId()返回NO_MORE_DOCS.
+ *      迭代器只能向前移动，组合查询的迭代器通过调用子迭代器的advance跳过不可能命中的文档.
+ * </pre>
+ */
+public abstract class AbstractDocIterator {
+    /**
+     * 迭代结束时的docId
+     */
+    public static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    /**
+     * 返回当前停留的文档id
+     * @return ：当前文档id;还没有开始时为-1，结束后为NO_MORE_DOCS
+     */
+    public abstract int docId();
+
+    /**
+     * 移动到下一个命中文档
+     * @return ：下一个命中文档的id;没有时返回NO_MORE_DOCS
+     */
+    public abstract int nextDoc();
+
+    /**
+     * <pre>
+     * 移动到第一个id不小于target的命中文档
+     * @param target ：目标文档id，必须大于当前文档id
+     * @return ：命中文档的id;没有时返回NO_MORE_DOCS
+     * </pre>
+     */
+    public abstract int advance(int target);
+
+    /**
+     * 估计迭代器最多产生的文档个数，组合查询据此决定先移动哪个子迭代器
+     * @return ：文档个数的上界估计
+     */
+    public abstract long cost();
+
+    /**
+     * 把当前文档中命中的检索词及其Posting加入到指定的映射中，用于构造命中结果和计算得分
+     * @param termPostingMapping ：检索词到Posting的映射
+     */
+    public abstract void collect(Map<AbstractTerm, AbstractPosting> termPostingMapping);
+}
@@ -3,7 +3,6 @@ package hust.cs.javacourse.search.query;
 import hust.cs.javacourse.search.index.AbstractPosting;
 import hust.cs.javacourse.search.index.AbstractTerm;
 import hust.cs.javacourse.search.index.AbstractTermTuple;
-import hust.cs.javacourse.search.util.FileUtil;
 
 import java.util.List;
 import java.util.Map;
@@ -25,7 +24,8 @@ public abstract class AbstractHit implements Comparable<AbstractHit>{
      */
     protected String docPath;
     /**
-     * 文档原文内容，显示搜索结果时有用
+     * 文档原文内容，显示搜索结果时有用.
+     * 构造时不读取文件，第一次调用getContent时才通过DocumentContentCache读取，为null表示还没有读取
      */
     protected String content;
     /**
@@ -53,7 +53,6 @@ public abstract class AbstractHit implements Comparable<AbstractHit>{
     public AbstractHit(int docId, String docPath){
         this.docId = docId;
         this.docPath = docPath;
-        this.content = FileUtil.read(docPath);
     }
 
     /**
@@ -66,7 +65,6 @@ public abstract class AbstractHit implements Comparable<AbstractHit>{
         this.docId = docId;
         this.docPath = docPath;
         this.termPostingMapping.putAll(termPostingMapping);
-        this.content = FileUtil.read(docPath);
     }
 
     /**
@@ -82,11 +80,18 @@ public abstract class AbstractHit implements Comparable<AbstractHit>{
     public abstract String getDocPath();
 
     /**
-     * 获得文档内容
+     * 获得文档内容，第一次调用时才读取文件
      * @return ： 文档内容
      */
     public abstract String getContent();
 
+    /**
+     * 获得命中位置附近的摘要，只读取文件中到最后一个命中位置附近为止的部分
+     * @param window ：每个命中位置前后保留的单词个数
+     * @return ：摘要
+     */
+    public abstract String getSnippet(int window);
+
     /**
      * 设置文档内容
      * @param content ：文档内容
@@ -121,7 +126,7 @@ public abstract class AbstractHit implements Comparable<AbstractHit>{
     /**
      * 比较二个命中结果的大小，根据score比较
      * @param o     ：要比较的名字结果
-     * @return      ：二个命中结果得分的差值
+     * @return      ：得分小于、等于、大于o的得分时分别返回负数、0、正数
      */
     @Override
     public abstract int compareTo(AbstractHit o);
@@ -6,7 +6,12 @@ import hust.cs.javacourse.search.index.impl.Index;
 
 /**
  * <pre>
- *  AbstractIndexSearcher是检索具体实现的抽象类
+ *  AbstractIndexSearcher是检索具体实现的抽象类.
+ *      open之后，search方法可以被多个线程同时调用: 检索过程只读取索引，命中结果、迭代器等状态都是每次检索新建的.
+ *      index是volatile字段，一个线程open之后，其他线程调用search时能看到完整打开的索引;
+ *      open得到的索引在检索期间不能被修改(IndexSearcher打开的是不可变的ImmutableIndex或只读的MappedIndex);
+ *      可以增量修改的SegmentedIndex由检索器在每次检索开始时通过AbstractIndex.snapshot取得只读视图.
+ *      排序器如果在多个线程之间共享，也必须是线程安全的.
  * </pre>
  */
 public abstract class AbstractIndexSearcher {
@@ -15,7 +20,7 @@ public abstract class AbstractIndexSearcher {
      */
     //Index是AbstractIndex的具体实现类，在hust.cs.javacourse.search.index.impl里定义，但没有实现任何覆盖方法，需要学生实现
     //如果学生AbstractIndex的具体实现类类名不是Index，这里需要相应修改
-    protected AbstractIndex index = new Index();
+    protected volatile AbstractIndex index = new Index();
     /**
      * 多个检索词的逻辑组合
      */
@@ -35,6 +40,14 @@ public abstract class AbstractIndexSearcher {
      */
     public abstract void open(String indexFile);
 
+    /**
+     * 返回检索的索引. 装饰者返回被装饰的检索器所检索的索引
+     * @return ：检索的索引
+     */
+    public AbstractIndex getIndex() {
+        return index;
+    }
+
     /**
      * 根据单个检索词进行搜索
      * @param queryTerm ：检索词
@@ -54,4 +67,25 @@ public abstract class AbstractIndexSearcher {
      */
     public abstract AbstractHit[] search(AbstractTerm queryTerm1, AbstractTerm queryTerm2, Sort sorter, LogicalCombination combine);
 
+    /**
+     * <pre>
+     * 根据查询树进行搜索，查询树可以由任意多个检索词通过AND、OR、NOT组合而成
+     * @param query  ：查询树的根节点
+     * @param sorter ：排序器
+     * @return ：命中结果数组
+     * </pre>
+     */
+    public abstract AbstractHit[] search(AbstractQuery query, Sort sorter);
+
+    /**
+     * <pre>
+     * 根据查询树进行搜索，只返回得分最高的topK个命中结果
+     * @param query  ：查询树的根节点
+     * @param sorter ：排序器
+     * @param topK   ：返回的命中结果个数上限
+     * @return ：按排序器排好序的至多topK个命中结果
+     * </pre>
+     */
+    public abstract AbstractHit[] search(AbstractQuery query, Sort sorter, int topK);
+
 }
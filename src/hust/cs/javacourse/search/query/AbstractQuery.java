@@ -0,0 +1,27 @@
+package hust.cs.javacourse.search.query;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+
+/**
+ * <pre>
+ * AbstractQuery是查询树中所有节点的抽象父类.
+ *      叶子节点为单个检索词，内部节点为任意多个子查询的AND、OR以及NOT.
+ *      查询本身不保存任何检索结果，检索时由iterator方法在具体索引上创建一个文档迭代器，
+ *      整棵查询树对应一棵迭代器树，按docId从小到大逐个产生命中文档(document-at-a-time)，不生成中间结果数组.
+ * </pre>
+ */
+public abstract class AbstractQuery {
+    /**
+     * 在指定索引上创建按docId递增顺序产生命中文档的迭代器
+     * @param index ：检索的索引
+     * @return ：文档迭代器
+     */
+    public abstract AbstractDocIterator iterator(AbstractIndex index);
+
+    /**
+     * 获得查询的字符串表示
+     * @return ：查询的字符串表示
+     */
+    @Override
+    public abstract String toString();
+}
@@ -1,5 +1,7 @@
 package hust.cs.javacourse.search.query;
 
+import hust.cs.javacourse.search.index.AbstractIndex;
+
 import java.util.List;
 
 /**
@@ -24,4 +26,19 @@ public interface Sort {
      * </pre>
      */
     public  abstract double score(AbstractHit hit);
+
+    /**
+     * <pre>
+     * 返回在给定索引视图上计算得分的排序器.
+     *      检索器在每次检索开始取得索引视图后调用一次，整个检索过程使用返回的排序器.
+     *      得分依赖文档总数、文档长度、文档频率等统计量的排序器应返回绑定到该视图统计量的对象，
+     *      这样检索过程中索引提交了新的修改也不会改变得分和得分上界.
+     *      默认返回排序器本身，适用于得分不依赖索引统计量的排序器.
+     * @param snapshot ：检索使用的索引视图
+     * @return ：在该视图上计算得分的排序器
+     * </pre>
+     */
+    public default Sort forSnapshot(AbstractIndex snapshot) {
+        return this;
+    }
 }
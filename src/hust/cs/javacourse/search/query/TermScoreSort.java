@@ -0,0 +1,42 @@
+package hust.cs.javacourse.search.query;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractTerm;
+
+/**
+ * <pre>
+ * TermScoreSort是得分可以按检索词分解的排序策略.
+ *      文档得分等于每个命中的检索词各自贡献的得分之和，每个检索词的贡献只依赖于该词、文档和它在文档中的出现次数，
+ *      并且出现次数越多贡献越大(不减).
+ *      满足这个约定时，用PostingList记录的最大出现次数就能算出一个检索词在整个列表或一块内的得分上界，
+ *      按得分取前K个结果时可以跳过得分上界之和不可能进入前K的文档(WAND).
+ * </pre>
+ */
+public interface TermScoreSort extends Sort {
+    /**
+     * 计算一个检索词对文档得分的贡献
+     * @param docId ：文档id
+     * @param term  ：检索词
+     * @param freq  ：检索词在文档中的出现次数
+     * @return ：该检索词贡献的得分
+     */
+    public abstract double termScore(int docId, AbstractTerm term, int freq);
+
+    /**
+     * 计算出现次数不超过maxFreq时一个检索词在任意文档中贡献的得分的上界
+     * @param term    ：检索词
+     * @param maxFreq ：最大出现次数
+     * @return ：得分上界，不小于出现次数不超过maxFreq时termScore的返回值
+     */
+    public abstract double termUpperBound(AbstractTerm term, int maxFreq);
+
+    /**
+     * 返回在给定索引视图上计算得分的排序器，得分上界和得分使用同一份统计量
+     * @param snapshot ：检索使用的索引视图
+     * @return ：在该视图上计算得分的排序器
+     */
+    @Override
+    public default TermScoreSort forSnapshot(AbstractIndex snapshot) {
+        return this;
+    }
+}
@@ -0,0 +1,92 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPosting;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * AllDocIterator类按docId顺序遍历索引中的全部文档，作为只有NOT条件的查询的候选集合。
+ *
+ * @author 晋晨曦
+ */
+class AllDocIterator extends AbstractDocIterator {
+    private final int[] docIds;
+    private int index = -1;
+    private int docId = -1;
+
+    /**
+     * 构造函数
+     *
+     * @param index 索引
+     */
+    AllDocIterator(AbstractIndex index) {
+        int[] ids = new int[index.docIdToDocPathMapping.size()];
+        int i = 0;
+        for (int id : index.docIdToDocPathMapping.keySet()) {
+            ids[i++] = id;
+        }
+        Arrays.sort(ids);
+        this.docIds = ids;
+    }
+
+    /**
+     * 返回当前停留的文档id
+     *
+     * @return 当前文档id
+     */
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    /**
+     * 移动到下一个命中文档
+     *
+     * @return 下一个命中文档的id，没有时返回NO_MORE_DOCS
+     */
+    @Override
+    public int nextDoc() {
+        return moveTo(index + 1);
+    }
+
+    /**
+     * 移动到第一个id不小于target的命中文档
+     *
+     * @param target 目标文档id
+     * @return 命中文档的id，没有时返回NO_MORE_DOCS
+     */
+    @Override
+    public int advance(int target) {
+        int found = Arrays.binarySearch(docIds, Math.max(index, 0), docIds.length, target);
+        return moveTo(found >= 0 ? found : -found - 1);
+    }
+
+    private int moveTo(int newIndex) {
+        index = newIndex;
+        docId = index < docIds.length ? docIds[index] : NO_MORE_DOCS;
+        return docId;
+    }
+
+    /**
+     * 估计最多产生的文档个数
+     *
+     * @return 文档个数的上界估计
+     */
+    @Override
+    public long cost() {
+        return docIds.length;
+    }
+
+    /**
+     * 把当前文档中命中的检索词及其Posting加入映射
+     *
+     * @param termPostingMapping 检索词到Posting的映射
+     */
+    @Override
+    public void collect(Map<AbstractTerm, AbstractPosting> termPostingMapping) {
+    }
+}
@@ -0,0 +1,103 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
+import hust.cs.javacourse.search.query.AbstractQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * AndQuery类命中同时满足所有子查询的文档。
+ * 子查询中的NotQuery作为排除条件处理：先求其余子查询的交集，再去掉被排除子查询命中的文档，
+ * 不需要对NOT求补集；如果所有子查询都是NotQuery，则从全部文档中排除。
+ *
+ * @author 晋晨曦
+ */
+public class AndQuery extends AbstractQuery {
+    private final List<AbstractQuery> clauses;
+
+    /**
+     * 构造函数
+     *
+     * @param clauses 子查询
+     */
+    public AndQuery(List<AbstractQuery> clauses) {
+        if (clauses.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个子查询");
+        }
+        this.clauses = Collections.unmodifiableList(new ArrayList<>(clauses));
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param clauses 子查询
+     */
+    public AndQuery(AbstractQuery... clauses) {
+        this(Arrays.asList(clauses));
+    }
+
+    /**
+     * 获取子查询
+     *
+     * @return 子查询列表
+     */
+    public List<AbstractQuery> getClauses() {
+        return clauses;
+    }
+
+    /**
+     * 创建求交集的迭代器，NotQuery子查询转换为排除条件
+     *
+     * @param index 检索的索引
+     * @return 文档迭代器
+     */
+    @Override
+    public AbstractDocIterator iterator(AbstractIndex index) {
+        List<AbstractDocIterator> required = new ArrayList<>();
+        List<AbstractDocIterator> excluded = new ArrayList<>();
+        for (AbstractQuery clause : clauses) {
+            if (clause instanceof NotQuery) {
+                excluded.add(((NotQuery) clause).getClause().iterator(index));
+            } else {
+                required.add(clause.iterator(index));
+            }
+        }
+        AbstractDocIterator iterator;
+        if (required.isEmpty()) {
+            iterator = new AllDocIterator(index);
+        } else if (required.size() == 1) {
+            iterator = required.get(0);
+        } else {
+            iterator = new ConjunctionDocIterator(required);
+        }
+        if (excluded.isEmpty()) {
+            return iterator;
+        }
+        return new ExclusionDocIterator(iterator, excluded.size() == 1 ? excluded.get(0) : new DisjunctionDocIterator(excluded));
+    }
+
+    /**
+     * 返回查询的字符串表示
+     *
+     * @return 查询的字符串表示
+     */
+    @Override
+    public String toString() {
+        return join(clauses, " AND ");
+    }
+
+    static String join(List<AbstractQuery> clauses, String separator) {
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < clauses.size(); i++) {
+            if (i > 0) {
+                builder.append(separator);
+            }
+            builder.append(clauses.get(i));
+        }
+        return builder.append(")").toString();
+    }
+}
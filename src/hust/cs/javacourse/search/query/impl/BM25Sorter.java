@@ -0,0 +1,228 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPosting;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.query.TermScoreSort;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BM25Sorter类按Okapi BM25公式计算命中文档的得分。
+ * <pre>
+ * 每个检索词的贡献为 idf * tf * (k1 + 1) / (tf + k1 * (1 - b + b * dl / avgdl))，
+ * 其中idf = ln(1 + (N - df + 0.5) / (df + 0.5))，N为文档总数，df为文档频率，dl为文档长度，avgdl为平均文档长度.
+ * </pre>
+ * 文档长度和文档频率都是构建索引时保存的统计量：按docId预先算好每个文档的长度归一化项，
+ * 每个检索词的idf在第一次用到时算出并缓存，之后计算得分只需要按下标取数组元素，不需要重新统计。
+ * 这些统计量取自索引某一时刻的只读视图。检索器在每次检索开始时调用forSnapshot，得到绑定到检索所用视图统计量的排序器，
+ * 检索过程中索引提交了新的修改，得分上界和得分仍然来自同一份统计量；
+ * 直接调用的未绑定排序器在索引的版本号改变(例如SegmentedIndex提交了新段)后重新统计。
+ *
+ * @author 晋晨曦
+ */
+public class BM25Sorter implements TermScoreSort {
+    /**
+     * 默认的词频饱和参数k1
+     */
+    public static final double DEFAULT_K1 = 1.2;
+    /**
+     * 默认的文档长度归一化参数b
+     */
+    public static final double DEFAULT_B = 0.75;
+
+    private final AbstractIndex index;
+    private final double k1;
+    private final double b;
+    private volatile Statistics statistics;
+    /**
+     * 为true时统计量固定为构造时给定的一份，不再检查索引的版本号
+     */
+    private final boolean bound;
+
+    /**
+     * 使用默认参数k1 = 1.2、b = 0.75的构造函数
+     *
+     * @param index 提供文档长度和文档频率的索引
+     */
+    public BM25Sorter(AbstractIndex index) {
+        this(index, DEFAULT_K1, DEFAULT_B);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param index 提供文档长度和文档频率的索引
+     * @param k1    词频饱和参数，越大词频的作用越接近线性
+     * @param b     文档长度归一化参数，0表示不考虑文档长度，1表示完全按长度归一化
+     */
+    public BM25Sorter(AbstractIndex index, double k1, double b) {
+        this.index = index;
+        this.k1 = k1;
+        this.b = b;
+        this.statistics = new Statistics(index.snapshot());
+        this.bound = false;
+    }
+
+    /**
+     * 构造绑定到一份统计量的排序器
+     */
+    private BM25Sorter(AbstractIndex index, double k1, double b, Statistics statistics) {
+        this.index = index;
+        this.k1 = k1;
+        this.b = b;
+        this.statistics = statistics;
+        this.bound = true;
+    }
+
+    /**
+     * 返回绑定到给定视图统计量的排序器。视图与已有的统计量相同时直接复用，包括已经算出的idf
+     *
+     * @param snapshot 检索使用的索引视图
+     * @return 绑定到该视图的排序器
+     */
+    @Override
+    public BM25Sorter forSnapshot(AbstractIndex snapshot) {
+        Statistics current = statistics;
+        if (current.view != snapshot || current.version != snapshot.getVersion()) {
+            current = new Statistics(snapshot);
+            if (!bound && snapshot == index.snapshot()) {
+                statistics = current;
+            }
+        }
+        return new BM25Sorter(index, k1, b, current);
+    }
+
+    /**
+     * 返回计算得分用的统计量：绑定的排序器返回固定的一份，否则在索引的版本号改变后重新统计
+     *
+     * @return 统计量
+     */
+    private Statistics statistics() {
+        Statistics current = statistics;
+        if (!bound && current.version != index.getVersion()) {
+            current = new Statistics(index.snapshot());
+            statistics = current;
+        }
+        return current;
+    }
+
+    /**
+     * 按得分从高到低排序
+     *
+     * @param hits 命中结果列表
+     */
+    @Override
+    public void sort(List<AbstractHit> hits) {
+        hits.sort(Collections.reverseOrder());
+    }
+
+    /**
+     * 计算命中文档的得分，即每个命中检索词的BM25贡献之和
+     *
+     * @param hit 命中结果
+     * @return 得分
+     */
+    @Override
+    public double score(AbstractHit hit) {
+        double score = 0;
+        for (Map.Entry<AbstractTerm, AbstractPosting> entry : hit.getTermPostingMapping().entrySet()) {
+            score += termScore(hit.getDocId(), entry.getKey(), entry.getValue().getFreq());
+        }
+        return score;
+    }
+
+    /**
+     * 计算一个检索词的BM25贡献
+     *
+     * @param docId 文档id
+     * @param term  检索词
+     * @param freq  检索词在文档中的出现次数
+     * @return 该检索词贡献的得分
+     */
+    @Override
+    public double termScore(int docId, AbstractTerm term, int freq) {
+        Statistics current = statistics();
+        double norm = docId < current.lengthNorms.length ? current.lengthNorms[docId] : k1;
+        return current.idf(term) * freq * (k1 + 1) / (freq + norm);
+    }
+
+    /**
+     * 出现次数不超过maxFreq时贡献的上界，用最短文档的长度归一化项计算
+     *
+     * @param term    检索词
+     * @param maxFreq 最大出现次数
+     * @return 得分上界
+     */
+    @Override
+    public double termUpperBound(AbstractTerm term, int maxFreq) {
+        Statistics current = statistics();
+        return current.idf(term) * maxFreq * (k1 + 1) / (maxFreq + current.minLengthNorm);
+    }
+
+    /**
+     * 返回检索词的idf，第一次用到时由索引保存的文档频率计算
+     *
+     * @param term 检索词
+     * @return idf
+     */
+    public double idf(AbstractTerm term) {
+        return statistics().idf(term);
+    }
+
+    /**
+     * 索引某一版本的统计量：文档总数、每个文档的长度归一化项和已经算出的idf
+     */
+    private final class Statistics {
+        private final AbstractIndex view;
+        private final long version;
+        private final int docCount;
+        private final double[] lengthNorms;
+        private final double minLengthNorm;
+        private final Map<AbstractTerm, Double> idfs = new ConcurrentHashMap<>();
+
+        /**
+         * 由索引的只读视图统计
+         *
+         * @param view 索引的只读视图
+         */
+        private Statistics(AbstractIndex view) {
+            this.view = view;
+            this.version = view.getVersion();
+            this.docCount = view.docIdToDocPathMapping.size();
+            double averageLength = view.getAverageDocLength();
+            int maxDocId = -1;
+            for (int docId : view.docIdToDocPathMapping.keySet()) {
+                maxDocId = Math.max(maxDocId, docId);
+            }
+            this.lengthNorms = new double[maxDocId + 1];
+            double min = k1;
+            for (int docId : view.docIdToDocPathMapping.keySet()) {
+                double ratio = averageLength > 0 ? view.getDocLength(docId) / averageLength : 1;
+                lengthNorms[docId] = k1 * (1 - b + b * ratio);
+                min = Math.min(min, lengthNorms[docId]);
+            }
+            this.minLengthNorm = min;
+        }
+
+        /**
+         * 返回检索词的idf，第一次用到时由视图保存的文档频率计算
+         *
+         * @param term 检索词
+         * @return idf
+         */
+        private double idf(AbstractTerm term) {
+            Double idf = idfs.get(term);
+            if (idf == null) {
+                int df = view.getDocFreq(term);
+                idf = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+                idfs.put(term, idf);
+            }
+            return idf;
+        }
+    }
+}
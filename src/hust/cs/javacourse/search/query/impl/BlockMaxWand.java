@@ -0,0 +1,179 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
+import hust.cs.javacourse.search.query.TermScoreSort;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * BlockMaxWand类对多个检索词的OR查询按得分取前K个结果，跳过不可能进入前K的文档(Block-Max WAND)。
+ * <p>
+ * 每个检索词一个游标，游标按当前docId排列。依次累加各游标的得分上界(由整个列表的最大出现次数算出)，
+ * 第一个使累加值超过当前第K名得分的游标所在的文档称为枢轴(pivot)：比它小的文档即使包含前面所有检索词也进不了前K，
+ * 前面的游标可以直接跳到枢轴。再用各游标所在块的最大出现次数求一个更紧的上界，
+ * 仍不超过第K名得分时整段跳到最近的块边界之后，否则才真正计算枢轴文档的得分。
+ * <p>
+ * 要求排序策略满足TermScoreSort的约定，得分与逐个文档计算得到的完全相同。
+ *
+ * @author 晋晨曦
+ */
+class BlockMaxWand {
+    private static final int NO_MORE_DOCS = AbstractDocIterator.NO_MORE_DOCS;
+
+    private final TermScoreSort sorter;
+    private final AbstractTerm[] terms;
+    private final AbstractPostingList[] postingLists;
+    private final double[] maxScores;
+    /**
+     * 每个游标在自己PostingList中的下标
+     */
+    private final int[] positions;
+    /**
+     * 按当前docId从小到大排列的游标编号，前live个是还没有走完的游标
+     */
+    private final int[] order;
+    private int live;
+
+    /**
+     * 构造函数
+     *
+     * @param index  索引
+     * @param terms  检索词，重复的检索词只计算一次，索引中没有的检索词忽略
+     * @param sorter 排序策略
+     */
+    BlockMaxWand(AbstractIndex index, Collection<AbstractTerm> terms, TermScoreSort sorter) {
+        this.sorter = sorter;
+        List<AbstractTerm> found = new ArrayList<>();
+        List<AbstractPostingList> lists = new ArrayList<>();
+        for (AbstractTerm term : new LinkedHashSet<>(terms)) {
+            AbstractPostingList postingList = index.search(term);
+            if (postingList != null && postingList.size() > 0) {
+                found.add(term);
+                lists.add(postingList);
+            }
+        }
+        this.terms = found.toArray(new AbstractTerm[0]);
+        this.postingLists = lists.toArray(new AbstractPostingList[0]);
+        this.maxScores = new double[this.terms.length];
+        this.positions = new int[this.terms.length];
+        this.order = new int[this.terms.length];
+        for (int i = 0; i < this.terms.length; i++) {
+            maxScores[i] = sorter.termUpperBound(this.terms[i], postingLists[i].maxFreq());
+            order[i] = i;
+        }
+        this.live = this.terms.length;
+    }
+
+    /**
+     * 计算可能进入前K的文档的得分，放入collector
+     *
+     * @param collector 保留前K个文档的最小堆
+     */
+    void collect(TopKCollector collector) {
+        while (true) {
+            sortCursors();
+            if (live == 0) {
+                return;
+            }
+            double threshold = collector.minCompetitiveScore();
+            double bound = 0;
+            int pivot = -1;
+            for (int i = 0; i < live; i++) {
+                bound += maxScores[order[i]];
+                if (bound > threshold) {
+                    pivot = i;
+                    break;
+                }
+            }
+            if (pivot < 0) {
+                // 所有检索词的上界之和都不超过第K名，后面的文档不可能再进入前K
+                return;
+            }
+            int pivotDoc = docId(order[pivot]);
+            while (pivot + 1 < live && docId(order[pivot + 1]) == pivotDoc) {
+                pivot++;
+            }
+
+            // 小于pivotDoc的文档不可能进入前K，前面的游标直接跳到pivotDoc，同时求所在块的得分上界
+            double blockBound = 0;
+            double pivotBound = 0;
+            int next = pivot + 1 < live ? docId(order[pivot + 1]) : NO_MORE_DOCS;
+            for (int i = 0; i <= pivot; i++) {
+                int cursor = order[i];
+                AbstractPostingList postingList = postingLists[cursor];
+                int at = postingList.advance(positions[cursor], pivotDoc);
+                positions[cursor] = at;
+                if (at == postingList.size()) {
+                    continue;
+                }
+                double blockMax = sorter.termUpperBound(terms[cursor], postingList.blockMaxFreq(at));
+                blockBound += blockMax;
+                if (postingList.docIdAt(at) == pivotDoc) {
+                    pivotBound += blockMax;
+                }
+                int blockLast = postingList.docIdAt(postingList.blockEnd(at) - 1);
+                next = Math.min(next, blockLast + 1);
+            }
+
+            if (blockBound > threshold) {
+                if (pivotBound > threshold) {
+                    double score = 0;
+                    for (int i = 0; i <= pivot; i++) {
+                        int cursor = order[i];
+                        if (docId(cursor) == pivotDoc) {
+                            score += sorter.termScore(pivotDoc, terms[cursor], postingLists[cursor].freqAt(positions[cursor]));
+                        }
+                    }
+                    collector.collect(pivotDoc, score);
+                }
+                for (int i = 0; i <= pivot; i++) {
+                    int cursor = order[i];
+                    if (docId(cursor) == pivotDoc) {
+                        positions[cursor]++;
+                    }
+                }
+            } else {
+                // [pivotDoc, next)内的文档得分都不超过块上界之和，整段跳过
+                for (int i = 0; i <= pivot; i++) {
+                    int cursor = order[i];
+                    positions[cursor] = postingLists[cursor].advance(positions[cursor], next);
+                }
+            }
+        }
+    }
+
+    /**
+     * 返回游标当前的docId，走完时返回NO_MORE_DOCS
+     */
+    private int docId(int cursor) {
+        int position = positions[cursor];
+        AbstractPostingList postingList = postingLists[cursor];
+        return position < postingList.size() ? postingList.docIdAt(position) : NO_MORE_DOCS;
+    }
+
+    /**
+     * 按当前docId对游标插入排序，并把走完的游标移出前live个。
+     * 检索词通常只有几个，每轮又只有少数游标移动，插入排序几乎是线性的。
+     */
+    private void sortCursors() {
+        for (int i = 1; i < live; i++) {
+            int cursor = order[i];
+            int docId = docId(cursor);
+            int j = i - 1;
+            while (j >= 0 && docId(order[j]) > docId) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = cursor;
+        }
+        while (live > 0 && docId(order[live - 1]) == NO_MORE_DOCS) {
+            live--;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.query.AbstractIndexSearcher;
+import hust.cs.javacourse.search.query.AbstractQuery;
+import hust.cs.javacourse.search.query.Sort;
+import hust.cs.javacourse.search.util.Config;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * CachingIndexSearcher类是AbstractIndexSearcher的装饰者实现，缓存被装饰的检索器返回的检索结果。
+ * <p>
+ * 缓存的键由规范化的查询、排序器和逻辑组合方式组成：检索词取其内容，OR组合的两个检索词按字典序排列
+ * (AND组合在IndexPhraseSearcher中表示短语，顺序有意义，不交换)，查询树取其字符串表示，取前K时还包括K。
+ * 排序器按对象本身区分，每次检索都新建排序器对象时缓存不会命中。
+ * <p>
+ * 缓存按最近最少使用(LRU)的顺序淘汰，同时限制缓存的查询个数和估计占用的内存，任意一个超出时淘汰最久未使用的结果。
+ * 每次检索前比较被装饰检索器的索引对象和版本号(AbstractIndex.getVersion)，索引被重新打开或修改过时清空缓存；
+ * 检索期间索引发生变化时，算出的结果不放入缓存。
+ * <p>
+ * 缓存中不保存Hit对象，只保存docId、得分和每个结果命中了哪些检索词，全部是基本类型数组：
+ * 大量长期存活的Hit、映射节点和Posting对象会让每次垃圾回收都变慢，反而拖慢未命中的检索。
+ * 命中缓存时按docId顺序在各检索词的PostingList上前进，重新创建Hit对象，不需要重新求交并集、打分和排序；
+ * 命中超过64个不同检索词的结果和还没有打开索引时的结果不缓存。
+ * <p>
+ * 所有方法都可以被多个线程同时调用，同一个查询同时未命中时各自检索一次。
+ *
+ * @author 晋晨曦
+ */
+public class CachingIndexSearcher extends AbstractIndexSearcher {
+    private final AbstractIndexSearcher searcherInput;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<List<Object>, CachedResult> results = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long invalidationCount;
+    /**
+     * 缓存对应的索引及其版本号
+     */
+    private AbstractIndex cachedIndex;
+    private long cachedVersion;
+    /**
+     * 每次清空缓存后加1，检索前后不同时结果不放入缓存
+     */
+    private long generation;
+
+    /**
+     * 构造函数，缓存大小由Config.QUERY_CACHE_MAX_ENTRIES和Config.QUERY_CACHE_MAX_BYTES指定
+     *
+     * @param searcherInput 被装饰的AbstractIndexSearcher对象
+     */
+    public CachingIndexSearcher(AbstractIndexSearcher searcherInput) {
+        this(searcherInput, Config.QUERY_CACHE_MAX_ENTRIES, Config.QUERY_CACHE_MAX_BYTES);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param searcherInput 被装饰的AbstractIndexSearcher对象
+     * @param maxEntries    最多缓存的查询个数
+     * @param maxBytes      缓存估计占用的最大内存(字节)
+     */
+    public CachingIndexSearcher(AbstractIndexSearcher searcherInput, int maxEntries, long maxBytes) {
+        this.searcherInput = searcherInput;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.cachedIndex = searcherInput.getIndex();
+        this.cachedVersion = cachedIndex == null ? 0 : cachedIndex.getVersion();
+    }
+
+    /**
+     * 打开索引文件并加载索引，同时清空缓存。
+     *
+     * @param indexFile 索引文件的路径
+     */
+    @Override
+    public void open(String indexFile) {
+        searcherInput.open(indexFile);
+        clear();
+    }
+
+    /**
+     * 返回被装饰的检索器所检索的索引。
+     *
+     * @return 检索的索引
+     */
+    @Override
+    public AbstractIndex getIndex() {
+        return searcherInput.getIndex();
+    }
+
+    /**
+     * 根据一个查询词搜索索引，优先返回缓存的结果。
+     *
+     * @param queryTerm 查询词
+     * @param sorter    排序器
+     * @return 排序后的命中结果
+     */
+    @Override
+    public AbstractHit[] search(AbstractTerm queryTerm, Sort sorter) {
+        return cached(Arrays.asList("term", queryTerm.getContent(), sorter),
+                () -> searcherInput.search(queryTerm, sorter));
+    }
+
+    /**
+     * 根据两个查询词和一个逻辑组合方式搜索索引，优先返回缓存的结果。
+     *
+     * @param queryTerm1 第一个查询词
+     * @param queryTerm2 第二个查询词
+     * @param sorter     排序器
+     * @param combine    逻辑组合方式
+     * @return 排序后的命中结果
+     */
+    @Override
+    public AbstractHit[] search(AbstractTerm queryTerm1, AbstractTerm queryTerm2, Sort sorter, LogicalCombination combine) {
+        String first = queryTerm1.getContent();
+        String second = queryTerm2.getContent();
+        if (combine == LogicalCombination.OR && first.compareTo(second) > 0) {
+            String swap = first;
+            first = second;
+            second = swap;
+        }
+        return cached(Arrays.asList(combine, first, second, sorter),
+                () -> searcherInput.search(queryTerm1, queryTerm2, sorter, combine));
+    }
+
+    /**
+     * 根据查询树搜索索引，优先返回缓存的结果。
+     *
+     * @param query  查询树的根节点
+     * @param sorter 排序器
+     * @return 排序后的命中结果
+     */
+    @Override
+    public AbstractHit[] search(AbstractQuery query, Sort sorter) {
+        return cached(Arrays.asList("query", query.toString(), sorter),
+                () -> searcherInput.search(query, sorter));
+    }
+
+    /**
+     * 根据查询树搜索索引，只返回得分最高的topK个命中结果，优先返回缓存的结果。
+     *
+     * @param query  查询树的根节点
+     * @param sorter 排序器
+     * @param topK   返回的命中结果个数上限
+     * @return 排序后的至多topK个命中结果
+     */
+    @Override
+    public AbstractHit[] search(AbstractQuery query, Sort sorter, int topK) {
+        return cached(Arrays.asList("top", query.toString(), sorter, topK),
+                () -> searcherInput.search(query, sorter, topK));
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        results.clear();
+        bytes = 0;
+        generation++;
+        invalidationCount++;
+        cachedIndex = searcherInput.getIndex();
+        cachedVersion = cachedIndex == null ? 0 : cachedIndex.getVersion();
+    }
+
+    /**
+     * 返回命中缓存的次数
+     *
+     * @return 命中次数
+     */
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * 返回未命中缓存的次数
+     *
+     * @return 未命中次数
+     */
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    /**
+     * 返回因超出容量被淘汰的结果个数
+     *
+     * @return 淘汰个数
+     */
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * 返回清空缓存的次数，包括打开索引和发现索引改变时
+     *
+     * @return 清空次数
+     */
+    public synchronized long invalidationCount() {
+        return invalidationCount;
+    }
+
+    /**
+     * 返回缓存的查询个数
+     *
+     * @return 查询个数
+     */
+    public synchronized int size() {
+        return results.size();
+    }
+
+    /**
+     * 返回缓存估计占用的内存
+     *
+     * @return 字节数
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * 返回命中、未命中、淘汰次数等统计信息
+     *
+     * @return 统计信息的字符串表示
+     */
+    @Override
+    public synchronized String toString() {
+        long lookups = hitCount + missCount;
+        return "CachingIndexSearcher{entries=" + results.size() + ", bytes=" + bytes +
+                ", hits=" + hitCount + ", misses=" + missCount +
+                ", hitRate=" + (lookups == 0 ? 0 : (double) hitCount / lookups) +
+                ", evictions=" + evictionCount + ", invalidations=" + invalidationCount + "}";
+    }
+
+    /**
+     * 在缓存中查找key，未命中时调用search检索并放入缓存。检索和重建Hit都在锁外执行，不阻塞其他查询。
+     * 命中时在锁内取得索引的快照，并确认快照的版本号就是缓存结果对应的版本号，之后在快照上重建Hit，
+     * 锁外发生的提交和合并不会改变重建时读取的PostingList；版本号不同时按未命中处理。
+     */
+    private AbstractHit[] cached(List<Object> key, Supplier<AbstractHit[]> search) {
+        CachedResult cached;
+        AbstractIndex index;
+        AbstractIndex snapshot = null;
+        long startGeneration;
+        synchronized (this) {
+            validate();
+            cached = results.get(key);
+            index = cachedIndex;
+            startGeneration = generation;
+            if (cached != null) {
+                snapshot = index.snapshot();
+                if (snapshot.getVersion() != cachedVersion) {
+                    cached = null;
+                }
+            }
+            if (cached != null) {
+                hitCount++;
+            } else {
+                missCount++;
+            }
+        }
+        if (cached != null) {
+            return cached.toHits(snapshot);
+        }
+        AbstractHit[] hits = search.get();
+        if (hits == null) {
+            return null;
+        }
+        CachedResult result = index == null ? null : CachedResult.of(hits);
+        if (result == null) {
+            return hits;
+        }
+        synchronized (this) {
+            validate();
+            if (generation == startGeneration && result.bytes <= maxBytes) {
+                CachedResult previous = results.put(key, result);
+                bytes += result.bytes - (previous == null ? 0 : previous.bytes);
+                evict();
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * 被装饰检索器的索引被替换或版本号改变时清空缓存
+     */
+    private void validate() {
+        AbstractIndex index = searcherInput.getIndex();
+        if (index != cachedIndex || (index != null && index.getVersion() != cachedVersion)) {
+            clear();
+        }
+    }
+
+    /**
+     * 从最久未使用的结果开始淘汰，直到个数和内存都不超过上限
+     */
+    private void evict() {
+        Iterator<Map.Entry<List<Object>, CachedResult>> it = results.entrySet().iterator();
+        while ((results.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            bytes -= it.next().getValue().bytes;
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * 缓存的一组命中结果：按原顺序排列的docId、得分和命中检索词的位掩码，以及估计占用的内存
+     */
+    private static class CachedResult {
+        final AbstractTerm[] terms;
+        final int[] docIds;
+        final double[] scores;
+        /**
+         * termMasks[i]的第b位表示第i个结果命中了terms[b]
+         */
+        final long[] termMasks;
+        /**
+         * 按docId从小到大排列的结果下标，重建时沿PostingList单向前进
+         */
+        final int[] docOrder;
+        final long bytes;
+
+        private CachedResult(AbstractTerm[] terms, int[] docIds, double[] scores, long[] termMasks, int[] docOrder) {
+            this.terms = terms;
+            this.docIds = docIds;
+            this.scores = scores;
+            this.termMasks = termMasks;
+            this.docOrder = docOrder;
+            this.bytes = 128 + 8L * terms.length + 28L * docIds.length;
+        }
+
+        /**
+         * 把命中结果转换成缓存的形式
+         *
+         * @param hits 命中结果
+         * @return 缓存的形式，命中的不同检索词超过64个时返回null
+         */
+        static CachedResult of(AbstractHit[] hits) {
+            Map<AbstractTerm, Integer> termBits = new LinkedHashMap<>();
+            int[] docIds = new int[hits.length];
+            double[] scores = new double[hits.length];
+            long[] termMasks = new long[hits.length];
+            long[] packed = new long[hits.length];
+            for (int i = 0; i < hits.length; i++) {
+                docIds[i] = hits[i].getDocId();
+                scores[i] = hits[i].getScore();
+                for (AbstractTerm term : hits[i].getTermPostingMapping().keySet()) {
+                    Integer bit = termBits.get(term);
+                    if (bit == null) {
+                        if (termBits.size() == Long.SIZE) {
+                            return null;
+                        }
+                        bit = termBits.size();
+                        termBits.put(term, bit);
+                    }
+                    termMasks[i] |= 1L << bit;
+                }
+                packed[i] = ((long) docIds[i] << 32) | i;
+            }
+            Arrays.sort(packed);
+            int[] docOrder = new int[hits.length];
+            for (int i = 0; i < hits.length; i++) {
+                docOrder[i] = (int) packed[i];
+            }
+            return new CachedResult(termBits.keySet().toArray(new AbstractTerm[0]), docIds, scores, termMasks, docOrder);
+        }
+
+        /**
+         * 在索引上重新创建命中结果：每个检索词的PostingList按docId顺序前进一遍，找到各结果的Posting
+         *
+         * @param index 缓存结果时检索的索引的快照，版本号必须与缓存结果时相同
+         * @return 与缓存前顺序和得分相同的命中结果
+         */
+        AbstractHit[] toHits(AbstractIndex index) {
+            AbstractHit[] hits = new AbstractHit[docIds.length];
+            for (int i : docOrder) {
+                hits[i] = new Hit(docIds[i], index.getDocName(docIds[i]));
+                hits[i].setScore(scores[i]);
+            }
+            for (int b = 0; b < terms.length; b++) {
+                AbstractPostingList postingList = index.search(terms[b]);
+                int cursor = 0;
+                for (int i : docOrder) {
+                    if ((termMasks[i] & (1L << b)) != 0) {
+                        cursor = postingList.advance(cursor, docIds[i]);
+                        hits[i].getTermPostingMapping().put(terms[b], postingList.get(cursor));
+                    }
+                }
+            }
+            return hits;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractPosting;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ConjunctionDocIterator类求多个子迭代器的交集（AND）。
+ * 子迭代器按cost从小到大排列，由最稀疏的子迭代器领跑：其余子迭代器依次advance到它的docId，
+ * 一旦某个子迭代器越过该docId，就让领跑者advance到新的docId，再重新检查（leapfrog）。
+ *
+ * @author 晋晨曦
+ */
+class ConjunctionDocIterator extends AbstractDocIterator {
+    private final AbstractDocIterator[] iterators;
+    private final AbstractDocIterator lead;
+    private int docId = -1;
+
+    /**
+     * 构造函数
+     *
+     * @param iterators 子迭代器，至少一个
+     */
+    ConjunctionDocIterator(List<AbstractDocIterator> iterators) {
+        this.iterators = iterators.toArray(new AbstractDocIterator[0]);
+        Arrays.sort(this.iterators, Comparator.comparingLong(AbstractDocIterator::cost));
+        this.lead = this.iterators[0];
+    }
+
+    /**
+     * 返回当前停留的文档id
+     *
+     * @return 当前文档id
+     */
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    /**
+     * 移动到下一个命中文档
+     *
+     * @return 下一个命中文档的id，没有时返回NO_MORE_DOCS
+     */
+    @Override
+    public int nextDoc() {
+        return doNext(lead.nextDoc());
+    }
+
+    /**
+     * 移动到第一个id不小于target的命中文档
+     *
+     * @param target 目标文档id
+     * @return 命中文档的id，没有时返回NO_MORE_DOCS
+     */
+    @Override
+    public int advance(int target) {
+        return doNext(lead.advance(target));
+    }
+
+    /**
+     * 从领跑者当前的docId开始，找到所有子迭代器都停留的第一个文档
+     */
+    private int doNext(int target) {
+        outer:
+        while (target != NO_MORE_DOCS) {
+            for (int i = 1; i < iterators.length; i++) {
+                AbstractDocIterator other = iterators[i];
+                int otherDocId = other.docId() < target ? other.advance(target) : other.docId();
+                if (otherDocId > target) {
+                    target = lead.advance(otherDocId);
+                    continue outer;
+                }
+            }
+            break;
+        }
+        docId = target;
+        return docId;
+    }
+
+    /**
+     * 估计最多产生的文档个数
+     *
+     * @return 文档个数的上界估计
+     */
+    @Override
+    public long cost() {
+        return lead.cost();
+    }
+
+    /**
+     * 把当前文档中命中的检索词及其Posting加入映射
+     *
+     * @param termPostingMapping 检索词到Posting的映射
+     */
+    @Override
+    public void collect(Map<AbstractTerm, AbstractPosting> termPostingMapping) {
+        for (AbstractDocIterator iterator : iterators) {
+            iterator.collect(termPostingMapping);
+        }
+    }
+}
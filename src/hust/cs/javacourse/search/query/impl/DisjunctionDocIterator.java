@@ -0,0 +1,140 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractPosting;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DisjunctionDocIterator类求多个子迭代器的并集（OR）。
+ * 子迭代器放在按当前docId排列的最小堆里，堆顶就是下一个命中文档；
+ * 每次移动只调整停在当前文档上的子迭代器，代价为O(log 子迭代器个数)，适合前缀、通配符展开出的大量检索词。
+ *
+ * @author 晋晨曦
+ */
+class DisjunctionDocIterator extends AbstractDocIterator {
+    private final AbstractDocIterator[] heap;
+    private final long cost;
+    private int docId = -1;
+
+    /**
+     * 构造函数
+     *
+     * @param iterators 子迭代器，至少一个
+     */
+    DisjunctionDocIterator(List<AbstractDocIterator> iterators) {
+        // 所有子迭代器的docId都是-1，数组本身就是合法的堆
+        this.heap = iterators.toArray(new AbstractDocIterator[0]);
+        long total = 0;
+        for (AbstractDocIterator iterator : heap) {
+            total += iterator.cost();
+        }
+        this.cost = total;
+    }
+
+    /**
+     * 返回当前停留的文档id
+     *
+     * @return 当前文档id
+     */
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    /**
+     * 移动到下一个命中文档
+     *
+     * @return 下一个命中文档的id，没有时返回NO_MORE_DOCS
+     */
+    @Override
+    public int nextDoc() {
+        if (docId == NO_MORE_DOCS) {
+            // 所有子迭代器都已耗尽，堆顶的docId会一直等于NO_MORE_DOCS
+            return docId;
+        }
+        int current = docId;
+        while (heap[0].docId() == current) {
+            heap[0].nextDoc();
+            siftDown();
+        }
+        docId = heap[0].docId();
+        return docId;
+    }
+
+    /**
+     * 移动到第一个id不小于target的命中文档
+     *
+     * @param target 目标文档id
+     * @return 命中文档的id，没有时返回NO_MORE_DOCS
+     */
+    @Override
+    public int advance(int target) {
+        if (docId == NO_MORE_DOCS) {
+            return docId;
+        }
+        while (heap[0].docId() < target) {
+            heap[0].advance(target);
+            siftDown();
+        }
+        docId = heap[0].docId();
+        return docId;
+    }
+
+    /**
+     * 堆顶的docId变大后把它下沉到合适的位置；耗尽的子迭代器docId为NO_MORE_DOCS，会沉到堆底
+     */
+    private void siftDown() {
+        AbstractDocIterator top = heap[0];
+        int topDocId = top.docId();
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heap.length) {
+                break;
+            }
+            if (child + 1 < heap.length && heap[child + 1].docId() < heap[child].docId()) {
+                child++;
+            }
+            if (heap[child].docId() >= topDocId) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = top;
+    }
+
+    /**
+     * 估计最多产生的文档个数
+     *
+     * @return 文档个数的上界估计
+     */
+    @Override
+    public long cost() {
+        return cost;
+    }
+
+    /**
+     * 把当前文档中命中的检索词及其Posting加入映射
+     *
+     * @param termPostingMapping 检索词到Posting的映射
+     */
+    @Override
+    public void collect(Map<AbstractTerm, AbstractPosting> termPostingMapping) {
+        collect(0, termPostingMapping);
+    }
+
+    /**
+     * 停在当前文档上的子迭代器位于堆顶开始的一棵子树里，只遍历这棵子树
+     */
+    private void collect(int i, Map<AbstractTerm, AbstractPosting> termPostingMapping) {
+        if (i < heap.length && heap[i].docId() == docId) {
+            heap[i].collect(termPostingMapping);
+            collect(2 * i + 1, termPostingMapping);
+            collect(2 * i + 2, termPostingMapping);
+        }
+    }
+}
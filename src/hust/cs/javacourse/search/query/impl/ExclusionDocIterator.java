@@ -0,0 +1,93 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractPosting;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
+
+import java.util.Map;
+
+/**
+ * ExclusionDocIterator类从必须命中的迭代器中去掉被排除的迭代器命中的文档（AND NOT）。
+ * 被排除的迭代器只在需要时advance到候选文档，不会完整遍历。
+ *
+ * @author 晋晨曦
+ */
+class ExclusionDocIterator extends AbstractDocIterator {
+    private final AbstractDocIterator required;
+    private final AbstractDocIterator excluded;
+    private int docId = -1;
+
+    /**
+     * 构造函数
+     *
+     * @param required 必须命中的迭代器
+     * @param excluded 被排除的迭代器
+     */
+    ExclusionDocIterator(AbstractDocIterator required, AbstractDocIterator excluded) {
+        this.required = required;
+        this.excluded = excluded;
+    }
+
+    /**
+     * 返回当前停留的文档id
+     *
+     * @return 当前文档id
+     */
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    /**
+     * 移动到下一个命中文档
+     *
+     * @return 下一个命中文档的id，没有时返回NO_MORE_DOCS
+     */
+    @Override
+    public int nextDoc() {
+        return skipExcluded(required.nextDoc());
+    }
+
+    /**
+     * 移动到第一个id不小于target的命中文档
+     *
+     * @param target 目标文档id
+     * @return 命中文档的id，没有时返回NO_MORE_DOCS
+     */
+    @Override
+    public int advance(int target) {
+        return skipExcluded(required.advance(target));
+    }
+
+    private int skipExcluded(int target) {
+        while (target != NO_MORE_DOCS) {
+            int excludedDocId = excluded.docId() < target ? excluded.advance(target) : excluded.docId();
+            if (excludedDocId != target) {
+                break;
+            }
+            target = required.nextDoc();
+        }
+        docId = target;
+        return docId;
+    }
+
+    /**
+     * 估计最多产生的文档个数
+     *
+     * @return 文档个数的上界估计
+     */
+    @Override
+    public long cost() {
+        return required.cost();
+    }
+
+    /**
+     * 把当前文档中命中的检索词及其Posting加入映射
+     *
+     * @param termPostingMapping 检索词到Posting的映射
+     */
+    @Override
+    public void collect(Map<AbstractTerm, AbstractPosting> termPostingMapping) {
+        required.collect(termPostingMapping);
+    }
+}
@@ -3,6 +3,9 @@ package hust.cs.javacourse.search.query.impl;
 import hust.cs.javacourse.search.index.AbstractPosting;
 import hust.cs.javacourse.search.index.AbstractTerm;
 import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.util.Config;
+import hust.cs.javacourse.search.util.DocumentContentCache;
+import hust.cs.javacourse.search.util.FileUtil;
 
 import java.util.Map;
 
@@ -10,6 +13,7 @@ import java.util.Map;
  * Hit类是AbstractHit的具体实现，表示搜索命中的结果。
  * 它包含了文档的id，路径，内容，得分以及命中的单词和对应的Posting键值对。
  * 该类实现了Comparable接口，可以根据得分进行比较和排序。
+ * 文档内容在第一次调用getContent时才通过共用的DocumentContentCache读取，排序时被淘汰的命中结果不会读取文件。
  *
  * @author 晋晨曦
  */
@@ -63,15 +67,45 @@ public class Hit extends AbstractHit {
     }
 
     /**
-     * 获取文档内容
+     * 获取文档内容，第一次调用时从DocumentContentCache读取
      *
      * @return 文档内容
      */
     @Override
     public String getContent() {
+        if (content == null && docPath != null) {
+            content = DocumentContentCache.getDefault().get(docPath);
+        }
         return content;
     }
 
+    /**
+     * 获取命中位置附近的摘要。
+     * 文档内容已经读入(本对象或缓存中)时直接从内存中截取，否则只读取文件中到最后一个摘要窗口为止的部分，也不放入缓存。
+     *
+     * @param window 每个命中位置前后保留的单词个数
+     * @return 摘要
+     */
+    @Override
+    public String getSnippet(int window) {
+        int count = 0;
+        for (AbstractPosting posting : termPostingMapping.values()) {
+            count += posting.getPositions().size();
+        }
+        int[] positions = new int[count];
+        int i = 0;
+        for (AbstractPosting posting : termPostingMapping.values()) {
+            for (int position : posting.getPositions()) {
+                positions[i++] = position;
+            }
+        }
+        String text = content != null ? content : DocumentContentCache.getDefault().getIfPresent(docPath);
+        if (text != null) {
+            return FileUtil.snippet(text, positions, window);
+        }
+        return FileUtil.readSnippet(docPath, positions, window);
+    }
+
     /**
      * 设置文档内容
      *
@@ -113,7 +147,22 @@ public class Hit extends AbstractHit {
     }
 
     /**
-     * 返回Hit对象的字符串表示形式
+     * 让同一个Hit对象依次代表不同的文档，用于检索过程中只计算得分而不创建新的Hit。
+     * 清空命中的Posting并把得分恢复为默认值，不读取文档内容。
+     *
+     * @param docId   文档id
+     * @param docPath 文档绝对路径
+     */
+    void reset(int docId, String docPath) {
+        this.docId = docId;
+        this.docPath = docPath;
+        this.content = null;
+        this.termPostingMapping.clear();
+        this.score = 1.0;
+    }
+
+    /**
+     * 返回Hit对象的字符串表示形式，Config.SNIPPET_WINDOW大于0时以摘要代替文档全文
      *
      * @return Hit对象的字符串表示形式
      */
@@ -122,20 +171,22 @@ public class Hit extends AbstractHit {
         return "Hit{" +
                 "docId=" + docId +
                 ", docPath='" + docPath + '\'' +
-                ", content='" + content + '\'' +
+                (Config.SNIPPET_WINDOW > 0 ? ", snippet='" + getSnippet(Config.SNIPPET_WINDOW)
+                        : ", content='" + getContent()) + '\'' +
                 ", score=" + score +
                 ", termPostingMapping=" + termPostingMapping +
                 '}';
     }
 
     /**
-     * 根据得分比较两个Hit对象的大小
+     * 根据得分比较两个Hit对象的大小。
+     * 用Double.compare而不是把得分之差转换为int，BM25等小数得分相差不到1时也能正确排序。
      *
      * @param o 要比较的Hit对象
-     * @return 两个Hit对象得分的差值
+     * @return 得分小于、等于、大于o的得分时分别返回负数、0、正数
      */
     @Override
     public int compareTo(AbstractHit o) {
-        return (int) (this.score - o.getScore());
+        return Double.compare(this.score, o.getScore());
     }
 }
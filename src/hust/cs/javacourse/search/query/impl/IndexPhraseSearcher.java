@@ -1,19 +1,21 @@
 package hust.cs.javacourse.search.query.impl;
 
+import hust.cs.javacourse.search.index.AbstractIndex;
 import hust.cs.javacourse.search.index.AbstractPosting;
-import hust.cs.javacourse.search.index.AbstractPostingList;
 import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
 import hust.cs.javacourse.search.query.AbstractHit;
 import hust.cs.javacourse.search.query.AbstractIndexSearcher;
+import hust.cs.javacourse.search.query.AbstractQuery;
 import hust.cs.javacourse.search.query.Sort;
 
-import java.io.File;
 import java.util.*;
 
 /**
  * IndexPhraseSearcher类是AbstractIndexSearcher的装饰者实现。
  * 它提供了根据一个或两个查询词来搜索索引，并返回排序后的命中结果的功能。
- * 特别的，它实现了短语搜索，即两个查询词在文档中的位置必须是相邻的。
+ * 特别的，它实现了短语搜索，即查询词在文档中的位置必须是依次相邻的：两个查询词的AND检索和PhraseQuery
+ * 都由PhraseDocIterator归并位置数组匹配，匹配时算出的短语出现次数直接作为PhraseSort的得分。
  *
  * @author 晋晨曦
  */
@@ -37,7 +39,7 @@ public class IndexPhraseSearcher extends AbstractIndexSearcher {
      */
     @Override
     public void open(String indexFile) {
-        index.load(new File(indexFile));
+        index = IndexSearcher.openIndex(indexFile);
         searcherInput.open(indexFile);
     }
 
@@ -55,7 +57,8 @@ public class IndexPhraseSearcher extends AbstractIndexSearcher {
 
     /**
      * 根据两个查询词和一个逻辑组合方式搜索索引，并返回排序后的命中结果。
-     * 特别的，当逻辑组合方式为AND时，实现了短语搜索，即两个查询词在文档中的位置必须是相邻的。
+     * 特别的，当逻辑组合方式为AND时，实现了短语搜索，即两个查询词在文档中的位置必须是相邻的，
+     * 相当于检索两个查询词组成的PhraseQuery。
      *
      * @param queryTerm1 第一个查询词
      * @param queryTerm2 第二个查询词
@@ -68,55 +71,78 @@ public class IndexPhraseSearcher extends AbstractIndexSearcher {
         if (combine == LogicalCombination.OR) {
             return null;
         }
-        AbstractPostingList postingList1 = index.search(queryTerm1);
-        AbstractPostingList postingList2 = index.search(queryTerm2);
-        if (postingList1 == null || postingList2 == null) {
-            return new AbstractHit[0];
+        return search(new PhraseQuery(queryTerm1, queryTerm2), sorter);
+    }
+
+    /**
+     * 根据查询树搜索索引。PhraseQuery按短语出现的次数打分，其他查询直接交给被装饰的检索器处理。
+     *
+     * @param query  查询树的根节点
+     * @param sorter 排序器
+     * @return 排序后的命中结果
+     */
+    @Override
+    public AbstractHit[] search(AbstractQuery query, Sort sorter) {
+        if (!(query instanceof PhraseQuery)) {
+            return searcherInput.search(query, sorter);
         }
-        Map<Integer, Map<AbstractTerm, AbstractPosting>> result = new HashMap<>();
-        int i = 0, j = 0;
-        while (i < postingList1.size() && j < postingList2.size()) {
-            AbstractPosting posting1 = postingList1.get(i);
-            AbstractPosting posting2 = postingList2.get(j);
-            if (posting1.getDocId() == posting2.getDocId()) {
-                List<Integer> positions1 = posting1.getPositions();
-                List<Integer> positions2 = posting2.getPositions();
-                for (int pos1 : positions1) {
-                    if (positions2.contains(pos1 + 1)) {
-                        Map<AbstractTerm, AbstractPosting> termPostingMapping = new HashMap<>();
-                        termPostingMapping.put(queryTerm1, posting1);
-                        termPostingMapping.put(queryTerm2, posting2);
-                        result.put(posting1.getDocId(), termPostingMapping);
-                        break;
-                    }
-                }
-                i++;
-                j++;
-            } else if (posting1.getDocId() < posting2.getDocId()) {
-                i++;
-            } else {
-                j++;
-            }
+        AbstractIndex index = this.index.snapshot();
+        sorter = new PhraseSort(sorter.forSnapshot(index));
+        PhraseDocIterator iterator = (PhraseDocIterator) query.iterator(index);
+        List<AbstractHit> hits = new ArrayList<>();
+        for (int docId = iterator.nextDoc(); docId != AbstractDocIterator.NO_MORE_DOCS; docId = iterator.nextDoc()) {
+            Map<AbstractTerm, AbstractPosting> termPostingMapping = new HashMap<>();
+            iterator.collect(termPostingMapping);
+            AbstractHit hit = new PhraseHit(docId, index.getDocName(docId), termPostingMapping, iterator.phraseFreq());
+            hit.setScore(sorter.score(hit));
+            hits.add(hit);
         }
-        return getHits(sorter, result);
+        sorter.sort(hits);
+        return hits.toArray(new AbstractHit[0]);
     }
 
-    private AbstractHit[] getHits(Sort sorter, Map<Integer, Map<AbstractTerm, AbstractPosting>> result) {
-        sorter = new PhraseSort(sorter);
-        if (result.isEmpty()) {
+    /**
+     * 根据查询树搜索索引，只返回得分最高的topK个命中结果。
+     * PhraseQuery用同一个PhraseHit对象计算得分，只为最终的topK个文档创建命中结果；其他查询直接交给被装饰的检索器处理。
+     *
+     * @param query  查询树的根节点
+     * @param sorter 排序器
+     * @param topK   返回的命中结果个数上限
+     * @return 排序后的至多topK个命中结果
+     */
+    @Override
+    public AbstractHit[] search(AbstractQuery query, Sort sorter, int topK) {
+        if (!(query instanceof PhraseQuery)) {
+            return searcherInput.search(query, sorter, topK);
+        }
+        if (topK <= 0) {
             return new AbstractHit[0];
         }
-        AbstractHit[] hits = new AbstractHit[result.size()];
-        List<Map.Entry<Integer, Map<AbstractTerm, AbstractPosting>>> entryList = new ArrayList<>(result.entrySet());
-        for (int i = 0; i < hits.length; i++) {
-            Map.Entry<Integer, Map<AbstractTerm, AbstractPosting>> entry = entryList.get(i);
-            hits[i] = new Hit(entry.getKey(), index.getDocName(entry.getKey()), entry.getValue());
-            hits[i].setScore(sorter.score(hits[i]));
+        AbstractIndex index = this.index.snapshot();
+        sorter = new PhraseSort(sorter.forSnapshot(index));
+        TopKCollector collector = new TopKCollector(topK);
+        PhraseDocIterator iterator = (PhraseDocIterator) query.iterator(index);
+        PhraseHit scratch = new PhraseHit();
+        for (int docId = iterator.nextDoc(); docId != AbstractDocIterator.NO_MORE_DOCS; docId = iterator.nextDoc()) {
+            scratch.reset(docId, index.getDocName(docId));
+            scratch.setPhraseFreq(iterator.phraseFreq());
+            collector.collect(docId, sorter.score(scratch));
+        }
+        collector.sortByDocId();
+
+        List<AbstractHit> hits = new ArrayList<>(collector.size());
+        iterator = (PhraseDocIterator) query.iterator(index);
+        for (int i = 0; i < collector.size(); i++) {
+            int docId = collector.docIdAt(i);
+            iterator.advance(docId);
+            Map<AbstractTerm, AbstractPosting> termPostingMapping = new HashMap<>();
+            iterator.collect(termPostingMapping);
+            AbstractHit hit = new PhraseHit(docId, index.getDocName(docId), termPostingMapping, iterator.phraseFreq());
+            hit.setScore(collector.scoreAt(i));
+            hits.add(hit);
         }
-        List<AbstractHit> hitList = Arrays.asList(hits);
-        sorter.sort(hitList);
-        hits = hitList.toArray(hits);
-        return hits;
+        sorter.sort(hits);
+        return hits.toArray(new AbstractHit[0]);
     }
 
 }
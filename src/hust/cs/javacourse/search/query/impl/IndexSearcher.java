@@ -1,30 +1,75 @@
 package hust.cs.javacourse.search.query.impl;
 
+import hust.cs.javacourse.search.index.AbstractIndex;
 import hust.cs.javacourse.search.index.AbstractPosting;
 import hust.cs.javacourse.search.index.AbstractPostingList;
 import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.ImmutableIndex;
+import hust.cs.javacourse.search.index.impl.Index;
+import hust.cs.javacourse.search.index.impl.MappedIndex;
+import hust.cs.javacourse.search.index.impl.SegmentFormat;
+import hust.cs.javacourse.search.index.impl.Term;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
 import hust.cs.javacourse.search.query.AbstractHit;
 import hust.cs.javacourse.search.query.AbstractIndexSearcher;
+import hust.cs.javacourse.search.query.AbstractQuery;
 import hust.cs.javacourse.search.query.Sort;
+import hust.cs.javacourse.search.query.TermScoreSort;
+import hust.cs.javacourse.search.util.Config;
 
 import java.io.File;
 import java.util.*;
+import java.util.regex.Pattern;
 
 /**
  * IndexSearcher类是AbstractIndexSearcher的具体实现。
  * 它提供了根据一个或两个查询词来搜索索引，并返回排序后的命中结果的功能。
+ * 每次检索开始时取一次索引视图，并用Sort.forSnapshot把排序器绑定到这个视图，匹配和打分看到的是同一时刻的索引。
  *
  * @author 晋晨曦
  */
 public class IndexSearcher extends AbstractIndexSearcher {
+    /**
+     * 默认构造函数，需要调用open打开索引。
+     */
+    public IndexSearcher() {
+    }
+
+    /**
+     * 构造函数，直接检索已经打开的索引，多个检索器可以共享同一个索引快照。
+     *
+     * @param index 检索的索引，检索期间不能被修改
+     */
+    public IndexSearcher(AbstractIndex index) {
+        this.index = index;
+    }
+
     /**
      * 打开索引文件并加载索引。
+     * 如果索引文件是段格式且Config.SEARCH_MMAP为true，则以内存映射方式只读打开，不解码倒排列表；
+     * 否则加载到内存后创建不可变的ImmutableIndex快照。两种索引都可以被多个检索线程共享。
      *
      * @param indexFile 索引文件的路径
      */
     @Override
     public void open(String indexFile) {
-        index.load(new File(indexFile));
+        index = openIndex(indexFile);
+    }
+
+    /**
+     * 根据索引文件的格式创建并打开合适的索引对象。
+     *
+     * @param indexFile 索引文件的路径
+     * @return 打开的索引
+     */
+    public static AbstractIndex openIndex(String indexFile) {
+        File file = new File(indexFile);
+        if (Config.SEARCH_MMAP && SegmentFormat.isSegment(file)) {
+            return new MappedIndex(file);
+        }
+        AbstractIndex index = new Index();
+        index.load(file);
+        return new ImmutableIndex(index);
     }
 
     /**
@@ -36,6 +81,8 @@ public class IndexSearcher extends AbstractIndexSearcher {
      */
     @Override
     public AbstractHit[] search(AbstractTerm queryTerm, Sort sorter) {
+        AbstractIndex index = this.index.snapshot();
+        sorter = sorter.forSnapshot(index);
         AbstractPostingList postingList = index.search(queryTerm);
         if (postingList == null) {
             return new AbstractHit[0];
@@ -56,6 +103,7 @@ public class IndexSearcher extends AbstractIndexSearcher {
 
     /**
      * 根据两个查询词和一个逻辑组合方式搜索索引，并返回排序后的命中结果。
+     * 匹配的文档按docId递增的顺序收集在MatchBuffer里，不使用以docId为键的HashMap。
      *
      * @param queryTerm1 第一个查询词
      * @param queryTerm2 第二个查询词
@@ -65,27 +113,202 @@ public class IndexSearcher extends AbstractIndexSearcher {
      */
     @Override
     public AbstractHit[] search(AbstractTerm queryTerm1, AbstractTerm queryTerm2, Sort sorter, LogicalCombination combine) {
+        AbstractIndex index = this.index.snapshot();
+        sorter = sorter.forSnapshot(index);
         AbstractPostingList postingList1 = index.search(queryTerm1);
         AbstractPostingList postingList2 = index.search(queryTerm2);
         if (combine == LogicalCombination.AND) {
-            Map<Integer, Map<AbstractTerm, AbstractPosting>> result = intersect(queryTerm1, queryTerm2, postingList1, postingList2);
-            return getHits(sorter, result);
+            return getHits(index, sorter, intersect(queryTerm1, queryTerm2, postingList1, postingList2));
         } else {
-            Map<Integer, Map<AbstractTerm, AbstractPosting>> result = union(queryTerm1, queryTerm2, postingList1, postingList2);
-            return getHits(sorter, result);
+            return getHits(index, sorter, union(queryTerm1, queryTerm2, postingList1, postingList2));
+        }
+    }
+
+    /**
+     * 根据查询树搜索索引，并返回排序后的命中结果。
+     * 查询树转换为迭代器树后逐个文档求值，命中文档按docId递增的顺序产生，不生成中间结果数组。
+     *
+     * @param query  查询树的根节点
+     * @param sorter 排序器
+     * @return 排序后的命中结果
+     */
+    @Override
+    public AbstractHit[] search(AbstractQuery query, Sort sorter) {
+        return search(this.index.snapshot(), query, sorter);
+    }
+
+    /**
+     * 在指定的索引视图上根据查询树搜索，并返回排序后的命中结果
+     *
+     * @param index  索引视图
+     * @param query  查询树的根节点
+     * @param sorter 排序器
+     * @return 排序后的命中结果
+     */
+    private static AbstractHit[] search(AbstractIndex index, AbstractQuery query, Sort sorter) {
+        sorter = sorter.forSnapshot(index);
+        AbstractDocIterator iterator = query.iterator(index);
+        List<AbstractHit> hits = new ArrayList<>();
+        for (int docId = iterator.nextDoc(); docId != AbstractDocIterator.NO_MORE_DOCS; docId = iterator.nextDoc()) {
+            Map<AbstractTerm, AbstractPosting> termPostingMapping = new HashMap<>();
+            iterator.collect(termPostingMapping);
+            AbstractHit hit = new Hit(docId, index.getDocName(docId), termPostingMapping);
+            hit.setScore(sorter.score(hit));
+            hits.add(hit);
         }
+        sorter.sort(hits);
+        return hits.toArray(new AbstractHit[0]);
     }
 
-    private AbstractHit[] getHits(Sort sorter, Map<Integer, Map<AbstractTerm, AbstractPosting>> result) {
-        if (result.isEmpty()) {
+    /**
+     * 根据查询树搜索索引，只返回得分最高的topK个命中结果。
+     * 检索过程中用同一个Hit对象计算每个命中文档的得分，只把(docId, 得分)放进容量为topK的最小堆；
+     * 检索结束后再次遍历迭代器，只为最终的topK个文档收集Posting、创建Hit对象并读取文档内容。
+     * 查询是若干检索词的OR、且排序器的得分可以按检索词分解(TermScoreSort)时，用BlockMaxWand跳过不可能进入前K的文档。
+     *
+     * @param query  查询树的根节点
+     * @param sorter 排序器
+     * @param topK   返回的命中结果个数上限
+     * @return 排序后的至多topK个命中结果
+     */
+    @Override
+    public AbstractHit[] search(AbstractQuery query, Sort sorter, int topK) {
+        if (topK <= 0) {
             return new AbstractHit[0];
         }
-        AbstractHit[] hits = new AbstractHit[result.size()];
-        List<Map.Entry<Integer, Map<AbstractTerm, AbstractPosting>>> entryList = new ArrayList<>(result.entrySet());
-        for (int i = 0; i < hits.length; i++) {
-            Map.Entry<Integer, Map<AbstractTerm, AbstractPosting>> entry = entryList.get(i);
-            hits[i] = new Hit(entry.getKey(), index.getDocName(entry.getKey()), entry.getValue());
-            hits[i].setScore(sorter.score(hits[i]));
+        AbstractIndex index = this.index.snapshot();
+        sorter = sorter.forSnapshot(index);
+        TopKCollector collector = new TopKCollector(topK);
+        List<AbstractTerm> terms = disjunctionTerms(query);
+        if (terms != null && sorter instanceof TermScoreSort) {
+            new BlockMaxWand(index, terms, (TermScoreSort) sorter).collect(collector);
+        } else {
+            AbstractDocIterator iterator = query.iterator(index);
+            Hit scratch = new Hit();
+            for (int docId = iterator.nextDoc(); docId != AbstractDocIterator.NO_MORE_DOCS; docId = iterator.nextDoc()) {
+                scratch.reset(docId, index.getDocName(docId));
+                iterator.collect(scratch.getTermPostingMapping());
+                collector.collect(docId, sorter.score(scratch));
+            }
+        }
+        collector.sortByDocId();
+
+        List<AbstractHit> hits = new ArrayList<>(collector.size());
+        AbstractDocIterator iterator = query.iterator(index);
+        for (int i = 0; i < collector.size(); i++) {
+            int docId = collector.docIdAt(i);
+            iterator.advance(docId);
+            Map<AbstractTerm, AbstractPosting> termPostingMapping = new HashMap<>();
+            iterator.collect(termPostingMapping);
+            AbstractHit hit = new Hit(docId, index.getDocName(docId), termPostingMapping);
+            hit.setScore(collector.scoreAt(i));
+            hits.add(hit);
+        }
+        sorter.sort(hits);
+        return hits.toArray(new AbstractHit[0]);
+    }
+
+    /**
+     * 如果查询是单个检索词或者只由检索词组成的OR查询，返回其中的检索词，否则返回null
+     *
+     * @param query 查询树的根节点
+     * @return 检索词列表或null
+     */
+    private static List<AbstractTerm> disjunctionTerms(AbstractQuery query) {
+        if (query instanceof TermQuery) {
+            return Collections.singletonList(((TermQuery) query).getTerm());
+        }
+        if (!(query instanceof OrQuery)) {
+            return null;
+        }
+        List<AbstractTerm> terms = new ArrayList<>();
+        for (AbstractQuery clause : ((OrQuery) query).getClauses()) {
+            if (!(clause instanceof TermQuery)) {
+                return null;
+            }
+            terms.add(((TermQuery) clause).getTerm());
+        }
+        return terms;
+    }
+
+    /**
+     * 前缀检索：命中包含任意一个以prefix开头的单词的文档。
+     * 候选单词由索引字典的前缀枚举得到，不需要遍历整个字典；枚举和检索使用同一个索引视图。
+     *
+     * @param prefix 单词前缀
+     * @param sorter 排序器
+     * @return 排序后的命中结果
+     */
+    public AbstractHit[] searchPrefix(String prefix, Sort sorter) {
+        AbstractIndex index = this.index.snapshot();
+        return searchAny(index, index.getTermsWithPrefix(prefix), sorter);
+    }
+
+    /**
+     * 通配符检索：'*'匹配任意个字符，'?'匹配一个字符，命中包含任意一个匹配单词的文档。
+     * 第一个通配符之前的部分作为前缀在字典中枚举候选单词，再用正则表达式过滤；枚举和检索使用同一个索引视图。
+     *
+     * @param pattern 含通配符的检索式
+     * @param sorter  排序器
+     * @return 排序后的命中结果
+     */
+    public AbstractHit[] searchWildcard(String pattern, Sort sorter) {
+        int wildcard = 0;
+        while (wildcard < pattern.length() && pattern.charAt(wildcard) != '*' && pattern.charAt(wildcard) != '?') {
+            wildcard++;
+        }
+        if (wildcard == pattern.length()) {
+            return search(new Term(pattern), sorter);
+        }
+        StringBuilder regex = new StringBuilder();
+        int start = wildcard;
+        for (int i = wildcard; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > start) {
+                    regex.append(Pattern.quote(pattern.substring(start, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        if (start < pattern.length()) {
+            regex.append(Pattern.quote(pattern.substring(start)));
+        }
+        Pattern suffixPattern = Pattern.compile(regex.toString(), Pattern.DOTALL);
+        AbstractIndex index = this.index.snapshot();
+        List<AbstractTerm> terms = new ArrayList<>();
+        for (AbstractTerm term : index.getTermsWithPrefix(pattern.substring(0, wildcard))) {
+            if (suffixPattern.matcher(term.getContent()).region(wildcard, term.getContent().length()).matches()) {
+                terms.add(term);
+            }
+        }
+        return searchAny(index, terms, sorter);
+    }
+
+    /**
+     * 返回包含任意一个指定单词的文档，即这些单词的OrQuery，命中结果里保存该文档中出现的全部指定单词的Posting。
+     */
+    private static AbstractHit[] searchAny(AbstractIndex index, List<AbstractTerm> terms, Sort sorter) {
+        if (terms.isEmpty()) {
+            return new AbstractHit[0];
+        }
+        List<AbstractQuery> clauses = new ArrayList<>(terms.size());
+        for (AbstractTerm term : terms) {
+            clauses.add(new TermQuery(term));
+        }
+        return search(index, new OrQuery(clauses), sorter);
+    }
+
+    private AbstractHit[] getHits(AbstractIndex index, Sort sorter, MatchBuffer matches) {
+        if (matches.size() == 0) {
+            return new AbstractHit[0];
+        }
+        AbstractHit[] hits = new AbstractHit[matches.size()];
+        for (int row = 0; row < hits.length; row++) {
+            int docId = matches.docId(row);
+            hits[row] = new Hit(docId, index.getDocName(docId), matches.termPostingMapping(row));
+            hits[row].setScore(sorter.score(hits[row]));
         }
         List<AbstractHit> hitList = Arrays.asList(hits);
         sorter.sort(hitList);
@@ -93,67 +316,59 @@ public class IndexSearcher extends AbstractIndexSearcher {
         return hits;
     }
 
-    private Map<Integer, Map<AbstractTerm, AbstractPosting>> intersect(AbstractTerm queryTerm1, AbstractTerm queryTerm2, AbstractPostingList postingList1, AbstractPostingList postingList2) {
-        Map<Integer, Map<AbstractTerm, AbstractPosting>> result = new HashMap<>();
+    /**
+     * 求两个有序PostingList的交集。
+     * 短列表驱动：对短列表中的每个docId，用advance在长列表里指数查找，
+     * 长列表中夹在两个匹配之间的Posting被整段跳过；长度相差悬殊时代价接近O(短列表长度 × log(长列表长度 / 短列表长度))。
+     */
+    private MatchBuffer intersect(AbstractTerm queryTerm1, AbstractTerm queryTerm2, AbstractPostingList postingList1, AbstractPostingList postingList2) {
+        MatchBuffer matches = new MatchBuffer(queryTerm1, queryTerm2);
+        if (postingList1 == null || postingList2 == null) {
+            return matches;
+        }
+        boolean swapped = postingList1.size() > postingList2.size();
+        AbstractPostingList shorter = swapped ? postingList2 : postingList1;
+        AbstractPostingList longer = swapped ? postingList1 : postingList2;
         int i = 0, j = 0;
-        while (i < postingList1.size() && j < postingList2.size()) {
-            AbstractPosting posting1 = postingList1.get(i);
-            AbstractPosting posting2 = postingList2.get(j);
-            if (posting1.getDocId() == posting2.getDocId()) {
-                Map<AbstractTerm, AbstractPosting> termPostingMapping = new HashMap<>();
-                termPostingMapping.put(queryTerm1, posting1);
-                termPostingMapping.put(queryTerm2, posting2);
-                result.put(posting1.getDocId(), termPostingMapping);
+        while (i < shorter.size()) {
+            int docId = shorter.docIdAt(i);
+            j = longer.advance(j, docId);
+            if (j == longer.size()) {
+                break;
+            }
+            int otherDocId = longer.docIdAt(j);
+            if (otherDocId == docId) {
+                int row = matches.add(docId);
+                matches.set(row, swapped ? 1 : 0, shorter.get(i));
+                matches.set(row, swapped ? 0 : 1, longer.get(j));
                 i++;
                 j++;
-            } else if (posting1.getDocId() < posting2.getDocId()) {
-                i++;
             } else {
-                j++;
+                i = shorter.advance(i + 1, otherDocId);
             }
         }
-        return result;
+        return matches;
     }
 
-    private Map<Integer, Map<AbstractTerm, AbstractPosting>> union(AbstractTerm queryTerm1, AbstractTerm queryTerm2, AbstractPostingList postingList1, AbstractPostingList postingList2) {
-        Map<Integer, Map<AbstractTerm, AbstractPosting>> result = new HashMap<>();
+    /**
+     * 求两个有序PostingList的并集，按docId递增的顺序归并。
+     */
+    private MatchBuffer union(AbstractTerm queryTerm1, AbstractTerm queryTerm2, AbstractPostingList postingList1, AbstractPostingList postingList2) {
+        MatchBuffer matches = new MatchBuffer(queryTerm1, queryTerm2);
+        int size1 = postingList1 == null ? 0 : postingList1.size();
+        int size2 = postingList2 == null ? 0 : postingList2.size();
         int i = 0, j = 0;
-        while (i < postingList1.size() && j < postingList2.size()) {
-            AbstractPosting posting1 = postingList1.get(i);
-            AbstractPosting posting2 = postingList2.get(j);
-            if (posting1.getDocId() == posting2.getDocId()) {
-                Map<AbstractTerm, AbstractPosting> termPostingMapping = new HashMap<>();
-                termPostingMapping.put(queryTerm1, posting1);
-                termPostingMapping.put(queryTerm2, posting2);
-                result.put(posting1.getDocId(), termPostingMapping);
-                i++;
-                j++;
-            } else if (posting1.getDocId() < posting2.getDocId()) {
-                Map<AbstractTerm, AbstractPosting> termPostingMapping = new HashMap<>();
-                termPostingMapping.put(queryTerm1, posting1);
-                result.put(posting1.getDocId(), termPostingMapping);
-                i++;
-            } else {
-                Map<AbstractTerm, AbstractPosting> termPostingMapping = new HashMap<>();
-                termPostingMapping.put(queryTerm2, posting2);
-                result.put(posting2.getDocId(), termPostingMapping);
-                j++;
+        while (i < size1 || j < size2) {
+            boolean take1 = i < size1 && (j == size2 || postingList1.docIdAt(i) <= postingList2.docIdAt(j));
+            boolean take2 = j < size2 && (i == size1 || postingList2.docIdAt(j) <= postingList1.docIdAt(i));
+            int row = matches.add(take1 ? postingList1.docIdAt(i) : postingList2.docIdAt(j));
+            if (take1) {
+                matches.set(row, 0, postingList1.get(i++));
+            }
+            if (take2) {
+                matches.set(row, 1, postingList2.get(j++));
             }
         }
-        while (i < postingList1.size()) {
-            AbstractPosting posting1 = postingList1.get(i);
-            Map<AbstractTerm, AbstractPosting> termPostingMapping = new HashMap<>();
-            termPostingMapping.put(queryTerm1, posting1);
-            result.put(posting1.getDocId(), termPostingMapping);
-            i++;
-        }
-        while (j < postingList2.size()) {
-            AbstractPosting posting2 = postingList2.get(j);
-            Map<AbstractTerm, AbstractPosting> termPostingMapping = new HashMap<>();
-            termPostingMapping.put(queryTerm2, posting2);
-            result.put(posting2.getDocId(), termPostingMapping);
-            j++;
-        }
-        return result;
+        return matches;
     }
 }
@@ -0,0 +1,95 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractPosting;
+import hust.cs.javacourse.search.index.AbstractTerm;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MatchBuffer类按docId从小到大的顺序保存检索过程中匹配到的文档。
+ * 每个匹配占一行：docId，以及每个检索词在该文档中的Posting（不出现时为null）。
+ * 合并有序的PostingList时匹配本来就是按docId递增产生的，直接追加到数组末尾即可，
+ * 不需要以docId为键的HashMap，也不需要在构造命中结果之前重新排序。
+ *
+ * @author 晋晨曦
+ */
+class MatchBuffer {
+    private final AbstractTerm[] terms;
+    private int[] docIds = new int[16];
+    private AbstractPosting[] postings;
+    private int size;
+
+    /**
+     * 构造函数
+     *
+     * @param terms 检索词，Posting按这里的顺序保存
+     */
+    MatchBuffer(AbstractTerm... terms) {
+        this.terms = terms;
+        this.postings = new AbstractPosting[docIds.length * terms.length];
+    }
+
+    /**
+     * 追加一个匹配的文档，docId必须大于之前追加的docId
+     *
+     * @param docId 文档id
+     * @return 新匹配的行号，之后用set设置各检索词的Posting
+     */
+    int add(int docId) {
+        if (size == docIds.length) {
+            docIds = Arrays.copyOf(docIds, size * 2);
+            postings = Arrays.copyOf(postings, docIds.length * terms.length);
+        }
+        docIds[size] = docId;
+        return size++;
+    }
+
+    /**
+     * 设置某一行中第termIndex个检索词的Posting
+     *
+     * @param row       行号
+     * @param termIndex 检索词下标
+     * @param posting   Posting
+     */
+    void set(int row, int termIndex, AbstractPosting posting) {
+        postings[row * terms.length + termIndex] = posting;
+    }
+
+    /**
+     * 返回匹配的文档个数
+     *
+     * @return 文档个数
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 返回某一行的docId
+     *
+     * @param row 行号
+     * @return 文档id
+     */
+    int docId(int row) {
+        return docIds[row];
+    }
+
+    /**
+     * 返回某一行中出现的检索词到Posting的映射，用于构造命中结果
+     *
+     * @param row 行号
+     * @return 检索词到Posting的映射
+     */
+    Map<AbstractTerm, AbstractPosting> termPostingMapping(int row) {
+        Map<AbstractTerm, AbstractPosting> termPostingMapping = new HashMap<>();
+        for (int t = 0; t < terms.length; t++) {
+            AbstractPosting posting = postings[row * terms.length + t];
+            if (posting != null) {
+                termPostingMapping.put(terms[t], posting);
+            }
+        }
+        return termPostingMapping;
+    }
+}
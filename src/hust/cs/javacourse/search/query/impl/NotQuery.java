@@ -0,0 +1,54 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
+import hust.cs.javacourse.search.query.AbstractQuery;
+
+/**
+ * NotQuery类命中不满足子查询的文档。
+ * 作为AndQuery的子查询时只用作排除条件；单独使用或出现在OrQuery中时，命中索引中所有不满足子查询的文档。
+ *
+ * @author 晋晨曦
+ */
+public class NotQuery extends AbstractQuery {
+    private final AbstractQuery clause;
+
+    /**
+     * 构造函数
+     *
+     * @param clause 被排除的子查询
+     */
+    public NotQuery(AbstractQuery clause) {
+        this.clause = clause;
+    }
+
+    /**
+     * 获取被排除的子查询
+     *
+     * @return 子查询
+     */
+    public AbstractQuery getClause() {
+        return clause;
+    }
+
+    /**
+     * 创建从全部文档中排除子查询命中文档的迭代器
+     *
+     * @param index 检索的索引
+     * @return 文档迭代器
+     */
+    @Override
+    public AbstractDocIterator iterator(AbstractIndex index) {
+        return new ExclusionDocIterator(new AllDocIterator(index), clause.iterator(index));
+    }
+
+    /**
+     * 返回查询的字符串表示
+     *
+     * @return 查询的字符串表示
+     */
+    @Override
+    public String toString() {
+        return "NOT " + clause;
+    }
+}
@@ -0,0 +1,77 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
+import hust.cs.javacourse.search.query.AbstractQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * OrQuery类命中满足任意一个子查询的文档。
+ *
+ * @author 晋晨曦
+ */
+public class OrQuery extends AbstractQuery {
+    private final List<AbstractQuery> clauses;
+
+    /**
+     * 构造函数
+     *
+     * @param clauses 子查询
+     */
+    public OrQuery(List<AbstractQuery> clauses) {
+        if (clauses.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个子查询");
+        }
+        this.clauses = Collections.unmodifiableList(new ArrayList<>(clauses));
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param clauses 子查询
+     */
+    public OrQuery(AbstractQuery... clauses) {
+        this(Arrays.asList(clauses));
+    }
+
+    /**
+     * 获取子查询
+     *
+     * @return 子查询列表
+     */
+    public List<AbstractQuery> getClauses() {
+        return clauses;
+    }
+
+    /**
+     * 创建求并集的迭代器
+     *
+     * @param index 检索的索引
+     * @return 文档迭代器
+     */
+    @Override
+    public AbstractDocIterator iterator(AbstractIndex index) {
+        if (clauses.size() == 1) {
+            return clauses.get(0).iterator(index);
+        }
+        List<AbstractDocIterator> iterators = new ArrayList<>(clauses.size());
+        for (AbstractQuery clause : clauses) {
+            iterators.add(clause.iterator(index));
+        }
+        return new DisjunctionDocIterator(iterators);
+    }
+
+    /**
+     * 返回查询的字符串表示
+     *
+     * @return 查询的字符串表示
+     */
+    @Override
+    public String toString() {
+        return AndQuery.join(clauses, " OR ");
+    }
+}
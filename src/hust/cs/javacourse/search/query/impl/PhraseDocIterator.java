@@ -0,0 +1,170 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractPosting;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PhraseDocIterator类是短语查询的迭代器。
+ * 先用ConjunctionDocIterator找出包含所有检索词的候选文档，再对每个候选文档归并各检索词有序的位置数组，
+ * 统计短语出现的次数(phraseFreq)，次数为0的候选文档被跳过。
+ * 每个文档的短语出现次数只计算一次，同时用于判断是否命中和打分。
+ *
+ * @author 晋晨曦
+ */
+class PhraseDocIterator extends AbstractDocIterator {
+    private final TermDocIterator[] iterators;
+    private final AbstractDocIterator approximation;
+    private final int[] offsets;
+    private final int slop;
+    private final AbstractPosting[] postings;
+    private final int[] cursors;
+    private int phraseFreq;
+
+    /**
+     * 构造函数
+     *
+     * @param iterators 按短语中的顺序排列的检索词迭代器，至少一个
+     * @param offsets   每个检索词在短语中相对第一个检索词的位置，严格递增
+     * @param slop      检索词之间允许夹杂的其他单词总数
+     */
+    PhraseDocIterator(List<TermDocIterator> iterators, int[] offsets, int slop) {
+        this.iterators = iterators.toArray(new TermDocIterator[0]);
+        this.approximation = iterators.size() == 1 ? this.iterators[0] : new ConjunctionDocIterator(new ArrayList<>(iterators));
+        this.offsets = offsets;
+        this.slop = slop;
+        this.postings = new AbstractPosting[this.iterators.length];
+        this.cursors = new int[this.iterators.length];
+    }
+
+    /**
+     * 返回当前停留的文档id
+     *
+     * @return 当前文档id
+     */
+    @Override
+    public int docId() {
+        return approximation.docId();
+    }
+
+    /**
+     * 移动到下一个命中文档
+     *
+     * @return 下一个命中文档的id，没有时返回NO_MORE_DOCS
+     */
+    @Override
+    public int nextDoc() {
+        return doNext(approximation.nextDoc());
+    }
+
+    /**
+     * 移动到第一个id不小于target的命中文档
+     *
+     * @param target 目标文档id
+     * @return 命中文档的id，没有时返回NO_MORE_DOCS
+     */
+    @Override
+    public int advance(int target) {
+        return doNext(approximation.advance(target));
+    }
+
+    /**
+     * 从候选文档docId开始，找到第一个短语出现次数大于0的文档
+     */
+    private int doNext(int docId) {
+        while (docId != NO_MORE_DOCS) {
+            for (int i = 0; i < iterators.length; i++) {
+                postings[i] = iterators[i].posting();
+            }
+            phraseFreq = phraseFreq(postings, offsets, slop, cursors);
+            if (phraseFreq > 0) {
+                return docId;
+            }
+            docId = approximation.nextDoc();
+        }
+        phraseFreq = 0;
+        return docId;
+    }
+
+    /**
+     * 估计最多产生的文档个数
+     *
+     * @return 文档个数的上界估计
+     */
+    @Override
+    public long cost() {
+        return approximation.cost();
+    }
+
+    /**
+     * 把当前文档中命中的检索词及其Posting加入映射
+     *
+     * @param termPostingMapping 检索词到Posting的映射
+     */
+    @Override
+    public void collect(Map<AbstractTerm, AbstractPosting> termPostingMapping) {
+        for (TermDocIterator iterator : iterators) {
+            iterator.collect(termPostingMapping);
+        }
+    }
+
+    /**
+     * 返回短语在当前文档中出现的次数
+     *
+     * @return 短语出现的次数
+     */
+    int phraseFreq() {
+        return phraseFreq;
+    }
+
+    /**
+     * 归并同一文档中各检索词的有序位置数组，统计短语出现的次数。
+     * 对第一个检索词的每个位置start，后面第i个检索词取不小于前一个检索词位置加上两者在短语中距离的最小位置，
+     * 这样得到的最后一个位置最小；夹杂的单词总数(last - start - offsets[n - 1])不超过slop时算出现一次。
+     * start增大时每个检索词要取的位置不会变小，所以各检索词的游标只向前移动，总时间与位置总数成线性关系。
+     *
+     * @param postings 按短语中的顺序排列的各检索词在同一文档中的Posting，位置必须从小到大排列
+     * @param offsets  每个检索词在短语中相对第一个检索词的位置，严格递增
+     * @param slop     检索词之间允许夹杂的其他单词总数
+     * @param cursors  长度不小于postings.length的游标数组，由调用者提供以便复用
+     * @return 短语出现的次数
+     */
+    static int phraseFreq(AbstractPosting[] postings, int[] offsets, int slop, int[] cursors) {
+        List<Integer> first = postings[0].getPositions();
+        if (postings.length == 1) {
+            return first.size();
+        }
+        for (int i = 1; i < postings.length; i++) {
+            cursors[i] = 0;
+        }
+        int freq = 0;
+        outer:
+        for (int s = 0; s < first.size(); s++) {
+            int start = first.get(s);
+            int previous = start;
+            for (int i = 1; i < postings.length; i++) {
+                List<Integer> positions = postings[i].getPositions();
+                int cursor = cursors[i];
+                int minimum = previous + offsets[i] - offsets[i - 1];
+                while (cursor < positions.size() && positions.get(cursor) < minimum) {
+                    cursor++;
+                }
+                cursors[i] = cursor;
+                if (cursor == positions.size()) {
+                    // 后面的start更大，同样找不到这个检索词的位置
+                    return freq;
+                }
+                previous = positions.get(cursor);
+                if (previous - start - offsets[i] > slop) {
+                    continue outer;
+                }
+            }
+            freq++;
+        }
+        return freq;
+    }
+}
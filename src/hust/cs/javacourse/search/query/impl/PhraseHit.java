@@ -0,0 +1,54 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractPosting;
+import hust.cs.javacourse.search.index.AbstractTerm;
+
+import java.util.Map;
+
+/**
+ * PhraseHit类是短语查询的命中结果，除了命中的单词和Posting，还记录匹配时已经算出的短语出现次数，
+ * PhraseSort打分时直接使用，不必再次归并位置数组。
+ *
+ * @author 晋晨曦
+ */
+class PhraseHit extends Hit {
+    private int phraseFreq;
+
+    /**
+     * 默认构造函数
+     */
+    PhraseHit() {
+
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param docId              文档id
+     * @param docPath            文档绝对路径
+     * @param termPostingMapping 命中的单词和对应的Posting键值对
+     * @param phraseFreq         短语在文档中出现的次数
+     */
+    PhraseHit(int docId, String docPath, Map<AbstractTerm, AbstractPosting> termPostingMapping, int phraseFreq) {
+        super(docId, docPath, termPostingMapping);
+        this.phraseFreq = phraseFreq;
+    }
+
+    /**
+     * 获取短语在文档中出现的次数
+     *
+     * @return 短语出现的次数
+     */
+    int getPhraseFreq() {
+        return phraseFreq;
+    }
+
+    /**
+     * 设置短语在文档中出现的次数
+     *
+     * @param phraseFreq 短语出现的次数
+     */
+    void setPhraseFreq(int phraseFreq) {
+        this.phraseFreq = phraseFreq;
+    }
+}
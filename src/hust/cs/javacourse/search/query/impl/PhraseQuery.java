@@ -0,0 +1,149 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
+import hust.cs.javacourse.search.query.AbstractQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * PhraseQuery类命中按给定顺序出现若干检索词的文档(短语查询)。
+ * slop为0时检索词必须依次相邻；slop大于0时允许检索词之间总共夹杂至多slop个其他单词(邻近查询)，
+ * 但检索词的先后顺序不能改变。
+ * 检索词在短语中的位置可以不连续，中间空出的位置(例如建立索引时被过滤掉的停用词)必须夹杂同样个数的单词，不计入slop。
+ *
+ * @author 晋晨曦
+ */
+public class PhraseQuery extends AbstractQuery {
+    private final List<AbstractTerm> terms;
+    private final int[] positions;
+    private final int slop;
+
+    /**
+     * 构造函数
+     *
+     * @param terms 按短语中的顺序排列的检索词，至少一个
+     * @param slop  检索词之间允许夹杂的其他单词总数，不能为负
+     */
+    public PhraseQuery(List<AbstractTerm> terms, int slop) {
+        this(terms, consecutive(terms.size()), slop);
+    }
+
+    /**
+     * 构造函数，指定每个检索词在短语中的位置
+     *
+     * @param terms     按短语中的顺序排列的检索词，至少一个
+     * @param positions 每个检索词在短语中的位置，严格递增
+     * @param slop      检索词之间除空出的位置以外允许夹杂的其他单词总数，不能为负
+     */
+    public PhraseQuery(List<AbstractTerm> terms, int[] positions, int slop) {
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个检索词");
+        }
+        if (positions.length != terms.size()) {
+            throw new IllegalArgumentException("位置个数与检索词个数不同");
+        }
+        for (int i = 1; i < positions.length; i++) {
+            if (positions[i] <= positions[i - 1]) {
+                throw new IllegalArgumentException("检索词的位置必须严格递增: " + Arrays.toString(positions));
+            }
+        }
+        if (slop < 0) {
+            throw new IllegalArgumentException("slop不能为负: " + slop);
+        }
+        this.terms = Collections.unmodifiableList(new ArrayList<>(terms));
+        // 以第一个检索词为0，短语前面空出的位置不影响匹配
+        this.positions = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            this.positions[i] = positions[i] - positions[0];
+        }
+        this.slop = slop;
+    }
+
+    private static int[] consecutive(int count) {
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = i;
+        }
+        return positions;
+    }
+
+    /**
+     * 构造函数，检索词必须依次相邻
+     *
+     * @param terms 按短语中的顺序排列的检索词，至少一个
+     */
+    public PhraseQuery(AbstractTerm... terms) {
+        this(Arrays.asList(terms), 0);
+    }
+
+    /**
+     * 获取检索词
+     *
+     * @return 按短语中的顺序排列的检索词
+     */
+    public List<AbstractTerm> getTerms() {
+        return terms;
+    }
+
+    /**
+     * 获取每个检索词在短语中相对第一个检索词的位置
+     *
+     * @return 相对位置，第一个为0
+     */
+    public int[] getPositions() {
+        return positions.clone();
+    }
+
+    /**
+     * 获取检索词之间允许夹杂的其他单词总数
+     *
+     * @return slop
+     */
+    public int getSlop() {
+        return slop;
+    }
+
+    /**
+     * 创建先求所有检索词的交集、再在每个候选文档上匹配位置的迭代器
+     *
+     * @param index 检索的索引
+     * @return 文档迭代器
+     */
+    @Override
+    public AbstractDocIterator iterator(AbstractIndex index) {
+        List<TermDocIterator> iterators = new ArrayList<>();
+        for (AbstractTerm term : terms) {
+            iterators.add(new TermDocIterator(term, index.search(term)));
+        }
+        return new PhraseDocIterator(iterators, positions, slop);
+    }
+
+    /**
+     * 返回查询的字符串表示
+     *
+     * @return 查询的字符串表示，空出的位置写成?，slop大于0时在引号后加上~slop
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < terms.size(); i++) {
+            if (i > 0) {
+                for (int gap = positions[i - 1] + 1; gap < positions[i]; gap++) {
+                    builder.append(" ?");
+                }
+                builder.append(' ');
+            }
+            builder.append(terms.get(i).getContent());
+        }
+        builder.append('"');
+        if (slop > 0) {
+            builder.append('~').append(slop);
+        }
+        return builder.toString();
+    }
+}
@@ -1,18 +1,19 @@
 package hust.cs.javacourse.search.query.impl;
 
 import hust.cs.javacourse.search.index.AbstractPosting;
-import hust.cs.javacourse.search.index.AbstractTerm;
 import hust.cs.javacourse.search.query.AbstractHit;
 import hust.cs.javacourse.search.query.Sort;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * PhraseSort类是Sort接口的装饰者实现。
  * 它提供了对搜索结果进行排序的功能，特别的，它实现了短语搜索的得分计算方式，
- * 即两个查询词在文档中的位置必须是相邻的，得分为相邻的查询词对的数量。
+ * 即查询词在文档中的位置必须是依次相邻的，得分为短语出现的次数。
+ * 短语查询的命中结果(PhraseHit)在匹配时已经算出出现次数，直接使用；
+ * 其他命中结果与原来一样，把termPostingMapping的遍历顺序当作短语中检索词的顺序，归并位置数组计算。
+ * termPostingMapping不能表示重复的检索词，也不一定按短语的顺序遍历，这样算出的得分只在检索词互不相同、
+ * 且遍历顺序就是短语顺序时才准确，短语查询应当使用IndexPhraseSearcher得到PhraseHit。
  *
  * @author 晋晨曦
  */
@@ -39,23 +40,24 @@ public class PhraseSort implements Sort {
     }
 
     /**
-     * 计算搜索结果的得分的方法。得分为相邻的查询词对的数量。
+     * 计算搜索结果的得分的方法。得分为短语出现的次数。
      *
      * @param hit 搜索结果
      * @return 搜索结果的得分
      */
     @Override
     public double score(AbstractHit hit) {
-        List<Map.Entry<AbstractTerm, AbstractPosting>> postings = new ArrayList<>(hit.getTermPostingMapping().entrySet());
-        AbstractPosting posting1 = postings.get(0).getValue();
-        AbstractPosting posting2 = postings.get(1).getValue();
-        int ans = 0;
-        for (int i = 0; i < posting1.getPositions().size(); i++) {
-            int nowPosition = posting1.getPositions().get(i);
-            if (posting2.getPositions().contains(nowPosition + 1)) {
-                ans++;
-            }
+        if (hit instanceof PhraseHit) {
+            return ((PhraseHit) hit).getPhraseFreq();
         }
-        return ans;
+        AbstractPosting[] postings = hit.getTermPostingMapping().values().toArray(new AbstractPosting[0]);
+        if (postings.length == 0) {
+            return 0;
+        }
+        int[] offsets = new int[postings.length];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = i;
+        }
+        return PhraseDocIterator.phraseFreq(postings, offsets, 0, new int[postings.length]);
     }
 }
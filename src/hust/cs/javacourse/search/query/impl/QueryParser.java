@@ -0,0 +1,253 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.Term;
+import hust.cs.javacourse.search.parse.AbstractAnalyzer;
+import hust.cs.javacourse.search.parse.impl.StandardAnalyzer;
+import hust.cs.javacourse.search.query.AbstractQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * QueryParser类把查询字符串解析成查询树。语法如下，运算符优先级从高到低为NOT、AND、OR：
+ * <pre>
+ *     query   := or
+ *     or      := and (["OR"] and)*        相邻的两个子查询之间没有运算符时按OR处理
+ *     and     := unary ("AND" unary)*
+ *     unary   := "NOT" unary | primary
+ *     primary := "(" or ")" | "\"" 单词+ "\"" ["~" slop] | 单词
+ * </pre>
+ * 运算符必须大写；检索词由分析器规范化(转为小写、提取词干等)，应当使用建立索引时的分析器(AbstractIndex.getAnalyzer)，
+ * 没有指定时使用按Config当前设置创建的StandardAnalyzer。引号内的多个单词构成PhraseQuery，
+ * 只有一个单词时构成TermQuery。语法错误时抛出IllegalArgumentException。
+ * 建立索引时会被过滤掉的检索词(例如停用词)在布尔查询中被忽略，包含它的NOT、AND、OR子查询随之去掉；
+ * 在短语中保留为空出的位置，例如"cat the dog"要求cat和dog之间恰好夹着一个单词。
+ * 解析器对象保存解析进度，不能被多个线程共享，每个查询字符串新建一个。
+ *
+ * @author 晋晨曦
+ */
+public class QueryParser {
+    private final String input;
+    private final AbstractAnalyzer analyzer;
+    private int pos;
+
+    /**
+     * 构造函数
+     *
+     * @param input    查询字符串
+     * @param analyzer 规范化检索词的分析器
+     */
+    private QueryParser(String input, AbstractAnalyzer analyzer) {
+        this.input = input;
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * 把查询字符串解析成查询树，检索词按Config的当前设置规范化
+     *
+     * @param input 查询字符串
+     * @return 查询树的根节点
+     * @throws IllegalArgumentException 查询字符串为空或有语法错误
+     */
+    public static AbstractQuery parse(String input) {
+        return parse(input, null);
+    }
+
+    /**
+     * 把查询字符串解析成查询树，检索词用指定的分析器规范化
+     *
+     * @param input    查询字符串
+     * @param analyzer 建立索引时使用的分析器，为null时按Config的当前设置规范化
+     * @return 查询树的根节点
+     * @throws IllegalArgumentException 查询字符串为空、有语法错误或全部检索词都会被过滤掉
+     */
+    public static AbstractQuery parse(String input, AbstractAnalyzer analyzer) {
+        QueryParser parser = new QueryParser(input, analyzer != null ? analyzer : new StandardAnalyzer());
+        AbstractQuery query = parser.parseOr();
+        parser.skipSpaces();
+        if (parser.pos < input.length()) {
+            throw parser.error("多余的字符");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("检索词都是建立索引时会被过滤掉的单词: " + input);
+        }
+        return query;
+    }
+
+    /**
+     * 以下parseXxx方法在子查询的检索词全部被过滤掉时返回null
+     */
+    private AbstractQuery parseOr() {
+        List<AbstractQuery> clauses = new ArrayList<>();
+        addClause(clauses, parseAnd());
+        while (true) {
+            skipSpaces();
+            if (acceptKeyword("OR")) {
+                addClause(clauses, parseAnd());
+            } else if (startsClause()) {
+                addClause(clauses, parseAnd());
+            } else {
+                break;
+            }
+        }
+        return clauses.size() <= 1 ? (clauses.isEmpty() ? null : clauses.get(0)) : new OrQuery(clauses);
+    }
+
+    private AbstractQuery parseAnd() {
+        List<AbstractQuery> clauses = new ArrayList<>();
+        addClause(clauses, parseUnary());
+        while (acceptKeyword("AND")) {
+            addClause(clauses, parseUnary());
+        }
+        return clauses.size() <= 1 ? (clauses.isEmpty() ? null : clauses.get(0)) : new AndQuery(clauses);
+    }
+
+    private static void addClause(List<AbstractQuery> clauses, AbstractQuery clause) {
+        if (clause != null) {
+            clauses.add(clause);
+        }
+    }
+
+    private AbstractQuery parseUnary() {
+        if (acceptKeyword("NOT")) {
+            AbstractQuery clause = parseUnary();
+            return clause == null ? null : new NotQuery(clause);
+        }
+        return parsePrimary();
+    }
+
+    private AbstractQuery parsePrimary() {
+        skipSpaces();
+        if (pos == input.length()) {
+            throw error("缺少检索词");
+        }
+        char c = input.charAt(pos);
+        if (c == '(') {
+            pos++;
+            AbstractQuery query = parseOr();
+            skipSpaces();
+            if (pos == input.length() || input.charAt(pos) != ')') {
+                throw error("缺少右括号");
+            }
+            pos++;
+            return query;
+        }
+        if (c == '"') {
+            return parsePhrase();
+        }
+        String word = readWord();
+        if (word.isEmpty()) {
+            throw error("缺少检索词");
+        }
+        AbstractTerm term = term(word);
+        return term == null ? null : new TermQuery(term);
+    }
+
+    private AbstractQuery parsePhrase() {
+        pos++;
+        List<AbstractTerm> terms = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        int position = 0;
+        boolean empty = true;
+        while (true) {
+            skipSpaces();
+            if (pos == input.length()) {
+                throw error("缺少右引号");
+            }
+            if (input.charAt(pos) == '"') {
+                pos++;
+                break;
+            }
+            String word = readWord();
+            if (word.isEmpty()) {
+                // 引号内的括号和~不能作为单词的一部分，不跳过的话会一直读到空单词
+                throw error("引号内不能有括号或~");
+            }
+            empty = false;
+            AbstractTerm term = term(word);
+            if (term != null) {
+                terms.add(term);
+                positions.add(position);
+            }
+            position++;
+        }
+        if (empty) {
+            throw error("引号内没有检索词");
+        }
+        int slop = 0;
+        if (pos < input.length() && input.charAt(pos) == '~') {
+            pos++;
+            int start = pos;
+            while (pos < input.length() && Character.isDigit(input.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("~后缺少slop");
+            }
+            slop = Integer.parseInt(input.substring(start, pos));
+        }
+        if (terms.isEmpty()) {
+            return null;
+        }
+        return terms.size() == 1 && slop == 0 ? new TermQuery(terms.get(0))
+                : new PhraseQuery(terms, positions.stream().mapToInt(Integer::intValue).toArray(), slop);
+    }
+
+    /**
+     * 读取一个单词：直到空白、括号、引号或~为止
+     */
+    private String readWord() {
+        int start = pos;
+        while (pos < input.length() && !isDelimiter(input.charAt(pos))) {
+            pos++;
+        }
+        return input.substring(start, pos);
+    }
+
+    /**
+     * 如果接下来是指定的运算符(后面跟着分隔符或结束)，跳过它并返回true
+     */
+    private boolean acceptKeyword(String keyword) {
+        skipSpaces();
+        int end = pos + keyword.length();
+        if (input.startsWith(keyword, pos) && (end == input.length() || isDelimiter(input.charAt(end)))) {
+            pos = end;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 接下来是否是一个子查询的开始(而不是右括号、AND或结束)
+     */
+    private boolean startsClause() {
+        if (pos == input.length() || input.charAt(pos) == ')') {
+            return false;
+        }
+        int end = pos + 3;
+        return !(input.startsWith("AND", pos) && (end == input.length() || isDelimiter(input.charAt(end))));
+    }
+
+    private void skipSpaces() {
+        while (pos < input.length() && Character.isWhitespace(input.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private static boolean isDelimiter(char c) {
+        return Character.isWhitespace(c) || c == '(' || c == ')' || c == '"' || c == '~';
+    }
+
+    /**
+     * 用分析器规范化检索词，建立索引时会被过滤掉的单词返回null
+     */
+    private AbstractTerm term(String word) {
+        String normalized = analyzer.normalize(word);
+        return normalized == null ? null : new Term(normalized);
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + "(位置" + pos + "): " + input);
+    }
+}
@@ -3,7 +3,7 @@ package hust.cs.javacourse.search.query.impl;
 import hust.cs.javacourse.search.index.AbstractPosting;
 import hust.cs.javacourse.search.index.AbstractTerm;
 import hust.cs.javacourse.search.query.AbstractHit;
-import hust.cs.javacourse.search.query.Sort;
+import hust.cs.javacourse.search.query.TermScoreSort;
 
 import java.util.Collections;
 import java.util.List;
@@ -13,10 +13,11 @@ import java.util.Map;
  * SimpleSorter类实现了Sort接口，提供了对搜索结果进行排序的功能。
  * 它使用Java的内置排序函数，根据搜索结果的得分进行降序排序。
  * 得分的计算方式是将搜索结果中所有单词的频率加起来。
+ * 每个单词的贡献就是它的出现次数，满足TermScoreSort的约定，按得分取前K个结果时可以使用WAND跳过文档。
  *
  * @author 晋晨曦
  */
-public class SimpleSorter implements Sort {
+public class SimpleSorter implements TermScoreSort {
     /**
      * 对搜索结果进行排序的方法。使用Java的内置排序函数，根据搜索结果的得分进行降序排序。
      *
@@ -38,4 +39,29 @@ public class SimpleSorter implements Sort {
         Map<AbstractTerm, AbstractPosting> termPostingMapping = hit.getTermPostingMapping();
         return termPostingMapping.values().stream().mapToDouble(AbstractPosting::getFreq).sum();
     }
+
+    /**
+     * 一个单词对得分的贡献就是它在文档中的出现次数
+     *
+     * @param docId 文档id
+     * @param term  单词
+     * @param freq  出现次数
+     * @return 出现次数
+     */
+    @Override
+    public double termScore(int docId, AbstractTerm term, int freq) {
+        return freq;
+    }
+
+    /**
+     * 出现次数不超过maxFreq时贡献的上界就是maxFreq
+     *
+     * @param term    单词
+     * @param maxFreq 最大出现次数
+     * @return 最大出现次数
+     */
+    @Override
+    public double termUpperBound(AbstractTerm term, int maxFreq) {
+        return maxFreq;
+    }
 }
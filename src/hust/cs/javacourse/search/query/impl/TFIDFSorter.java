@@ -0,0 +1,204 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPosting;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.query.TermScoreSort;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TFIDFSorter类按TF-IDF计算命中文档的得分。
+ * <pre>
+ * 每个检索词的贡献为 (1 + ln tf) * idf / sqrt(dl)，
+ * 其中idf = ln(1 + N / df)，N为文档总数，df为文档频率，dl为文档长度.
+ * 对数词频削弱了高频词的作用，除以sqrt(dl)避免长文档仅因为单词多而得分高.
+ * </pre>
+ * 按docId预先算好每个文档的1 / sqrt(dl)，每个检索词的idf在第一次用到时算出并缓存，计算得分时不需要重新统计。
+ * 与BM25Sorter一样，forSnapshot返回绑定到检索所用视图统计量的排序器，未绑定的排序器在索引的版本号改变后重新统计。
+ *
+ * @author 晋晨曦
+ */
+public class TFIDFSorter implements TermScoreSort {
+    private final AbstractIndex index;
+    private volatile Statistics statistics;
+    /**
+     * 为true时统计量固定为构造时给定的一份，不再检查索引的版本号
+     */
+    private final boolean bound;
+
+    /**
+     * 构造函数
+     *
+     * @param index 提供文档长度和文档频率的索引
+     */
+    public TFIDFSorter(AbstractIndex index) {
+        this.index = index;
+        this.statistics = new Statistics(index.snapshot());
+        this.bound = false;
+    }
+
+    /**
+     * 构造绑定到一份统计量的排序器
+     */
+    private TFIDFSorter(AbstractIndex index, Statistics statistics) {
+        this.index = index;
+        this.statistics = statistics;
+        this.bound = true;
+    }
+
+    /**
+     * 返回绑定到给定视图统计量的排序器。视图与已有的统计量相同时直接复用，包括已经算出的idf
+     *
+     * @param snapshot 检索使用的索引视图
+     * @return 绑定到该视图的排序器
+     */
+    @Override
+    public TFIDFSorter forSnapshot(AbstractIndex snapshot) {
+        Statistics current = statistics;
+        if (current.view != snapshot || current.version != snapshot.getVersion()) {
+            current = new Statistics(snapshot);
+            if (!bound && snapshot == index.snapshot()) {
+                statistics = current;
+            }
+        }
+        return new TFIDFSorter(index, current);
+    }
+
+    /**
+     * 返回计算得分用的统计量：绑定的排序器返回固定的一份，否则在索引的版本号改变后重新统计
+     *
+     * @return 统计量
+     */
+    private Statistics statistics() {
+        Statistics current = statistics;
+        if (!bound && current.version != index.getVersion()) {
+            current = new Statistics(index.snapshot());
+            statistics = current;
+        }
+        return current;
+    }
+
+    /**
+     * 按得分从高到低排序
+     *
+     * @param hits 命中结果列表
+     */
+    @Override
+    public void sort(List<AbstractHit> hits) {
+        hits.sort(Collections.reverseOrder());
+    }
+
+    /**
+     * 计算命中文档的得分，即每个命中检索词的TF-IDF贡献之和
+     *
+     * @param hit 命中结果
+     * @return 得分
+     */
+    @Override
+    public double score(AbstractHit hit) {
+        double score = 0;
+        for (Map.Entry<AbstractTerm, AbstractPosting> entry : hit.getTermPostingMapping().entrySet()) {
+            score += termScore(hit.getDocId(), entry.getKey(), entry.getValue().getFreq());
+        }
+        return score;
+    }
+
+    /**
+     * 计算一个检索词的TF-IDF贡献
+     *
+     * @param docId 文档id
+     * @param term  检索词
+     * @param freq  检索词在文档中的出现次数
+     * @return 该检索词贡献的得分
+     */
+    @Override
+    public double termScore(int docId, AbstractTerm term, int freq) {
+        if (freq <= 0) {
+            return 0;
+        }
+        Statistics current = statistics();
+        double norm = docId < current.lengthNorms.length ? current.lengthNorms[docId] : current.maxLengthNorm;
+        return (1 + Math.log(freq)) * current.idf(term) * norm;
+    }
+
+    /**
+     * 出现次数不超过maxFreq时贡献的上界，用最短文档的长度归一化项计算
+     *
+     * @param term    检索词
+     * @param maxFreq 最大出现次数
+     * @return 得分上界
+     */
+    @Override
+    public double termUpperBound(AbstractTerm term, int maxFreq) {
+        if (maxFreq <= 0) {
+            return 0;
+        }
+        Statistics current = statistics();
+        return (1 + Math.log(maxFreq)) * current.idf(term) * current.maxLengthNorm;
+    }
+
+    /**
+     * 返回检索词的idf，第一次用到时由索引保存的文档频率计算
+     *
+     * @param term 检索词
+     * @return idf
+     */
+    public double idf(AbstractTerm term) {
+        return statistics().idf(term);
+    }
+
+    /**
+     * 索引某一版本的统计量：文档总数、每个文档的1 / sqrt(dl)和已经算出的idf
+     */
+    private static final class Statistics {
+        private final AbstractIndex view;
+        private final long version;
+        private final int docCount;
+        private final double[] lengthNorms;
+        private final double maxLengthNorm;
+        private final Map<AbstractTerm, Double> idfs = new ConcurrentHashMap<>();
+
+        /**
+         * 由索引的只读视图统计
+         *
+         * @param view 索引的只读视图
+         */
+        private Statistics(AbstractIndex view) {
+            this.view = view;
+            this.version = view.getVersion();
+            this.docCount = view.docIdToDocPathMapping.size();
+            int maxDocId = -1;
+            for (int docId : view.docIdToDocPathMapping.keySet()) {
+                maxDocId = Math.max(maxDocId, docId);
+            }
+            this.lengthNorms = new double[maxDocId + 1];
+            double max = 0;
+            for (int docId : view.docIdToDocPathMapping.keySet()) {
+                lengthNorms[docId] = 1 / Math.sqrt(Math.max(1, view.getDocLength(docId)));
+                max = Math.max(max, lengthNorms[docId]);
+            }
+            this.maxLengthNorm = max;
+        }
+
+        /**
+         * 返回检索词的idf，第一次用到时由视图保存的文档频率计算
+         *
+         * @param term 检索词
+         * @return idf
+         */
+        private double idf(AbstractTerm term) {
+            Double idf = idfs.get(term);
+            if (idf == null) {
+                int df = view.getDocFreq(term);
+                idf = df == 0 ? 0 : Math.log(1 + (double) docCount / df);
+                idfs.put(term, idf);
+            }
+            return idf;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractPosting;
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
+
+import java.util.Map;
+
+/**
+ * TermDocIterator类在一个单词的有序PostingList上迭代，是查询树的叶子迭代器。
+ * advance直接调用AbstractPostingList.advance，利用跳表和指数查找跳过不需要的Posting。
+ *
+ * @author 晋晨曦
+ */
+class TermDocIterator extends AbstractDocIterator {
+    private final AbstractTerm term;
+    private final AbstractPostingList postingList;
+    private final int size;
+    private int index = -1;
+    private int docId = -1;
+
+    /**
+     * 构造函数
+     *
+     * @param term        检索词
+     * @param postingList 检索词的PostingList，索引中没有该单词时为null
+     */
+    TermDocIterator(AbstractTerm term, AbstractPostingList postingList) {
+        this.term = term;
+        this.postingList = postingList;
+        this.size = postingList == null ? 0 : postingList.size();
+    }
+
+    /**
+     * 返回当前停留的文档id
+     *
+     * @return 当前文档id
+     */
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    /**
+     * 移动到下一个命中文档
+     *
+     * @return 下一个命中文档的id，没有时返回NO_MORE_DOCS
+     */
+    @Override
+    public int nextDoc() {
+        return moveTo(index + 1);
+    }
+
+    /**
+     * 移动到第一个id不小于target的命中文档
+     *
+     * @param target 目标文档id
+     * @return 命中文档的id，没有时返回NO_MORE_DOCS
+     */
+    @Override
+    public int advance(int target) {
+        return moveTo(postingList == null ? size : postingList.advance(Math.max(index, 0), target));
+    }
+
+    private int moveTo(int newIndex) {
+        index = newIndex;
+        docId = index < size ? postingList.docIdAt(index) : NO_MORE_DOCS;
+        return docId;
+    }
+
+    /**
+     * 估计最多产生的文档个数
+     *
+     * @return 文档个数的上界估计
+     */
+    @Override
+    public long cost() {
+        return size;
+    }
+
+    /**
+     * 把当前文档中命中的检索词及其Posting加入映射
+     *
+     * @param termPostingMapping 检索词到Posting的映射
+     */
+    @Override
+    public void collect(Map<AbstractTerm, AbstractPosting> termPostingMapping) {
+        termPostingMapping.put(term, postingList.get(index));
+    }
+
+    /**
+     * 返回当前文档的Posting
+     *
+     * @return 当前文档的Posting
+     */
+    AbstractPosting posting() {
+        return postingList.get(index);
+    }
+
+    /**
+     * 返回迭代的检索词
+     *
+     * @return 检索词
+     */
+    AbstractTerm term() {
+        return term;
+    }
+}
@@ -0,0 +1,54 @@
+package hust.cs.javacourse.search.query.impl;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
+import hust.cs.javacourse.search.query.AbstractQuery;
+
+/**
+ * TermQuery类是查询树的叶子节点，命中包含指定检索词的文档。
+ *
+ * @author 晋晨曦
+ */
+public class TermQuery extends AbstractQuery {
+    private final AbstractTerm term;
+
+    /**
+     * 构造函数
+     *
+     * @param term 检索词
+     */
+    public TermQuery(AbstractTerm term) {
+        this.term = term;
+    }
+
+    /**
+     * 获取检索词
+     *
+     * @return 检索词
+     */
+    public AbstractTerm getTerm() {
+        return term;
+    }
+
+    /**
+     * 在指定索引上创建检索词PostingList的迭代器
+     *
+     * @param index 检索的索引
+     * @return 文档迭代器
+     */
+    @Override
+    public AbstractDocIterator iterator(AbstractIndex index) {
+        return new TermDocIterator(term, index.search(term));
+    }
+
+    /**
+     * 返回查询的字符串表示
+     *
+     * @return 检索词的内容
+     */
+    @Override
+    public String toString() {
+        return term.getContent();
+    }
+}
@@ -0,0 +1,144 @@
+package hust.cs.javacourse.search.query.impl;
+
+import java.util.Arrays;
+
+/**
+ * TopKCollector类在检索过程中保留得分最高的K个文档。
+ * 内部是以(score, docId)两个基本类型数组实现的最小堆，堆顶是当前K个文档中最差的一个：
+ * 新文档只有比堆顶好时才替换堆顶，每个文档的代价为O(log K)，不为每个命中文档创建对象。
+ * 得分相同时docId小的文档更好，与按docId顺序产生命中结果再稳定排序的结果一致。
+ *
+ * @author 晋晨曦
+ */
+class TopKCollector {
+    private final int[] docIds;
+    private final double[] scores;
+    private int size;
+
+    /**
+     * 构造函数
+     *
+     * @param k 保留的文档个数，必须大于0
+     */
+    TopKCollector(int k) {
+        docIds = new int[k];
+        scores = new double[k];
+    }
+
+    /**
+     * 提交一个命中文档
+     *
+     * @param docId 文档id
+     * @param score 得分
+     */
+    void collect(int docId, double score) {
+        if (size < docIds.length) {
+            int i = size++;
+            // 上浮
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!worse(score, docId, scores[parent], docIds[parent])) {
+                    break;
+                }
+                docIds[i] = docIds[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            docIds[i] = docId;
+            scores[i] = score;
+        } else if (worse(scores[0], docIds[0], score, docId)) {
+            siftDown(docId, score);
+        }
+    }
+
+    /**
+     * 返回堆中最差文档的得分，堆未满时返回负无穷，得分不超过它的文档不可能进入结果
+     *
+     * @return 进入结果所需超过的得分
+     */
+    double minCompetitiveScore() {
+        return size < docIds.length ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /**
+     * 返回收集到的文档个数
+     *
+     * @return 文档个数，不超过K
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 检索结束后调用，把收集到的文档按docId从小到大重新排列，便于再次顺序访问这些文档。
+     * 调用后堆结构被破坏，不能再调用collect。
+     */
+    void sortByDocId() {
+        long[] packed = new long[size];
+        for (int i = 0; i < size; i++) {
+            // 高32位为docId，低32位为原下标
+            packed[i] = ((long) docIds[i] << 32) | i;
+        }
+        Arrays.sort(packed);
+        int[] sortedDocIds = new int[size];
+        double[] sortedScores = new double[size];
+        for (int i = 0; i < size; i++) {
+            int from = (int) packed[i];
+            sortedDocIds[i] = docIds[from];
+            sortedScores[i] = scores[from];
+        }
+        System.arraycopy(sortedDocIds, 0, docIds, 0, size);
+        System.arraycopy(sortedScores, 0, scores, 0, size);
+    }
+
+    /**
+     * 返回第i个收集到的文档id
+     *
+     * @param i 下标
+     * @return 文档id
+     */
+    int docIdAt(int i) {
+        return docIds[i];
+    }
+
+    /**
+     * 返回第i个收集到的文档的得分
+     *
+     * @param i 下标
+     * @return 得分
+     */
+    double scoreAt(int i) {
+        return scores[i];
+    }
+
+    /**
+     * 用新文档替换堆顶后下沉
+     */
+    private void siftDown(int docId, double score) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && worse(scores[child + 1], docIds[child + 1], scores[child], docIds[child])) {
+                child++;
+            }
+            if (!worse(scores[child], docIds[child], score, docId)) {
+                break;
+            }
+            docIds[i] = docIds[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        docIds[i] = docId;
+        scores[i] = score;
+    }
+
+    /**
+     * 判断文档a是否比文档b差：得分更低，或得分相同但docId更大
+     */
+    private static boolean worse(double scoreA, int docIdA, double scoreB, int docIdB) {
+        return scoreA < scoreB || (scoreA == scoreB && docIdA > docIdB);
+    }
+}
@@ -0,0 +1,152 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.util.Config;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+/**
+ * 生成用于性能测试的英文文本语料.
+ * 单词由小写字母随机组成，出现频率近似Zipf分布，句子之间用标点分隔，固定随机种子保证每次生成的内容相同.
+ *
+ * @author 晋晨曦
+ */
+public class CorpusGenerator {
+    private final String[] vocabulary;
+    private final Random random;
+
+    /**
+     * 构造函数
+     *
+     * @param vocabularySize : 词表大小
+     * @param seed           : 随机种子
+     */
+    public CorpusGenerator(int vocabularySize, long seed) {
+        this.random = new Random(seed);
+        this.vocabulary = new String[vocabularySize];
+        for (int i = 0; i < vocabularySize; i++) {
+            int length = 3 + random.nextInt(8);
+            StringBuilder word = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            vocabulary[i] = word.toString();
+        }
+    }
+
+    /**
+     * 返回按Zipf近似分布随机选取的一个单词
+     *
+     * @return : 单词
+     */
+    public String nextWord() {
+        return vocabulary[(int) (vocabulary.length * Math.pow(random.nextDouble(), 3))];
+    }
+
+    /**
+     * 在指定目录下生成若干文本文件，直到总大小达到指定字节数
+     *
+     * @param dir        : 输出目录
+     * @param totalBytes : 语料总字节数
+     * @param fileBytes  : 每个文件的字节数
+     * @return : 生成的文件个数
+     * @throws IOException : 写文件失败
+     */
+    public int generate(File dir, long totalBytes, int fileBytes) throws IOException {
+        Files.createDirectories(dir.toPath());
+        int fileCount = 0;
+        for (long written = 0; written < totalBytes; fileCount++) {
+            File file = new File(dir, String.format("doc%06d.txt", fileCount));
+            written += writeFile(file, fileBytes);
+        }
+        return fileCount;
+    }
+
+    /**
+     * 返回指定规格语料的默认目录，不同规格的语料放在不同目录下，互不覆盖
+     *
+     * @param totalBytes : 语料总字节数
+     * @param fileBytes  : 每个文件的字节数
+     * @return : 语料目录
+     */
+    public static File directory(long totalBytes, int fileBytes) {
+        return new File(Config.PROJECT_HOME_DIR, "corpus-" + (totalBytes >> 20) + "mb-" + (fileBytes >> 10) + "kb");
+    }
+
+    /**
+     * 确保语料目录存在，不存在时按指定规格生成.
+     * 语料先生成到同级的临时目录，完成后再改名为目标目录，中途失败不会留下不完整的语料
+     *
+     * @param dir        : 语料目录，为null时使用该规格的默认目录
+     * @param totalBytes : 语料总字节数
+     * @param fileBytes  : 每个文件的字节数
+     * @return : 语料目录
+     * @throws IOException : 写文件失败
+     */
+    public static File ensure(File dir, long totalBytes, int fileBytes) throws IOException {
+        File corpus = dir != null ? dir : directory(totalBytes, fileBytes);
+        if (corpus.isDirectory()) {
+            return corpus;
+        }
+        File temp = new File(corpus.getPath() + ".tmp");
+        if (temp.exists()) {
+            File[] files = temp.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    Files.delete(file.toPath());
+                }
+            }
+            Files.delete(temp.toPath());
+        }
+        System.out.println("generating " + (totalBytes >> 20) + " MB corpus in " + corpus);
+        new CorpusGenerator(50000, 42).generate(temp, totalBytes, fileBytes);
+        Files.move(temp.toPath(), corpus.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return corpus;
+    }
+
+    /**
+     * 写入一个大约为指定字节数的文本文件
+     *
+     * @param file  : 目标文件
+     * @param bytes : 期望的字节数
+     * @return : 实际写入的字节数
+     * @throws IOException : 写文件失败
+     */
+    public int writeFile(File file, int bytes) throws IOException {
+        int written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            int sentence = 0;
+            while (written < bytes) {
+                String word = nextWord();
+                writer.write(word);
+                written += word.length() + 1;
+                if (++sentence % 12 == 0) {
+                    writer.write(".\n");
+                    written++;
+                } else {
+                    writer.write(' ');
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为输出目录、语料总MB数、单个文件KB数
+     * @throws IOException : 写文件失败
+     */
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "corpus");
+        long megaBytes = args.length > 1 ? Long.parseLong(args[1]) : 16;
+        int kiloBytes = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int files = new CorpusGenerator(50000, 42).generate(dir, megaBytes << 20, kiloBytes << 10);
+        System.out.println("generated " + files + " files in " + dir.getCanonicalPath());
+    }
+}
@@ -0,0 +1,33 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.query.impl.BM25Sorter;
+import hust.cs.javacourse.search.query.impl.IndexSearcher;
+import hust.cs.javacourse.search.server.QueryServer;
+import hust.cs.javacourse.search.util.Config;
+
+import java.io.IOException;
+
+/**
+ * 启动查询服务，所有请求共享同一个索引和检索器，按BM25得分排序.
+ * 例如: curl 'http://localhost:8080/search?q=hello+AND+world&amp;k=5&amp;snippet=8'
+ *
+ * @author 晋晨曦
+ */
+public class StartQueryServer {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为索引文件(默认Config.INDEX_DIR下的index.dat)、端口(默认Config.SERVER_PORT)
+     * @throws IOException : 绑定端口失败
+     */
+    public static void main(String[] args) throws IOException {
+        String indexFile = args.length > 0 ? args[0] : Config.INDEX_DIR + "index.dat";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : Config.SERVER_PORT;
+        AbstractIndex index = IndexSearcher.openIndex(indexFile);
+        QueryServer server = new QueryServer(new IndexSearcher(index), new BM25Sorter(index), port,
+                Config.SERVER_MAX_CONCURRENT_QUERIES, Config.SERVER_QUERY_TIMEOUT_MILLIS);
+        server.start();
+        System.out.println("listening on http://localhost:" + server.getPort() + "/search?q=...");
+    }
+}
@@ -0,0 +1,187 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.Index;
+import hust.cs.javacourse.search.index.impl.IncrementalIndexBuilder;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.index.impl.MappedIndex;
+import hust.cs.javacourse.search.index.impl.SegmentFormat;
+import hust.cs.javacourse.search.index.impl.SegmentWriter;
+import hust.cs.javacourse.search.index.impl.SegmentedIndex;
+import hust.cs.javacourse.search.parse.AbstractAnalyzer;
+import hust.cs.javacourse.search.parse.impl.PorterStemmer;
+import hust.cs.javacourse.search.parse.impl.StandardAnalyzer;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
+import hust.cs.javacourse.search.query.impl.QueryParser;
+import hust.cs.javacourse.search.util.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 检查分析器链：Porter词干提取与参考实现的结果一致；比较提取词干前后的单词个数、索引大小和构建耗时；
+ * 检查提取词干的索引可以用单词的其他词形检索到，检索词中的停用词在布尔查询中被忽略、在短语中保留为空出的位置，并且分析器随压缩段文件、序列化文件、MappedIndex和SegmentedIndex
+ * 保存和重新打开后不变，用重新打开的索引记录的分析器解析同一个查询得到相同的结果.
+ *
+ * @author 晋晨曦
+ */
+public class TestAnalyzer {
+    /**
+     * Porter论文和参考实现中的例子，依次为单词和词干
+     */
+    private static final String[][] STEMS = {
+            {"caresses", "caress"}, {"ponies", "poni"}, {"ties", "ti"}, {"caress", "caress"}, {"cats", "cat"},
+            {"feed", "feed"}, {"agreed", "agre"}, {"plastered", "plaster"}, {"bled", "bled"}, {"motoring", "motor"},
+            {"sing", "sing"}, {"conflated", "conflat"}, {"troubled", "troubl"}, {"sized", "size"}, {"hopping", "hop"},
+            {"tanned", "tan"}, {"falling", "fall"}, {"hissing", "hiss"}, {"fizzed", "fizz"}, {"failing", "fail"},
+            {"filing", "file"}, {"happy", "happi"}, {"sky", "sky"}, {"relational", "relat"}, {"conditional", "condit"},
+            {"rational", "ration"}, {"valenci", "valenc"}, {"digitizer", "digit"}, {"conformabli", "conform"},
+            {"radicalli", "radic"}, {"differentli", "differ"}, {"vileli", "vile"}, {"analogousli", "analog"},
+            {"vietnamization", "vietnam"}, {"predication", "predic"}, {"operator", "oper"}, {"feudalism", "feudal"},
+            {"decisiveness", "decis"}, {"hopefulness", "hope"}, {"callousness", "callous"}, {"formaliti", "formal"},
+            {"sensitiviti", "sensit"}, {"sensibiliti", "sensibl"}, {"triplicate", "triplic"}, {"formative", "form"},
+            {"formalize", "formal"}, {"electriciti", "electr"}, {"electrical", "electr"}, {"hopeful", "hope"},
+            {"goodness", "good"}, {"revival", "reviv"}, {"allowance", "allow"}, {"inference", "infer"},
+            {"airliner", "airlin"}, {"gyroscopic", "gyroscop"}, {"adjustable", "adjust"}, {"defensible", "defens"},
+            {"irritant", "irrit"}, {"replacement", "replac"}, {"adjustment", "adjust"}, {"dependent", "depend"},
+            {"adoption", "adopt"}, {"homologou", "homolog"}, {"communism", "commun"}, {"activate", "activ"},
+            {"angulariti", "angular"}, {"homologous", "homolog"}, {"effective", "effect"}, {"bowdlerize", "bowdler"},
+            {"probate", "probat"}, {"rate", "rate"}, {"cease", "ceas"}, {"controll", "control"}, {"roll", "roll"},
+            {"generalizations", "gener"}, {"oscillators", "oscil"}, {"connection", "connect"}, {"connected", "connect"},
+            {"running", "run"}, {"runs", "run"}, {"is", "is"}, {"Running", "Running"}, {"x1", "x1"},
+    };
+
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)
+     * @throws IOException : 生成语料或写入临时文件失败
+     */
+    public static void main(String[] args) throws IOException {
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 8L << 20, 16 << 10);
+        PorterStemmer stemmer = new PorterStemmer();
+        for (String[] stem : STEMS) {
+            if (!stemmer.stem(stem[0]).equals(stem[1])) {
+                System.out.println("  !! stem(" + stem[0] + ") = " + stemmer.stem(stem[0]) + ", expected " + stem[1]);
+                return;
+            }
+        }
+        System.out.println("porter stemmer: all " + STEMS.length + " words match");
+
+        StandardAnalyzer plain = new StandardAnalyzer().withStemming(false);
+        StandardAnalyzer stemming = plain.withStemming(true);
+        if (!stemming.equals(StandardAnalyzer.fromSpec(stemming.getSpec())) || plain.equals(stemming)) {
+            System.out.println("  !! spec does not round trip");
+            return;
+        }
+        for (StandardAnalyzer analyzer : Arrays.asList(plain, stemming)) {
+            long start = System.nanoTime();
+            AbstractIndex index = new IndexBuilder(new DocumentBuilder(analyzer)).buildIndex(corpus.getPath());
+            index.optimize();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            File file = File.createTempFile("analyzer", ".dat");
+            SegmentWriter.write(index, file);
+            long bytes = file.length() + SegmentFormat.dictionaryFile(file).length();
+            System.out.printf("stemmer=%-6s: %d terms, %d bytes on disk, built in %.2f s%n",
+                    analyzer.isStemming() ? "porter" : "none", index.getDictionary().size(), bytes, seconds);
+            file.delete();
+            SegmentFormat.dictionaryFile(file).delete();
+        }
+
+        File docs = Files.createTempDirectory("analyzer").toFile();
+        String[] texts = {
+                "The runners were running through connected networks.",
+                "A connection runs between two generalizations of relational operators.",
+                "Nothing relevant here, only cats and ponies."};
+        for (int i = 0; i < texts.length; i++) {
+            Files.write(new File(docs, i + ".txt").toPath(), texts[i].getBytes(StandardCharsets.UTF_8));
+        }
+        AbstractIndex stemmed = new IndexBuilder(new DocumentBuilder(stemming)).buildIndex(docs.getPath());
+        stemmed.optimize();
+        AbstractIndex unstemmed = new IndexBuilder(new DocumentBuilder(plain)).buildIndex(docs.getPath());
+        unstemmed.optimize();
+        // 停用词在布尔查询中被忽略，在短语中是空出的位置
+        String[] queries = {"connections", "RUN", "generalization AND operator", "\"connecting networks\"", "pony OR cat",
+                "cats AND the", "NOT the OR ponies", "\"running through connected\"", "\"running connected\"",
+                "\"running connected\"~1", "\"the runners\""};
+        int[] expected = {2, 2, 1, 1, 1, 1, 1, 1, 0, 1, 1};
+        for (int i = 0; i < queries.length; i++) {
+            int hits = hits(stemmed, queries[i]);
+            if (hits != expected[i]) {
+                System.out.println("  !! " + queries[i] + ": " + hits + " hits, expected " + expected[i]);
+                return;
+            }
+        }
+        System.out.println("stemmed index   : inflected queries match (e.g. connections -> " + hits(stemmed, "connections")
+                + " docs, without stemming " + hits(unstemmed, "connections") + ")");
+        try {
+            QueryParser.parse("the AND \"of the\"", stemmed.getAnalyzer());
+            System.out.println("  !! a query of stop words only should be rejected");
+            return;
+        } catch (IllegalArgumentException e) {
+            System.out.println("stop words only : rejected");
+        }
+
+        // 分析器随索引保存：压缩段文件、序列化文件、MappedIndex、SegmentedIndex
+        boolean compressed = Config.INDEX_COMPRESSED;
+        List<AbstractIndex> reopened = new ArrayList<>();
+        File segment = File.createTempFile("analyzer", ".dat");
+        Config.INDEX_COMPRESSED = true;
+        stemmed.save(segment);
+        Index loaded = new Index();
+        loaded.load(segment);
+        reopened.add(loaded);
+        reopened.add(new MappedIndex(segment));
+        File serialized = File.createTempFile("analyzer", ".ser");
+        Config.INDEX_COMPRESSED = false;
+        stemmed.save(serialized);
+        loaded = new Index();
+        loaded.load(serialized);
+        reopened.add(loaded);
+        Config.INDEX_COMPRESSED = compressed;
+        File directory = Files.createTempDirectory("segments").toFile();
+        ((SegmentedIndex) new IncrementalIndexBuilder(new DocumentBuilder(stemming), directory).buildIndex(docs.getPath())).close();
+        SegmentedIndex segmented = new SegmentedIndex(directory);
+        reopened.add(segmented);
+        for (AbstractIndex index : reopened) {
+            AbstractAnalyzer analyzer = index.getAnalyzer();
+            if (!stemming.equals(analyzer)) {
+                System.out.println("  !! " + index.getClass().getSimpleName() + " lost the analyzer: " + analyzer);
+                return;
+            }
+            for (int i = 0; i < queries.length; i++) {
+                if (hits(index, queries[i]) != expected[i]) {
+                    System.out.println("  !! " + index.getClass().getSimpleName() + ": " + queries[i] + " differs");
+                    return;
+                }
+            }
+        }
+        System.out.println("reopened indexes: analyzer and results preserved for " + reopened.size() + " formats");
+        try {
+            new SegmentedIndex(directory, plain);
+            System.out.println("  !! opening a stemmed index with another analyzer should fail");
+            return;
+        } catch (IllegalArgumentException e) {
+            System.out.println("analyzer mismatch rejected: " + e.getMessage().split("\n")[0]);
+        }
+        segmented.close();
+    }
+
+    /**
+     * 用索引记录的分析器解析查询，返回命中的文档个数
+     */
+    private static int hits(AbstractIndex index, String query) {
+        AbstractDocIterator iterator = QueryParser.parse(query, index.getAnalyzer()).iterator(index.snapshot());
+        int hits = 0;
+        while (iterator.nextDoc() != AbstractDocIterator.NO_MORE_DOCS) {
+            hits++;
+        }
+        return hits;
+    }
+}
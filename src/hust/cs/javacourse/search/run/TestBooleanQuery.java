@@ -0,0 +1,140 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.query.AbstractDocIterator;
+import hust.cs.javacourse.search.query.AbstractQuery;
+import hust.cs.javacourse.search.query.impl.AndQuery;
+import hust.cs.javacourse.search.query.impl.NotQuery;
+import hust.cs.javacourse.search.query.impl.OrQuery;
+import hust.cs.javacourse.search.query.impl.TermQuery;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * 用随机生成的多词布尔查询检查查询树的结果，并与逐对求集合的做法比较耗时。
+ * 对照做法为每个检索词生成一个docId集合，再按查询树两两求交、并、差，相当于原来在应用代码里逐对组合两词查询的结果。
+ *
+ * @author 晋晨曦
+ */
+public class TestBooleanQuery {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、查询个数
+     * @throws IOException : 生成语料失败
+     */
+    public static void main(String[] args) throws IOException {
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 8L << 20, 16 << 10);
+        AbstractIndex index = new IndexBuilder(new DocumentBuilder()).buildIndex(corpus.getPath());
+        index.optimize();
+        List<AbstractTerm> dictionary = new ArrayList<>(index.getDictionary());
+        System.out.println("docs=" + index.docIdToDocPathMapping.size() + ", terms=" + dictionary.size());
+
+        Random random = new Random(42);
+        List<AbstractQuery> queries = new ArrayList<>();
+        for (int i = 0; i < queryCount; i++) {
+            queries.add(randomQuery(dictionary, random, 0));
+        }
+
+        long treeHits = 0;
+        long start = System.nanoTime();
+        for (AbstractQuery query : queries) {
+            AbstractDocIterator iterator = query.iterator(index);
+            while (iterator.nextDoc() != AbstractDocIterator.NO_MORE_DOCS) {
+                treeHits++;
+            }
+        }
+        double treeMillis = (System.nanoTime() - start) / 1e6;
+
+        long setHits = 0;
+        start = System.nanoTime();
+        for (AbstractQuery query : queries) {
+            setHits += evaluate(query, index).size();
+        }
+        double setMillis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("query tree   : %8.1f ms, %d hits%n", treeMillis, treeHits);
+        System.out.printf("pairwise sets: %8.1f ms, %d hits%n", setMillis, setHits);
+
+        for (AbstractQuery query : queries) {
+            List<Integer> actual = new ArrayList<>();
+            AbstractDocIterator iterator = query.iterator(index);
+            for (int docId = iterator.nextDoc(); docId != AbstractDocIterator.NO_MORE_DOCS; docId = iterator.nextDoc()) {
+                actual.add(docId);
+            }
+            // 耗尽之后继续调用也必须立即返回NO_MORE_DOCS
+            if (iterator.nextDoc() != AbstractDocIterator.NO_MORE_DOCS || iterator.advance(0) != AbstractDocIterator.NO_MORE_DOCS
+                    || !actual.equals(new ArrayList<>(evaluate(query, index)))) {
+                System.out.println("  !! results differ for " + query);
+                return;
+            }
+        }
+        System.out.println("all " + queries.size() + " queries match");
+    }
+
+    /**
+     * 生成5到10个检索词组成的随机查询，AND子查询中可能带有NOT，也可能嵌套一层OR
+     */
+    private static AbstractQuery randomQuery(List<AbstractTerm> dictionary, Random random, int depth) {
+        int clauseCount = depth == 0 ? 5 + random.nextInt(6) : 2 + random.nextInt(3);
+        boolean and = random.nextBoolean();
+        List<AbstractQuery> clauses = new ArrayList<>();
+        for (int i = 0; i < clauseCount; i++) {
+            AbstractQuery clause;
+            if (depth == 0 && random.nextInt(4) == 0) {
+                clause = randomQuery(dictionary, random, depth + 1);
+            } else {
+                // 偏向取高频单词，使AND查询也有命中
+                int ord = (int) (dictionary.size() * Math.pow(random.nextDouble(), and ? 6 : 2));
+                clause = new TermQuery(dictionary.get(ord));
+            }
+            if (and && i > 0 && random.nextInt(3) == 0) {
+                clause = new NotQuery(clause);
+            }
+            clauses.add(clause);
+        }
+        return and ? new AndQuery(clauses) : new OrQuery(clauses);
+    }
+
+    /**
+     * 逐对求集合的对照实现
+     */
+    private static TreeSet<Integer> evaluate(AbstractQuery query, AbstractIndex index) {
+        if (query instanceof TermQuery) {
+            TreeSet<Integer> docIds = new TreeSet<>();
+            AbstractPostingList postingList = index.search(((TermQuery) query).getTerm());
+            for (int i = 0; postingList != null && i < postingList.size(); i++) {
+                docIds.add(postingList.docIdAt(i));
+            }
+            return docIds;
+        }
+        if (query instanceof NotQuery) {
+            TreeSet<Integer> docIds = new TreeSet<>(index.docIdToDocPathMapping.keySet());
+            docIds.removeAll(evaluate(((NotQuery) query).getClause(), index));
+            return docIds;
+        }
+        boolean and = query instanceof AndQuery;
+        List<AbstractQuery> clauses = and ? ((AndQuery) query).getClauses() : ((OrQuery) query).getClauses();
+        TreeSet<Integer> result = null;
+        for (AbstractQuery clause : clauses) {
+            TreeSet<Integer> docIds = evaluate(clause, index);
+            if (result == null) {
+                result = docIds;
+            } else if (and) {
+                result.retainAll(docIds);
+            } else {
+                result.addAll(docIds);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,138 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.ImmutableIndex;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.index.impl.MappedIndex;
+import hust.cs.javacourse.search.index.impl.SegmentWriter;
+import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.query.AbstractIndexSearcher;
+import hust.cs.javacourse.search.query.AbstractQuery;
+import hust.cs.javacourse.search.query.Sort;
+import hust.cs.javacourse.search.query.impl.AndQuery;
+import hust.cs.javacourse.search.query.impl.BM25Sorter;
+import hust.cs.javacourse.search.query.impl.IndexSearcher;
+import hust.cs.javacourse.search.query.impl.OrQuery;
+import hust.cs.javacourse.search.query.impl.TermQuery;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多个线程共享同一个检索器和同一个不可变索引并发检索，测量不同线程数下的吞吐量(QPS)和延迟分位数，
+ * 并检查每个线程得到的结果与单线程检索的结果完全相同.
+ * 分别测试加载到内存的ImmutableIndex快照和内存映射的MappedIndex.
+ *
+ * @author 晋晨曦
+ */
+public class TestConcurrentSearch {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、每轮检索次数、最大线程数
+     * @throws Exception : 生成语料、保存索引失败或检索线程抛出异常
+     */
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 8L << 20, 1 << 10);
+        AbstractIndex index = new IndexBuilder(new DocumentBuilder()).buildIndex(corpus.getPath());
+        index.optimize();
+        File indexFile = File.createTempFile("concurrent", ".dat");
+        indexFile.deleteOnExit();
+        new File(indexFile.getPath() + ".dict").deleteOnExit();
+        SegmentWriter.write(index, indexFile);
+        List<AbstractTerm> dictionary = new ArrayList<>(index.getDictionary());
+        dictionary.sort(Comparator.comparingInt((AbstractTerm term) -> index.search(term).size()).reversed());
+        System.out.println("docs=" + index.docIdToDocPathMapping.size() + ", cpus=" + Runtime.getRuntime().availableProcessors());
+
+        Random random = new Random(42);
+        List<AbstractQuery> queries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            List<AbstractQuery> clauses = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                clauses.add(new TermQuery(dictionary.get((int) (dictionary.size() * Math.pow(random.nextDouble(), 4)))));
+            }
+            queries.add(i % 4 == 0 ? new AndQuery(clauses.subList(0, 2)) : new OrQuery(clauses));
+        }
+
+        ImmutableIndex snapshot = new ImmutableIndex(index);
+        run("ImmutableIndex", new IndexSearcher(snapshot), new BM25Sorter(snapshot), queries, rounds, maxThreads);
+        MappedIndex mapped = new MappedIndex(indexFile);
+        run("MappedIndex", new IndexSearcher(mapped), new BM25Sorter(mapped), queries, rounds, maxThreads);
+    }
+
+    private static void run(String name, AbstractIndexSearcher searcher, Sort sorter, List<AbstractQuery> queries,
+                            int rounds, int maxThreads) throws Exception {
+        System.out.println(name + ":");
+        List<AbstractHit[]> expected = new ArrayList<>();
+        for (AbstractQuery query : queries) {
+            expected.add(searcher.search(query, sorter, 10));
+        }
+        // 预热
+        for (int i = 0; i < rounds / 4; i++) {
+            searcher.search(queries.get(i % queries.size()), sorter, 10);
+        }
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long[] latencies = new long[rounds];
+            AtomicInteger next = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<Boolean>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < rounds; i = next.getAndIncrement()) {
+                        int q = i % queries.size();
+                        long begin = System.nanoTime();
+                        AbstractHit[] hits = searcher.search(queries.get(q), sorter, 10);
+                        latencies[i] = System.nanoTime() - begin;
+                        if (!same(expected.get(q), hits)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            boolean correct = true;
+            for (Future<Boolean> future : futures) {
+                correct &= future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            executor.shutdown();
+            if (!correct) {
+                System.out.println("  !! results differ with " + threads + " threads");
+                return;
+            }
+            Arrays.sort(latencies);
+            System.out.printf("  %3d threads: %8.0f qps, p50 %7.3f ms, p99 %7.3f ms%n", threads, rounds / seconds,
+                    latencies[rounds / 2] / 1e6, latencies[(int) (rounds * 0.99)] / 1e6);
+        }
+        System.out.println("  all results match single-threaded search");
+    }
+
+    /**
+     * 比较两次检索结果的docId和得分
+     */
+    private static boolean same(AbstractHit[] expected, AbstractHit[] actual) {
+        if (expected.length != actual.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i].getDocId() != actual[i].getDocId() || expected[i].getScore() != actual[i].getScore()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
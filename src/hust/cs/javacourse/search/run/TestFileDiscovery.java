@@ -0,0 +1,161 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.index.impl.ParallelIndexBuilder;
+import hust.cs.javacourse.search.util.FileDiscovery;
+import hust.cs.javacourse.search.util.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 在一棵多层目录树上比较逐层调用FileUtil.list递归列出文件与FileUtil.listRecursively的耗时，
+ * 以及流式遍历给出第一个文件的时间和只用一个线程遍历子目录时的耗时，检查给出文件的顺序与Files.walk相同、后缀名和glob过滤的结果；
+ * 再检查用遍历结果构建的索引与IndexBuilder、ParallelIndexBuilder按FileUtil.list构建的索引相同，
+ * 并比较先列出再构建与遍历和构建同时进行的耗时.
+ *
+ * @author 晋晨曦
+ */
+public class TestFileDiscovery {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、目录树中的文件个数
+     * @throws IOException : 生成语料或目录树失败
+     */
+    public static void main(String[] args) throws IOException {
+        int fileCount = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 8L << 20, 1 << 10);
+
+        // 三层、每层10个子目录的目录树，每个叶子目录中有若干个.txt文件和一个.dat文件
+        File tree = Files.createTempDirectory("tree").toFile();
+        int txtCount = 0;
+        int datCount = 0;
+        for (int i = 0; i < 1000; i++) {
+            File dir = new File(tree, "d" + i / 100 + "/d" + i / 10 % 10 + "/d" + i % 10);
+            dir.mkdirs();
+            for (int j = 0; j < fileCount / 1000; j++) {
+                new File(dir, j + ".txt").createNewFile();
+                txtCount++;
+            }
+            new File(dir, "index.dat").createNewFile();
+            datCount++;
+        }
+        System.out.println("tree: " + txtCount + " .txt + " + datCount + " .dat files in 1000 leaf directories");
+
+        List<String> expected = null;
+        List<String> actual = null;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            expected = listByLevels(tree);
+            double levelsMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            actual = FileUtil.listRecursively(tree.getPath(), FileUtil.ALL_FILES);
+            double walkMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            try (FileDiscovery files = new FileDiscovery(tree.getPath(), FileUtil.ALL_FILES, FileDiscovery.DEFAULT_CAPACITY, 1)) {
+                files.forEachRemaining(path -> { });
+            }
+            double singleMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            try (FileDiscovery files = FileUtil.discover(tree.getPath(), FileUtil.ALL_FILES)) {
+                files.next();
+            }
+            double firstMillis = (System.nanoTime() - start) / 1e6;
+            System.out.printf("round %d: FileUtil.list per level %8.1f ms, listRecursively %8.1f ms (%d threads), 1 thread %8.1f ms, first streamed file %6.2f ms%n",
+                    round, levelsMillis, walkMillis, FileDiscovery.DEFAULT_THREADS, singleMillis, firstMillis);
+        }
+        List<String> walked = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(tree.toPath())) {
+            paths.filter(Files::isRegularFile).forEach(path -> walked.add(path.toString()));
+        }
+        if (!walked.equals(actual)) {
+            System.out.println("  !! listRecursively order differs from Files.walk");
+            return;
+        }
+        if (!new HashSet<>(expected).equals(new HashSet<>(actual)) || expected.size() != actual.size()) {
+            System.out.println("  !! listRecursively differs from FileUtil.list per level");
+            return;
+        }
+        int suffixCount = FileUtil.listRecursively(tree.getPath(), FileUtil.suffixFilter(".TXT")).size();
+        int globCount = FileUtil.listRecursively(tree.getPath(), FileUtil.globFilter("d3/**/*.dat")).size();
+        int rootGlobCount = FileUtil.listRecursively(tree.getPath(), FileUtil.globFilter("*.txt")).size();
+        if (suffixCount != txtCount || globCount != 100 || rootGlobCount != 0) {
+            System.out.println("  !! filters differ: suffix " + suffixCount + ", glob " + globCount + ", root glob " + rootGlobCount);
+            return;
+        }
+        System.out.println("same " + actual.size() + " files in Files.walk order, suffix and glob filters match");
+        for (String path : actual) {
+            new File(path).delete();
+        }
+        deleteDirectories(tree);
+
+        // 遍历与分词同时进行的索引构建
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            AbstractIndex listed = new IndexBuilder(new DocumentBuilder()).buildIndex(corpus.getPath());
+            listed.optimize();
+            double listedMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            AbstractIndex streamed = new IndexBuilder(new DocumentBuilder()).buildIndex(corpus.getPath(), FileUtil.ALL_FILES);
+            streamed.optimize();
+            double streamedMillis = (System.nanoTime() - start) / 1e6;
+            AbstractIndex parallel = new ParallelIndexBuilder(DocumentBuilder::new)
+                    .buildIndex(corpus.getPath(), FileUtil.suffixFilter(".txt"));
+            parallel.optimize();
+            System.out.printf("round %d: list then build %8.1f ms, discover while building %8.1f ms%n", round, listedMillis, streamedMillis);
+            if (checksum(listed) != checksum(streamed) || checksum(listed) != checksum(parallel)) {
+                System.out.println("  !! index built from discovered files differs");
+                return;
+            }
+        }
+        System.out.println("indexes built from FileUtil.list, IndexBuilder discovery and ParallelIndexBuilder discovery are identical");
+    }
+
+    /**
+     * 像原来那样逐层递归：每个目录用FileUtil.list列出文件，再用listFiles找出子目录
+     */
+    private static List<String> listByLevels(File dir) {
+        List<String> filePaths = new ArrayList<>(FileUtil.list(dir.getPath()));
+        for (File child : dir.listFiles()) {
+            if (child.isDirectory()) {
+                filePaths.addAll(listByLevels(child));
+            }
+        }
+        return filePaths;
+    }
+
+    private static void deleteDirectories(File dir) {
+        for (File child : dir.listFiles()) {
+            deleteDirectories(child);
+        }
+        dir.delete();
+    }
+
+    /**
+     * 由docId、单词、Posting内容计算一个校验和，用来比较两个索引是否相同
+     */
+    private static long checksum(AbstractIndex index) {
+        long sum = index.docIdToDocPathMapping.hashCode();
+        for (Map.Entry<AbstractTerm, AbstractPostingList> entry : index.termToPostingListMapping.entrySet()) {
+            sum = sum * 31 + entry.getKey().hashCode();
+            AbstractPostingList postingList = entry.getValue();
+            for (int i = 0; i < postingList.size(); i++) {
+                sum = sum * 31 + postingList.get(i).getDocId();
+                sum = sum * 31 + postingList.get(i).getPositions().hashCode();
+            }
+        }
+        return sum;
+    }
+}
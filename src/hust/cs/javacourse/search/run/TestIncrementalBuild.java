@@ -0,0 +1,142 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.IncrementalIndexBuilder;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.index.impl.SegmentedIndex;
+import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.query.AbstractQuery;
+import hust.cs.javacourse.search.query.impl.BM25Sorter;
+import hust.cs.javacourse.search.query.impl.IndexSearcher;
+import hust.cs.javacourse.search.query.impl.OrQuery;
+import hust.cs.javacourse.search.query.impl.TermQuery;
+import hust.cs.javacourse.search.util.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 把语料复制到临时目录后用IncrementalIndexBuilder构建索引，比较首次构建、没有变化时重新构建、
+ * 改变1%的文件(修改、删除、新增，另外touch一些文件但不改内容)后重新构建的耗时和处理的文件个数，
+ * 并检查增量构建的结果与对最终目录完整重新构建的索引一致.
+ *
+ * @author 晋晨曦
+ */
+public class TestIncrementalBuild {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、改变的文件比例(%)、查询个数
+     * @throws IOException : 生成语料、复制或修改文件失败
+     */
+    public static void main(String[] args) throws IOException {
+        double changedPercent = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+        int queryCount = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 8L << 20, 1 << 10);
+        File docs = Files.createTempDirectory("docs").toFile();
+        File indexDirectory = Files.createTempDirectory("incremental").toFile();
+        List<String> sources = FileUtil.list(corpus.getPath());
+        // 复制出来的文件修改时间设为一小时前，避免全部被当作可能在同一时间刻度内再次修改的文件
+        FileTime past = FileTime.fromMillis(System.currentTimeMillis() - 3600_000);
+        for (String source : sources) {
+            File target = new File(docs, new File(source).getName());
+            Files.copy(new File(source).toPath(), target.toPath());
+            Files.setLastModifiedTime(target.toPath(), past);
+        }
+        DocumentBuilder documentBuilder = new DocumentBuilder();
+        IncrementalIndexBuilder builder = new IncrementalIndexBuilder(documentBuilder, indexDirectory);
+        System.out.println("files=" + sources.size() + ", changed=" + changedPercent + "%");
+        build(builder, docs, "initial build");
+        build(builder, docs, "no changes");
+
+        Random random = new Random(42);
+        List<String> files = FileUtil.list(docs.getPath());
+        Collections.shuffle(files, random);
+        int changed = Math.max(4, (int) (files.size() * changedPercent / 100));
+        int quarter = changed / 4;
+        for (String path : files.subList(0, 2 * quarter)) {
+            Files.write(new File(path).toPath(), " appended words for the incremental build".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+        }
+        for (String path : files.subList(2 * quarter, 3 * quarter)) {
+            new File(path).delete();
+        }
+        for (int i = 0; i < quarter; i++) {
+            Files.copy(new File(files.get(files.size() - 1 - i)).toPath(), new File(docs, "new-" + i + ".txt").toPath());
+        }
+        // 只改修改时间不改内容的文件：需要计算摘要，但不需要重新分词
+        for (String path : files.subList(3 * quarter, 4 * quarter)) {
+            Files.setLastModifiedTime(new File(path).toPath(), FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        }
+        System.out.println("modified " + 2 * quarter + ", deleted " + quarter + ", added " + quarter + ", touched " + quarter + " files");
+        AbstractIndex incremental = build(builder, docs, "after changes");
+
+        long start = System.nanoTime();
+        AbstractIndex rebuilt = new IndexBuilder(documentBuilder).buildIndex(docs.getPath());
+        rebuilt.optimize();
+        System.out.printf("%-14s: %8.1f ms%n", "full rebuild", (System.nanoTime() - start) / 1e6);
+
+        if (!incremental.docIdToDocPathMapping.keySet().stream().map(incremental::getDocName).sorted().toList()
+                .equals(rebuilt.docIdToDocPathMapping.values().stream().sorted().toList())) {
+            System.out.println("  !! indexed files differ");
+            return;
+        }
+        List<AbstractTerm> dictionary = new ArrayList<>(rebuilt.getDictionary());
+        dictionary.sort(Comparator.comparingInt((AbstractTerm term) -> rebuilt.search(term).size()).reversed());
+        for (int i = 0; i < queryCount; i++) {
+            AbstractQuery query = new OrQuery(Arrays.asList(
+                    new TermQuery(dictionary.get((int) (dictionary.size() * Math.pow(random.nextDouble(), 4)))),
+                    new TermQuery(dictionary.get(random.nextInt(Math.min(50, dictionary.size()))))));
+            if (!scoresByPath(rebuilt, query).equals(scoresByPath(incremental, query))) {
+                System.out.println("  !! results differ for " + query);
+                return;
+            }
+        }
+        System.out.println("all " + queryCount + " queries match a full rebuild (docIds differ, compared by path)");
+        ((SegmentedIndex) incremental).close();
+        for (File directory : new File[]{docs, indexDirectory}) {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    private static AbstractIndex build(IncrementalIndexBuilder builder, File docs, String name) {
+        long start = System.nanoTime();
+        AbstractIndex index = builder.buildIndex(docs.getPath());
+        double millis = (System.nanoTime() - start) / 1e6;
+        ((SegmentedIndex) index).waitForMerges();
+        System.out.printf("%-14s: %8.1f ms, added %d, changed %d, removed %d, unchanged %d%n", name, millis,
+                builder.getAddedCount(), builder.getChangedCount(), builder.getRemovedCount(), builder.getUnchangedCount());
+        if (!name.equals("after changes")) {
+            ((SegmentedIndex) index).close();
+        }
+        return index;
+    }
+
+    /**
+     * 返回文档路径到BM25得分的映射，得分保留到1e-9
+     */
+    private static Map<String, Long> scoresByPath(AbstractIndex index, AbstractQuery query) {
+        Map<String, Long> scores = new HashMap<>();
+        for (AbstractHit hit : new IndexSearcher(index).search(query, new BM25Sorter(index))) {
+            scores.put(hit.getDocPath(), Math.round(hit.getScore() * 1e9));
+        }
+        return scores;
+    }
+}
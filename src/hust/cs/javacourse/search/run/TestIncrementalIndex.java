@@ -0,0 +1,196 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.Index;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.index.impl.SegmentedIndex;
+import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.query.AbstractQuery;
+import hust.cs.javacourse.search.query.impl.AndQuery;
+import hust.cs.javacourse.search.query.impl.BM25Sorter;
+import hust.cs.javacourse.search.query.impl.IndexSearcher;
+import hust.cs.javacourse.search.query.impl.OrQuery;
+import hust.cs.javacourse.search.query.impl.TermQuery;
+import hust.cs.javacourse.search.util.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 用SegmentedIndex分批加入、删除、更新文档并由后台线程合并段，检查结果与用最终的文档集合重新构建的索引完全一致，
+ * 比较修改少量文档后增量提交与整个目录重新构建索引的耗时，
+ * 并检查提交前取得的快照不受之后修改的影响、提交前创建的排序器在提交后使用新的统计量而绑定到快照的排序器不变、重新打开索引目录后内容不变.
+ *
+ * @author 晋晨曦
+ */
+public class TestIncrementalIndex {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、每批文档个数、查询个数
+     * @throws IOException : 生成语料或创建临时目录失败
+     */
+    public static void main(String[] args) throws IOException {
+        int batch = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int queryCount = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 8L << 20, 1 << 10);
+        DocumentBuilder documentBuilder = new DocumentBuilder();
+        List<String> files = FileUtil.list(corpus.getPath());
+        File directory = Files.createTempDirectory("segmented").toFile();
+        Random random = new Random(42);
+
+        // 先分批加入六成文档，每批提交一次
+        SegmentedIndex index = new SegmentedIndex(directory);
+        int added = files.size() * 6 / 10;
+        long start = System.nanoTime();
+        for (int i = 0; i < added; i++) {
+            index.updateDocument(files.get(i), documentBuilder.termTupleStream(new File(files.get(i))));
+            if ((i + 1) % batch == 0) {
+                index.commit();
+            }
+        }
+        index.commit();
+        index.waitForMerges();
+        System.out.printf("added %d docs in batches of %d: %.1f ms, %s%n", added, batch, (System.nanoTime() - start) / 1e6, index.snapshot());
+
+        // 删除一成、更新一成已有文档，再分批加入其余文档
+        List<String> existing = new ArrayList<>(files.subList(0, added));
+        Collections.shuffle(existing, random);
+        int changed = existing.size() / 10;
+        for (String path : existing.subList(0, changed)) {
+            index.deleteDocument(path);
+        }
+        for (String path : existing.subList(changed, 2 * changed)) {
+            index.updateDocument(path, documentBuilder.termTupleStream(new File(path)));
+        }
+        index.commit();
+        for (int i = added; i < files.size(); i++) {
+            index.updateDocument(files.get(i), documentBuilder.termTupleStream(new File(files.get(i))));
+            if ((i + 1) % batch == 0) {
+                index.commit();
+            }
+        }
+        index.commit();
+        index.waitForMerges();
+        System.out.println("after deletes, updates and more batches: " + index.snapshot());
+
+        // 用最终的文档集合和相同的docId重新构建一个索引作为对照
+        Index expected = new Index();
+        for (Map.Entry<Integer, String> doc : index.docIdToDocPathMapping.entrySet()) {
+            expected.addDocument(doc.getKey(), doc.getValue(), documentBuilder.termTupleStream(new File(doc.getValue())));
+        }
+        expected.optimize();
+        if (expected.docIdToDocPathMapping.size() != files.size() - changed
+                || expected.getAverageDocLength() != index.getAverageDocLength()) {
+            System.out.println("  !! document table differs");
+            return;
+        }
+        List<AbstractTerm> dictionary = new ArrayList<>(expected.getDictionary());
+        dictionary.sort(Comparator.comparingInt((AbstractTerm term) -> expected.search(term).size()).reversed());
+        List<AbstractQuery> queries = new ArrayList<>();
+        for (int i = 0; i < queryCount; i++) {
+            AbstractQuery first = new TermQuery(dictionary.get((int) (dictionary.size() * Math.pow(random.nextDouble(), 4))));
+            AbstractQuery second = new TermQuery(dictionary.get((int) (dictionary.size() * Math.pow(random.nextDouble(), 4))));
+            queries.add(i % 2 == 0 ? new OrQuery(Arrays.asList(first, second)) : new AndQuery(Arrays.asList(first, second)));
+        }
+        if (!sameResults(expected, index, queries)) {
+            return;
+        }
+        System.out.println("all " + queries.size() + " queries match an index rebuilt from the final documents");
+
+        // 修改少量文档后增量提交与整个目录重新构建的耗时
+        start = System.nanoTime();
+        for (String path : existing.subList(2 * changed, 2 * changed + batch)) {
+            index.updateDocument(path, documentBuilder.termTupleStream(new File(path)));
+        }
+        index.commit();
+        double incrementalMillis = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        AbstractIndex rebuilt = new IndexBuilder(documentBuilder).buildIndex(corpus.getPath());
+        rebuilt.optimize();
+        File rebuiltFile = new File(directory, "rebuilt.dat");
+        rebuilt.save(rebuiltFile);
+        double rebuildMillis = (System.nanoTime() - start) / 1e6;
+        rebuiltFile.delete();
+        new File(rebuiltFile.getPath() + ".dict").delete();
+        System.out.printf("update %d docs + commit: %8.1f ms%nfull rebuild + save    : %8.1f ms%n", batch, incrementalMillis, rebuildMillis);
+
+        // 快照不受之后的删除影响，提交前创建的排序器在提交后按新的统计量计算得分
+        AbstractTerm term = dictionary.get(0);
+        AbstractIndex snapshot = index.snapshot();
+        AbstractPostingList before = snapshot.search(term);
+        BM25Sorter sorter = new BM25Sorter(index);
+        double idfBefore = sorter.idf(term);
+        BM25Sorter bound = sorter.forSnapshot(snapshot);
+        index.deleteDocument(index.getDocName(before.docIdAt(0)));
+        index.commit();
+        if (snapshot.search(term).size() != before.size() || index.search(term).size() != before.size() - 1) {
+            System.out.println("  !! snapshot saw a later delete");
+            return;
+        }
+        if (sorter.idf(term) == idfBefore || sorter.idf(term) != new BM25Sorter(index).idf(term)) {
+            System.out.println("  !! sorter kept the statistics of an old commit");
+            return;
+        }
+        if (bound.idf(term) != idfBefore) {
+            System.out.println("  !! sorter bound to a snapshot saw a later commit");
+            return;
+        }
+        System.out.println("snapshot taken before a delete still sees " + before.size() + " docs for " + term
+                + ", the index now sees " + index.search(term).size());
+
+        // 关闭后重新打开
+        AbstractIndex last = index.snapshot();
+        index.close();
+        SegmentedIndex reopened = new SegmentedIndex(directory);
+        if (reopened.docIdToDocPathMapping.size() != last.docIdToDocPathMapping.size() || !sameResults(last, reopened, queries)) {
+            System.out.println("  !! reopened index differs");
+            return;
+        }
+        reopened.optimize();
+        if (!sameResults(last, reopened, queries)) {
+            System.out.println("  !! optimized index differs");
+            return;
+        }
+        System.out.println("reopened and optimized index matches: " + reopened.snapshot());
+        reopened.close();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * 比较两个索引上BM25检索结果的docId和得分
+     */
+    private static boolean sameResults(AbstractIndex expected, AbstractIndex actual, List<AbstractQuery> queries) {
+        IndexSearcher expectedSearcher = new IndexSearcher(expected);
+        IndexSearcher actualSearcher = new IndexSearcher(actual);
+        BM25Sorter expectedSorter = new BM25Sorter(expected);
+        BM25Sorter actualSorter = new BM25Sorter(actual);
+        for (AbstractQuery query : queries) {
+            AbstractHit[] a = expectedSearcher.search(query, expectedSorter);
+            AbstractHit[] b = actualSearcher.search(query, actualSorter);
+            boolean same = a.length == b.length;
+            for (int i = 0; same && i < a.length; i++) {
+                same = a[i].getDocId() == b[i].getDocId() && Math.abs(a[i].getScore() - b[i].getScore()) <= 1e-9;
+            }
+            if (!same) {
+                System.out.println("  !! results differ for " + query);
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,129 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.Index;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.index.impl.MappedIndex;
+import hust.cs.javacourse.search.index.impl.SegmentFormat;
+import hust.cs.javacourse.search.util.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 比较ObjectOutputStream序列化格式与压缩段格式的索引文件大小、保存时间和加载时间，以及以内存映射方式打开段文件的时间，
+ * 并检查按docId逆序加入文档、没有optimize的索引也能保存为段格式，保存不修改索引本身，重新加载后内容不变
+ *
+ * @author 晋晨曦
+ */
+public class TestIndexFormat {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、生成语料的MB数
+     * @throws IOException : 生成语料失败
+     */
+    public static void main(String[] args) throws IOException {
+        long megaBytes = args.length > 1 ? Long.parseLong(args[1]) : 8;
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, megaBytes << 20, 64 << 10);
+
+        long start = System.nanoTime();
+        AbstractIndex index = new IndexBuilder(new DocumentBuilder()).buildIndex(corpus.getPath());
+        index.optimize();
+        System.out.printf("build: %d docs, %d terms, %.1f ms%n", index.docIdToDocPathMapping.size(),
+                index.getDictionary().size(), (System.nanoTime() - start) / 1e6);
+
+        File objectFile = File.createTempFile("index", ".obj");
+        File segmentFile = File.createTempFile("index", ".seg");
+        boolean compressed = Config.INDEX_COMPRESSED;
+        try {
+            Config.INDEX_COMPRESSED = false;
+            report("ObjectOutputStream", index, objectFile);
+            Config.INDEX_COMPRESSED = true;
+            report("segment(VByte)", index, segmentFile);
+            long openStart = System.nanoTime();
+            MappedIndex mapped = new MappedIndex(segmentFile);
+            System.out.printf("%-20s open=%.1f ms, terms=%d%n", "segment(mmap)",
+                    (System.nanoTime() - openStart) / 1e6, mapped.getDictionary().size());
+
+            // 逆序加入文档得到的倒排列表无序，save需要先排序再写成段格式
+            Index reversed = new Index();
+            List<Map.Entry<Integer, String>> docs = new ArrayList<>(index.docIdToDocPathMapping.entrySet());
+            Collections.reverse(docs);
+            DocumentBuilder documentBuilder = new DocumentBuilder();
+            for (Map.Entry<Integer, String> doc : docs) {
+                reversed.addDocument(doc.getKey(), doc.getValue(), documentBuilder.termTupleStream(new File(doc.getValue())));
+            }
+            AbstractTerm common = null;
+            for (AbstractTerm term : index.getDictionary()) {
+                if (common == null || index.search(term).size() > index.search(common).size()) {
+                    common = term;
+                }
+            }
+            reversed.save(segmentFile);
+            if (reversed.search(common).docIdAt(0) < reversed.search(common).docIdAt(1)) {
+                System.out.println("  !! save sorted the posting lists of the index being saved");
+                return;
+            }
+            Index loaded = new Index();
+            loaded.load(segmentFile);
+            if (!sameIndex(index, loaded)) {
+                return;
+            }
+            System.out.println("unoptimized index with " + docs.size() + " docs added in reverse order saved and reloaded");
+        } finally {
+            Config.INDEX_COMPRESSED = compressed;
+            objectFile.delete();
+            segmentFile.delete();
+            SegmentFormat.dictionaryFile(segmentFile).delete();
+        }
+    }
+
+    /**
+     * 比较两个索引的文档表和每个单词的倒排列表
+     */
+    private static boolean sameIndex(AbstractIndex expected, AbstractIndex actual) {
+        if (!expected.docIdToDocPathMapping.equals(actual.docIdToDocPathMapping)
+                || expected.getDictionary().size() != actual.getDictionary().size()) {
+            System.out.println("  !! document table or dictionary differs");
+            return false;
+        }
+        for (AbstractTerm term : expected.getDictionary()) {
+            AbstractPostingList a = expected.search(term);
+            AbstractPostingList b = actual.search(term);
+            boolean same = b != null && a.size() == b.size();
+            for (int i = 0; same && i < a.size(); i++) {
+                same = a.docIdAt(i) == b.docIdAt(i) && a.get(i).getPositions().equals(b.get(i).getPositions());
+            }
+            if (!same) {
+                System.out.println("  !! posting list of " + term + " differs");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 保存并重新加载索引，打印文件大小与耗时
+     */
+    private static void report(String name, AbstractIndex index, File file) {
+        long start = System.nanoTime();
+        index.save(file);
+        double saveMs = (System.nanoTime() - start) / 1e6;
+        long size = file.length() + SegmentFormat.dictionaryFile(file).length();
+
+        start = System.nanoTime();
+        AbstractIndex loaded = new Index();
+        loaded.load(file);
+        double loadMs = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%-20s size=%,d bytes, save=%.1f ms, load=%.1f ms, terms=%d%n",
+                name, size, saveMs, loadMs, loaded.getDictionary().size());
+    }
+}
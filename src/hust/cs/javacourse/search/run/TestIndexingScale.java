@@ -0,0 +1,37 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.util.Config;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 测试索引构建时间随语料大小的变化.
+ * 语料大小每次翻倍，如果构建时间也大致翻倍(ms/MB基本不变)，说明构建是线性的.
+ *
+ * @author 晋晨曦
+ */
+public class TestIndexingScale {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料根目录、最大语料MB数
+     * @throws IOException : 生成语料失败
+     */
+    public static void main(String[] args) throws IOException {
+        File root = new File(args.length > 0 ? args[0] : Config.PROJECT_HOME_DIR + "/corpus-scale");
+        int maxMegaBytes = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        for (int megaBytes = 1; megaBytes <= maxMegaBytes; megaBytes *= 2) {
+            File corpus = CorpusGenerator.ensure(new File(root, megaBytes + "mb"), (long) megaBytes << 20, 64 << 10);
+            long start = System.nanoTime();
+            AbstractIndex index = new IndexBuilder(new DocumentBuilder()).buildIndex(corpus.getPath());
+            index.optimize();
+            double ms = (System.nanoTime() - start) / 1e6;
+            System.out.printf("%4d MB: %6d docs, %6d terms, %9.1f ms, %7.1f ms/MB%n", megaBytes,
+                    index.docIdToDocPathMapping.size(), index.getDictionary().size(), ms, ms / megaBytes);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.impl.CompactPostingList;
+import hust.cs.javacourse.search.index.impl.Posting;
+import hust.cs.javacourse.search.index.impl.PostingList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 比较两个有序PostingList求交时逐个比较的归并与advance(跳表+指数查找)的耗时。
+ * 长列表长度固定，短列表长度按比例缩小，比例越悬殊，advance跳过的Posting越多。
+ * 没有使用JMH，每组先预热若干轮再计时取平均。
+ *
+ * @author 晋晨曦
+ */
+public class TestIntersection {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为长列表长度、文档总数、计时轮数，均可省略
+     */
+    public static void main(String[] args) {
+        int longSize = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int universe = args.length > 1 ? Integer.parseInt(args[1]) : 4 * longSize;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        Random random = new Random(42);
+        AbstractPostingList longer = randomList(longSize, universe, random);
+        System.out.println("long list=" + longSize + ", docs=" + universe);
+        System.out.println(" ratio   short    matches     linear(us)   advance(us)  speedup");
+        for (int ratio = 1; ratio <= 10000; ratio *= 10) {
+            AbstractPostingList shorter = randomList(Math.max(1, longSize / ratio), universe, random);
+            int expected = linear(shorter, longer);
+            if (advance(shorter, longer) != expected) {
+                System.out.println("  !! results differ at ratio " + ratio);
+            }
+            for (int i = 0; i < 3; i++) {
+                linear(shorter, longer);
+                advance(shorter, longer);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                linear(shorter, longer);
+            }
+            double linearMicros = (System.nanoTime() - start) / 1e3 / rounds;
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                advance(shorter, longer);
+            }
+            double advanceMicros = (System.nanoTime() - start) / 1e3 / rounds;
+            System.out.printf("%6d %7d %10d %14.1f %13.1f %8.1fx%n", ratio, shorter.size(), expected,
+                    linearMicros, advanceMicros, linearMicros / advanceMicros);
+        }
+    }
+
+    /**
+     * 逐个比较的两指针归并，与原来的IndexSearcher.intersect相同
+     */
+    private static int linear(AbstractPostingList list1, AbstractPostingList list2) {
+        int matches = 0;
+        int i = 0, j = 0;
+        while (i < list1.size() && j < list2.size()) {
+            int docId1 = list1.docIdAt(i);
+            int docId2 = list2.docIdAt(j);
+            if (docId1 == docId2) {
+                matches++;
+                i++;
+                j++;
+            } else if (docId1 < docId2) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * 短列表驱动、用advance跳过长列表的求交，与IndexSearcher.intersect相同
+     */
+    private static int advance(AbstractPostingList shorter, AbstractPostingList longer) {
+        int matches = 0;
+        int i = 0, j = 0;
+        while (i < shorter.size()) {
+            int docId = shorter.docIdAt(i);
+            j = longer.advance(j, docId);
+            if (j == longer.size()) {
+                break;
+            }
+            int otherDocId = longer.docIdAt(j);
+            if (otherDocId == docId) {
+                matches++;
+                i++;
+                j++;
+            } else {
+                i = shorter.advance(i + 1, otherDocId);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * 从[0, universe)中随机选取size个不同的docId，构造有序的CompactPostingList
+     */
+    private static AbstractPostingList randomList(int size, int universe, Random random) {
+        int[] docIds = random.ints(0, universe).distinct().limit(size).toArray();
+        Arrays.sort(docIds);
+        AppendOnlyPostingList postingList = new AppendOnlyPostingList();
+        for (int docId : docIds) {
+            postingList.append(new Posting(docId, 1, new ArrayList<>()));
+        }
+        CompactPostingList compact = CompactPostingList.of(postingList);
+        compact.trimToSize();
+        return compact;
+    }
+
+    /**
+     * 追加时跳过去重检查，避免构造测试数据本身成为平方复杂度
+     */
+    private static class AppendOnlyPostingList extends PostingList {
+        private static final long serialVersionUID = 1L;
+
+        void append(Posting posting) {
+            list.add(posting);
+        }
+    }
+}
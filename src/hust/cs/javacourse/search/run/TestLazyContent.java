@@ -0,0 +1,129 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPosting;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.query.AbstractQuery;
+import hust.cs.javacourse.search.query.impl.IndexSearcher;
+import hust.cs.javacourse.search.query.impl.OrQuery;
+import hust.cs.javacourse.search.query.impl.SimpleSorter;
+import hust.cs.javacourse.search.query.impl.TermQuery;
+import hust.cs.javacourse.search.util.DocumentContentCache;
+import hust.cs.javacourse.search.util.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 比较命中结果构造时读取全文(原来的做法)与按需读取文档内容的耗时和读文件次数，并检查摘要的正确性.
+ * 检索后只显示排在前面的若干个命中结果，分别显示全文和摘要.
+ *
+ * @author 晋晨曦
+ */
+public class TestLazyContent {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、查询个数、显示的结果个数、摘要窗口大小
+     * @throws IOException : 生成语料或保存索引失败
+     */
+    public static void main(String[] args) throws IOException {
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int shown = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int window = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 8L << 20, 1 << 10);
+        AbstractIndex index = new IndexBuilder(new DocumentBuilder()).buildIndex(corpus.getPath());
+        index.optimize();
+        File indexFile = File.createTempFile("lazy", ".dat");
+        indexFile.deleteOnExit();
+        index.save(indexFile);
+        IndexSearcher searcher = new IndexSearcher();
+        searcher.open(indexFile.getPath());
+        List<AbstractTerm> dictionary = new ArrayList<>(index.getDictionary());
+        dictionary.sort(Comparator.comparingInt((AbstractTerm term) -> index.search(term).size()).reversed());
+        System.out.println("docs=" + index.docIdToDocPathMapping.size() + ", shown=" + shown + ", window=" + window);
+
+        Random random = new Random(42);
+        List<AbstractQuery> queries = new ArrayList<>();
+        for (int i = 0; i < queryCount; i++) {
+            List<AbstractQuery> clauses = new ArrayList<>();
+            for (int j = 0; j < 2; j++) {
+                clauses.add(new TermQuery(dictionary.get((int) (dictionary.size() * Math.pow(random.nextDouble(), 4)))));
+            }
+            queries.add(new OrQuery(clauses));
+        }
+        SimpleSorter sorter = new SimpleSorter();
+        DocumentContentCache cache = DocumentContentCache.getDefault();
+
+        // 原来的做法：每个命中结果构造时都读取一次全文
+        long hits = 0;
+        long start = System.nanoTime();
+        for (AbstractQuery query : queries) {
+            for (AbstractHit hit : searcher.search(query, sorter)) {
+                FileUtil.read(hit.getDocPath());
+                hits++;
+            }
+        }
+        report("eager content", start, hits);
+
+        long loads = cache.loadCount();
+        start = System.nanoTime();
+        for (AbstractQuery query : queries) {
+            AbstractHit[] result = searcher.search(query, sorter);
+            for (int i = 0; i < Math.min(shown, result.length); i++) {
+                result[i].getContent();
+            }
+        }
+        report("lazy content", start, cache.loadCount() - loads);
+
+        cache.clear();
+        loads = cache.loadCount();
+        start = System.nanoTime();
+        for (AbstractQuery query : queries) {
+            AbstractHit[] result = searcher.search(query, sorter);
+            for (int i = 0; i < Math.min(shown, result.length); i++) {
+                result[i].getSnippet(window);
+            }
+        }
+        report("lazy snippet", start, cache.loadCount() - loads);
+        System.out.println("cache: " + cache.size() + " docs, " + cache.chars() + " chars");
+
+        AbstractHit[] result = searcher.search(queries.get(0), sorter);
+        if (result.length > 0) {
+            System.out.println("snippet of first hit: " + result[0].getSnippet(window));
+        }
+        for (AbstractQuery query : queries) {
+            for (AbstractHit hit : searcher.search(query, sorter, shown)) {
+                String content = hit.getContent();
+                String snippet = hit.getSnippet(window);
+                for (Map.Entry<AbstractTerm, AbstractPosting> entry : hit.getTermPostingMapping().entrySet()) {
+                    if (!snippet.toLowerCase().contains(entry.getKey().getContent())) {
+                        System.out.println("  !! snippet of " + hit.getDocPath() + " misses " + entry.getKey());
+                        return;
+                    }
+                }
+                // 从缓存截取与从文件读取的摘要应当相同
+                int[] positions = hit.getTermPostingMapping().values().stream()
+                        .flatMap(posting -> posting.getPositions().stream()).mapToInt(Integer::intValue).toArray();
+                if (!snippet.equals(FileUtil.readSnippet(hit.getDocPath(), positions, window))
+                        || !content.equals(FileUtil.read(hit.getDocPath()))) {
+                    System.out.println("  !! snippet differs for " + hit.getDocPath());
+                    return;
+                }
+            }
+        }
+        System.out.println("all snippets contain their matched terms");
+    }
+
+    private static void report(String name, long start, long fileReads) {
+        System.out.printf("%-14s: %8.1f ms, %d full-text reads%n", name, (System.nanoTime() - start) / 1e6, fileReads);
+    }
+}
@@ -0,0 +1,75 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.index.impl.ParallelIndexBuilder;
+import hust.cs.javacourse.search.util.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 测试多线程索引构建的吞吐量随线程数的变化，并检查结果与顺序构建一致
+ *
+ * @author 晋晨曦
+ */
+public class TestParallelBuild {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、生成语料的MB数、最大线程数
+     * @throws IOException : 生成语料失败
+     */
+    public static void main(String[] args) throws IOException {
+        long megaBytes = args.length > 1 ? Long.parseLong(args[1]) : 8;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, megaBytes << 20, 64 << 10);
+        long bytes = 0;
+        for (String path : FileUtil.list(corpus.getPath())) {
+            bytes += new File(path).length();
+        }
+
+        long start = System.nanoTime();
+        AbstractIndex expected = new IndexBuilder(new DocumentBuilder()).buildIndex(corpus.getPath());
+        expected.optimize();
+        report("sequential", start, expected, bytes);
+        long expectedChecksum = checksum(expected);
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            start = System.nanoTime();
+            AbstractIndex index = new ParallelIndexBuilder(DocumentBuilder::new, threads).buildIndex(corpus.getPath());
+            index.optimize();
+            report(threads + " threads", start, index, bytes);
+            if (checksum(index) != expectedChecksum) {
+                System.out.println("  !! index differs from sequential build");
+            }
+        }
+    }
+
+    private static void report(String name, long start, AbstractIndex index, long bytes) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int docs = index.docIdToDocPathMapping.size();
+        System.out.printf("%-12s %8.1f ms, %8.1f docs/s, %6.2f MB/s%n", name, seconds * 1000,
+                docs / seconds, bytes / seconds / (1 << 20));
+    }
+
+    /**
+     * 由docId、单词、Posting内容计算一个校验和，用来比较两个索引是否相同
+     */
+    private static long checksum(AbstractIndex index) {
+        long sum = index.docIdToDocPathMapping.hashCode();
+        for (Map.Entry<AbstractTerm, AbstractPostingList> entry : index.termToPostingListMapping.entrySet()) {
+            sum = sum * 31 + entry.getKey().hashCode();
+            AbstractPostingList postingList = entry.getValue();
+            for (int i = 0; i < postingList.size(); i++) {
+                sum = sum * 31 + postingList.get(i).getDocId();
+                sum = sum * 31 + postingList.get(i).getPositions().hashCode();
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,184 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPosting;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.AbstractTermTuple;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.parse.AbstractTermTupleStream;
+import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.query.AbstractIndexSearcher;
+import hust.cs.javacourse.search.query.AbstractQuery;
+import hust.cs.javacourse.search.query.impl.AndQuery;
+import hust.cs.javacourse.search.query.impl.IndexPhraseSearcher;
+import hust.cs.javacourse.search.query.impl.IndexSearcher;
+import hust.cs.javacourse.search.query.impl.PhraseQuery;
+import hust.cs.javacourse.search.query.impl.SimpleSorter;
+import hust.cs.javacourse.search.query.impl.TermQuery;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 比较短语查询逐个位置在另一个检索词的位置列表中线性查找(原来的做法)与归并有序位置数组两种匹配方式的耗时，
+ * 并检查多词短语、带slop的邻近查询以及取前K个结果与逐个位置查找得到的命中文档和短语出现次数一致.
+ * 短语从随机选取的文档中截取连续的若干个单词，使用较大的文档让每个检索词在文档中的位置较多.
+ *
+ * @author 晋晨曦
+ */
+public class TestPhrase {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、每种短语长度的查询个数
+     * @throws IOException : 生成语料或保存索引失败
+     */
+    public static void main(String[] args) throws IOException {
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 16L << 20, 16 << 10);
+        DocumentBuilder documentBuilder = new DocumentBuilder();
+        AbstractIndex index = new IndexBuilder(documentBuilder).buildIndex(corpus.getPath());
+        index.optimize();
+        File indexFile = File.createTempFile("phrase", ".dat");
+        indexFile.deleteOnExit();
+        index.save(indexFile);
+        IndexSearcher searcher = new IndexSearcher();
+        AbstractIndexSearcher phraseSearcher = new IndexPhraseSearcher(searcher);
+        phraseSearcher.open(indexFile.getPath());
+        List<String> docPaths = new ArrayList<>(index.docIdToDocPathMapping.values());
+        System.out.println("docs=" + docPaths.size());
+
+        SimpleSorter sorter = new SimpleSorter();
+        Random random = new Random(42);
+        for (int length = 2; length <= 4; length++) {
+            for (int slop : new int[]{0, 3}) {
+                List<List<AbstractTerm>> phrases = new ArrayList<>();
+                for (int i = 0; i < queryCount; i++) {
+                    phrases.add(samplePhrase(documentBuilder, docPaths.get(random.nextInt(docPaths.size())), length, random));
+                }
+                // 预热
+                for (List<AbstractTerm> terms : phrases.subList(0, Math.min(20, phrases.size()))) {
+                    scanSearch(searcher, terms, slop);
+                    phraseSearcher.search(new PhraseQuery(terms, slop), sorter);
+                }
+
+                long start = System.nanoTime();
+                List<int[][]> expected = new ArrayList<>();
+                for (List<AbstractTerm> terms : phrases) {
+                    expected.add(scanSearch(searcher, terms, slop));
+                }
+                double scanMicros = (System.nanoTime() - start) / 1e3 / phrases.size();
+                start = System.nanoTime();
+                List<AbstractHit[]> actual = new ArrayList<>();
+                for (List<AbstractTerm> terms : phrases) {
+                    actual.add(phraseSearcher.search(new PhraseQuery(terms, slop), sorter));
+                }
+                double mergeMicros = (System.nanoTime() - start) / 1e3 / phrases.size();
+
+                long matches = 0;
+                for (int i = 0; i < phrases.size(); i++) {
+                    PhraseQuery query = new PhraseQuery(phrases.get(i), slop);
+                    if (!same(expected.get(i), actual.get(i))) {
+                        System.out.println("  !! results differ for " + query);
+                        return;
+                    }
+                    AbstractHit[] top = phraseSearcher.search(query, sorter, 10);
+                    for (int j = 0; j < top.length; j++) {
+                        if (top[j].getScore() != actual.get(i)[j].getScore()) {
+                            System.out.println("  !! top-10 differs for " + query);
+                            return;
+                        }
+                    }
+                    if (length == 2 && slop == 0) {
+                        AbstractHit[] twoTerms = phraseSearcher.search(phrases.get(i).get(0), phrases.get(i).get(1),
+                                sorter, AbstractIndexSearcher.LogicalCombination.AND);
+                        if (!same(expected.get(i), twoTerms)) {
+                            System.out.println("  !! two-term AND differs for " + query);
+                            return;
+                        }
+                    }
+                    matches += actual.get(i).length;
+                }
+                System.out.printf("%d terms, slop %d: scan %9.1f us/query, merge %9.1f us/query, %d matching docs, all match%n",
+                        length, slop, scanMicros, mergeMicros, matches);
+            }
+        }
+    }
+
+    /**
+     * 从文档中随机截取连续的length个单词
+     */
+    private static List<AbstractTerm> samplePhrase(DocumentBuilder documentBuilder, String docPath, int length, Random random) {
+        List<AbstractTerm> tokens = new ArrayList<>();
+        AbstractTermTupleStream stream = documentBuilder.termTupleStream(new File(docPath));
+        for (AbstractTermTuple tuple = stream.next(); tuple != null; tuple = stream.next()) {
+            tokens.add(tuple.term);
+        }
+        stream.close();
+        int from = random.nextInt(Math.max(1, tokens.size() - length + 1));
+        return new ArrayList<>(tokens.subList(from, Math.min(tokens.size(), from + length)));
+    }
+
+    /**
+     * 对照实现：先求所有检索词的交集，再对第一个检索词的每个位置，
+     * 在后面检索词的位置列表中用contains逐个查找允许的位置(原来的做法)
+     *
+     * @return 每个命中文档的{docId, 短语出现次数}，按docId排列
+     */
+    private static int[][] scanSearch(IndexSearcher searcher, List<AbstractTerm> terms, int slop) {
+        List<AbstractQuery> clauses = new ArrayList<>();
+        for (AbstractTerm term : terms) {
+            clauses.add(new TermQuery(term));
+        }
+        List<int[]> result = new ArrayList<>();
+        for (AbstractHit hit : searcher.search(new AndQuery(clauses), new SimpleSorter())) {
+            AbstractPosting[] postings = new AbstractPosting[terms.size()];
+            for (int i = 0; i < postings.length; i++) {
+                postings[i] = hit.getTermPostingMapping().get(terms.get(i));
+            }
+            int freq = 0;
+            for (int start : postings[0].getPositions()) {
+                if (scanMatches(postings, 1, start, start, slop)) {
+                    freq++;
+                }
+            }
+            if (freq > 0) {
+                result.add(new int[]{hit.getDocId(), freq});
+            }
+        }
+        result.sort((a, b) -> Integer.compare(a[0], b[0]));
+        return result.toArray(new int[0][]);
+    }
+
+    private static boolean scanMatches(AbstractPosting[] postings, int i, int start, int previous, int slop) {
+        if (i == postings.length) {
+            return true;
+        }
+        for (int position = previous + 1; position - start - i <= slop; position++) {
+            if (postings[i].getPositions().contains(position) && scanMatches(postings, i + 1, start, position, slop)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 比较命中文档和短语出现次数(PhraseSort的得分)
+     */
+    private static boolean same(int[][] expected, AbstractHit[] actual) {
+        if (expected.length != actual.length) {
+            return false;
+        }
+        int[][] sorted = new int[actual.length][];
+        for (int i = 0; i < actual.length; i++) {
+            sorted[i] = new int[]{actual[i].getDocId(), (int) actual[i].getScore()};
+        }
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a[0], b[0]));
+        return Arrays.deepEquals(expected, sorted);
+    }
+}
@@ -0,0 +1,115 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.index.impl.MappedIndex;
+import hust.cs.javacourse.search.index.impl.SegmentWriter;
+import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.query.AbstractQuery;
+import hust.cs.javacourse.search.query.impl.AndQuery;
+import hust.cs.javacourse.search.query.impl.BM25Sorter;
+import hust.cs.javacourse.search.query.impl.IndexSearcher;
+import hust.cs.javacourse.search.query.impl.OrQuery;
+import hust.cs.javacourse.search.query.impl.TermQuery;
+import hust.cs.javacourse.search.util.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 比较MappedIndex每次检索都解码倒排列表与使用解码后倒排列表缓存(PostingListCache)两种情况下的检索耗时，
+ * 检查两者的结果相同，并显示缓存的命中率和最热的单词.
+ * 检索词按文档频率偏向高频词、按Zipf分布重复出现，模拟少数热点单词反复被检索的情况.
+ *
+ * @author 晋晨曦
+ */
+public class TestPostingListCache {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、检索次数、K、缓存容量(MB)
+     * @throws IOException : 生成语料或保存索引失败
+     */
+    public static void main(String[] args) throws IOException {
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        long maxBytes = (args.length > 3 ? Long.parseLong(args[3]) : 64) << 20;
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 16L << 20, 1 << 10);
+        AbstractIndex index = new IndexBuilder(new DocumentBuilder()).buildIndex(corpus.getPath());
+        index.optimize();
+        File indexFile = File.createTempFile("postingcache", ".dat");
+        indexFile.deleteOnExit();
+        new File(indexFile.getPath() + ".dict").deleteOnExit();
+        SegmentWriter.write(index, indexFile);
+        List<AbstractTerm> dictionary = new ArrayList<>(index.getDictionary());
+        dictionary.sort(Comparator.comparingInt((AbstractTerm term) -> index.search(term).size()).reversed());
+
+        Random random = new Random(42);
+        List<AbstractQuery> queries = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            AbstractQuery first = new TermQuery(dictionary.get((int) (dictionary.size() * Math.pow(random.nextDouble(), 6))));
+            AbstractQuery second = new TermQuery(dictionary.get((int) (dictionary.size() * Math.pow(random.nextDouble(), 6))));
+            queries.add(i % 2 == 0 ? new OrQuery(Arrays.asList(first, second)) : new AndQuery(Arrays.asList(first, second)));
+        }
+        System.out.println("docs=" + index.docIdToDocPathMapping.size() + ", terms=" + dictionary.size()
+                + ", requests=" + requests + ", k=" + k + ", cache=" + (maxBytes >> 20) + " MB");
+
+        long saved = Config.POSTING_CACHE_MAX_BYTES;
+        List<AbstractHit[]> expected;
+        List<AbstractHit[]> actual;
+        MappedIndex cached;
+        try {
+            Config.POSTING_CACHE_MAX_BYTES = 0;
+            expected = run("decode every time", new MappedIndex(indexFile), queries, k);
+            Config.POSTING_CACHE_MAX_BYTES = maxBytes;
+            cached = new MappedIndex(indexFile);
+            actual = run("posting list cache", cached, queries, k);
+        } finally {
+            Config.POSTING_CACHE_MAX_BYTES = saved;
+        }
+        System.out.println(cached.getPostingListCache());
+        for (Map.Entry<String, Long> entry : cached.getPostingListCache().termHitCounts(10).entrySet()) {
+            System.out.printf("  %-20s %8d hits%n", entry.getKey(), entry.getValue());
+        }
+
+        for (int i = 0; i < queries.size(); i++) {
+            AbstractHit[] a = expected.get(i);
+            AbstractHit[] b = actual.get(i);
+            boolean same = a.length == b.length;
+            for (int j = 0; same && j < a.length; j++) {
+                same = a[j].getDocId() == b[j].getDocId() && a[j].getScore() == b[j].getScore();
+            }
+            if (!same) {
+                System.out.println("  !! results differ for " + queries.get(i));
+                return;
+            }
+        }
+        System.out.println("all " + queries.size() + " results match");
+    }
+
+    /**
+     * 用BM25取每个查询的前k个结果，先预热再计时，返回计时那一轮的结果
+     */
+    private static List<AbstractHit[]> run(String name, MappedIndex index, List<AbstractQuery> queries, int k) {
+        IndexSearcher searcher = new IndexSearcher(index);
+        BM25Sorter sorter = new BM25Sorter(index);
+        for (AbstractQuery query : queries.subList(0, Math.min(500, queries.size()))) {
+            searcher.search(query, sorter, k);
+        }
+        List<AbstractHit[]> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (AbstractQuery query : queries) {
+            results.add(searcher.search(query, sorter, k));
+        }
+        System.out.printf("%-19s: %8.1f us/query%n", name, (System.nanoTime() - start) / 1e3 / queries.size());
+        return results;
+    }
+}
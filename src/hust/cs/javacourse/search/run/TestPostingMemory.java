@@ -0,0 +1,97 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.impl.CompactPostingList;
+import hust.cs.javacourse.search.index.impl.Posting;
+import hust.cs.javacourse.search.index.impl.PostingList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 比较PostingList与CompactPostingList两种倒排列表布局的内存占用
+ *
+ * @author 晋晨曦
+ */
+public class TestPostingMemory {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为文档数、词表大小、每篇文档的单词数，均可省略
+     */
+    public static void main(String[] args) {
+        int docCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int vocabulary = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        int docLength = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        System.out.println("docs=" + docCount + ", vocabulary=" + vocabulary + ", docLength=" + docLength);
+
+        long boxed = measure(docCount, vocabulary, docLength, false);
+        long compact = measure(docCount, vocabulary, docLength, true);
+        System.out.printf("PostingList        : %,d bytes%n", boxed);
+        System.out.printf("CompactPostingList : %,d bytes%n", compact);
+        System.out.printf("ratio              : %.2f%n", (double) boxed / compact);
+    }
+
+    /**
+     * 生成固定随机种子的倒排列表并测量其占用的堆内存
+     */
+    private static long measure(int docCount, int vocabulary, int docLength, boolean compact) {
+        long before = usedMemory();
+        AbstractPostingList[] lists = new AbstractPostingList[vocabulary];
+        for (int t = 0; t < vocabulary; t++) {
+            lists[t] = new AppendOnlyPostingList();
+        }
+        Random random = new Random(42);
+        for (int docId = 0; docId < docCount; docId++) {
+            // 每篇文档内按单词聚合位置，近似Zipf分布：小编号的单词更常见
+            List<List<Integer>> positions = new ArrayList<>(vocabulary);
+            for (int t = 0; t < vocabulary; t++) {
+                positions.add(null);
+            }
+            for (int pos = 0; pos < docLength; pos++) {
+                int term = (int) (vocabulary * Math.pow(random.nextDouble(), 3));
+                if (positions.get(term) == null) {
+                    positions.set(term, new ArrayList<>());
+                }
+                positions.get(term).add(pos);
+            }
+            for (int t = 0; t < vocabulary; t++) {
+                List<Integer> termPositions = positions.get(t);
+                if (termPositions != null) {
+                    ((AppendOnlyPostingList) lists[t]).append(new Posting(docId, termPositions.size(), termPositions));
+                }
+            }
+        }
+        if (compact) {
+            for (int t = 0; t < vocabulary; t++) {
+                CompactPostingList compactList = CompactPostingList.of(lists[t]);
+                compactList.trimToSize();
+                lists[t] = compactList;
+            }
+        }
+        long after = usedMemory();
+        // 保证lists在测量结束前可达
+        System.out.println((compact ? "compact" : "boxed") + " postings of term 0: " + lists[0].size());
+        return after - before;
+    }
+
+    /**
+     * 与PostingList内存布局相同，但追加时跳过去重检查，避免测量数据的生成过程本身成为平方复杂度
+     */
+    private static class AppendOnlyPostingList extends PostingList {
+        private static final long serialVersionUID = 1L;
+
+        void append(Posting posting) {
+            list.add(posting);
+        }
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,124 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.query.AbstractIndexSearcher;
+import hust.cs.javacourse.search.query.impl.CachingIndexSearcher;
+import hust.cs.javacourse.search.query.impl.IndexSearcher;
+import hust.cs.javacourse.search.query.impl.SimpleSorter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 用重复率很高的两词检索请求(从固定的查询集合中按Zipf分布抽取)比较不缓存和缓存检索结果的耗时，
+ * 报告命中率、淘汰次数和缓存占用的内存，并检查缓存结果与直接检索一致、索引加入新文档后缓存被清空.
+ *
+ * @author 晋晨曦
+ */
+public class TestQueryCache {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、请求个数、不同查询个数、缓存的查询个数上限、缓存的内存上限(MB)
+     * @throws IOException : 生成语料或写临时文档失败
+     */
+    public static void main(String[] args) throws IOException {
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int distinct = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int capacity = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        long maxBytes = (args.length > 4 ? Long.parseLong(args[4]) : 256) << 20;
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 8L << 20, 1 << 10);
+        DocumentBuilder documentBuilder = new DocumentBuilder();
+        AbstractIndex index = new IndexBuilder(documentBuilder).buildIndex(corpus.getPath());
+        index.optimize();
+        List<AbstractTerm> dictionary = new ArrayList<>(index.getDictionary());
+        dictionary.sort(Comparator.comparingInt((AbstractTerm term) -> index.search(term).size()).reversed());
+        System.out.println("docs=" + index.docIdToDocPathMapping.size() + ", requests=" + requests +
+                ", distinct queries=" + distinct + ", cache capacity=" + capacity + " queries / " + (maxBytes >> 20) + " MB");
+
+        Random random = new Random(42);
+        List<AbstractTerm[]> pool = new ArrayList<>();
+        for (int i = 0; i < distinct; i++) {
+            pool.add(new AbstractTerm[]{
+                    dictionary.get((int) (dictionary.size() * Math.pow(random.nextDouble(), 4))),
+                    dictionary.get((int) (dictionary.size() * Math.pow(random.nextDouble(), 4)))});
+        }
+        List<AbstractTerm[]> traffic = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            // 少数热门查询占大部分请求
+            traffic.add(pool.get((int) (distinct * Math.pow(random.nextDouble(), 3))));
+        }
+        AbstractIndexSearcher.LogicalCombination[] combinations = AbstractIndexSearcher.LogicalCombination.values();
+
+        SimpleSorter sorter = new SimpleSorter();
+        IndexSearcher searcher = new IndexSearcher(index);
+        CachingIndexSearcher cache = new CachingIndexSearcher(searcher, capacity, maxBytes);
+        long start = System.nanoTime();
+        for (int i = 0; i < traffic.size(); i++) {
+            AbstractTerm[] terms = traffic.get(i);
+            searcher.search(terms[0], terms[1], sorter, combinations[i % 2]);
+        }
+        double uncached = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        for (int i = 0; i < traffic.size(); i++) {
+            AbstractTerm[] terms = traffic.get(i);
+            cache.search(terms[0], terms[1], sorter, combinations[i % 2]);
+        }
+        double cached = (System.nanoTime() - start) / 1e6;
+        System.out.printf("no cache: %8.1f ms%n", uncached);
+        System.out.printf("cache   : %8.1f ms%n", cached);
+        System.out.println(cache);
+
+        for (int i = 0; i < Math.min(1000, traffic.size()); i++) {
+            AbstractTerm[] terms = traffic.get(i);
+            AbstractHit[] expected = searcher.search(terms[0], terms[1], sorter, combinations[i % 2]);
+            // OR交换两个检索词后应命中同一个缓存结果
+            AbstractHit[] actual = i % 2 == 1
+                    ? cache.search(terms[1], terms[0], sorter, combinations[i % 2])
+                    : cache.search(terms[0], terms[1], sorter, combinations[i % 2]);
+            if (!same(expected, actual)) {
+                System.out.println("  !! cached results differ for " + terms[0] + " " + combinations[i % 2] + " " + terms[1]);
+                return;
+            }
+        }
+        System.out.println("cached results match direct search");
+
+        // 加入一个包含热门检索词的新文档，缓存应当失效
+        AbstractTerm term = traffic.get(0)[0];
+        int before = cache.search(term, sorter).length;
+        cache.search(term, sorter);
+        File extra = File.createTempFile("extra", ".txt");
+        extra.deleteOnExit();
+        Files.write(extra.toPath(), (term.getContent() + " " + term.getContent()).getBytes(StandardCharsets.UTF_8));
+        int docId = index.docIdToDocPathMapping.size();
+        index.addDocument(docId, extra.getAbsolutePath(), documentBuilder.termTupleStream(extra));
+        int after = cache.search(term, sorter).length;
+        if (after != before + 1) {
+            System.out.println("  !! cache was not invalidated after adding a document: " + before + " -> " + after);
+            return;
+        }
+        System.out.println("adding a document invalidated the cache: " + term + " " + before + " -> " + after + " hits, " + cache);
+    }
+
+    private static boolean same(AbstractHit[] expected, AbstractHit[] actual) {
+        if (expected.length != actual.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i].getDocId() != actual[i].getDocId() || expected[i].getScore() != actual[i].getScore()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,203 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.query.impl.BM25Sorter;
+import hust.cs.javacourse.search.query.impl.IndexSearcher;
+import hust.cs.javacourse.search.query.impl.QueryParser;
+import hust.cs.javacourse.search.server.QueryServer;
+import hust.cs.javacourse.search.util.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 在本机启动查询服务并用多个客户端线程持续发送请求(闭环负载)，报告不同并发数下的吞吐量、延迟分位数和被拒绝、超时的请求数.
+ * 先检查服务返回的docId与直接调用检索器的结果一致，再检查准入控制在并发数超过上限时返回503.
+ *
+ * @author 晋晨曦
+ */
+public class TestQueryServer {
+    private static final Pattern DOC_ID = Pattern.compile("\"docId\":(\\d+)");
+
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、每个并发数的测试时间(秒)、检索个数上限
+     * @throws Exception : 生成语料、保存索引或启动服务失败
+     */
+    public static void main(String[] args) throws Exception {
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 3;
+        int maxConcurrent = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 8L << 20, 1 << 10);
+        AbstractIndex built = new IndexBuilder(new DocumentBuilder()).buildIndex(corpus.getPath());
+        built.optimize();
+        File indexFile = File.createTempFile("server", ".dat");
+        indexFile.deleteOnExit();
+        new File(indexFile.getPath() + ".dict").deleteOnExit();
+        built.save(indexFile);
+        List<AbstractTerm> dictionary = new ArrayList<>(built.getDictionary());
+        dictionary.sort(Comparator.comparingInt((AbstractTerm term) -> built.search(term).size()).reversed());
+
+        AbstractIndex index = IndexSearcher.openIndex(indexFile.getPath());
+        IndexSearcher searcher = new IndexSearcher(index);
+        BM25Sorter sorter = new BM25Sorter(index);
+        QueryServer server = new QueryServer(searcher, sorter, 0, maxConcurrent, Config.SERVER_QUERY_TIMEOUT_MILLIS);
+        server.start();
+        String base = "http://localhost:" + server.getPort();
+        System.out.println("docs=" + index.docIdToDocPathMapping.size() + ", server=" + base + ", maxConcurrent=" + maxConcurrent);
+
+        Random random = new Random(42);
+        String[] operators = {" ", " OR ", " AND "};
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String first = dictionary.get((int) (dictionary.size() * Math.pow(random.nextDouble(), 4))).getContent();
+            String second = dictionary.get((int) (dictionary.size() * Math.pow(random.nextDouble(), 4))).getContent();
+            queries.add(i % 10 == 0 ? "\"" + first + " " + second + "\"~5" : first + operators[i % 3] + second);
+        }
+
+        for (String q : queries.subList(0, 100)) {
+            String body = get(base + "/search?k=10&q=" + URLEncoder.encode(q, StandardCharsets.UTF_8), new int[1]);
+            AbstractHit[] expected = searcher.search(QueryParser.parse(q), sorter, 10);
+            List<Integer> docIds = new ArrayList<>();
+            Matcher matcher = DOC_ID.matcher(body);
+            while (matcher.find()) {
+                docIds.add(Integer.parseInt(matcher.group(1)));
+            }
+            for (int i = 0; i < expected.length; i++) {
+                if (docIds.size() != expected.length || docIds.get(i) != expected[i].getDocId()) {
+                    System.out.println("  !! server results differ for " + q + ": " + body);
+                    server.stop();
+                    return;
+                }
+            }
+        }
+        int[] status = new int[1];
+        for (String malformed : new String[]{"(unbalanced", "\"a(b\"", "\"a ) b\"", "\"a~b\"", "\"unclosed", "a AND"}) {
+            get(base + "/search?q=" + URLEncoder.encode(malformed, StandardCharsets.UTF_8), status);
+            if (status[0] != 400) {
+                System.out.println("  !! malformed query " + malformed + " -> " + status[0]);
+                server.stop();
+                return;
+            }
+        }
+        for (String malformed : new String[]{"q=%zz", "q=a%2", "q=a&k=0", "q=a&snippet=" + (QueryServer.MAX_SNIPPET + 1)}) {
+            get(base + "/search?" + malformed, status);
+            if (status[0] != 400) {
+                System.out.println("  !! malformed parameters " + malformed + " -> " + status[0]);
+                server.stop();
+                return;
+            }
+        }
+        get(base + "/search?q=" + URLEncoder.encode(queries.get(0), StandardCharsets.UTF_8) + "&snippet=" + QueryServer.MAX_SNIPPET, status);
+        if (status[0] != 200) {
+            System.out.println("  !! snippet request -> " + status[0]);
+            server.stop();
+            return;
+        }
+        System.out.println("server results match direct search, malformed queries and parameters -> 400");
+
+        for (int clients = 1; clients <= maxConcurrent * 4; clients *= 2) {
+            load(base, queries, clients, seconds);
+        }
+        System.out.println("stats: " + get(base + "/stats", status));
+        server.stop();
+    }
+
+    /**
+     * 用clients个客户端线程持续发送请求seconds秒，报告吞吐量和延迟分位数
+     */
+    private static void load(String base, List<String> queries, int clients, double seconds) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            int offset = c * 37;
+            futures.add(executor.submit(() -> {
+                // 前3个元素依次为200、503、504的个数，之后是每个成功请求的延迟
+                long[] result = new long[1024];
+                int size = 3;
+                int[] status = new int[1];
+                for (int i = offset; System.nanoTime() < deadline; i++) {
+                    String q = queries.get(i % queries.size());
+                    long begin = System.nanoTime();
+                    get(base + "/search?k=10&q=" + URLEncoder.encode(q, StandardCharsets.UTF_8), status);
+                    long latency = System.nanoTime() - begin;
+                    if (status[0] == 200) {
+                        result[0]++;
+                        if (size == result.length) {
+                            result = Arrays.copyOf(result, size * 2);
+                        }
+                        result[size++] = latency;
+                    } else if (status[0] == 503) {
+                        result[1]++;
+                    } else if (status[0] == 504) {
+                        result[2]++;
+                    }
+                }
+                return Arrays.copyOf(result, size);
+            }));
+        }
+        long ok = 0;
+        long rejected = 0;
+        long timedOut = 0;
+        List<long[]> parts = new ArrayList<>();
+        for (Future<long[]> future : futures) {
+            long[] result = future.get();
+            ok += result[0];
+            rejected += result[1];
+            timedOut += result[2];
+            parts.add(result);
+        }
+        executor.shutdown();
+        long[] latencies = new long[(int) ok];
+        int size = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 3, latencies, size, part.length - 3);
+            size += part.length - 3;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("  %3d clients: %7.0f ok/s, p50 %6.2f ms, p90 %6.2f ms, p99 %6.2f ms, p99.9 %6.2f ms, 503=%d, 504=%d%n",
+                clients, ok / seconds, percentile(latencies, 0.5), percentile(latencies, 0.9),
+                percentile(latencies, 0.99), percentile(latencies, 0.999), rejected, timedOut);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+
+    /**
+     * 发送GET请求，返回响应内容，状态码放在status[0]
+     */
+    private static String get(String url, int[] status) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        status[0] = connection.getResponseCode();
+        try (InputStream in = status[0] < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
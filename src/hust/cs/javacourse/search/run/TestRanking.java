@@ -0,0 +1,198 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractPosting;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.Index;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.index.impl.MappedIndex;
+import hust.cs.javacourse.search.index.impl.SegmentWriter;
+import hust.cs.javacourse.search.parse.AbstractTermTupleStream;
+import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.query.AbstractQuery;
+import hust.cs.javacourse.search.query.Sort;
+import hust.cs.javacourse.search.query.TermScoreSort;
+import hust.cs.javacourse.search.query.impl.BM25Sorter;
+import hust.cs.javacourse.search.query.impl.IndexSearcher;
+import hust.cs.javacourse.search.query.impl.OrQuery;
+import hust.cs.javacourse.search.query.impl.TFIDFSorter;
+import hust.cs.javacourse.search.query.impl.TermQuery;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 检查构建索引时保存的文档长度在段格式和内存索引中读出后与重新分词统计的结果一致，
+ * 并比较BM25得分使用预先保存的统计量与每次查询重新统计文档长度、文档频率两种做法的耗时和结果.
+ * 最后检查BM25、TF-IDF在WAND和逐个文档打分两种取前K方式下结果一致.
+ *
+ * @author 晋晨曦
+ */
+public class TestRanking {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、查询个数、K
+     * @throws IOException : 生成语料或保存索引失败
+     */
+    public static void main(String[] args) throws IOException {
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 8L << 20, 1 << 10);
+        DocumentBuilder documentBuilder = new DocumentBuilder();
+        AbstractIndex index = new IndexBuilder(documentBuilder).buildIndex(corpus.getPath());
+        index.optimize();
+        File indexFile = File.createTempFile("ranking", ".dat");
+        indexFile.deleteOnExit();
+        new File(indexFile.getPath() + ".dict").deleteOnExit();
+        SegmentWriter.write(index, indexFile);
+        AbstractIndex mapped = new MappedIndex(indexFile);
+        AbstractIndex loaded = new Index();
+        loaded.load(indexFile);
+        System.out.println("docs=" + index.docIdToDocPathMapping.size() + ", avgdl=" + index.getAverageDocLength());
+
+        for (Map.Entry<Integer, String> doc : index.docIdToDocPathMapping.entrySet()) {
+            int length = countTerms(documentBuilder, doc.getValue());
+            int docId = doc.getKey();
+            if (index.getDocLength(docId) != length || mapped.getDocLength(docId) != length || loaded.getDocLength(docId) != length) {
+                System.out.println("  !! document length differs for " + doc.getValue());
+                return;
+            }
+        }
+        if (mapped.getAverageDocLength() != index.getAverageDocLength() || loaded.getAverageDocLength() != index.getAverageDocLength()) {
+            System.out.println("  !! average document length differs");
+            return;
+        }
+        System.out.println("stored document lengths match a fresh recount");
+
+        List<AbstractTerm> dictionary = new ArrayList<>(index.getDictionary());
+        dictionary.sort(Comparator.comparingInt((AbstractTerm term) -> index.search(term).size()).reversed());
+        Random random = new Random(42);
+        List<AbstractQuery> queries = new ArrayList<>();
+        for (int i = 0; i < queryCount; i++) {
+            List<AbstractQuery> clauses = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                clauses.add(new TermQuery(dictionary.get((int) (dictionary.size() * Math.pow(random.nextDouble(), 4)))));
+            }
+            queries.add(new OrQuery(clauses));
+        }
+        IndexSearcher searcher = new IndexSearcher();
+        searcher.open(indexFile.getPath());
+
+        BM25Sorter bm25 = new BM25Sorter(mapped);
+        Sort recounting = new RecountingBM25(mapped, documentBuilder);
+        long start = System.nanoTime();
+        List<AbstractHit[]> stored = new ArrayList<>();
+        for (AbstractQuery query : queries) {
+            stored.add(searcher.search(query, bm25));
+        }
+        double storedMillis = (System.nanoTime() - start) / 1e6 / queries.size();
+        // 重新统计很慢，只对前10个查询计时
+        List<AbstractQuery> recountQueries = queries.subList(0, Math.min(10, queries.size()));
+        start = System.nanoTime();
+        List<AbstractHit[]> recounted = new ArrayList<>();
+        for (AbstractQuery query : recountQueries) {
+            recounted.add(searcher.search(query, recounting));
+        }
+        double recountMillis = (System.nanoTime() - start) / 1e6 / recountQueries.size();
+        System.out.printf("BM25 with stored statistics: %8.2f ms/query%n", storedMillis);
+        System.out.printf("BM25 recounting per query  : %8.2f ms/query%n", recountMillis);
+        for (int i = 0; i < recountQueries.size(); i++) {
+            if (!sameScores(stored.get(i), recounted.get(i), stored.get(i).length)) {
+                System.out.println("  !! BM25 scores differ for " + queries.get(i));
+                return;
+            }
+        }
+
+        for (TermScoreSort sorter : new TermScoreSort[]{bm25, new TFIDFSorter(mapped)}) {
+            for (AbstractQuery query : queries) {
+                AbstractHit[] full = searcher.search(query, new Sort() {
+                    @Override
+                    public void sort(List<AbstractHit> hits) {
+                        sorter.sort(hits);
+                    }
+
+                    @Override
+                    public double score(AbstractHit hit) {
+                        return sorter.score(hit);
+                    }
+                });
+                if (!sameScores(full, searcher.search(query, sorter, k), k)) {
+                    System.out.println("  !! " + sorter.getClass().getSimpleName() + " top-" + k + " differs for " + query);
+                    return;
+                }
+            }
+            System.out.println(sorter.getClass().getSimpleName() + ": top-" + k + " with WAND matches the full ranking");
+        }
+    }
+
+    /**
+     * 比较expected的前k个结果与actual的得分，允许浮点数求和顺序不同带来的误差
+     */
+    private static boolean sameScores(AbstractHit[] expected, AbstractHit[] actual, int k) {
+        if (actual.length != Math.min(k, expected.length)) {
+            return false;
+        }
+        for (int i = 0; i < actual.length; i++) {
+            if (Math.abs(expected[i].getScore() - actual[i].getScore()) > 1e-9 * Math.max(1, expected[i].getScore())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 重新分词统计文档中加入索引的单词个数
+     */
+    private static int countTerms(DocumentBuilder documentBuilder, String docPath) {
+        AbstractTermTupleStream stream = documentBuilder.termTupleStream(new File(docPath));
+        int count = 0;
+        while (stream.next() != null) {
+            count++;
+        }
+        stream.close();
+        return count;
+    }
+
+    /**
+     * 对照实现：没有预先保存的文档长度和文档频率时，每次打分都要重新分词统计文档长度、解码PostingList统计文档频率.
+     * 平均文档长度只在构造时统计一次.
+     */
+    private static class RecountingBM25 implements Sort {
+        private final AbstractIndex index;
+        private final DocumentBuilder documentBuilder;
+        private final double averageLength;
+
+        RecountingBM25(AbstractIndex index, DocumentBuilder documentBuilder) {
+            this.index = index;
+            this.documentBuilder = documentBuilder;
+            this.averageLength = index.getAverageDocLength();
+        }
+
+        @Override
+        public void sort(List<AbstractHit> hits) {
+            hits.sort(Comparator.reverseOrder());
+        }
+
+        @Override
+        public double score(AbstractHit hit) {
+            int docCount = index.docIdToDocPathMapping.size();
+            double ratio = countTerms(documentBuilder, hit.getDocPath()) / averageLength;
+            double norm = BM25Sorter.DEFAULT_K1 * (1 - BM25Sorter.DEFAULT_B + BM25Sorter.DEFAULT_B * ratio);
+            double score = 0;
+            for (Map.Entry<AbstractTerm, AbstractPosting> entry : hit.getTermPostingMapping().entrySet()) {
+                int df = index.search(entry.getKey()).size();
+                double idf = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+                int freq = entry.getValue().getFreq();
+                score += idf * freq * (BM25Sorter.DEFAULT_K1 + 1) / (freq + norm);
+            }
+            return score;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractTermTuple;
+import hust.cs.javacourse.search.parse.AbstractTermTupleStream;
+import hust.cs.javacourse.search.parse.impl.FastTermTupleScanner;
+import hust.cs.javacourse.search.parse.impl.TermTupleScanner;
+import hust.cs.javacourse.search.util.FileUtil;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 检查FastTermTupleScanner与TermTupleScanner对语料和一组边界情况(各种分隔符、只有控制字符的行、非ASCII字符的大小写、
+ * 超过缓冲区的单词和行、内存映射的大文件、没有结尾换行符的文件)切分出完全相同的单词和位置，
+ * 并比较两者的吞吐量(MB/s)，以及只用nextToken不创建字符串时的吞吐量.
+ *
+ * @author 晋晨曦
+ */
+public class TestScanner {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、计时轮数
+     * @throws IOException : 生成语料或写入临时文件失败
+     */
+    public static void main(String[] args) throws IOException {
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 8L << 20, 64 << 10);
+        List<String> files = FileUtil.list(corpus.getPath());
+
+        // 边界情况
+        File dir = Files.createTempDirectory("scanner").toFile();
+        StringBuilder longToken = new StringBuilder();
+        StringBuilder longBlank = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            longToken.append((char) ('a' + i % 26));
+            longBlank.append(i % 2 == 0 ? ' ' : '\u0001');
+        }
+        StringBuilder large = new StringBuilder();
+        while (large.length() < 3 << 20) {
+            large.append("The quick BROWN fox, jumps; over the lazy dog. 中文，测试。\r\n");
+        }
+        String[] cases = {
+                "",
+                "single",
+                "Hello,World;FOO|bar\tbaz\r\nqux\rquux\n\n  \n",
+                "\u0001\u0002 \nnext\n",
+                " \u0001 x\n\u0001, \n\u0002\u0003\t\u0004\r\n",
+                "İSTANBUL Straße ΣΑΣ Ǆemal ÀÉÎ\n",
+                "中文，测试。句子！顿号、问号？冒号：分号；\n",
+                "trailing\r",
+                longToken + " end\n" + longBlank + "\n" + longBlank + " tail\n",
+                large.toString(),
+        };
+        List<String> checked = new ArrayList<>(files);
+        for (int i = 0; i < cases.length; i++) {
+            File file = new File(dir, "case" + i + ".txt");
+            Files.write(file.toPath(), cases[i].getBytes(StandardCharsets.UTF_8));
+            checked.add(file.getPath());
+        }
+        for (String path : checked) {
+            String difference = compare(new File(path));
+            if (difference != null) {
+                System.out.println("  !! " + path + ": " + difference);
+                return;
+            }
+        }
+        System.out.println("same terms and positions for " + files.size() + " corpus files and " + cases.length + " edge cases");
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+
+        long bytes = 0;
+        for (String path : files) {
+            bytes += new File(path).length();
+        }
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            long lineTokens = 0;
+            for (String path : files) {
+                lineTokens += drain(new TermTupleScanner(new BufferedReader(new FileReader(path))));
+            }
+            double lineSeconds = (System.nanoTime() - start) / 1e9;
+            start = System.nanoTime();
+            long fastTokens = 0;
+            for (String path : files) {
+                fastTokens += drain(new FastTermTupleScanner(new File(path)));
+            }
+            double fastSeconds = (System.nanoTime() - start) / 1e9;
+            start = System.nanoTime();
+            long rawTokens = 0;
+            for (String path : files) {
+                FastTermTupleScanner scanner = new FastTermTupleScanner(new File(path));
+                while (scanner.nextToken()) {
+                    rawTokens++;
+                }
+                scanner.close();
+            }
+            double rawSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("round %d: TermTupleScanner %7.1f MB/s, FastTermTupleScanner %7.1f MB/s, nextToken only %7.1f MB/s (%d tokens)%n",
+                    round, bytes / lineSeconds / (1 << 20), bytes / fastSeconds / (1 << 20), bytes / rawSeconds / (1 << 20), lineTokens);
+            if (lineTokens != fastTokens || lineTokens != rawTokens) {
+                System.out.println("  !! token counts differ");
+                return;
+            }
+        }
+    }
+
+    /**
+     * 逐个比较两个扫描器给出的单词和位置，相同时返回null
+     */
+    private static String compare(File file) throws IOException {
+        TermTupleScanner expected = new TermTupleScanner(new BufferedReader(new FileReader(file)));
+        FastTermTupleScanner actual = new FastTermTupleScanner(file);
+        try {
+            while (true) {
+                AbstractTermTuple a = expected.next();
+                boolean more = actual.nextToken();
+                if (a == null || !more) {
+                    return a == null && !more ? null : "one scanner ended first: " + a;
+                }
+                String token = new String(actual.tokenChars(), actual.tokenOffset(), actual.tokenLength());
+                if (!a.term.getContent().equals(token) || !token.equals(actual.tokenString()) || a.curPos != actual.tokenPosition()) {
+                    return "expected " + a + " but got " + token + " at " + actual.tokenPosition();
+                }
+            }
+        } finally {
+            expected.close();
+            actual.close();
+        }
+    }
+
+    private static long drain(AbstractTermTupleStream stream) {
+        long count = 0;
+        while (stream.next() != null) {
+            count++;
+        }
+        stream.close();
+        return count;
+    }
+}
@@ -0,0 +1,137 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractPostingList;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.FrontCodedDictionary;
+import hust.cs.javacourse.search.index.impl.Term;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 比较TreeMap字典与前缀压缩的FrontCodedDictionary的内存占用、精确查找和前缀枚举速度，并检查两者结果一致
+ *
+ * @author 晋晨曦
+ */
+public class TestTermDictionary {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为单词个数、查找次数，均可省略
+     */
+    public static void main(String[] args) {
+        int termCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        String[] words = randomWords(termCount, new Random(42));
+        System.out.println("terms=" + words.length + ", lookups=" + lookups);
+
+        long before = usedMemory();
+        TreeMap<AbstractTerm, AbstractPostingList> treeMap = new TreeMap<>();
+        for (String word : words) {
+            treeMap.put(new Term(new String(word.toCharArray())), null);
+        }
+        long treeMapBytes = usedMemory() - before;
+
+        before = usedMemory();
+        FrontCodedDictionary dictionary = FrontCodedDictionary.build(Arrays.asList(words));
+        long frontCodedBytes = usedMemory() - before;
+        System.out.printf("TreeMap<Term>        : %,d bytes%n", treeMapBytes);
+        System.out.printf("FrontCodedDictionary : %,d bytes (encoded %,d bytes)%n", frontCodedBytes, dictionary.sizeInBytes());
+
+        Random random = new Random(7);
+        String[] queries = new String[lookups];
+        for (int i = 0; i < lookups; i++) {
+            // 一半查询命中，一半不命中
+            queries[i] = i % 2 == 0 ? words[random.nextInt(words.length)] : words[random.nextInt(words.length)] + "q";
+        }
+        long start = System.nanoTime();
+        int found = 0;
+        for (String query : queries) {
+            if (treeMap.containsKey(new Term(query))) {
+                found++;
+            }
+        }
+        report("TreeMap exact", start, lookups, found);
+        start = System.nanoTime();
+        found = 0;
+        for (String query : queries) {
+            if (dictionary.find(query) >= 0) {
+                found++;
+            }
+        }
+        report("FrontCoded exact", start, lookups, found);
+
+        String[] prefixes = new String[10000];
+        for (int i = 0; i < prefixes.length; i++) {
+            String word = words[random.nextInt(words.length)];
+            prefixes[i] = word.substring(0, Math.min(word.length(), 3));
+        }
+        start = System.nanoTime();
+        long enumerated = 0;
+        for (String prefix : prefixes) {
+            for (AbstractTerm term : treeMap.tailMap(new Term(prefix), true).keySet()) {
+                if (!term.getContent().startsWith(prefix)) {
+                    break;
+                }
+                enumerated++;
+            }
+        }
+        report("TreeMap prefix", start, prefixes.length, enumerated);
+        start = System.nanoTime();
+        long frontCodedEnumerated = 0;
+        for (String prefix : prefixes) {
+            int[] range = dictionary.prefixRange(prefix);
+            for (Iterator<String> it = dictionary.iterator(range[0], range[1]); it.hasNext(); it.next()) {
+                frontCodedEnumerated++;
+            }
+        }
+        report("FrontCoded prefix", start, prefixes.length, frontCodedEnumerated);
+
+        int ord = 0;
+        for (String word : dictionary) {
+            if (!word.equals(words[ord]) || dictionary.find(word) != ord) {
+                System.out.println("  !! mismatch at ord " + ord + ": " + word);
+                return;
+            }
+            ord++;
+        }
+        if (enumerated != frontCodedEnumerated) {
+            System.out.println("  !! prefix enumeration differs");
+        }
+    }
+
+    private static void report(String name, long start, int operations, long results) {
+        double ns = System.nanoTime() - start;
+        System.out.printf("%-18s %8.1f ns/op, results=%d%n", name, ns / operations, results);
+    }
+
+    /**
+     * 生成按字典序排列、互不相同的随机小写单词
+     */
+    private static String[] randomWords(int count, Random random) {
+        TreeSet<String> words = new TreeSet<>();
+        char[] buffer = new char[12];
+        while (words.size() < count) {
+            int length = 3 + random.nextInt(10);
+            for (int i = 0; i < length; i++) {
+                buffer[i] = (char) ('a' + random.nextInt(26));
+            }
+            words.add(new String(buffer, 0, length));
+        }
+        List<String> list = new ArrayList<>(words);
+        return list.toArray(new String[0]);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,137 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractTermTuple;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.parse.AbstractTermTupleStream;
+import hust.cs.javacourse.search.parse.impl.FastTermTupleScanner;
+import hust.cs.javacourse.search.parse.impl.FusedTermTupleFilter;
+import hust.cs.javacourse.search.parse.impl.LengthTermTupleFilter;
+import hust.cs.javacourse.search.parse.impl.PatternTermTupleFilter;
+import hust.cs.javacourse.search.parse.impl.StopWordTermTupleFilter;
+import hust.cs.javacourse.search.parse.impl.TermTupleScanner;
+import hust.cs.javacourse.search.util.Config;
+import hust.cs.javacourse.search.util.FileUtil;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 差分测试：在text目录、语料目录和一个边界情况文件上，检查DocumentBuilder使用的FusedTermTupleFilter管道
+ * (以及以TermTupleScanner为输入的FusedTermTupleFilter)与原来的StopWord(Pattern(Length(TermTupleScanner)))管道
+ * 给出完全相同的词元组，分别在默认配置、区分大小写、改变长度范围和改变单词过滤正则表达式时检查；
+ * 并比较两个管道的吞吐量.
+ *
+ * @author 晋晨曦
+ */
+public class TestTermFilter {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、计时轮数
+     * @throws IOException : 生成语料或写入临时文件失败
+     */
+    public static void main(String[] args) throws IOException {
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 8L << 20, 64 << 10);
+        List<String> files = new ArrayList<>(FileUtil.list(Config.DOC_DIR));
+        files.addAll(FileUtil.list(corpus.getPath()));
+        File edge = File.createTempFile("filter", ".txt");
+        Files.write(edge.toPath(), ("The THE the a An and AND about Above ab abc abcdefghijklmnopqrst abcdefghijklmnopqrstu\n"
+                + "don't can't e-mail x1 café naïve ÀBC Straße İstanbul [bracket] `tick` @at {brace} a_b\n"
+                + "again,AGAIN;again.again?again:again!again|again、again\u0001again").getBytes(StandardCharsets.UTF_8));
+        files.add(edge.getPath());
+
+        boolean ignoreCase = Config.IGNORE_CASE;
+        int minLength = Config.TERM_FILTER_MINLENGTH;
+        int maxLength = Config.TERM_FILTER_MAXLENGTH;
+        String pattern = Config.TERM_FILTER_PATTERN;
+        String[] settings = {"default", "case sensitive", "length 1..5", "pattern [a-z]+[s]?"};
+        for (String setting : settings) {
+            Config.IGNORE_CASE = !setting.equals("case sensitive") && ignoreCase;
+            Config.TERM_FILTER_MINLENGTH = setting.equals("length 1..5") ? 1 : minLength;
+            Config.TERM_FILTER_MAXLENGTH = setting.equals("length 1..5") ? 5 : maxLength;
+            Config.TERM_FILTER_PATTERN = setting.startsWith("pattern") ? "[a-z]+[s]?" : pattern;
+            long tuples = 0;
+            for (String path : files) {
+                List<AbstractTermTuple> expected = drain(chain(path));
+                if (!expected.equals(drain(new DocumentBuilder().termTupleStream(new File(path))))
+                        || !expected.equals(drain(new FusedTermTupleFilter(new TermTupleScanner(new BufferedReader(new FileReader(path))))))) {
+                    System.out.println("  !! " + setting + ": output differs for " + path);
+                    return;
+                }
+                tuples += expected.size();
+            }
+            System.out.printf("%-20s: same %d term tuples for %d files%n", setting, tuples, files.size());
+        }
+        Config.IGNORE_CASE = ignoreCase;
+        Config.TERM_FILTER_MINLENGTH = minLength;
+        Config.TERM_FILTER_MAXLENGTH = maxLength;
+        Config.TERM_FILTER_PATTERN = pattern;
+        edge.delete();
+        files.remove(edge.getPath());
+
+        long bytes = 0;
+        for (String path : files) {
+            bytes += new File(path).length();
+        }
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            long chained = 0;
+            for (String path : files) {
+                chained += count(chain(path));
+            }
+            double chainSeconds = (System.nanoTime() - start) / 1e9;
+            start = System.nanoTime();
+            long fusedOverLines = 0;
+            for (String path : files) {
+                fusedOverLines += count(new FusedTermTupleFilter(new TermTupleScanner(new BufferedReader(new FileReader(path)))));
+            }
+            double fusedOverLinesSeconds = (System.nanoTime() - start) / 1e9;
+            start = System.nanoTime();
+            long fused = 0;
+            for (String path : files) {
+                fused += count(new FusedTermTupleFilter(new FastTermTupleScanner(new File(path))));
+            }
+            double fusedSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("round %d: three filters %7.1f MB/s, fused over TermTupleScanner %7.1f MB/s, fused over FastTermTupleScanner %7.1f MB/s (%d tuples)%n",
+                    round, bytes / chainSeconds / (1 << 20), bytes / fusedOverLinesSeconds / (1 << 20), bytes / fusedSeconds / (1 << 20), chained);
+            if (chained != fused || chained != fusedOverLines) {
+                System.out.println("  !! tuple counts differ");
+                return;
+            }
+        }
+    }
+
+    /**
+     * 原来的三个过滤器组成的管道
+     */
+    private static AbstractTermTupleStream chain(String path) throws IOException {
+        return new StopWordTermTupleFilter(new PatternTermTupleFilter(new LengthTermTupleFilter(
+                new TermTupleScanner(new BufferedReader(new FileReader(path))))));
+    }
+
+    private static List<AbstractTermTuple> drain(AbstractTermTupleStream stream) {
+        List<AbstractTermTuple> tuples = new ArrayList<>();
+        AbstractTermTuple tuple;
+        while ((tuple = stream.next()) != null) {
+            tuples.add(tuple);
+        }
+        stream.close();
+        return tuples;
+    }
+
+    private static long count(AbstractTermTupleStream stream) {
+        long count = 0;
+        while (stream.next() != null) {
+            count++;
+        }
+        stream.close();
+        return count;
+    }
+}
@@ -0,0 +1,106 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.query.AbstractQuery;
+import hust.cs.javacourse.search.query.impl.IndexSearcher;
+import hust.cs.javacourse.search.query.impl.OrQuery;
+import hust.cs.javacourse.search.query.impl.SimpleSorter;
+import hust.cs.javacourse.search.query.impl.TermQuery;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 比较返回全部命中结果再排序与只保留得分最高的K个结果两种检索方式的耗时，并检查后者与前者的前K个结果一致.
+ * 查询由若干高频单词组成OR查询，命中的文档很多，全部返回时每个命中文档都要创建Hit对象并读取文档内容.
+ *
+ * @author 晋晨曦
+ */
+public class TestTopK {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、查询个数、K
+     * @throws IOException : 生成语料或保存索引失败
+     */
+    public static void main(String[] args) throws IOException {
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        // 大量小文档，使宽泛的查询命中很多文档
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 8L << 20, 1 << 10);
+        AbstractIndex index = new IndexBuilder(new DocumentBuilder()).buildIndex(corpus.getPath());
+        index.optimize();
+        File indexFile = File.createTempFile("topk", ".dat");
+        indexFile.deleteOnExit();
+        index.save(indexFile);
+        IndexSearcher searcher = new IndexSearcher();
+        searcher.open(indexFile.getPath());
+        List<AbstractTerm> dictionary = new ArrayList<>(index.getDictionary());
+        // 按文档频率从高到低排列单词
+        dictionary.sort(Comparator.comparingInt((AbstractTerm term) -> index.search(term).size()).reversed());
+        System.out.println("docs=" + index.docIdToDocPathMapping.size() + ", terms=" + dictionary.size() + ", k=" + k);
+
+        Random random = new Random(42);
+        List<AbstractQuery> queries = new ArrayList<>();
+        for (int i = 0; i < queryCount; i++) {
+            List<AbstractQuery> clauses = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                // 偏向取高频单词
+                int ord = (int) (dictionary.size() * Math.pow(random.nextDouble(), 4));
+                clauses.add(new TermQuery(dictionary.get(ord)));
+            }
+            queries.add(new OrQuery(clauses));
+        }
+
+        SimpleSorter sorter = new SimpleSorter();
+        for (AbstractQuery query : queries) {
+            searcher.search(query, sorter);
+            searcher.search(query, sorter, k);
+        }
+
+        long fullHits = 0;
+        long start = System.nanoTime();
+        List<AbstractHit[]> fullResults = new ArrayList<>();
+        for (AbstractQuery query : queries) {
+            AbstractHit[] hits = searcher.search(query, sorter);
+            fullHits += hits.length;
+            fullResults.add(hits);
+        }
+        double fullMillis = (System.nanoTime() - start) / 1e6;
+
+        long topKHits = 0;
+        start = System.nanoTime();
+        List<AbstractHit[]> topKResults = new ArrayList<>();
+        for (AbstractQuery query : queries) {
+            AbstractHit[] hits = searcher.search(query, sorter, k);
+            topKHits += hits.length;
+            topKResults.add(hits);
+        }
+        double topKMillis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("full sort: %8.1f ms, %d Hit objects%n", fullMillis, fullHits);
+        System.out.printf("top-%-4d : %8.1f ms, %d Hit objects%n", k, topKMillis, topKHits);
+
+        for (int i = 0; i < queries.size(); i++) {
+            AbstractHit[] full = fullResults.get(i);
+            AbstractHit[] topK = topKResults.get(i);
+            boolean same = topK.length == Math.min(k, full.length);
+            for (int j = 0; same && j < topK.length; j++) {
+                same = topK[j].getDocId() == full[j].getDocId() && topK[j].getScore() == full[j].getScore()
+                        && topK[j].getTermPostingMapping().equals(full[j].getTermPostingMapping());
+            }
+            if (!same) {
+                System.out.println("  !! results differ for " + queries.get(i));
+                return;
+            }
+        }
+        System.out.println("all " + queries.size() + " queries match");
+    }
+}
@@ -0,0 +1,141 @@
+package hust.cs.javacourse.search.run;
+
+import hust.cs.javacourse.search.index.AbstractIndex;
+import hust.cs.javacourse.search.index.AbstractTerm;
+import hust.cs.javacourse.search.index.impl.DocumentBuilder;
+import hust.cs.javacourse.search.index.impl.IndexBuilder;
+import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.query.AbstractIndexSearcher;
+import hust.cs.javacourse.search.query.AbstractQuery;
+import hust.cs.javacourse.search.query.Sort;
+import hust.cs.javacourse.search.query.impl.IndexSearcher;
+import hust.cs.javacourse.search.query.impl.OrQuery;
+import hust.cs.javacourse.search.query.impl.SimpleSorter;
+import hust.cs.javacourse.search.query.impl.TermQuery;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 比较多词OR查询按得分取前K个结果的三种做法：
+ * 原来的两词union后全部排序、逐个文档打分放入最小堆、Block-Max WAND跳过不可能进入前K的文档，并检查三者的前K个结果一致.
+ * 检索词按文档频率偏向高频词选取，PostingList越长，WAND能跳过的文档越多.
+ *
+ * @author 晋晨曦
+ */
+public class TestWand {
+    /**
+     * 程序入口
+     *
+     * @param args : 命令行参数，依次为语料目录(不存在时自动生成)、查询个数、K
+     * @throws IOException : 生成语料或保存索引失败
+     */
+    public static void main(String[] args) throws IOException {
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        File corpus = CorpusGenerator.ensure(args.length > 0 ? new File(args[0]) : null, 16L << 20, 1 << 10);
+        AbstractIndex index = new IndexBuilder(new DocumentBuilder()).buildIndex(corpus.getPath());
+        index.optimize();
+        File indexFile = File.createTempFile("wand", ".dat");
+        indexFile.deleteOnExit();
+        index.save(indexFile);
+        IndexSearcher searcher = new IndexSearcher();
+        searcher.open(indexFile.getPath());
+        List<AbstractTerm> dictionary = new ArrayList<>(index.getDictionary());
+        dictionary.sort(Comparator.comparingInt((AbstractTerm term) -> index.search(term).size()).reversed());
+        System.out.println("docs=" + index.docIdToDocPathMapping.size() + ", terms=" + dictionary.size() + ", k=" + k);
+
+        SimpleSorter sorter = new SimpleSorter();
+        // 得分相同但不声明可按检索词分解，search(query, sorter, k)只能逐个文档打分
+        Sort exhaustive = new Sort() {
+            @Override
+            public void sort(List<AbstractHit> hits) {
+                sorter.sort(hits);
+            }
+
+            @Override
+            public double score(AbstractHit hit) {
+                return sorter.score(hit);
+            }
+        };
+        for (int termCount : new int[]{2, 5}) {
+            Random random = new Random(42);
+            List<AbstractTerm[]> queries = new ArrayList<>();
+            for (int i = 0; i < queryCount; i++) {
+                AbstractTerm[] terms = new AbstractTerm[termCount];
+                for (int j = 0; j < termCount; j++) {
+                    terms[j] = dictionary.get((int) (dictionary.size() * Math.pow(random.nextDouble(), 6)));
+                }
+                queries.add(terms);
+            }
+            // 预热
+            for (AbstractTerm[] terms : queries.subList(0, Math.min(50, queries.size()))) {
+                searcher.search(terms[0], terms[1], sorter, AbstractIndexSearcher.LogicalCombination.OR);
+                searcher.search(orQuery(terms), exhaustive, k);
+                searcher.search(orQuery(terms), sorter, k);
+            }
+            System.out.println(termCount + " terms per query:");
+            List<AbstractHit[]> expected = new ArrayList<>();
+            if (termCount == 2) {
+                long start = System.nanoTime();
+                for (AbstractTerm[] terms : queries) {
+                    expected.add(searcher.search(terms[0], terms[1], sorter, AbstractIndexSearcher.LogicalCombination.OR));
+                }
+                report("union + sort", start, queries.size());
+            }
+            long start = System.nanoTime();
+            List<AbstractHit[]> heapResults = new ArrayList<>();
+            for (AbstractTerm[] terms : queries) {
+                heapResults.add(searcher.search(orQuery(terms), exhaustive, k));
+            }
+            report("top-k heap", start, queries.size());
+            start = System.nanoTime();
+            List<AbstractHit[]> wandResults = new ArrayList<>();
+            for (AbstractTerm[] terms : queries) {
+                wandResults.add(searcher.search(orQuery(terms), sorter, k));
+            }
+            report("block-max wand", start, queries.size());
+
+            for (int i = 0; i < queries.size(); i++) {
+                if (!same(heapResults.get(i), wandResults.get(i), k)
+                        || (!expected.isEmpty() && !same(expected.get(i), wandResults.get(i), k))) {
+                    System.out.println("  !! results differ for query " + i);
+                    return;
+                }
+            }
+            System.out.println("  all " + queries.size() + " queries match");
+        }
+    }
+
+    private static AbstractQuery orQuery(AbstractTerm[] terms) {
+        List<AbstractQuery> clauses = new ArrayList<>();
+        for (AbstractTerm term : terms) {
+            clauses.add(new TermQuery(term));
+        }
+        return new OrQuery(clauses);
+    }
+
+    /**
+     * 比较expected的前k个结果与actual的docId和得分
+     */
+    private static boolean same(AbstractHit[] expected, AbstractHit[] actual, int k) {
+        if (actual.length != Math.min(k, expected.length)) {
+            return false;
+        }
+        for (int i = 0; i < actual.length; i++) {
+            if (expected[i].getDocId() != actual[i].getDocId() || expected[i].getScore() != actual[i].getScore()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void report(String name, long start, int queries) {
+        double micros = (System.nanoTime() - start) / 1e3 / queries;
+        System.out.printf("  %-15s: %10.1f us/query%n", name, micros);
+    }
+}
@@ -0,0 +1,305 @@
+package hust.cs.javacourse.search.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import hust.cs.javacourse.search.query.AbstractHit;
+import hust.cs.javacourse.search.query.AbstractIndexSearcher;
+import hust.cs.javacourse.search.query.AbstractQuery;
+import hust.cs.javacourse.search.query.Sort;
+import hust.cs.javacourse.search.query.impl.QueryParser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ * QueryServer是基于JDK内置HttpServer的查询服务，所有请求共享同一个线程安全的检索器和排序器.
+ *      GET /search?q=查询字符串&amp;k=结果个数&amp;snippet=摘要窗口  返回JSON格式的前k个命中结果，
+ *          查询字符串的语法见QueryParser，检索词用索引记录的分析器规范化，k默认为10，snippet大于0时每个结果附带摘要，
+ *          摘要在检索任务中读取文档生成，同样受名额和超时限制;
+ *      GET /stats  返回已处理、被拒绝、超时和失败的请求个数.
+ * 每个请求由一个线程处理: 运行在JDK 21及以上版本时每个请求一个虚拟线程，否则使用按需创建的线程池.
+ * 准入控制: 同时执行的检索个数超过上限时立即返回503，而不是排队;
+ * 超时: 检索超过指定时间时返回504，检索本身不能中断，在后台执行完后才释放占用的名额.
+ * </pre>
+ *
+ * @author 晋晨曦
+ */
+public class QueryServer {
+    /**
+     * 每个请求最多返回的结果个数
+     */
+    public static final int MAX_K = 1000;
+    /**
+     * 摘要窗口(每个命中位置前后保留的单词个数)的上限
+     */
+    public static final int MAX_SNIPPET = 50;
+
+    static {
+        // HttpServer默认不关闭Nagle算法，响应头和响应体分两次写出时会与客户端的延迟确认叠加，每个请求多等约40ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final AbstractIndexSearcher searcher;
+    private final Sort sorter;
+    private final Semaphore permits;
+    private final long timeoutMillis;
+    private final ExecutorService executor;
+    private final HttpServer server;
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * 构造函数，绑定端口但不开始处理请求
+     *
+     * @param searcher             已经打开索引的检索器，必须是线程安全的
+     * @param sorter               排序器，必须是线程安全的
+     * @param port                 监听端口，为0时由系统分配
+     * @param maxConcurrentQueries 同时执行的检索个数上限
+     * @param timeoutMillis        单个请求的超时时间(毫秒)
+     * @throws IOException 绑定端口失败
+     */
+    public QueryServer(AbstractIndexSearcher searcher, Sort sorter, int port, int maxConcurrentQueries, long timeoutMillis) throws IOException {
+        this.searcher = searcher;
+        this.sorter = sorter;
+        this.permits = new Semaphore(maxConcurrentQueries);
+        this.timeoutMillis = timeoutMillis;
+        this.executor = newRequestExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/search", this::handleSearch);
+        server.createContext("/stats", this::handleStats);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * 开始处理请求
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * 停止服务，不再接受新的请求
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * 返回实际监听的端口
+     *
+     * @return 端口
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * 创建处理请求的线程池：有虚拟线程(JDK 21及以上)时每个任务一个虚拟线程，否则按需创建守护线程
+     *
+     * @return 线程池
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "query-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * 处理/search请求
+     */
+    private void handleSearch(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "只支持GET请求");
+                return;
+            }
+            int k;
+            int window;
+            AbstractQuery query;
+            try {
+                // URLDecoder遇到非法的%转义时抛出IllegalArgumentException，同样返回400
+                Map<String, String> params = parseParams(exchange.getRequestURI().getRawQuery());
+                String q = params.get("q");
+                if (q == null || q.trim().isEmpty()) {
+                    throw new IllegalArgumentException("缺少参数q");
+                }
+                k = Integer.parseInt(params.getOrDefault("k", "10"));
+                window = Integer.parseInt(params.getOrDefault("snippet", "0"));
+                if (k <= 0 || k > MAX_K || window < 0 || window > MAX_SNIPPET) {
+                    throw new IllegalArgumentException("k必须在1到" + MAX_K + "之间，snippet必须在0到" + MAX_SNIPPET + "之间");
+                }
+                query = QueryParser.parse(q, searcher.getIndex().getAnalyzer());
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+            if (!permits.tryAcquire()) {
+                rejected.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "同时执行的检索过多");
+                return;
+            }
+            long start = System.nanoTime();
+            CompletableFuture<String> future = CompletableFuture.supplyAsync(
+                    () -> toJson(query, searcher.search(query, sorter, k), window, start), executor);
+            future.whenComplete((json, e) -> permits.release());
+            String json;
+            try {
+                json = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                timedOut.incrementAndGet();
+                sendError(exchange, 504, "检索超时");
+                return;
+            } catch (ExecutionException e) {
+                failed.incrementAndGet();
+                sendError(exchange, 500, String.valueOf(e.getCause()));
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                sendError(exchange, 503, "服务正在停止");
+                return;
+            }
+            send(exchange, 200, json);
+            served.incrementAndGet();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 处理/stats请求
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            send(exchange, 200, "{\"served\":" + served.get() + ",\"rejected\":" + rejected.get() +
+                    ",\"timedOut\":" + timedOut.get() + ",\"failed\":" + failed.get() +
+                    ",\"available\":" + permits.availablePermits() + "}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 把命中结果转换成JSON，window大于0时读取文档生成摘要，耗时计算到所有摘要生成完为止
+     */
+    private static String toJson(AbstractQuery query, AbstractHit[] hits, int window, long start) {
+        StringBuilder body = new StringBuilder(64 + hits.length * 96);
+        for (int i = 0; i < hits.length; i++) {
+            AbstractHit hit = hits[i];
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"docId\":").append(hit.getDocId()).append(",\"path\":");
+            appendString(body, hit.getDocPath());
+            body.append(",\"score\":").append(hit.getScore());
+            if (window > 0) {
+                body.append(",\"snippet\":");
+                appendString(body, hit.getSnippet(window));
+            }
+            body.append('}');
+        }
+        StringBuilder json = new StringBuilder(body.length() + 64);
+        json.append("{\"query\":");
+        appendString(json, query.toString());
+        json.append(",\"tookMs\":").append((System.nanoTime() - start) / 1000 / 1000.0);
+        json.append(",\"count\":").append(hits.length).append(",\"hits\":[");
+        return json.append(body).append("]}").toString();
+    }
+
+    /**
+     * 以JSON字符串的形式追加value，转义引号、反斜杠和控制字符
+     */
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * 解析URL中的查询参数，同名参数取最后一个
+     */
+    private static Map<String, String> parseParams(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        appendString(json, message);
+        send(exchange, status, json.append('}').toString());
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * 基于JDK内置HttpServer的查询服务放在这个包里，多个请求共享同一个线程安全的检索器
+ */
+package hust.cs.javacourse.search.server;
@@ -73,4 +73,105 @@ public class Config {
      * </pre>
      */
     public static int TERM_FILTER_MAXLENGTH = 20;
+
+    /**
+     * <pre>
+     * 构建索引时是否用Porter算法提取词干.
+     * 为true时running、runs都作为run写入倒排索引，检索时检索词也提取词干，两者用同一个分析器;
+     * 分析器的设置随索引一起保存，加载索引后检索时使用建立索引时的设置，而不是当前的Config.
+     * </pre>
+     */
+    public static boolean STEMMING = false;
+
+    /**
+     * <pre>
+     * 是否以压缩的段格式保存索引.
+     * 为true时AbstractIndex.save写出差分+VByte编码的倒排文件和.dict字典文件;
+     * 为false时使用ObjectOutputStream序列化整个索引.
+     * 加载时会根据文件头自动识别两种格式. 默认为false，保持原来的index.dat格式.
+     * </pre>
+     */
+    public static boolean INDEX_COMPRESSED = false;
+
+    /**
+     * <pre>
+     * 检索时是否以内存映射方式打开段格式的索引文件.
+     * 为true时IndexSearcher.open使用只读的MappedIndex，启动时不解码倒排列表;
+     * 为false时把整个索引解码到内存中的Index对象. 默认为false.
+     * </pre>
+     */
+    public static boolean SEARCH_MMAP = false;
+
+    /**
+     * <pre>
+     * 文档内容缓存的容量(字符数).
+     * 命中结果的文档内容在第一次调用getContent时才读取，读出的内容放入按LRU淘汰的DocumentContentCache.
+     * </pre>
+     */
+    public static long CONTENT_CACHE_MAX_CHARS = 8L << 20;
+
+    /**
+     * <pre>
+     * 显示命中结果时的摘要窗口大小(单词个数).
+     * 大于0时Hit.toString只显示每个命中位置前后各这么多个单词的摘要，读取文件时读到最后一个窗口为止;
+     * 为0时显示文档全文.
+     * </pre>
+     */
+    public static int SNIPPET_WINDOW = 0;
+
+    /**
+     * <pre>
+     * 检索结果缓存(CachingIndexSearcher)最多缓存的查询个数.
+     * 与QUERY_CACHE_MAX_BYTES一起限制缓存大小，任意一个超出时按LRU淘汰.
+     * </pre>
+     */
+    public static int QUERY_CACHE_MAX_ENTRIES = 10000;
+
+    /**
+     * 检索结果缓存估计占用的最大内存(字节)
+     */
+    public static long QUERY_CACHE_MAX_BYTES = 32L << 20;
+
+    /**
+     * <pre>
+     * MappedIndex解码后的倒排列表缓存(PostingListCache)占用的最大字节数.
+     * 高频词的倒排列表解码一次后留在缓存中，之后的查询不再解码;为0时不缓存，每次检索都重新解码.
+     * </pre>
+     */
+    public static long POSTING_CACHE_MAX_BYTES = 64L << 20;
+
+    /**
+     * <pre>
+     * 增量索引(SegmentedIndex)的合并因子.
+     * 按未删除文档个数以它为底取对数给段分级，相邻的同级段攒够这么多个时由后台线程合并成一个段.
+     * 越大合并越少、段越多，检索时需要拼接的倒排列表也越多.
+     * </pre>
+     */
+    public static int SEGMENT_MERGE_FACTOR = 10;
+
+    /**
+     * 增量索引中未提交的文档达到这么多个时自动提交，写成一个新段
+     */
+    public static int SEGMENT_MAX_BUFFERED_DOCS = 10000;
+
+    /**
+     * 查询服务监听的端口，为0时由系统分配空闲端口
+     */
+    public static int SERVER_PORT = 8080;
+
+    /**
+     * <pre>
+     * 查询服务同时执行的检索个数上限(准入控制).
+     * 正在执行的检索达到上限时，新的请求直接返回503，而不是排队等待，避免过载时所有请求的延迟一起变长.
+     * </pre>
+     */
+    public static int SERVER_MAX_CONCURRENT_QUERIES = 64;
+
+    /**
+     * <pre>
+     * 查询服务单个请求的超时时间(毫秒).
+     * 超时的请求返回504，检索本身在后台执行完后才释放占用的并发名额.
+     * </pre>
+     */
+    public static long SERVER_QUERY_TIMEOUT_MILLIS = 2000;
 }
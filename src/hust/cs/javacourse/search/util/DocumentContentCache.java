@@ -0,0 +1,121 @@
+package hust.cs.javacourse.search.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <pre>
+ * 文档内容缓存.
+ *      以文档绝对路径为键缓存FileUtil.read读出的文档全文，按最近最少使用(LRU)的顺序淘汰.
+ *      容量按缓存的字符总数限制，而不是按文档个数，避免少数大文档占满内存;
+ *      单个文档超过容量时直接返回读出的内容，不放入缓存.
+ *      所有方法都是线程安全的，可以被多个检索线程共享; 读取文件在锁外进行，不同文档的读取互不阻塞.
+ *      多个线程同时读取同一个未缓存的文档时各自读取一次，只有第一个读完的结果放入缓存.
+ * </pre>
+ *
+ * @author 晋晨曦
+ */
+public class DocumentContentCache {
+    private static final DocumentContentCache DEFAULT = new DocumentContentCache(Config.CONTENT_CACHE_MAX_CHARS);
+
+    private final long maxChars;
+    private final LinkedHashMap<String, String> contents = new LinkedHashMap<>(16, 0.75f, true);
+    private long chars;
+    private long loadCount;
+
+    /**
+     * 构造函数
+     * @param maxChars ：缓存的最大字符总数
+     */
+    public DocumentContentCache(long maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * 返回命中结果共用的缓存，容量由Config.CONTENT_CACHE_MAX_CHARS指定
+     * @return ：共用的缓存
+     */
+    public static DocumentContentCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 返回文档全文，不在缓存中时读取文件并放入缓存
+     * @param docPath ：文档绝对路径
+     * @return ：文档全文，读取失败时返回null
+     */
+    public String get(String docPath) {
+        synchronized (this) {
+            String content = contents.get(docPath);
+            if (content != null) {
+                return content;
+            }
+            loadCount++;
+        }
+        String content = FileUtil.read(docPath);
+        if (content != null && content.length() <= maxChars) {
+            synchronized (this) {
+                String previous = contents.putIfAbsent(docPath, content);
+                if (previous != null) {
+                    return previous;
+                }
+                chars += content.length();
+                evict();
+            }
+        }
+        return content;
+    }
+
+    /**
+     * 只在缓存中查找文档全文，不读取文件
+     * @param docPath ：文档绝对路径
+     * @return ：缓存的文档全文，不在缓存中时返回null
+     */
+    public synchronized String getIfPresent(String docPath) {
+        return contents.get(docPath);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        contents.clear();
+        chars = 0;
+    }
+
+    /**
+     * 返回缓存的文档个数
+     * @return ：文档个数
+     */
+    public synchronized int size() {
+        return contents.size();
+    }
+
+    /**
+     * 返回缓存的字符总数
+     * @return ：字符总数
+     */
+    public synchronized long chars() {
+        return chars;
+    }
+
+    /**
+     * 返回创建以来因缓存未命中而读取文件的次数
+     * @return ：读取文件的次数
+     */
+    public synchronized long loadCount() {
+        return loadCount;
+    }
+
+    /**
+     * 从最久未使用的文档开始淘汰，直到字符总数不超过容量
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, String>> it = contents.entrySet().iterator();
+        while (chars > maxChars && it.hasNext()) {
+            chars -= it.next().getValue().length();
+            it.remove();
+        }
+    }
+}
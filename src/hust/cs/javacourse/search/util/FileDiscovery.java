@@ -0,0 +1,284 @@
+package hust.cs.javacourse.search.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <pre>
+ * 在后台线程中递归遍历目录树，把匹配过滤条件的文件的绝对路径依次放入一个有界队列，调用者按迭代器的方式取出.
+ *      遍历和调用者对文件的处理(例如分词、建索引)同时进行，不需要先列出整棵目录树;
+ *      根目录下的各个子目录由最多threads个线程同时遍历，每个子目录的结果先放入它自己的有界队列，
+ *      再由遍历线程按目录项的顺序依次转交，因此给出文件的顺序与单线程的Files.walkFileTree相同，建立的索引的docId不随线程调度变化;
+ *      队列满时遍历线程等待，因此无论目录树有多大，内存中最多只有(threads + 2) * capacity个路径.
+ *      子目录使用Files.walkFileTree遍历，文件属性随目录项一起读出，不对每个文件调用getCanonicalPath;
+ *      路径是根目录的绝对、规范化路径加上相对路径，不解析符号链接，也不进入链接到的目录.
+ *      过滤条件匹配的是文件相对于根目录的路径，见FileUtil.suffixFilter和FileUtil.globFilter.
+ *      无法访问的文件或子目录打印异常后跳过;遍历本身失败(例如根目录不可读)时hasNext抛出UncheckedIOException.
+ *      迭代器不是线程安全的，多个线程共享时需要调用者同步.用完(或提前放弃)后应当调用close结束遍历线程.
+ * </pre>
+ *
+ * @author 晋晨曦
+ */
+public class FileDiscovery implements Iterator<String>, Closeable {
+    /**
+     * 默认的队列容量
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+    /**
+     * 默认同时遍历的子目录个数。遍历主要在等待读取目录，CPU只有一个时也用两个线程
+     */
+    public static final int DEFAULT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    /**
+     * 遍历结束的标记，用引用比较
+     */
+    private static final String END = new String();
+
+    private final Path root;
+    private final PathMatcher filter;
+    private final int capacity;
+    private final int threads;
+    private final BlockingQueue<String> queue;
+    private final ExecutorService subtreeWalkers;
+    private final Thread walker;
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private String next;
+
+    /**
+     * 构造函数，用DEFAULT_THREADS个线程遍历子目录，立即启动遍历线程
+     * @param rootDirectory ：根目录，不存在或不是目录时没有任何文件
+     * @param filter        ：文件过滤条件，匹配相对于根目录的路径
+     * @param capacity      ：队列容量
+     */
+    public FileDiscovery(String rootDirectory, PathMatcher filter, int capacity) {
+        this(rootDirectory, filter, capacity, DEFAULT_THREADS);
+    }
+
+    /**
+     * 构造函数，立即启动遍历线程
+     * @param rootDirectory ：根目录，不存在或不是目录时没有任何文件
+     * @param filter        ：文件过滤条件，匹配相对于根目录的路径
+     * @param capacity      ：队列容量，每个正在遍历的子目录也有一个同样容量的队列
+     * @param threads       ：同时遍历的子目录个数
+     */
+    public FileDiscovery(String rootDirectory, PathMatcher filter, int capacity, int threads) {
+        this.root = Paths.get(rootDirectory).toAbsolutePath().normalize();
+        this.filter = filter;
+        this.capacity = capacity;
+        this.threads = threads;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.subtreeWalkers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "file-discovery-subtree");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.walker = new Thread(this::walk, "file-discovery");
+        walker.setDaemon(true);
+        walker.start();
+    }
+
+    /**
+     * 遍历线程的主体：遍历结束、失败或被关闭后都停止子目录的遍历线程并放入结束标记
+     */
+    private void walk() {
+        try {
+            if (Files.isDirectory(root)) {
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+                    walkRoot(entries.iterator());
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (DirectoryIteratorException e) {
+            failure = e.getCause();
+        } catch (InterruptedException e) {
+            // 被close中断，调用者不会再取
+        } finally {
+            subtreeWalkers.shutdownNow();
+            if (!closed) {
+                try {
+                    queue.put(END);
+                } catch (InterruptedException e) {
+                    // 被close中断，调用者不会再取
+                }
+            }
+        }
+    }
+
+    /**
+     * 按目录项的顺序给出根目录中的文件和各个子目录中的文件.
+     * 读到的子目录立即交给线程池遍历，最多同时有threads个子目录在遍历或等待转交，
+     * 排在前面的子目录转交完之后才继续读目录项，根目录中暂存的文件也不超过capacity个
+     * @param entries ：根目录的目录项
+     * @throws InterruptedException ：被close中断
+     */
+    private void walkRoot(Iterator<Path> entries) throws InterruptedException {
+        // Path为根目录中匹配的文件，Subtree为子目录
+        Deque<Object> pending = new ArrayDeque<>();
+        int subtrees = 0;
+        while (!closed) {
+            while (subtrees < threads && pending.size() < capacity && entries.hasNext()) {
+                Path entry = entries.next();
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    continue;
+                }
+                if (attrs.isDirectory()) {
+                    Subtree subtree = new Subtree(entry);
+                    subtreeWalkers.execute(subtree);
+                    pending.add(subtree);
+                    subtrees++;
+                } else if (attrs.isRegularFile() && filter.matches(root.relativize(entry))) {
+                    pending.add(entry);
+                }
+            }
+            Object head = pending.poll();
+            if (head == null) {
+                return;
+            }
+            if (head instanceof Subtree) {
+                ((Subtree) head).drainTo(queue);
+                subtrees--;
+            } else {
+                queue.put(head.toString());
+            }
+        }
+    }
+
+    /**
+     * 是否还有文件，队列为空而遍历还没有结束时等待
+     * @return ：还有文件时返回true
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            if (closed) {
+                return false;
+            }
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待文件时被中断", e);
+            }
+        }
+        if (next == END && failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+        return next != END;
+    }
+
+    /**
+     * 返回下一个文件的绝对路径
+     * @return ：文件的绝对路径
+     */
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String path = next;
+        next = null;
+        return path;
+    }
+
+    /**
+     * 结束遍历线程，之后hasNext总是返回false
+     */
+    @Override
+    public void close() {
+        closed = true;
+        walker.interrupt();
+    }
+
+    /**
+     * 在线程池中用Files.walkFileTree遍历根目录下的一个子目录，把匹配的文件放入自己的有界队列
+     */
+    private class Subtree implements Runnable {
+        private final Path directory;
+        private final BlockingQueue<String> paths = new ArrayBlockingQueue<>(capacity);
+
+        /**
+         * 构造函数
+         * @param directory ：根目录下的子目录
+         */
+        Subtree(Path directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * 遍历子目录，结束、失败或被中断后放入结束标记
+         */
+        @Override
+        public void run() {
+            try {
+                Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        return closed ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isRegularFile() && filter.matches(root.relativize(file))) {
+                            try {
+                                paths.put(file.toString());
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                return FileVisitResult.TERMINATE;
+                            }
+                        }
+                        return closed ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        e.printStackTrace();
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                try {
+                    paths.put(END);
+                } catch (InterruptedException e) {
+                    // 被close中断，不会再被转交
+                }
+            }
+        }
+
+        /**
+         * 把子目录中的文件依次转交到输出队列，直到子目录遍历结束
+         * @param queue ：输出队列
+         * @throws InterruptedException ：被close中断
+         */
+        void drainTo(BlockingQueue<String> queue) throws InterruptedException {
+            for (String path = paths.take(); path != END; path = paths.take()) {
+                queue.put(path);
+            }
+        }
+    }
+}
@@ -1,13 +1,20 @@
 package hust.cs.javacourse.search.util;
 
 import java.io.*;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * 文件操作的工具类
  */
 public class FileUtil {
+    private static final Pattern SPLIT_PATTERN = Pattern.compile(Config.STRING_SPLITTER_REGEX);
+
     private FileUtil(){}
 
     /**
@@ -42,6 +49,116 @@ public class FileUtil {
         return s;
     }
 
+    /**
+     * <pre>
+     * 读取文本文件中指定单词位置附近的摘要.
+     * 单词位置与建立索引时TermTupleScanner给出的位置一致，即按Config.STRING_SPLITTER_REGEX切分出的第几个单词.
+     * 每个位置前后各取window个单词，重叠的窗口合并，不同窗口的片段之间用"..."连接.
+     * 读到最后一个窗口结束就停止，不读取文件的其余部分.
+     * </pre>
+     * @param filePath  ：指定文本文件的绝对路径
+     * @param positions ：单词位置
+     * @param window    ：每个位置前后保留的单词个数
+     * @return ：摘要，读取失败时返回null
+     */
+    public static String readSnippet(String filePath, int[] positions, int window){
+        String s = null;
+        BufferedReader reader = null;
+        try{
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(new File(filePath))));
+            s = snippet(reader, positions, window);
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        finally {
+            if(reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * 从已经读入内存的文档全文中取出指定单词位置附近的摘要，规则与readSnippet相同
+     * @param content   ：文档全文
+     * @param positions ：单词位置
+     * @param window    ：每个位置前后保留的单词个数
+     * @return ：摘要
+     */
+    public static String snippet(String content, int[] positions, int window){
+        try {
+            return snippet(new BufferedReader(new StringReader(content)), positions, window);
+        } catch (IOException e) {
+            // StringReader不会抛出IOException
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 逐行切分单词并计数，把落在窗口内的单词连同它们之间的原文标点拼接成片段
+     */
+    private static String snippet(BufferedReader reader, int[] positions, int window) throws IOException {
+        int[] sorted = positions.length == 0 ? new int[]{0} : positions.clone();
+        Arrays.sort(sorted);
+        StringBuilder buf = new StringBuilder();
+        int next = 0;           // 下一个还没有处理的位置
+        int windowStart = -1;   // 当前窗口的起止单词位置，-1表示不在窗口内
+        int windowEnd = -1;
+        int pos = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            Matcher match = SPLIT_PATTERN.matcher(line);
+            int lastEnd = 0;
+            int prevEnd = -1;   // 本行上一个放入片段的单词的结束下标
+            boolean more = true;
+            while (more) {
+                int start = lastEnd;
+                int end;
+                if (match.find()) {
+                    end = match.start();
+                    lastEnd = match.end();
+                } else {
+                    end = line.length();
+                    more = false;
+                }
+                if (start >= end) {
+                    continue;
+                }
+                if (windowStart < 0 && next == sorted.length) {
+                    // 所有窗口都已结束，后面还有单词，说明摘要之后还有内容
+                    return buf.append(" ...").toString();
+                }
+                if (windowStart < 0 && pos >= sorted[next] - window) {
+                    windowStart = pos;
+                    windowEnd = sorted[next] + window;
+                    buf.append(buf.length() > 0 ? " ... " : windowStart > 0 ? "... " : "");
+                }
+                if (windowStart >= 0) {
+                    if (pos > windowStart) {
+                        buf.append(prevEnd >= 0 ? line.substring(prevEnd, start) : " ");
+                    }
+                    buf.append(line, start, end);
+                    prevEnd = end;
+                    while (next < sorted.length && sorted[next] - window <= windowEnd + 1) {
+                        windowEnd = Math.max(windowEnd, sorted[next] + window);
+                        next++;
+                    }
+                    if (pos == windowEnd) {
+                        windowStart = -1;
+                    }
+                }
+                pos++;
+            }
+        }
+        return buf.toString();
+    }
+
     /**
      * 将字符串写入到指定的文本文件
      * @param content  ：  写入的内容
@@ -114,6 +231,56 @@ public class FileUtil {
         return filePaths;
     }
 
+    /**
+     * 匹配所有文件的过滤条件
+     */
+    public static final PathMatcher ALL_FILES = path -> true;
+
+    /**
+     * 返回按后缀名过滤文件的条件，与list(dirPath, suffix)一样不区分大小写
+     * @param suffix ：指定后缀名, 如 .txt
+     * @return ：过滤条件
+     */
+    public static PathMatcher suffixFilter(String suffix){
+        String lowerSuffix = suffix.toLowerCase();
+        return path -> path.getFileName().toString().toLowerCase().endsWith(lowerSuffix);
+    }
+
+    /**
+     * 返回按glob模式过滤文件的条件，模式匹配的是文件相对于根目录的路径,
+     * 例如 *.txt 只匹配根目录下的.txt文件，**&#47;*.txt 匹配所有子目录中的.txt文件
+     * @param glob ：glob模式，语法见FileSystem.getPathMatcher
+     * @return ：过滤条件
+     */
+    public static PathMatcher globFilter(String glob){
+        return FileSystems.getDefault().getPathMatcher("glob:" + glob);
+    }
+
+    /**
+     * 在后台线程中递归遍历指定目录，按遍历顺序逐个给出匹配过滤条件的文件的绝对路径,
+     * 调用者可以一边取一边处理，不需要等整棵目录树遍历完.用完后应当调用close
+     * @param dirPath ：指定目录
+     * @param filter  ：过滤条件，匹配文件相对于指定目录的路径
+     * @return ：文件路径的迭代器
+     */
+    public static FileDiscovery discover(String dirPath, PathMatcher filter){
+        return new FileDiscovery(dirPath, filter, FileDiscovery.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * 递归列出指定目录及其所有子目录中匹配过滤条件的文件的绝对路径
+     * @param dirPath ：指定目录
+     * @param filter  ：过滤条件，匹配文件相对于指定目录的路径
+     * @return ：所有匹配的文件绝对路径列表，顺序与discover相同
+     */
+    public static List<String> listRecursively(String dirPath, PathMatcher filter){
+        List<String> filePaths = new ArrayList<String>();
+        try (FileDiscovery files = discover(dirPath, filter)) {
+            files.forEachRemaining(filePaths::add);
+        }
+        return filePaths;
+    }
+
     public static void main(String[] args){
         //从文件读
         String fileName = Config.DOC_DIR + "1.txt";
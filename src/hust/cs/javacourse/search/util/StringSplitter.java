@@ -6,13 +6,13 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * 字符串分割类，根据标点符号和空白符将字符串分成一个个单词
+ * 字符串分割类，根据标点符号和空白符将字符串分成一个个单词.
+ * Pattern是不可变的，每次分割使用自己的Matcher，设置好正则表达式后splitByRegex可以被多个线程同时调用
  */
 public class StringSplitter {
     public StringSplitter(){}
-    private  String splitRegex = null;
-    private  Pattern pattern = null;
-    private  Matcher match = null;
+    private volatile String splitRegex = null;
+    private volatile Pattern pattern = null;
 
     /**
      * 设置分词用的正则表达式
@@ -30,7 +30,7 @@ public class StringSplitter {
      */
     public  List<String> splitByRegex(String input){
         List<String> list = new ArrayList<String>();
-        match = pattern.matcher(input);
+        Matcher match = pattern.matcher(input);
 
         String part = null;
         int lastEnd = 0;
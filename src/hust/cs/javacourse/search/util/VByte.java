@@ -0,0 +1,81 @@
+package hust.cs.javacourse.search.util;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * <pre>
+ * 变长字节(Variable Byte)编码工具类.
+ *      每个字节的低7位保存数据，最高位为1表示后面还有字节，为0表示当前数值结束.
+ *      较小的非负整数只占1~2个字节，适合保存排序后做差分(delta)的docId和位置.
+ * </pre>
+ */
+public class VByte {
+    private VByte() {
+    }
+
+    /**
+     * 写入一个非负int
+     * @param out   ：输出对象
+     * @param value ：要写入的非负整数
+     * @throws IOException ：写入失败
+     */
+    public static void writeInt(DataOutput out, int value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("VByte只能编码非负整数: " + value);
+        }
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * 写入一个非负long
+     * @param out   ：输出对象
+     * @param value ：要写入的非负整数
+     * @throws IOException ：写入失败
+     */
+    public static void writeLong(DataOutput out, long value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("VByte只能编码非负整数: " + value);
+        }
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * 从ByteBuffer的当前位置读取一个int，并移动ByteBuffer的位置
+     * @param in ：输入缓冲区
+     * @return ：读到的整数
+     */
+    public static int readInt(ByteBuffer in) {
+        int b = in.get();
+        int value = b & 0x7F;
+        for (int shift = 7; b < 0; shift += 7) {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+        }
+        return value;
+    }
+
+    /**
+     * 从ByteBuffer的当前位置读取一个long，并移动ByteBuffer的位置
+     * @param in ：输入缓冲区
+     * @return ：读到的整数
+     */
+    public static long readLong(ByteBuffer in) {
+        long b = in.get();
+        long value = b & 0x7F;
+        for (int shift = 7; b < 0; shift += 7) {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+        }
+        return value;
+    }
+}